@@ -0,0 +1,39 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.io;
+
+import java.io.IOException;
+
+/**
+ * A SeekableInput whose content can be read by several threads at once.
+ * Each caller obtains its own view of the content via {@link #createView()},
+ * a view has its own file pointer so no thread access locking is needed
+ * between views.
+ *
+ * @since 6.3
+ */
+public interface ConcurrentSeekableInput extends SeekableInput {
+
+    /**
+     * Creates a new SeekableInput over the same content with an independent
+     * file pointer, positioned at the start of the content.  The view is
+     * only intended to be used by one thread.
+     *
+     * @return new independent view of this input.
+     * @throws IOException if the input has been closed.
+     */
+    public SeekableInput createView() throws IOException;
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * SeekableInput implementation that memory maps the underlying file using
+ * FileChannel.map().  Files larger then the maximum mappable size of a single
+ * buffer are mapped as a series of fixed size segments so documents over 2GB
+ * can be read.
+ * <p>
+ * Reads are positional against the mapped segments and never touch the
+ * file descriptor, so no system call is made per read() as is the case with
+ * {@link RandomAccessFileInputStream}.  Each instance keeps its own file
+ * pointer and its own duplicates of the mapped segments, the mapped content
+ * itself is shared and read only so views created with {@link #createView()}
+ * can be read concurrently.
+ * <p>
+ * The mapping is reference counted, the stream and each of its views hold a
+ * reference that is given up on close().  Once the last one is closed the
+ * segments are unmapped right away rather then when they're garbage
+ * collected, otherwise the file would stay locked on Windows after the
+ * document is disposed.
+ *
+ * @since 6.3
+ */
+public class MappedFileInputStream extends InputStream implements ConcurrentSeekableInput {
+
+    private static final Logger logger =
+            Logger.getLogger(MappedFileInputStream.class.toString());
+
+    // 1GB segments, keeps segment offsets in int range.
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final Mapping mapping;
+    private ByteBuffer[] segments;
+    private final long length;
+    private long position;
+    private long markPosition;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Maps the given file read only.  The file channel is closed once the
+     * mapping is established, the mapping stays valid until the stream and
+     * all its views are closed.
+     *
+     * @param file file to map.
+     * @return new seekable input over the mapped file.
+     * @throws IOException file could not be opened or mapped.
+     */
+    public static MappedFileInputStream build(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            int segmentCount = (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            ByteBuffer[] segments = new ByteBuffer[Math.max(segmentCount, 1)];
+            try {
+                for (int i = 0; i < segments.length; i++) {
+                    long start = (long) i << SEGMENT_SHIFT;
+                    long size = Math.min(SEGMENT_SIZE, length - start);
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(size, 0));
+                }
+            } catch (IOException e) {
+                unmap(segments);
+                throw e;
+            }
+            return new MappedFileInputStream(new Mapping(segments), length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private MappedFileInputStream(Mapping mapping, long length) {
+        super();
+        this.mapping = mapping;
+        // duplicate so this instance's buffer positions are independent.
+        ByteBuffer[] mappedSegments = mapping.segments;
+        segments = new ByteBuffer[mappedSegments.length];
+        for (int i = 0; i < mappedSegments.length; i++) {
+            segments[i] = mappedSegments[i].duplicate();
+        }
+        this.length = length;
+        position = 0L;
+        markPosition = 0L;
+    }
+
+    //
+    // InputStream overrides
+    //
+
+    public int read() throws IOException {
+        ensureOpen();
+        if (position >= length) {
+            return -1;
+        }
+        int b = segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK)) & 0xFF;
+        position++;
+        return b;
+    }
+
+    public int read(byte[] buffer) throws IOException {
+        return read(buffer, 0, buffer.length);
+    }
+
+    public int read(byte[] buffer, int offset, int len) throws IOException {
+        ensureOpen();
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= length) {
+            return -1;
+        }
+        int total = 0;
+        while (len > 0 && position < length) {
+            ByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)];
+            int segmentOffset = (int) (position & SEGMENT_MASK);
+            int count = Math.min(len, segment.limit() - segmentOffset);
+            ((Buffer) segment).position(segmentOffset);
+            segment.get(buffer, offset, count);
+            position += count;
+            offset += count;
+            len -= count;
+            total += count;
+        }
+        return total;
+    }
+
+    public void close() throws IOException {
+        // wait for any thread reading under beginThreadAccess().
+        lock.lock();
+        try {
+            if (segments != null) {
+                segments = null;
+                mapping.release();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int available() {
+        return (int) Math.min(Math.max(length - position, 0), Integer.MAX_VALUE);
+    }
+
+    public void mark(int readLimit) {
+        markPosition = position;
+    }
+
+    public boolean markSupported() {
+        return true;
+    }
+
+    public void reset() throws IOException {
+        position = markPosition;
+    }
+
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        long skipped = Math.min(n, Math.max(length - position, 0));
+        position += skipped;
+        return skipped;
+    }
+
+    //
+    // SeekableInput implementation
+    //  (which are not already covered by InputStream overrides)
+    //
+
+    public void seekAbsolute(long absolutePosition) throws IOException {
+        position = absolutePosition;
+    }
+
+    public void seekRelative(long relativeOffset) throws IOException {
+        long pos = position + relativeOffset;
+        if (pos < 0L)
+            pos = 0L;
+        position = pos;
+    }
+
+    public void seekEnd() throws IOException {
+        seekAbsolute(length);
+    }
+
+    public long getAbsolutePosition() throws IOException {
+        return position;
+    }
+
+    public long getLength() throws IOException {
+        return length;
+    }
+
+    public InputStream getInputStream() {
+        return this;
+    }
+
+    public void beginThreadAccess() {
+        lock.lock();
+    }
+
+    public void endThreadAccess() {
+        lock.unlock();
+    }
+
+    public SeekableInput createView() throws IOException {
+        ensureOpen();
+        if (!mapping.acquire()) {
+            throw new IOException("Stream closed");
+        }
+        return new MappedFileInputStream(mapping, length);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (segments == null) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    /**
+     * Releases the given mapped buffers without waiting for them to be
+     * garbage collected.  There's no public api for this, on Java 9 and later
+     * sun.misc.Unsafe.invokeCleaner() is used, on Java 8 the buffer's own
+     * cleaner.  If neither is available the buffers are left to the garbage
+     * collector.
+     *
+     * @param buffers buffers returned by FileChannel.map(), not duplicates.
+     */
+    private static void unmap(ByteBuffer[] buffers) {
+        for (ByteBuffer buffer : buffers) {
+            if (buffer == null || !buffer.isDirect()) {
+                continue;
+            }
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException e) {
+                // Java 8, DirectByteBuffer.cleaner().clean()
+                try {
+                    Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                    cleanerMethod.setAccessible(true);
+                    Object cleaner = cleanerMethod.invoke(buffer);
+                    if (cleaner != null) {
+                        cleaner.getClass().getMethod("clean").invoke(cleaner);
+                    }
+                } catch (Exception ex) {
+                    logger.log(Level.FINE, "Mapped buffer could not be released.", ex);
+                    return;
+                }
+            } catch (Exception e) {
+                logger.log(Level.FINE, "Mapped buffer could not be released.", e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Mapped segments shared by a stream and its views.
+     */
+    private static class Mapping {
+        private final ByteBuffer[] segments;
+        private int references = 1;
+
+        Mapping(ByteBuffer[] segments) {
+            this.segments = segments;
+        }
+
+        synchronized boolean acquire() {
+            if (references <= 0) {
+                return false;
+            }
+            references++;
+            return true;
+        }
+
+        synchronized void release() {
+            references--;
+            if (references == 0) {
+                unmap(segments);
+            }
+        }
+    }
+}
@@ -24,7 +24,7 @@ import java.util.logging.Logger;
  * @author Mark Collette
  * @since 2.0
  */
-public class SeekableByteArrayInputStream extends ByteArrayInputStream implements SeekableInput {
+public class SeekableByteArrayInputStream extends ByteArrayInputStream implements ConcurrentSeekableInput {
 
     private static final Logger log =
             Logger.getLogger(SeekableByteArrayInputStream.class.toString());
@@ -79,6 +79,10 @@ public class SeekableByteArrayInputStream extends ByteArrayInputStream implement
         return this;
     }
 
+    public SeekableInput createView() {
+        return new SeekableByteArrayInputStream(buf, m_iBeginningOffset, count - m_iBeginningOffset);
+    }
+
 
     public void beginThreadAccess() {
         lock.lock();
@@ -21,10 +21,11 @@ import org.icepdf.core.util.Utils;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,10 +44,24 @@ public class CrossReference {
     public static final Name W_KEY = new Name("W");
 
     /**
-     * Map of all the objects in reference by the CrossReference table.  Ojbects
-     * are retrieved by object number.
+     * All the objects in reference by the CrossReference table, kept in
+     * primitive arrays.  Ojbects are retrieved by object number.  Once the
+     * chain is merged this also holds the entries of the peer and previous
+     * cross references, used entry file positions adjusted to this section's
+     * offset.
      */
-    private ConcurrentHashMap<Number, Entry> hObjectNumber2Entry;
+    private volatile CrossReferenceEntryTable entries;
+    /**
+     * True once the peer and previous cross references have been folded into
+     * this section's entries.
+     */
+    private volatile boolean chainMerged;
+    /**
+     * Newest section this section's entries were folded into, lookups are
+     * passed on to it.
+     */
+    private volatile CrossReference mergedInto;
+    private boolean merging;
     /**
      * In a Linearized PDF, we don't want to load all Trailers and their XRefs
      * upfront, but would rather load the first upfront, and then lazily load
@@ -69,7 +84,6 @@ public class CrossReference {
     protected int offset;
 
     public CrossReference() {
-        hObjectNumber2Entry = new ConcurrentHashMap<Number, Entry>(4096);
     }
 
     public void setTrailer(PTrailer trailer) {
@@ -150,6 +164,15 @@ public class CrossReference {
                 objNumAndEntriesCountPairs.add(0);
                 objNumAndEntriesCountPairs.add(size);
             }
+            // size the entry table for this section's entries.
+            if (entries == null && objNumAndEntriesCountPairs.size() >= 2) {
+                int entriesCount = 0;
+                for (int i = 1; i < objNumAndEntriesCountPairs.size(); i += 2) {
+                    entriesCount += objNumAndEntriesCountPairs.get(i).intValue();
+                }
+                entries = new CrossReferenceEntryTable(
+                        objNumAndEntriesCountPairs.get(0).intValue(), entriesCount);
+            }
             // three int's: field values, x,y and z bytes in length.
             List fieldSizesVec = (List) library.getObject(xrefStreamHash, W_KEY);
             int[] fieldSizes = null;
@@ -209,42 +232,138 @@ public class CrossReference {
     }
 
     public Entry getEntryForObject(Integer objectNumber) {
-        Entry entry = hObjectNumber2Entry.get(objectNumber);
-        if (entry != null)
+        CrossReference root = mergedInto;
+        if (root != null)
+            return root.getEntryForObject(objectNumber);
+        Entry entry = getEntry(entries, objectNumber);
+        if (entry != null || chainMerged)
             return entry;
-        /// fall back code to look for another xref table.
+        /// fall back on the peer and previous xref tables.
+        mergeChain();
+        return getEntry(entries, objectNumber);
+    }
+
+    /**
+     * Builds the entry for the given object from the given table.
+     *
+     * @param table        table to search
+     * @param objectNumber object number to look up
+     * @return entry for the object, null if the table has no entry.
+     */
+    private Entry getEntry(CrossReferenceEntryTable table, int objectNumber) {
+        if (table == null)
+            return null;
+        // rows are read under the table's lock as it can be written to.
+        synchronized (table) {
+            int slot = table.getSlot(objectNumber);
+            if (slot == CrossReferenceEntryTable.NOT_FOUND)
+                return null;
+            if (table.getType(slot) == Entry.TYPE_USED) {
+                return new UsedEntry(objectNumber, table.getLongValue(slot), table.getIntValue(slot));
+            } else {
+                return new CompressedEntry(objectNumber,
+                        (int) table.getLongValue(slot), table.getIntValue(slot));
+            }
+        }
+    }
+
+    /**
+     * Lazily loads the xref peer and previous cross references and folds
+     * their entries into this section's table, earlier entries taking
+     * precedence.  This is done once, on the first lookup that misses this
+     * section, the folded sections drop their own tables and pass any
+     * lookups on to this section.
+     */
+    private synchronized void mergeChain() {
+        // a lookup made while loading the chain is answered by this section alone.
+        if (chainMerged || merging)
+            return;
+        merging = true;
+        try {
+            CrossReferenceEntryTable merged = getEntries(0);
+            List<CrossReference> folded = foldChain(this, merged);
+            chainMerged = true;
+            releaseFolded(folded);
+        } finally {
+            merging = false;
+        }
+    }
+
+    /**
+     * Copies the entries of the given section's peer and previous cross
+     * references, and theirs in turn, into the given table where not already
+     * present.  Sections are visited in the order the old chain walk
+     * searched them: a section, then its peer's chain, then its previous
+     * chain.
+     *
+     * @param start  section to start from, its own entries are copied unless
+     *               it is this section.
+     * @param target table to copy into.
+     * @return the sections that were copied.
+     */
+    private List<CrossReference> foldChain(CrossReference start, CrossReferenceEntryTable target) {
+        List<CrossReference> folded = new ArrayList<CrossReference>();
+        IdentityHashMap<CrossReference, Boolean> visited = new IdentityHashMap<CrossReference, Boolean>();
+        ArrayDeque<CrossReference> pending = new ArrayDeque<CrossReference>();
+        visited.put(this, Boolean.TRUE);
+        visited.put(start, Boolean.TRUE);
+        pending.push(start);
+        while (!pending.isEmpty()) {
+            CrossReference section = pending.pop();
+            if (section != this) {
+                CrossReferenceEntryTable sectionEntries = section.entries;
+                if (sectionEntries != null) {
+                    target.putAllAbsent(sectionEntries, section.offset - offset);
+                }
+                folded.add(section);
+            }
+            section.loadPeerAndPrevious();
+            // previous is pushed first so the peer's chain is searched before it.
+            CrossReference previous = section.xrefPrevious;
+            if (previous != null && visited.put(previous, Boolean.TRUE) == null) {
+                pending.push(previous);
+            }
+            CrossReference peer = section.xrefPeer;
+            if (peer != null && visited.put(peer, Boolean.TRUE) == null) {
+                pending.push(peer);
+            }
+        }
+        return folded;
+    }
+
+    private void releaseFolded(List<CrossReference> folded) {
+        for (CrossReference section : folded) {
+            section.mergedInto = this;
+            section.entries = null;
+            section.chainMerged = false;
+        }
+    }
+
+    private void loadPeerAndPrevious() {
         if (bIsCrossReferenceTable && !bHaveTriedLoadingPeer &&
                 xrefPeer == null && pTrailer != null) {
             // Lazily load xrefPeer, using pTrailer
+            bHaveTriedLoadingPeer = true;
             pTrailer.loadXRefStmIfApplicable();
             xrefPeer = pTrailer.getCrossReferenceStream();
-            bHaveTriedLoadingPeer = true;
-        }
-        if (xrefPeer != null) {
-            entry = xrefPeer.getEntryForObject(objectNumber);
-            if (entry != null)
-                return entry;
         }
-
         if (!bHaveTriedLoadingPrevious &&
                 xrefPrevious == null && pTrailer != null) {
             // Lazily load xrefPrevious, using pTrailer
-            pTrailer.onDemandLoadAndSetupPreviousTrailer();
             bHaveTriedLoadingPrevious = true;
+            pTrailer.onDemandLoadAndSetupPreviousTrailer();
         }
-        if (xrefPrevious != null) {
-            entry = xrefPrevious.getEntryForObject(objectNumber);
-            if (entry != null)
-                return entry;
-        }
-        return entry;
     }
 
-    public void addToEndOfChainOfPreviousXRefs(CrossReference prev) {
+    public synchronized void addToEndOfChainOfPreviousXRefs(CrossReference prev) {
         if (xrefPrevious == null)
             xrefPrevious = prev;
         else
             xrefPrevious.addToEndOfChainOfPreviousXRefs(prev);
+        // chain was already merged, the new end of the chain comes last.
+        if (chainMerged && prev != null) {
+            releaseFolded(foldChain(prev, entries));
+        }
     }
 
     protected void addFreeEntry(int objectNumber, int nextFreeObjectNumber, int generationNumberIfReused) {
@@ -253,13 +372,30 @@ public class CrossReference {
     }
 
     protected void addUsedEntry(int objectNumber, long filePositionOfObject, int generationNumber) {
-        UsedEntry entry = new UsedEntry(objectNumber, filePositionOfObject, generationNumber);
-        hObjectNumber2Entry.put(objectNumber, entry);
+        getEntries(objectNumber).put(objectNumber, Entry.TYPE_USED, filePositionOfObject, generationNumber);
     }
 
     protected void addCompressedEntry(int objectNumber, int objectNumberOfContainingObjectStream, int indexWithinObjectStream) {
-        CompressedEntry entry = new CompressedEntry(objectNumber, objectNumberOfContainingObjectStream, indexWithinObjectStream);
-        hObjectNumber2Entry.put(objectNumber, entry);
+        getEntries(objectNumber).put(objectNumber, Entry.TYPE_COMPRESSED,
+                objectNumberOfContainingObjectStream, indexWithinObjectStream);
+    }
+
+    private synchronized CrossReferenceEntryTable getEntries(int firstObjectNumber) {
+        if (entries == null) {
+            entries = new CrossReferenceEntryTable(firstObjectNumber, 1024);
+        }
+        return entries;
+    }
+
+    /**
+     * Gets the number of used and compressed entries defined by this cross
+     * reference section, including those of the peer and previous sections
+     * once they've been merged into it.
+     *
+     * @return number of entries.
+     */
+    public int getEntryCount() {
+        return entries != null ? entries.size() : 0;
     }
 
 
@@ -324,6 +460,8 @@ public class CrossReference {
 
         public void setFilePositionOfObject(long filePositionOfObject) {
             this.filePositionOfObject = filePositionOfObject;
+            // entries are flyweights over the entry table, so update the table.
+            addUsedEntry(getObjectNumber(), filePositionOfObject, generationNumber);
         }
     }
 
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.pobjects;
+
+import java.util.Arrays;
+
+/**
+ * Primitive storage of cross reference entries keyed by object number.  Each
+ * row is kept in three parallel arrays: the entry type, a long value and an
+ * int value.  For used entries the values are the file position and
+ * generation number, for compressed entries they are the object number of
+ * the containing object stream and the index within that stream.
+ * <br>
+ * Rows are stored densely, indexed by object number, which is the common
+ * case for a complete xref section.  If the object numbers become too
+ * scattered, as can happen with incremental update sections, the table
+ * switches to an open addressing hash keyed by object number so memory stays
+ * proportional to the number of entries.
+ * <br>
+ * Free entries aren't stored, a type of {@link CrossReference.Entry#TYPE_FREE}
+ * means no entry was found.
+ * <br>
+ * Writes are synchronized on the table, readers that need a consistent row
+ * hold the table's lock while calling getSlot() and the getXXX(slot) methods.
+ *
+ * @since 6.3
+ */
+class CrossReferenceEntryTable {
+
+    static final int NOT_FOUND = -1;
+
+    private static final int EMPTY_KEY = -1;
+    // switch to sparse storage when less then 1/4 of the dense rows are used.
+    private static final int SPARSE_RATIO = 4;
+    private static final int SPARSE_MIN_SPAN = 1024;
+
+    private boolean sparse;
+    // object number of the first dense row.
+    private int firstObjectNumber;
+    // sparse keys, object number of each slot or EMPTY_KEY.
+    private int[] keys;
+    private byte[] types;
+    private long[] longValues;
+    private int[] intValues;
+    private int count;
+    // sparse slots holding a key, including removed entries.
+    private int occupied;
+
+    /**
+     * Creates a new dense table sized for the given object number range.
+     *
+     * @param firstObjectNumber first expected object number
+     * @param capacity          expected number of entries
+     */
+    CrossReferenceEntryTable(int firstObjectNumber, int capacity) {
+        this.firstObjectNumber = Math.max(firstObjectNumber, 0);
+        capacity = Math.max(capacity, 16);
+        types = new byte[capacity];
+        longValues = new long[capacity];
+        intValues = new int[capacity];
+    }
+
+    /**
+     * Adds or replaces the row for the given object number.
+     *
+     * @param objectNumber object number
+     * @param type         entry type, used or compressed
+     * @param longValue    file position or containing object stream number
+     * @param intValue     generation number or index within object stream
+     */
+    synchronized void put(int objectNumber, int type, long longValue, int intValue) {
+        if (objectNumber < 0) {
+            return;
+        }
+        int slot;
+        if (sparse) {
+            slot = sparseSlot(objectNumber, true);
+        } else {
+            ensureDenseCapacity(objectNumber);
+            if (sparse) {
+                slot = sparseSlot(objectNumber, true);
+            } else {
+                slot = objectNumber - firstObjectNumber;
+            }
+        }
+        if (types[slot] == CrossReference.Entry.TYPE_FREE) {
+            count++;
+        }
+        types[slot] = (byte) type;
+        longValues[slot] = longValue;
+        intValues[slot] = intValue;
+    }
+
+    synchronized void remove(int objectNumber) {
+        int slot = getSlot(objectNumber);
+        if (slot != NOT_FOUND) {
+            // the key is left in place so probe chains stay intact.
+            types[slot] = CrossReference.Entry.TYPE_FREE;
+            count--;
+        }
+    }
+
+    /**
+     * Finds the row of the given object number.
+     *
+     * @param objectNumber object number to look up.
+     * @return row slot to be used with the getXXX(slot) methods, NOT_FOUND
+     * if there is no entry for the object.
+     */
+    int getSlot(int objectNumber) {
+        int slot;
+        if (sparse) {
+            slot = sparseSlot(objectNumber, false);
+        } else {
+            slot = objectNumber - firstObjectNumber;
+            if (slot < 0 || slot >= types.length) {
+                slot = NOT_FOUND;
+            }
+        }
+        if (slot == NOT_FOUND || types[slot] == CrossReference.Entry.TYPE_FREE) {
+            return NOT_FOUND;
+        }
+        return slot;
+    }
+
+    int getType(int slot) {
+        return types[slot];
+    }
+
+    long getLongValue(int slot) {
+        return longValues[slot];
+    }
+
+    int getIntValue(int slot) {
+        return intValues[slot];
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Copies all rows from the other table that don't already have an entry
+     * in this table.  Used to fold a chain of xref sections into one table
+     * where earlier sections take precedence.
+     *
+     * @param other          table to copy from.
+     * @param positionOffset offset added to the file position of used entries.
+     */
+    synchronized void putAllAbsent(CrossReferenceEntryTable other, long positionOffset) {
+        synchronized (other) {
+            for (int slot = 0; slot < other.types.length; slot++) {
+                int type = other.types[slot];
+                if (type == CrossReference.Entry.TYPE_FREE) {
+                    continue;
+                }
+                int objectNumber = other.sparse ? other.keys[slot] : other.firstObjectNumber + slot;
+                if (getSlot(objectNumber) == NOT_FOUND) {
+                    long longValue = other.longValues[slot];
+                    if (type == CrossReference.Entry.TYPE_USED) {
+                        longValue += positionOffset;
+                    }
+                    put(objectNumber, type, longValue, other.intValues[slot]);
+                }
+            }
+        }
+    }
+
+    private void ensureDenseCapacity(int objectNumber) {
+        int length = types.length;
+        int slot = objectNumber - firstObjectNumber;
+        if (slot >= 0 && slot < length) {
+            return;
+        }
+        int newFirst = Math.min(firstObjectNumber, objectNumber);
+        int newLast = Math.max(firstObjectNumber + length - 1, objectNumber);
+        long span = (long) newLast - newFirst + 1;
+        if (span > SPARSE_MIN_SPAN && span > (long) (count + 1) * SPARSE_RATIO) {
+            convertToSparse();
+            return;
+        }
+        int shift = firstObjectNumber - newFirst;
+        int newLength = (int) Math.max(span, Math.min((long) length * 2, Integer.MAX_VALUE - 8));
+        if (shift > 0) {
+            newLength = Math.max(newLength, length + shift);
+        }
+        byte[] newTypes = new byte[newLength];
+        long[] newLongValues = new long[newLength];
+        int[] newIntValues = new int[newLength];
+        System.arraycopy(types, 0, newTypes, shift, length);
+        System.arraycopy(longValues, 0, newLongValues, shift, length);
+        System.arraycopy(intValues, 0, newIntValues, shift, length);
+        types = newTypes;
+        longValues = newLongValues;
+        intValues = newIntValues;
+        firstObjectNumber = newFirst;
+    }
+
+    private void convertToSparse() {
+        byte[] oldTypes = types;
+        long[] oldLongValues = longValues;
+        int[] oldIntValues = intValues;
+        int oldFirst = firstObjectNumber;
+        allocateSparse(Math.max(count * 2, 16));
+        sparse = true;
+        for (int i = 0; i < oldTypes.length; i++) {
+            if (oldTypes[i] != CrossReference.Entry.TYPE_FREE) {
+                int slot = sparseSlot(oldFirst + i, true);
+                types[slot] = oldTypes[i];
+                longValues[slot] = oldLongValues[i];
+                intValues[slot] = oldIntValues[i];
+            }
+        }
+    }
+
+    private void allocateSparse(int size) {
+        int capacity = Integer.highestOneBit(Math.max(size, 16) - 1) << 1;
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+        occupied = 0;
+        types = new byte[capacity];
+        longValues = new long[capacity];
+        intValues = new int[capacity];
+    }
+
+    private int sparseSlot(int objectNumber, boolean create) {
+        int mask = keys.length - 1;
+        int slot = hash(objectNumber) & mask;
+        while (true) {
+            int key = keys[slot];
+            if (key == objectNumber) {
+                return slot;
+            }
+            if (key == EMPTY_KEY) {
+                if (!create) {
+                    return NOT_FOUND;
+                }
+                // keep the load factor under a half.
+                if ((occupied + 1) * 2 > keys.length) {
+                    growSparse();
+                    return sparseSlot(objectNumber, true);
+                }
+                keys[slot] = objectNumber;
+                occupied++;
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void growSparse() {
+        int[] oldKeys = keys;
+        byte[] oldTypes = types;
+        long[] oldLongValues = longValues;
+        int[] oldIntValues = intValues;
+        allocateSparse(Math.max(count * 4, oldKeys.length));
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY_KEY && oldTypes[i] != CrossReference.Entry.TYPE_FREE) {
+                int slot = sparseSlot(oldKeys[i], true);
+                types[slot] = oldTypes[i];
+                longValues[slot] = oldLongValues[i];
+                intValues[slot] = oldIntValues[i];
+            }
+        }
+    }
+
+    private static int hash(int objectNumber) {
+        int h = objectNumber * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
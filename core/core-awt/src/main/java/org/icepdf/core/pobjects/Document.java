@@ -40,6 +40,7 @@ import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -122,6 +123,8 @@ public class Document {
     private static boolean isCachingEnabled;
     private static boolean isFileCachingEnabled;
     private static int fileCacheMaxSize;
+    // memory map files that are too large for the file cache.
+    private static boolean isFileMappingEnabled;
 
     // repository of all PDF object associated with this document.
     private Library library = null;
@@ -136,6 +139,9 @@ public class Document {
         isFileCachingEnabled = Defs.sysPropertyBoolean("org.icepdf.core.filecache.enabled",
                 true);
         fileCacheMaxSize = Defs.intProperty("org.icepdf.core.filecache.size", 200000000);
+
+        isFileMappingEnabled = Defs.sysPropertyBoolean("org.icepdf.core.filemapping.enabled",
+                true);
     }
 
     /**
@@ -212,15 +218,34 @@ public class Document {
             inputStream.read(data);
             setByteArray(data, 0, fileLength, filepath);
         } else {
-            RandomAccessFileInputStream rafis =
-                    RandomAccessFileInputStream.build(new File(filepath));
-            setInputStream(rafis);
+            setInputStream(buildFileInput(file));
         }
         if (inputStream != null) {
             inputStream.close();
         }
     }
 
+    /**
+     * Builds the SeekableInput used to read the given file.  If the system
+     * property org.icepdf.core.filemapping.enabled=true (default) the file is
+     * memory mapped, otherwise it is read with a RandomAccessFile.
+     *
+     * @param file file to read.
+     * @return seekable input for the file.
+     * @throws IOException if the file could not be opened or mapped.
+     */
+    private SeekableInput buildFileInput(File file) throws IOException {
+        if (isFileMappingEnabled) {
+            try {
+                return MappedFileInputStream.build(file);
+            } catch (IOException e) {
+                // mapping can fail on 32 bit vm's, fall back on regular file access.
+                logger.log(Level.WARNING, "Error memory mapping file, falling back to random access file.", e);
+            }
+        }
+        return RandomAccessFileInputStream.build(file);
+    }
+
     /**
      * Load a PDF file from the given URL and initiates the document's Catalog.
      * If the system property org.icepdf.core.streamcache.enabled=true, the file
@@ -326,9 +351,7 @@ public class Document {
             setDocumentCachedFilePath(tempFile.getAbsolutePath());
 
             // finally read the cached file
-            RandomAccessFileInputStream rafis =
-                    RandomAccessFileInputStream.build(tempFile);
-            setInputStream(rafis);
+            setInputStream(buildFileInput(tempFile));
         }
     }
 
@@ -384,9 +407,7 @@ public class Document {
             setDocumentCachedFilePath(tempFile.getAbsolutePath());
 
             // finally read the cached file
-            RandomAccessFileInputStream rafis =
-                    RandomAccessFileInputStream.build(tempFile);
-            setInputStream(rafis);
+            setInputStream(buildFileInput(tempFile));
         }
     }
 
@@ -1047,6 +1068,20 @@ public class Document {
             documentSeekableInput = null;
         }
 
+        // release the decoded images, they're counted against the global pool size.
+        if (library != null && library.getImagePool() != null) {
+            library.getImagePool().clear();
+        }
+        if (library != null && library.getTilingPatternCache() != null) {
+            library.getTilingPatternCache().clear();
+        }
+        if (library != null && library.getTransparencyGroupCache() != null) {
+            library.getTransparencyGroupCache().clear();
+        }
+        if (library != null && library.getObjectStreamCache() != null) {
+            library.getObjectStreamCache().clear();
+        }
+
         String fileToDelete = getDocumentCachedFilePath();
         if (fileToDelete != null) {
             File file = new File(fileToDelete);
@@ -1199,6 +1234,41 @@ public class Document {
         }
     }
 
+    /**
+     * Initializes a range of pages on the library's common thread pool.
+     * See {@link #initPages(int, int, Executor, int)}.
+     *
+     * @param firstPage zero-based index of the first page to initialize.
+     * @param lastPage  zero-based index of the last page to initialize, inclusive.
+     * @param lookAhead maximum number of pages initialized ahead of the last
+     *                  page retrieved from the returned initializer.
+     * @return started page initializer.
+     */
+    public PageInitializer initPages(int firstPage, int lastPage, int lookAhead) {
+        return initPages(firstPage, lastPage, PageInitializer.LIBRARY_EXECUTOR, lookAhead);
+    }
+
+    /**
+     * Initializes a range of pages in parallel on the given executor.  Pages
+     * are initialized in order, at most lookAhead pages ahead of the last page
+     * retrieved with PageInitializer.getPage(int).  The returned initializer
+     * can be used to wait on each page and to cancel pages not yet
+     * initialized.
+     *
+     * @param firstPage zero-based index of the first page to initialize.
+     * @param lastPage  zero-based index of the last page to initialize, inclusive.
+     * @param executor  executor the pages are initialized on, the number of
+     *                  threads it uses is the number of pages initialized at
+     *                  the same time.
+     * @param lookAhead maximum number of pages initialized ahead of the last
+     *                  page retrieved from the returned initializer.
+     * @return started page initializer.
+     */
+    public PageInitializer initPages(int firstPage, int lastPage, Executor executor, int lookAhead) {
+        return new PageInitializer(catalog.getPageTree(), firstPage, lastPage,
+                executor, lookAhead).start();
+    }
+
     /**
      * Gets the security manager for this document. If the document has no
      * security manager null is returned.
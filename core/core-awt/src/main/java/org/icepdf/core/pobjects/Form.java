@@ -19,7 +19,9 @@ import org.icepdf.core.io.SeekableInputConstrainedWrapper;
 import org.icepdf.core.pobjects.graphics.ExtGState;
 import org.icepdf.core.pobjects.graphics.GraphicsState;
 import org.icepdf.core.pobjects.graphics.Shapes;
+import org.icepdf.core.pobjects.graphics.text.PageText;
 import org.icepdf.core.util.Library;
+import org.icepdf.core.util.content.AbstractContentParser;
 import org.icepdf.core.util.content.ContentParser;
 import org.icepdf.core.util.content.ContentParserFactory;
 
@@ -168,13 +170,7 @@ public class Form extends Stream {
         if (inited) {
             return;
         }
-        Object v = library.getObject(entries, MATRIX_KEY);
-        if (v != null && v instanceof List) {
-            matrix = getAffineTransform((List) v);
-        } else if (v != null && v instanceof AffineTransform) {
-            matrix = (AffineTransform) v;
-        }
-        bbox = library.getRectangle(entries, BBOX_KEY);
+        initBounds();
         // try and find the form's resources dictionary.
         Resources leafResources = library.getResources(entries, RESOURCES_KEY);
         // apply parent resource, if the current resources is null
@@ -204,6 +200,52 @@ public class Form extends Stream {
         inited = true;
     }
 
+    private void initBounds() {
+        Object v = library.getObject(entries, MATRIX_KEY);
+        if (v != null && v instanceof List) {
+            matrix = getAffineTransform((List) v);
+        } else if (v != null && v instanceof AffineTransform) {
+            matrix = (AffineTransform) v;
+        }
+        bbox = library.getRectangle(entries, BBOX_KEY);
+    }
+
+    /**
+     * Parses the text of the form's content stream for text extraction.  The
+     * form's shapes aren't built and the form isn't initialized, only its
+     * matrix and bbox are read.
+     *
+     * @param graphicsState   graphics state of the calling content stream.
+     * @param parentResources resources of the calling content stream, used if
+     *                        the form doesn't have its own.
+     * @return text of the form in form space, null if the content stream can't
+     * be parsed.
+     */
+    public PageText getText(GraphicsState graphicsState, Resources parentResources) {
+        synchronized (this) {
+            if (!inited) {
+                initBounds();
+            }
+        }
+        Resources leafResources = library.getResources(entries, RESOURCES_KEY);
+        if (leafResources == null) {
+            leafResources = parentResources;
+        }
+        ContentParser cp = ContentParserFactory.getInstance()
+                .getContentParser(library, leafResources);
+        // the form's text is in form space, see init().
+        GraphicsState formGraphicsState = new GraphicsState(graphicsState);
+        formGraphicsState.setCTM(new AffineTransform());
+        formGraphicsState.setClip(null);
+        cp.setGraphicsState(formGraphicsState);
+        try {
+            return AbstractContentParser.parseStreamTextBlocks(cp, new Stream[]{this}, true).getPageText();
+        } catch (Throwable e) {
+            logger.log(Level.FINE, "Error parsing Form content stream text.", e);
+        }
+        return null;
+    }
+
     public Resources getResources() {
         Resources leafResources = library.getResources(entries, RESOURCES_KEY);
         if (leafResources == null) {
@@ -171,15 +171,6 @@ public class ImageStream extends Stream {
      */
     @SuppressWarnings("unchecked")
     public BufferedImage getImage(GraphicsState graphicsState, Resources resources) throws InterruptedException {
-        // check the pool encase we already parse this image.
-
-        if (pObjectReference != null) {
-            BufferedImage tmp = library.getImagePool().get(pObjectReference);
-            if (tmp != null) {
-                return tmp;
-            }
-        }
-
         // parse colour space
         Object o = entries.get(COLORSPACE_KEY);
         if (resources != null && o != null) {
@@ -302,10 +293,8 @@ public class ImageStream extends Stream {
                 decode,
                 smaskImage, maskImage,
                 maskMinRGB, maskMaxRGB, maskMinIndex, maskMaxIndex);
-        // add the image to the pool, just encase it get painted again.
-        if (pObjectReference != null) {
-            library.getImagePool().put(pObjectReference, image);
-        }
+        // decoded images are pooled by CachedImageReference, caching here too
+        // would share the pool key with the reference's scaled copy.
         return image;
     }
 
@@ -1173,8 +1173,11 @@ public class ImageUtility {
 
         // check if the ICCBased colour has an alternative that
         // we might support for decoding with a colorModel.
+        ColorSpace iccColorSpace = null;
         if (colourSpace instanceof ICCBased) {
             ICCBased iccBased = (ICCBased) colourSpace;
+            iccBased.init();
+            iccColorSpace = iccBased.getColorSpace();
             if (iccBased.getAlternate() != null) {
                 // set the alternate as the current
                 colourSpace = iccBased.getAlternate();
@@ -1247,24 +1250,27 @@ public class ImageUtility {
                 }
             }
         } else if (colourSpace instanceof DeviceCMYK) {
-            // this is slow and doesn't do decode properly,  push off parseImage()
-            // as its quick and we can do the generic decode and masking.
-            if (false && bitsPerComponent == 8) {
-                DataBuffer db = new DataBufferByte(data, dataLength);
-                int[] bandOffsets = new int[colorSpaceCompCount];
-                for (int i = 0; i < colorSpaceCompCount; i++) {
-                    bandOffsets[i] = i;
+            // convert 8 bit samples with a lookup table sampled from the ICC
+            // profile, everything else is pushed off to parseImage() which
+            // handles the generic decode and masking.
+            if (bitsPerComponent == 8 && colorSpaceCompCount == 4) {
+                CmykLookupTable lookupTable;
+                if (iccColorSpace != null) {
+                    lookupTable = CmykLookupTable.getInstance(iccColorSpace, width * height);
+                } else if (!DeviceCMYK.isDisableICCCmykColorSpace()) {
+                    lookupTable = CmykLookupTable.getDeviceCmykInstance(width * height);
+                } else {
+                    lookupTable = null;
                 }
-                SampleModel sm = new PixelInterleavedSampleModel(db.getDataType(), width, height, colorSpaceCompCount, colorSpaceCompCount * width, bandOffsets);
-                WritableRaster wr = Raster.createWritableRaster(sm, db, new Point(0, 0));
-                //WritableRaster wr = Raster.createInterleavedRaster( db, width, height, colorSpaceCompCount*width, colorSpaceCompCount, bandOffsets, new Point(0,0) );
-                ColorSpace cs = DeviceCMYK.getIccCmykColorSpace();
-                int[] bits = new int[colorSpaceCompCount];
-                for (int i = 0; i < colorSpaceCompCount; i++) {
-                    bits[i] = bitsPerComponent;
+                if (lookupTable != null && dataLength >= width * height * 4) {
+                    boolean usingAlpha = smaskImage != null || maskImage != null ||
+                            ((maskMinRGB != null) && (maskMaxRGB != null));
+                    int type = usingAlpha ? BufferedImage.TYPE_INT_ARGB :
+                            BufferedImage.TYPE_INT_RGB;
+                    img = new BufferedImage(width, height, type);
+                    int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+                    lookupTable.convert(data, 4, decode[0] > decode[1], pixels, width, height);
                 }
-                ColorModel cm = new ComponentColorModel(cs, bits, false, false, ColorModel.OPAQUE, db.getDataType());
-                img = new BufferedImage(cm, wr, false, null);
             }
         } else if (colourSpace instanceof Indexed) {
             if (bitsPerComponent == 1 || bitsPerComponent == 2 || bitsPerComponent == 4) {
@@ -1348,6 +1354,18 @@ public class ImageUtility {
                     img = new BufferedImage(cm, wr, false, null);
                 }
             }
+        } else if (colourSpace instanceof DeviceN ||
+                (colourSpace instanceof Separation && !((Separation) colourSpace).isNamedColor())) {
+            // convert with a precomputed table rather then calling the tint
+            // transform for each pixel.
+            boolean invert = decode[0] > decode[1];
+            TintLookupTable lookupTable = TintLookupTable.getInstance(
+                    colourSpace, bitsPerComponent, invert, width * height);
+            if (lookupTable != null) {
+                img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+                lookupTable.convert(data, dataLength, width, height, pixels);
+            }
         } else if (colourSpace instanceof Separation || colourSpace instanceof CalGray) {
             if (colourSpace instanceof CalGray || ((Separation) colourSpace).isNamedColor()) {
                 DataBuffer db = new DataBufferByte(data, dataLength);
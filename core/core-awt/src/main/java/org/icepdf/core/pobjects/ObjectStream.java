@@ -38,10 +38,11 @@ public class ObjectStream extends Stream {
     public static final Name N_KEY = new Name("N");
     public static final Name FIRST_KEY = new Name("First");
 
-    private boolean init;
-    private SeekableInput decodedStream;
-    private int[] objectNumbers;
-    private long[] objectOffset;
+    // decoded once and only read there after, each load gets its own stream
+    // over the bytes so objects can be loaded concurrently.  Can be released
+    // by the object stream cache in which case the stream is decoded again
+    // on next use.
+    private volatile DecodedObjectStream decodedObjectStream;
 
     /**
      * Create a new instance of a Stream.
@@ -54,50 +55,77 @@ public class ObjectStream extends Stream {
         super(l, h, streamInputWrapper);
     }
 
-    public synchronized void init() {
-        if (init)
-            return;
-        init = true;
-        int numObjects = library.getInt(entries, N_KEY);
-        long firstObjectsOffset = library.getLong(entries, FIRST_KEY);
-        // get the stream data
-        decodedStream = new SeekableByteArrayInputStream(getDecodedStreamBytes(0));
-//        decodedStream.beginThreadAccess();
-        objectNumbers = new int[numObjects];
-        objectOffset = new long[numObjects];
-        try {
-            Parser parser = new Parser(decodedStream);
-            for (int i = 0; i < numObjects; i++) {
-                objectNumbers[i] = parser.getIntSurroundedByWhitespace();
-                objectOffset[i] = parser.getLongSurroundedByWhitespace() + firstObjectsOffset;
-            }
-        } catch (Exception e) {
-            logger.log(Level.SEVERE,
-                    "Error loading object stream instance: ", e);
+    public void init() {
+        getDecodedObjectStream();
+    }
+
+    /**
+     * Gets the number of bytes held by the decoded stream data and its object
+     * offset table, zero if the stream hasn't been decoded.
+     *
+     * @return approximate decoded size in bytes.
+     */
+    public int getDecodedSize() {
+        DecodedObjectStream decoded = decodedObjectStream;
+        if (decoded == null || decoded.bytes == null) {
+            return 0;
         }
-//        finally {
-//            decodedStream.endThreadAccess();
-//        }
+        return decoded.bytes.length + (decoded.objectNumbers.length * 8);
+    }
 
+    /**
+     * Releases the decoded stream data, the stream will be decoded again if
+     * another object is loaded from it.
+     */
+    public void releaseDecodedData() {
+        decodedObjectStream = null;
+    }
+
+    private DecodedObjectStream getDecodedObjectStream() {
+        DecodedObjectStream decoded = decodedObjectStream;
+        if (decoded != null)
+            return decoded;
+        synchronized (this) {
+            decoded = decodedObjectStream;
+            if (decoded != null)
+                return decoded;
+            int numObjects = library.getInt(entries, N_KEY);
+            int firstObjectsOffset = library.getInt(entries, FIRST_KEY);
+            // get the stream data
+            byte[] decodedBytes = getDecodedStreamBytes(0);
+            int[] objectNumbers = new int[numObjects];
+            int[] objectOffsets = new int[numObjects];
+            try {
+                Parser parser = new Parser((SeekableInput) new SeekableByteArrayInputStream(decodedBytes));
+                for (int i = 0; i < numObjects; i++) {
+                    objectNumbers[i] = parser.getIntSurroundedByWhitespace();
+                    objectOffsets[i] = parser.getIntSurroundedByWhitespace() + firstObjectsOffset;
+                }
+            } catch (Exception e) {
+                logger.log(Level.SEVERE,
+                        "Error loading object stream instance: ", e);
+            }
+            decoded = new DecodedObjectStream(decodedBytes, objectNumbers, objectOffsets);
+            decodedObjectStream = decoded;
+            return decoded;
+        }
     }
 
     public Object loadObject(Library library, int objectIndex) {
 //System.out.println("ObjectStream.loadObject()  objectIndex: " + objectIndex);
-        init();
-        if (objectNumbers == null ||
-                objectOffset == null ||
-                objectNumbers.length != objectOffset.length ||
+        DecodedObjectStream decoded = getDecodedObjectStream();
+        if (decoded.bytes == null ||
                 objectIndex < 0 ||
-                objectIndex >= objectNumbers.length) {
+                objectIndex >= decoded.objectNumbers.length) {
 //System.out.println("ObjectStream.loadObject()  init failed");
             return null;
         }
 
         try {
-            int objectNumber = objectNumbers[objectIndex];
-            long position = objectOffset[objectIndex];
+            int objectNumber = decoded.objectNumbers[objectIndex];
+            int position = decoded.objectOffsets[objectIndex];
 //System.out.println("ObjectStream.loadObject()  objectNumber: " + objectNumber + ", position: " + position);
-            decodedStream.beginThreadAccess();
+            SeekableInput decodedStream = new SeekableByteArrayInputStream(decoded.bytes);
             decodedStream.seekAbsolute(position);
             Parser parser = new Parser(decodedStream, Parser.PARSE_MODE_OBJECT_STREAM);
             // Parser.getObject() either does 1 of 3 things:
@@ -125,8 +153,22 @@ public class ObjectStream extends Stream {
         } catch (Exception e) {
             logger.log(Level.FINE, "Error loading PDF object.", e);
             return null;
-        } finally {
-            decodedStream.endThreadAccess();
+        }
+    }
+
+    /**
+     * Immutable decoded state of an object stream, the decoded bytes and the
+     * object number and byte offset of each object in the stream.
+     */
+    private static class DecodedObjectStream {
+        private final byte[] bytes;
+        private final int[] objectNumbers;
+        private final int[] objectOffsets;
+
+        DecodedObjectStream(byte[] bytes, int[] objectNumbers, int[] objectOffsets) {
+            this.bytes = bytes;
+            this.objectNumbers = objectNumbers;
+            this.objectOffsets = objectOffsets;
         }
     }
 }
@@ -26,6 +26,7 @@ import org.icepdf.core.pobjects.graphics.text.LineText;
 import org.icepdf.core.pobjects.graphics.text.PageText;
 import org.icepdf.core.pobjects.graphics.text.WordText;
 import org.icepdf.core.util.*;
+import org.icepdf.core.util.content.AbstractContentParser;
 import org.icepdf.core.util.content.ContentParser;
 import org.icepdf.core.util.content.ContentParserFactory;
 
@@ -207,7 +208,15 @@ public class Page extends Dictionary {
     }
 
     private void initPageContents() throws InterruptedException {
+        List<Stream> pageContents = loadPageContents();
+        if (pageContents != null) {
+            contents = pageContents;
+        }
+    }
+
+    private List<Stream> loadPageContents() throws InterruptedException {
         Object pageContent = library.getObject(entries, CONTENTS_KEY);
+        List<Stream> contents = null;
 
         // if a stream process it as needed
         if (pageContent instanceof Stream) {
@@ -238,9 +247,14 @@ public class Page extends Dictionary {
                 }
             }
         }
+        return contents;
     }
 
     public void initPageResources() throws InterruptedException {
+        resources = loadPageResources();
+    }
+
+    private Resources loadPageResources() throws InterruptedException {
         Resources res = library.getResources(entries, RESOURCES_KEY);
         PageTree pageTree;
         if (res == null) {
@@ -257,7 +271,7 @@ public class Page extends Dictionary {
                 pageTree = pageTree.getParent();
             }
         }
-        resources = res;
+        return res;
     }
 
     /**
@@ -378,14 +392,9 @@ public class Page extends Dictionary {
                 try {
                     ContentParser cp = ContentParserFactory.getInstance()
                             .getContentParser(library, resources);
-                    byte[][] streams = new byte[contents.size()][];
-                    byte[] stream;
-                    for (int i = 0, max = contents.size(); i < max; i++) {
-                        stream = contents.get(i).getDecodedStreamBytes();
-                        if (stream != null) {
-                            streams[i] = stream;
-                        }
-                    }
+                    // streams are decoded as they're parsed rather then
+                    // all up front.
+                    Stream[] streams = contents.toArray(new Stream[contents.size()]);
                     // get any optional groups from the catalog, which control
                     // visibility
                     OptionalContent optionalContent =
@@ -396,7 +405,10 @@ public class Page extends Dictionary {
 
                     // pass in option group references into parse.
                     if (streams.length > 0) {
-                        shapes = cp.parse(streams, this).getShapes();
+                        shapes = AbstractContentParser.parseStreams(cp, streams, this).getShapes();
+                        if (Shapes.isPackDisplayList()) {
+                            shapes.pack();
+                        }
                     }
                     // set the initiated flag, first as there are couple corner
                     // cases where the content parsing can call page.init() again
@@ -497,6 +509,33 @@ public class Page extends Dictionary {
     public void paint(Graphics g, int renderHintType, final int boundary,
                       float userRotation, float userZoom,
                       boolean paintAnnotations, boolean paintSearchHighlight) throws InterruptedException {
+        paint(g, renderHintType, null, boundary, userRotation, userZoom, paintAnnotations, paintSearchHighlight);
+    }
+
+    /**
+     * Paints the contents of this page to the graphics context using
+     * the specified rotation, zoom, rendering hints and page boundary.  The
+     * given rendering hints are applied on top of the renderHintType's hints,
+     * for example to paint a page thumbnail with reduced fidelity.
+     *
+     * @param g                    graphics context to which the page content will be painted.
+     * @param renderHintType       Constant specified by the GraphicsRenderingHints class.
+     *                             There are two possible entries, SCREEN and PRINT, each with configurable
+     *                             rendering hints settings.
+     * @param renderingHints       additional rendering hints, can be null.
+     * @param boundary             Constant specifying the page boundary to use when
+     *                             painting the page content.
+     * @param userRotation         Rotation factor, in degrees, to be applied to the rendered page
+     * @param userZoom             Zoom factor to be applied to the rendered page
+     * @param paintAnnotations     true enables the painting of page annotations.  False
+     *                             paints no annotations for a given page.
+     * @param paintSearchHighlight true enables the painting of search highlight
+     *                             state of text object.
+     * @since 6.3
+     */
+    public void paint(Graphics g, int renderHintType, RenderingHints renderingHints, final int boundary,
+                      float userRotation, float userZoom,
+                      boolean paintAnnotations, boolean paintSearchHighlight) throws InterruptedException {
         if (!inited) {
             // make sure we don't do a page init on the awt thread in the viewer
             // ri, let the
@@ -506,6 +545,9 @@ public class Page extends Dictionary {
         Graphics2D g2 = (Graphics2D) g;
         GraphicsRenderingHints grh = GraphicsRenderingHints.getDefault();
         g2.setRenderingHints(grh.getRenderingHints(renderHintType));
+        if (renderingHints != null) {
+            g2.addRenderingHints(renderingHints);
+        }
 
         AffineTransform at = getPageTransform(boundary, userRotation, userZoom);
         g2.transform(at);
@@ -1543,8 +1585,6 @@ public class Page extends Dictionary {
             }
         }
 
-        Shapes textBlockShapes = new Shapes();
-
         /**
          * Finally iterate through the contents vector and concat all of the
          * the resouse streams together so that the contant parser can
@@ -1559,16 +1599,42 @@ public class Page extends Dictionary {
             // get pages resources
             initPageResources();
         }
+        return parseText(contents, resources);
+    }
+
+    /**
+     * Extracts the PageText of this page the same way as getText() but
+     * without keeping the page's content streams and resources, so a page
+     * that wasn't initialized is left as lightweight as it was.  The content
+     * is parsed outside of the page's lock and each stream is decoded as the
+     * parser reaches it.  Used for whole document extraction, see
+     * {@link TextExtractor}.
+     *
+     * @return page text, null if the page has no text.
+     * @throws InterruptedException if the thread is interrupted.
+     */
+    public PageText extractText() throws InterruptedException {
+        List<Stream> pageContents;
+        Resources pageResources;
+        synchronized (this) {
+            if (inited && shapes != null && shapes.getPageText() != null) {
+                return shapes.getPageText();
+            }
+            pageContents = contents != null ? contents : loadPageContents();
+            pageResources = resources != null ? resources : loadPageResources();
+        }
+        return parseText(pageContents, pageResources);
+    }
+
+    private PageText parseText(List<Stream> contents, Resources resources) {
+        Shapes textBlockShapes = new Shapes(true);
         if (contents != null) {
             try {
 
                 ContentParser cp = ContentParserFactory.getInstance()
                         .getContentParser(library, resources);
-                byte[][] streams = new byte[contents.size()][];
-                for (int i = 0, max = contents.size(); i < max; i++) {
-                    streams[i] = contents.get(i).getDecodedStreamBytes();
-                }
-                textBlockShapes = cp.parseTextBlocks(streams);
+                textBlockShapes = AbstractContentParser.parseStreamTextBlocks(cp,
+                        contents.toArray(new Stream[contents.size()]));
                 // print off any fuzz left on the stack
                 if (logger.isLoggable(Level.FINER)) {
                     Stack<Object> stack = cp.getStack();
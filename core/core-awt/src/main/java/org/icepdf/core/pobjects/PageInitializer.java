@@ -0,0 +1,346 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.pobjects;
+
+import org.icepdf.core.events.PageLoadingListener;
+import org.icepdf.core.util.Library;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Initializes a range of pages ahead of their use on an executor, so the
+ * resources, annotations and content streams of several pages are parsed at
+ * the same time.  Pages are scheduled in page order and at most
+ * <code>lookAhead</code> pages are initialized ahead of the last page
+ * retrieved with {@link #getPage(int)}, which keeps the memory used by parsed
+ * but not yet used pages bounded.
+ * <br>
+ * A typical batch renderer starts the initializer and then walks the range
+ * in order:
+ * <pre>
+ * PageInitializer initializer = document.initPages(0, count - 1, executor, 4);
+ * for (int i = 0; i &lt; count; i++) {
+ *     Page page = initializer.getPage(i);
+ *     ...
+ * }
+ * </pre>
+ * Progress is reported through the usual PageLoadingListener events, listeners
+ * added with {@link #addPageLoadingListener(PageLoadingListener)} are
+ * registered on each page for the duration of its initialization.  Pages that
+ * were already initialized don't fire any events.
+ * <br>
+ * {@link #cancel()} removes the pages that haven't started and interrupts the
+ * ones being initialized, Page.init() leaves an interrupted page uninitialized
+ * so it can be initialized again later.
+ *
+ * @since 6.3
+ */
+public class PageInitializer {
+
+    private static final Logger logger =
+            Logger.getLogger(PageInitializer.class.toString());
+
+    // runs tasks on the library's common thread pool.
+    static final Executor LIBRARY_EXECUTOR = new Executor() {
+        public void execute(Runnable command) {
+            Library.execute(command);
+        }
+    };
+
+    private final PageTree pageTree;
+    private final int firstPage;
+    private final int lastPage;
+    private final Executor executor;
+    private final int lookAhead;
+
+    private final List<PageLoadingListener> pageLoadingListeners =
+            new CopyOnWriteArrayList<PageLoadingListener>();
+
+    // task of each page in the range, null until scheduled.
+    private final ArrayList<FutureTask<Page>> tasks;
+    // next page to be scheduled.
+    private int nextPage;
+    // pages before this index have been retrieved by the caller.
+    private int retrievedPage;
+    private volatile boolean cancelled;
+    private boolean started;
+
+    /**
+     * Creates a new initializer for the given page range, call start() to
+     * begin initializing pages.
+     *
+     * @param pageTree  page tree of the document.
+     * @param firstPage zero-based index of the first page to initialize.
+     * @param lastPage  zero-based index of the last page to initialize, inclusive.
+     * @param executor  executor pages are initialized on.
+     * @param lookAhead maximum number of pages initialized ahead of the last
+     *                  page retrieved with getPage(), at least one.
+     */
+    public PageInitializer(PageTree pageTree, int firstPage, int lastPage,
+                           Executor executor, int lookAhead) {
+        int pageCount = pageTree.getNumberOfPages();
+        if (firstPage < 0 || lastPage >= pageCount || firstPage > lastPage) {
+            throw new IllegalArgumentException("Invalid page range " + firstPage +
+                    " to " + lastPage + " of " + pageCount + " pages.");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor can't be null.");
+        }
+        this.pageTree = pageTree;
+        this.firstPage = firstPage;
+        this.lastPage = lastPage;
+        this.executor = executor;
+        this.lookAhead = Math.max(lookAhead, 1);
+        tasks = new ArrayList<FutureTask<Page>>(
+                Collections.<FutureTask<Page>>nCopies(lastPage - firstPage + 1, null));
+        nextPage = firstPage;
+        retrievedPage = firstPage;
+    }
+
+    /**
+     * Adds a listener that is registered on each page while it is being
+     * initialized.  Listeners should be added before start() is called.
+     *
+     * @param listener listener to add.
+     */
+    public void addPageLoadingListener(PageLoadingListener listener) {
+        pageLoadingListeners.add(listener);
+    }
+
+    public void removePageLoadingListener(PageLoadingListener listener) {
+        pageLoadingListeners.remove(listener);
+    }
+
+    /**
+     * Schedules the first look ahead pages of the range.
+     *
+     * @return this initializer.
+     */
+    public PageInitializer start() {
+        List<FutureTask<?>> rejected = new ArrayList<FutureTask<?>>();
+        synchronized (this) {
+            if (!started) {
+                started = true;
+                schedule(rejected);
+            }
+        }
+        runRejected(rejected);
+        return this;
+    }
+
+    /**
+     * Gets the initialized page, waiting for its initialization to finish if
+     * needed.  Retrieving a page allows the pages following it to be scheduled,
+     * a page outside of the look ahead window is scheduled right away.
+     *
+     * @param pageIndex zero-based index of a page in the range.
+     * @return initialized page.
+     * @throws InterruptedException if the calling thread is interrupted while
+     *                              waiting or the initializer was cancelled.
+     */
+    public Page getPage(int pageIndex) throws InterruptedException {
+        if (pageIndex < firstPage || pageIndex > lastPage) {
+            throw new IllegalArgumentException("Page " + pageIndex + " is outside of range " +
+                    firstPage + " to " + lastPage + ".");
+        }
+        FutureTask<Page> task;
+        List<FutureTask<?>> rejected = new ArrayList<FutureTask<?>>();
+        synchronized (this) {
+            if (cancelled) {
+                throw new InterruptedException("Page initialization cancelled.");
+            }
+            started = true;
+            if (pageIndex >= retrievedPage) {
+                retrievedPage = pageIndex + 1;
+            }
+            task = tasks.get(pageIndex - firstPage);
+            if (task == null) {
+                // page outside of the window, pages skipped over are
+                // initialized on demand when they're asked for.
+                task = createTask(pageIndex);
+                if (pageIndex >= nextPage) {
+                    nextPage = pageIndex + 1;
+                }
+                execute(executor, task, "Page initialization", rejected);
+            }
+            schedule(rejected);
+        }
+        // rejected tasks run on this thread, outside of the lock.
+        runRejected(rejected);
+        try {
+            Page page = getResult(task, "Page initialization");
+            synchronized (this) {
+                // let the page be collected once the caller is done with it.
+                tasks.set(pageIndex - firstPage, null);
+            }
+            return page;
+        } catch (ExecutionException e) {
+            logger.log(Level.WARNING, "Error initializing page " + pageIndex, e.getCause());
+            return pageTree.getPage(pageIndex);
+        }
+    }
+
+    /**
+     * Cancels all pages not yet initialized, pages that are being initialized
+     * are interrupted.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        for (FutureTask<Page> task : tasks) {
+            if (task != null) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Indicates that every page in the range has been scheduled and finished
+     * initializing, or that the initializer was cancelled.
+     *
+     * @return true if no further pages will be initialized.
+     */
+    public synchronized boolean isDone() {
+        if (cancelled) {
+            return true;
+        }
+        if (nextPage <= lastPage) {
+            return false;
+        }
+        for (FutureTask<Page> task : tasks) {
+            if (task != null && !task.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getFirstPage() {
+        return firstPage;
+    }
+
+    public int getLastPage() {
+        return lastPage;
+    }
+
+    private void schedule(List<FutureTask<?>> rejected) {
+        while (!cancelled && nextPage <= lastPage &&
+                nextPage < retrievedPage + lookAhead) {
+            int pageIndex = nextPage++;
+            if (tasks.get(pageIndex - firstPage) == null) {
+                FutureTask<Page> task = createTask(pageIndex);
+                execute(executor, task, "Page initialization", rejected);
+            }
+        }
+    }
+
+    private FutureTask<Page> createTask(final int pageIndex) {
+        FutureTask<Page> task = new FutureTask<Page>(new Callable<Page>() {
+            public Page call() throws Exception {
+                Page page = pageTree.getPage(pageIndex);
+                if (page == null) {
+                    return null;
+                }
+                for (PageLoadingListener listener : pageLoadingListeners) {
+                    page.addPageProcessingListener(listener);
+                }
+                try {
+                    page.init();
+                } finally {
+                    for (PageLoadingListener listener : pageLoadingListeners) {
+                        page.removePageProcessingListener(listener);
+                    }
+                }
+                return page;
+            }
+        });
+        tasks.set(pageIndex - firstPage, task);
+        return task;
+    }
+
+    /**
+     * Runs a task on the executor.  A task the executor rejects is added to
+     * the rejected list instead, the caller runs it with runRejected() once
+     * it no longer holds any locks so a thread waiting on the task isn't left
+     * hanging.
+     *
+     * @param executor executor to run the task on.
+     * @param task     task to run.
+     * @param name     name of the work the task does, for logging.
+     * @param rejected list rejected tasks are added to.
+     */
+    static void execute(Executor executor, FutureTask<?> task, String name,
+                        List<FutureTask<?>> rejected) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.warning(name + " executor rejected task.");
+            rejected.add(task);
+        }
+    }
+
+    /**
+     * Runs the rejected tasks on the calling thread, tasks cancelled in the
+     * mean time are skipped.
+     *
+     * @param rejected tasks rejected by the executor.
+     */
+    static void runRejected(List<FutureTask<?>> rejected) {
+        for (FutureTask<?> task : rejected) {
+            task.run();
+        }
+        rejected.clear();
+    }
+
+    /**
+     * Waits for a task's result, a cancelled or interrupted task is reported
+     * as an InterruptedException.
+     *
+     * @param task task to wait on.
+     * @param name name of the work the task does, for the exception message.
+     * @return the task's result.
+     * @throws InterruptedException if the calling thread is interrupted or
+     *                              the task was cancelled or interrupted.
+     * @throws ExecutionException   if the task failed.
+     */
+    static <V> V getResult(FutureTask<V> task, String name)
+            throws InterruptedException, ExecutionException {
+        try {
+            return task.get();
+        } catch (CancellationException e) {
+            throw new InterruptedException(name + " cancelled.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof InterruptedException) {
+                throw new InterruptedException(e.getCause().getMessage());
+            }
+            throw e;
+        }
+    }
+}
@@ -158,6 +158,24 @@ public class Stream extends Dictionary {
         return getDecodedStreamBytes(8192);
     }
 
+    /**
+     * Gets an input stream which decodes the stream data as it's read rather
+     * then decoding the whole stream up front as getDecodedStreamBytes()
+     * does.  The caller is responsible for closing the returned stream.
+     *
+     * @return decoded input stream, null if the stream has no data.
+     */
+    public InputStream getDecodedInputStream() {
+        if (rawBytes == null) {
+            return null;
+        }
+        if (compressed) {
+            return getDecodedInputStream(new ByteArrayInputStream(rawBytes), rawBytes.length);
+        }
+        // edited stream which isn't compressed yet.
+        return new ByteArrayInputStream(rawBytes);
+    }
+
     /**
      * This is similar to getDecodedStreamByteArray(), except that the returned byte[]
      * is not necessarily exactly sized, and may be larger. Therefore the returned
@@ -169,6 +187,10 @@ public class Stream extends Dictionary {
     public byte[] getDecodedStreamBytes(int presize) {
         // decompress the stream
         if (compressed) {
+            // a lone flate filter is inflated straight from the raw bytes.
+            if (isDirectFlateDecode()) {
+                return FlateDecode.decode(library, entries, rawBytes, presize);
+            }
             try {
                 ByteArrayInputStream streamInput = new ByteArrayInputStream(rawBytes);
                 long rawStreamLength = rawBytes.length;
@@ -308,6 +330,23 @@ public class Stream extends Dictionary {
         return input;
     }
 
+    /**
+     * Checks if the stream can be decoded by FlateDecode.decode(), the stream
+     * must only have the FlateDecode filter and not be encrypted.
+     */
+    private boolean isDirectFlateDecode() {
+        if (!FlateDecode.isDirectDecode() || rawBytes == null || rawBytes.length == 0 ||
+                library.getSecurityManager() != null) {
+            return false;
+        }
+        List<?> filterNames = getFilterNames();
+        if (filterNames == null || filterNames.size() != 1) {
+            return false;
+        }
+        String filterName = filterNames.get(0).toString();
+        return filterName.equals("FlateDecode") || filterName.equals("/Fl") || filterName.equals("Fl");
+    }
+
     @SuppressWarnings("unchecked")
     protected List<String> getFilterNames() {
         List<String> filterNames = null;
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.pobjects;
+
+import org.icepdf.core.pobjects.graphics.text.PageText;
+import org.icepdf.core.pobjects.graphics.text.PageTextCallback;
+import org.icepdf.core.util.Defs;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Extracts the text of a range of pages in parallel and hands it to a
+ * callback or writer in page order as each page completes.  Rather then
+ * looping over Document.getPageText(), which keeps every page's content
+ * streams and resources, pages are extracted with Page.extractText() on an
+ * executor and at most <code>maxInFlight</code> pages are extracted ahead of
+ * the page being handed to the callback.  Once the callback returns the
+ * page's text is released, so memory stays flat on large documents.
+ * <pre>
+ * TextExtractor extractor = new TextExtractor(document);
+ * extractor.extract(0, document.getNumberOfPages() - 1, writer);
+ * </pre>
+ * The default number of pages in flight can be set with the system property
+ * org.icepdf.core.textExtractor.maxInFlight, default 4.  The default executor
+ * is the library's common thread pool, its size is set with
+ * org.icepdf.core.library.threadPoolSize.
+ * <br>
+ * {@link #cancel()} stops an extraction from another thread, pages being
+ * extracted are interrupted.  A cancelled extractor stays cancelled, a new
+ * extractor is needed to extract text again.
+ *
+ * @since 6.3
+ */
+public class TextExtractor {
+
+    private static final Logger logger =
+            Logger.getLogger(TextExtractor.class.toString());
+
+    private static int defaultMaxInFlight;
+
+    static {
+        defaultMaxInFlight = Defs.intProperty("org.icepdf.core.textExtractor.maxInFlight", 4);
+    }
+
+    // written after each page's text by extract(int, int, Writer).
+    private static final char PAGE_SEPARATOR = '\f';
+
+    private final Document document;
+    private final Executor executor;
+    private final int maxInFlight;
+
+    // pages scheduled but not yet handed to the callback.
+    private final ArrayDeque<FutureTask<PageText>> pending =
+            new ArrayDeque<FutureTask<PageText>>();
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a new extractor that uses the library's common thread pool.
+     *
+     * @param document document to extract text from.
+     */
+    public TextExtractor(Document document) {
+        this(document, PageInitializer.LIBRARY_EXECUTOR, defaultMaxInFlight);
+    }
+
+    /**
+     * Creates a new extractor.
+     *
+     * @param document    document to extract text from.
+     * @param executor    executor pages are extracted on, the number of
+     *                    threads it uses is the number of pages extracted at
+     *                    the same time.
+     * @param maxInFlight maximum number of pages extracted ahead of the page
+     *                    handed to the callback, at least one.
+     */
+    public TextExtractor(Document document, Executor executor, int maxInFlight) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor can't be null.");
+        }
+        this.document = document;
+        this.executor = executor;
+        this.maxInFlight = Math.max(maxInFlight, 1);
+    }
+
+    /**
+     * Extracts the text of a range of pages and writes it to a writer, each
+     * page's text is followed by a form feed.  The writer isn't flushed or
+     * closed.
+     *
+     * @param firstPage zero-based index of the first page.
+     * @param lastPage  zero-based index of the last page, inclusive.
+     * @param writer    writer the text is written to.
+     * @throws IOException          if the text can't be written.
+     * @throws InterruptedException if the thread is interrupted or the
+     *                              extraction was cancelled.
+     */
+    public void extract(int firstPage, int lastPage, final Writer writer)
+            throws IOException, InterruptedException {
+        extract(firstPage, lastPage, new PageTextCallback() {
+            public void pageTextExtracted(int pageIndex, PageText pageText) throws IOException {
+                if (pageText != null) {
+                    writer.write(pageText.toString());
+                }
+                writer.write(PAGE_SEPARATOR);
+            }
+        });
+    }
+
+    /**
+     * Extracts the text of a range of pages, the callback is called for each
+     * page in page order on the calling thread.
+     *
+     * @param firstPage zero-based index of the first page.
+     * @param lastPage  zero-based index of the last page, inclusive.
+     * @param callback  callback the text of each page is handed to.
+     * @throws IOException          if the callback failed.
+     * @throws InterruptedException if the thread is interrupted or the
+     *                              extraction was cancelled.
+     */
+    public void extract(int firstPage, int lastPage, PageTextCallback callback)
+            throws IOException, InterruptedException {
+        final PageTree pageTree = document.getPageTree();
+        int pageCount = pageTree.getNumberOfPages();
+        if (firstPage < 0 || lastPage >= pageCount || firstPage > lastPage) {
+            throw new IllegalArgumentException("Invalid page range " + firstPage +
+                    " to " + lastPage + " of " + pageCount + " pages.");
+        }
+        int nextPage = firstPage;
+        List<FutureTask<?>> rejected = new ArrayList<FutureTask<?>>();
+        try {
+            synchronized (this) {
+                if (cancelled) {
+                    throw new InterruptedException("Text extraction cancelled.");
+                }
+                while (nextPage <= lastPage && pending.size() < maxInFlight) {
+                    schedule(pageTree, nextPage++, rejected);
+                }
+            }
+            // rejected tasks run on this thread, outside of the lock.
+            PageInitializer.runRejected(rejected);
+            for (int pageIndex = firstPage; pageIndex <= lastPage; pageIndex++) {
+                FutureTask<PageText> task;
+                synchronized (this) {
+                    task = pending.poll();
+                }
+                PageText pageText = getPageText(task, pageIndex);
+                // keep the workers busy while the callback runs.
+                synchronized (this) {
+                    if (cancelled) {
+                        throw new InterruptedException("Text extraction cancelled.");
+                    }
+                    if (nextPage <= lastPage) {
+                        schedule(pageTree, nextPage++, rejected);
+                    }
+                }
+                PageInitializer.runRejected(rejected);
+                callback.pageTextExtracted(pageIndex, pageText);
+            }
+        } finally {
+            cancelPending();
+        }
+    }
+
+    /**
+     * Cancels the running extraction and any later one, pages being extracted
+     * are interrupted.
+     */
+    public void cancel() {
+        cancelled = true;
+        cancelPending();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    private PageText getPageText(FutureTask<PageText> task, int pageIndex)
+            throws InterruptedException {
+        if (task == null || cancelled) {
+            throw new InterruptedException("Text extraction cancelled.");
+        }
+        try {
+            return PageInitializer.getResult(task, "Text extraction");
+        } catch (ExecutionException e) {
+            logger.log(Level.WARNING, "Error extracting text of page " + pageIndex, e.getCause());
+            return null;
+        }
+    }
+
+    private void schedule(final PageTree pageTree, final int pageIndex,
+                          List<FutureTask<?>> rejected) {
+        FutureTask<PageText> task = new FutureTask<PageText>(new Callable<PageText>() {
+            public PageText call() throws Exception {
+                Page page = pageTree.getPage(pageIndex);
+                return page != null ? page.extractText() : null;
+            }
+        });
+        pending.add(task);
+        PageInitializer.execute(executor, task, "Text extraction", rejected);
+    }
+
+    private synchronized void cancelPending() {
+        for (FutureTask<PageText> task : pending) {
+            task.cancel(true);
+        }
+        pending.clear();
+    }
+}
@@ -22,7 +22,10 @@ import org.icepdf.core.util.Utils;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
 /**
@@ -34,12 +37,24 @@ public class FlateDecode extends ChunkingInputStream {
 
 
     private static int DEFAULT_BUFFER_SIZE;
+    private static boolean directDecode;
 
     static {
         DEFAULT_BUFFER_SIZE = Defs.sysPropertyInt("org.icepdf.core.flateDecode.bufferSize",
                 16384);
+        directDecode = Defs.sysPropertyBoolean("org.icepdf.core.flateDecode.direct", true);
     }
 
+    // one inflater per thread, reset for every stream rather then allocating native zlib state each time.
+    private static final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
     public static final Name DECODE_PARMS_VALUE = new Name("DecodeParms");
     public static final Name PREDICTOR_VALUE = new Name("Predictor");
     public static final Name WIDTH_VALUE = new Name("Width");
@@ -144,6 +159,142 @@ public class FlateDecode extends ChunkingInputStream {
     }
 
 
+    /**
+     * Checks if whole stream decodes can use decode() rather then the stream
+     * chain, can be disabled with the system property
+     * org.icepdf.core.flateDecode.direct=false.
+     *
+     * @return true if the direct decode is enabled.
+     */
+    public static boolean isDirectDecode() {
+        return directDecode;
+    }
+
+    /**
+     * Inflates a whole FlateDecode stream straight from its raw bytes with the
+     * thread's pooled Inflater.  TIFF and PNG predictors are applied as rows
+     * are inflated, giving the same result as FlateDecode followed by
+     * PredictorDecode but without the intermediate stream buffers.  As with
+     * the stream, truncated or corrupt data ends the decode and the data
+     * inflated up to that point is returned.
+     *
+     * @param library library of the stream.
+     * @param props   stream dictionary.
+     * @param data    raw compressed bytes.
+     * @param presize expected decoded size, 0 if not known.
+     * @return exactly sized decoded bytes.
+     */
+    public static byte[] decode(Library library, HashMap<Object, Object> props, byte[] data, int presize) {
+        // same predictor parameters as the FlateDecode and PredictorDecode constructors.
+        HashMap<?, ?> decodeParmsDictionary = library.getDictionary(props, DECODE_PARMS_VALUE);
+        int predictor = library.getInt(decodeParmsDictionary, PREDICTOR_VALUE);
+        boolean tiff = predictor == PredictorDecode.PREDICTOR_TIFF_2;
+        boolean png = PredictorDecode.isPredictor(library, props);
+        int rowBytes = 0;
+        int colors = 1;
+        int bytesPerPixel = 1;
+        if (tiff || png) {
+            int width = 1;
+            Number widthNumber = library.getNumber(props, WIDTH_VALUE);
+            if (widthNumber != null) {
+                width = widthNumber.intValue();
+            } else {
+                int columns = library.getInt(decodeParmsDictionary, COLUMNS_VALUE);
+                if (columns > 0) width = columns;
+            }
+            int bitsPerComponent = 8;
+            Object colorsObject = library.getObject(decodeParmsDictionary, COLORS_VALUE);
+            if (colorsObject instanceof Number) {
+                colors = ((Number) colorsObject).intValue();
+            }
+            Object bitsPerComponentObject = library.getObject(decodeParmsDictionary, BITS_PER_COMPONENT_VALUE);
+            if (bitsPerComponentObject instanceof Number) {
+                bitsPerComponent = ((Number) bitsPerComponentObject).intValue();
+            }
+            rowBytes = Utils.numBytesToHoldBits(width * colors * bitsPerComponent);
+            bytesPerPixel = Math.max(1, Utils.numBytesToHoldBits(colors * bitsPerComponent));
+            // the streamed TIFF predictor only handles 8 bit components.
+            tiff = tiff && bitsPerComponent == 8;
+            if (rowBytes <= 0) {
+                tiff = png = false;
+            }
+        }
+
+        long estimate = Math.max(Math.max(presize, 1024), data.length * 4L);
+        byte[] out = new byte[(int) Math.min(estimate, MAX_ARRAY_SIZE)];
+        // inflated bytes end at count, rows before decoded have had their predictor applied,
+        // png rows are moved down to written as their tag bytes are dropped.
+        int count = 0;
+        int decoded = 0;
+        int written = 0;
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(data, 0, data.length);
+        try {
+            while (!inflater.finished()) {
+                if (count == out.length) {
+                    if (out.length == MAX_ARRAY_SIZE) {
+                        break;
+                    }
+                    out = Arrays.copyOf(out, (int) Math.min(out.length * 2L, MAX_ARRAY_SIZE));
+                }
+                int read;
+                boolean inflateError = false;
+                try {
+                    read = inflater.inflate(out, count, out.length - count);
+                } catch (DataFormatException e) {
+                    // keep what inflated before the bad data, as the stream does, not all
+                    // runtimes count the bytes of the failed call.
+                    count = (int) Math.max(count, Math.min(inflater.getBytesWritten(), out.length));
+                    read = 0;
+                    inflateError = true;
+                }
+                count += read;
+                if (png) {
+                    for (int rowEnd = decoded + 1 + rowBytes; rowEnd <= count; rowEnd = decoded + 1 + rowBytes) {
+                        written = decodePngRow(out, decoded, rowBytes, written, rowBytes, bytesPerPixel);
+                        decoded = rowEnd;
+                    }
+                } else if (tiff) {
+                    for (; decoded + rowBytes <= count; decoded += rowBytes) {
+                        decodeTiffRow(out, decoded, rowBytes, colors);
+                    }
+                }
+                if (inflateError || (read == 0 && count < out.length)) {
+                    // corrupt or truncated stream, or a preset dictionary is needed.
+                    break;
+                }
+            }
+        } finally {
+            inflater.reset();
+        }
+        // last, possibly short, row
+        if (png) {
+            if (count - decoded > 1) {
+                written = decodePngRow(out, decoded, count - decoded - 1, written, rowBytes, bytesPerPixel);
+            }
+            count = written;
+        } else if (tiff && decoded < count) {
+            decodeTiffRow(out, decoded, count - decoded, colors);
+        }
+        return count == out.length ? out : Arrays.copyOf(out, count);
+    }
+
+    private static int decodePngRow(byte[] out, int offset, int length, int written, int rowBytes,
+                                    int bytesPerPixel) {
+        int currPredictor = (out[offset] & 0xFF) + PredictorDecode.PREDICTOR_PNG_NONE;
+        System.arraycopy(out, offset + 1, out, written, length);
+        PredictorDecode.applyPredictor(out, written, length, written >= rowBytes ? written - rowBytes : -1,
+                currPredictor, bytesPerPixel);
+        return written + length;
+    }
+
+    private static void decodeTiffRow(byte[] out, int offset, int length, int colors) {
+        for (int i = offset + colors, end = offset + length; i < end; i++) {
+            out[i] += out[i - colors];
+        }
+    }
+
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append(super.toString());
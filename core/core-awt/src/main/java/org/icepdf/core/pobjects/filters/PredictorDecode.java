@@ -148,91 +148,75 @@ public class PredictorDecode extends ChunkingInputStream {
      * @param currPredictor predictor to apply to buffer data.
      */
     protected void applyPredictor(int numRead, int currPredictor) {
-        // loop back over the buffer and update with predicted values.
-        for (int i = 0; i < numRead; i++) {
-            // For current row, PNG predictor to do nothing
-            if (currPredictor == PREDICTOR_PNG_NONE) {
-                break; // We could continue, but we'd do that numRead times
+        applyPredictor(buffer, 0, numRead, aboveBuffer, aboveBuffer != null ? 0 : -1,
+                currPredictor, bytesPerPixel);
+    }
+
+    /**
+     * Applies the PNG predictor of one row in place, used by FlateDecode's
+     * whole stream decode.  The row above must already be decoded, it's
+     * treated as all zeros for the first row, same as the streamed decode.
+     *
+     * @param data          decoded data.
+     * @param offset        start of the row in data.
+     * @param length        number of bytes in the row, can be short for the last row.
+     * @param above         start of the row above in data, -1 for the first row.
+     * @param currPredictor predictor of the row, the row's tag byte + PREDICTOR_PNG_NONE.
+     * @param bytesPerPixel bytes per pixel rounded up to 1.
+     */
+    static void applyPredictor(byte[] data, int offset, int length, int above,
+                               int currPredictor, int bytesPerPixel) {
+        applyPredictor(data, offset, length, data, above, currPredictor, bytesPerPixel);
+    }
+
+    /**
+     * Applies the PNG predictor of one row in place, the row above can be in
+     * a different buffer.
+     *
+     * @param data          decoded data.
+     * @param offset        start of the row in data.
+     * @param length        number of bytes in the row, can be short for the last row.
+     * @param aboveData     buffer holding the row above.
+     * @param above         start of the row above in aboveData, -1 for the first row.
+     * @param currPredictor predictor of the row, the row's tag byte + PREDICTOR_PNG_NONE.
+     * @param bytesPerPixel bytes per pixel rounded up to 1.
+     */
+    private static void applyPredictor(byte[] data, int offset, int length, byte[] aboveData, int above,
+                                       int currPredictor, int bytesPerPixel) {
+        int end = offset + length;
+        if (currPredictor == PREDICTOR_PNG_SUB) {
+            for (int i = offset + bytesPerPixel; i < end; i++) {
+                data[i] += data[i - bytesPerPixel];
             }
-            // For current row, derive each byte from byte left-by-bpp
-            else if (currPredictor == PREDICTOR_PNG_SUB) {
-                if ((i - bytesPerPixel) >= 0) {
-                    buffer[i] += applyLeftPredictor(buffer, bytesPerPixel, i);
+        } else if (currPredictor == PREDICTOR_PNG_UP) {
+            if (above >= 0) {
+                for (int i = offset, j = above; i < end; i++, j++) {
+                    data[i] += aboveData[j];
                 }
             }
-            // For current row, derive each byte from byte above
-            else if (currPredictor == PREDICTOR_PNG_UP) {
-                if (aboveBuffer != null) {
-                    buffer[i] += applyAbovePredictor(aboveBuffer, i);
-                }
+        } else if (currPredictor == PREDICTOR_PNG_AVG) {
+            for (int i = offset, j = above; i < end; i++, j++) {
+                int left = i - bytesPerPixel >= offset ? data[i - bytesPerPixel] & 0xFF : 0;
+                int up = above >= 0 ? aboveData[j] & 0xFF : 0;
+                data[i] += (byte) ((left + up) >>> 1);
             }
-            // For current row, derive each byte from average of byte left-by-bpp and byte above
-            else if (currPredictor == PREDICTOR_PNG_AVG) {
-                // PNG AVG: output(x) = curr_line(x) + floor((curr_line(x-bpp)+above(x))/2)
-                // From RFC 2083 (PNG), sum with no overflow, using >= 9 bit arithmatic
-                int left = 0;
-                if ((i - bytesPerPixel) >= 0) {
-                    left = applyLeftPredictor(buffer, bytesPerPixel, i);
-                }
-                int above = 0;
-                if (aboveBuffer != null) {
-                    above = applyAbovePredictor(aboveBuffer, i);
-                }
-                int sum = left + above;
-                byte avg = (byte) ((sum >>> 1) & 0xFF);
-                buffer[i] += avg;
-            }
-            // For current row, derive each byte from non-linear function of
-            // byte left-by-bpp and byte above and byte left-by-bpp of above
-            else if (currPredictor == PREDICTOR_PNG_PAETH) {
-                // From RFC 2083 (PNG)
-                // PNG PAETH:  output(x) = curr_line(x) + PaethPredictor(curr_line(x-bpp), above(x), above(x-bpp))
-                //   PaethPredictor(left, above, aboveLeft)
-                //     p          = left + above - aboveLeft
-                //     pLeft      = abs(p - left)
-                //     pAbove     = abs(p - above)
-                //     pAboveLeft = abs(p - aboveLeft)
-                //     if( pLeft <= pAbove && pLeft <= pAboveLeft ) return left
-                //     if( pAbove <= pAboveLeft ) return above
-                //     return aboveLeft
-                int left = 0;
-                if ((i - bytesPerPixel) >= 0) {
-                    left = applyLeftPredictor(buffer, bytesPerPixel, i);
-                }
-                int above = 0;
-                if (aboveBuffer != null) {
-                    above = applyAbovePredictor(aboveBuffer, i);
-                }
-                int aboveLeft = 0;
-                if ((i - bytesPerPixel) >= 0 && aboveBuffer != null) {
-                    aboveLeft = applyAboveLeftPredictor(aboveBuffer, bytesPerPixel, i);
-                }
-                int p = left + above - aboveLeft;
+        } else if (currPredictor == PREDICTOR_PNG_PAETH) {
+            for (int i = offset, j = above; i < end; i++, j++) {
+                boolean hasLeft = i - bytesPerPixel >= offset;
+                int left = hasLeft ? data[i - bytesPerPixel] & 0xFF : 0;
+                int up = above >= 0 ? aboveData[j] & 0xFF : 0;
+                int aboveLeft = hasLeft && above >= 0 ? aboveData[j - bytesPerPixel] & 0xFF : 0;
+                int p = left + up - aboveLeft;
                 int pLeft = Math.abs(p - left);
-                int pAbove = Math.abs(p - above);
+                int pAbove = Math.abs(p - up);
                 int pAboveLeft = Math.abs(p - aboveLeft);
-                int paeth = ((pLeft <= pAbove && pLeft <= pAboveLeft)
-                        ? left
-                        : ((pAbove <= pAboveLeft)
-                        ? above
-                        : aboveLeft));
-                buffer[i] += ((byte) (paeth & 0xFF));
+                int paeth = (pLeft <= pAbove && pLeft <= pAboveLeft) ? left :
+                        (pAbove <= pAboveLeft) ? up : aboveLeft;
+                data[i] += (byte) paeth;
             }
         }
     }
 
-    private static int applyLeftPredictor(byte[] buffer, int bytesPerPixel, int i) {
-        return (((int) buffer[(i - bytesPerPixel)]) & 0xFF);
-    }
-
-    private static int applyAbovePredictor(byte[] aboveBuffer, int i) {
-        return (((int) aboveBuffer[i]) & 0xFF);
-    }
-
-    private static int applyAboveLeftPredictor(byte[] aboveBuffer, int bytesPerPixel, int i) {
-        return (((int) aboveBuffer[i - bytesPerPixel]) & 0xFF);
-    }
-
     public static boolean isPredictor(Library library, HashMap entries) {
         HashMap decodeParmsDictionary = library.getDictionary(entries, DECODE_PARMS_VALUE);
         if (decodeParmsDictionary == null) {
@@ -0,0 +1,381 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.pobjects.fonts.ofont;
+
+import org.icepdf.core.util.Defs;
+import org.icepdf.core.util.SizedLRUCache;
+
+import java.awt.*;
+import java.awt.Font;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least recently used cache of the glyph outlines and glyph masks OFont
+ * paints text with.  Without the cache every glyph of every paint builds a
+ * new GlyphVector and rasterizes its outline, with the cache a glyph's
+ * outline is built once per font size and, at the same zoom, the glyph is
+ * rasterized once and repaints blit the mask.
+ * <br>
+ * Outlines are in font space and keyed by the awt font and the glyph's
+ * unicode value so they're reused at any zoom, the number of outlines is set
+ * with the system property org.icepdf.core.ofont.glyphCache.size, default
+ * 1024.  Masks are keyed by the outline, the scale, rotation and shear of the
+ * device transform, the quarter pixel the glyph's origin falls on, the colour
+ * and the antialiasing hints.  The masks of all fonts share one budget
+ * bounded by the bytes used by their rasters, the budget can be set with
+ * org.icepdf.core.ofont.glyphCache.maskSize in KB, default 8192.  Glyphs
+ * larger then org.icepdf.core.ofont.glyphCache.maxMaskDimension pixels,
+ * default 96, are always filled.  Masks can be disabled with
+ * org.icepdf.core.ofont.glyphCache.masksEnabled=false and the cache with
+ * org.icepdf.core.ofont.glyphCache.enabled=false.
+ * <br>
+ * Masks are only blitted when painting to an image or the screen with the
+ * JDK's raster pipeline, printers and vector graphics contexts such as SVG
+ * or PDF exporters are always given the outlines.
+ * <br>
+ * Each OFont and the fonts derived from it share one outline cache.
+ *
+ * @since 6.3
+ */
+public class GlyphCache {
+
+    private static boolean enabled;
+    private static boolean masksEnabled;
+    private static int maxOutlines;
+    private static long maxMaskSize;
+    private static int maxMaskDimension;
+
+    static {
+        enabled = Defs.booleanProperty("org.icepdf.core.ofont.glyphCache.enabled", true);
+        masksEnabled = Defs.booleanProperty("org.icepdf.core.ofont.glyphCache.masksEnabled", true);
+        maxOutlines = Defs.intProperty("org.icepdf.core.ofont.glyphCache.size", 1024);
+        maxMaskSize = Defs.intProperty("org.icepdf.core.ofont.glyphCache.maskSize", 8192) * 1024L;
+        maxMaskDimension = Defs.intProperty("org.icepdf.core.ofont.glyphCache.maxMaskDimension", 96);
+    }
+
+    // sub pixel positions a mask is rasterized at along each axis.
+    private static final int SUB_PIXELS = 4;
+
+    // marks glyphs too large to be cached as a mask.
+    private static final Mask NO_MASK = new Mask(null, 0, 0);
+
+    // masks of all fonts, the key includes the awt font.
+    private static final SizedLRUCache<MaskKey, Mask> masks =
+            new SizedLRUCache<MaskKey, Mask>(maxMaskSize) {
+                @Override
+                protected long sizeOf(Mask mask) {
+                    return mask.size;
+                }
+            };
+
+    // class of the graphics contexts the JDK creates for images and the
+    // screen, other implementations may not rasterize what they're given.
+    private static final Class<?> rasterGraphicsClass;
+
+    static {
+        Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        rasterGraphicsClass = g.getClass();
+        g.dispose();
+    }
+
+    private final LinkedHashMap<OutlineKey, Shape> outlines;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public GlyphCache() {
+        outlines = new LinkedHashMap<OutlineKey, Shape>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<OutlineKey, Shape> eldest) {
+                return size() > maxOutlines;
+            }
+        };
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the cached font space outline of a glyph.
+     *
+     * @param font        awt font the glyph is drawn with.
+     * @param displayText unicode value of the glyph.
+     * @return outline drawn at the origin, null if not cached.  The outline
+     * must not be modified.
+     */
+    public Shape getOutline(Font font, String displayText) {
+        Shape outline;
+        synchronized (this) {
+            outline = outlines.get(new OutlineKey(font, displayText));
+        }
+        if (outline != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return outline;
+    }
+
+    public synchronized void putOutline(Font font, String displayText, Shape outline) {
+        outlines.put(new OutlineKey(font, displayText), outline);
+    }
+
+    /**
+     * Fills a glyph by blitting its cached mask, the mask is rasterized and
+     * cached if needed.  Masks are only used for solid colours when painting
+     * to an image or the screen, see {@link #isRasterTarget(Graphics2D)}.
+     *
+     * @param g           graphics context, its transform maps font space
+     *                    to device space.
+     * @param font        awt font the glyph is drawn with.
+     * @param displayText unicode value of the glyph.
+     * @param outline     font space outline of the glyph drawn at the origin.
+     * @param x           x coordinate of the glyph's origin.
+     * @param y           y coordinate of the glyph's origin.
+     * @return true if the glyph was painted, false if the outline should be
+     * filled instead.  The graphics context's transform is changed.
+     */
+    public boolean fillMask(Graphics2D g, Font font, String displayText, Shape outline,
+                            float x, float y) {
+        if (!masksEnabled || !(g.getPaint() instanceof Color) || !isRasterTarget(g)) {
+            return false;
+        }
+        AffineTransform af = g.getTransform();
+        double[] origin = {x, y};
+        af.transform(origin, 0, origin, 0, 1);
+        if (Double.isNaN(origin[0]) || Double.isNaN(origin[1]) ||
+                Double.isInfinite(origin[0]) || Double.isInfinite(origin[1])) {
+            return false;
+        }
+        // origin rounded to the nearest sub pixel.
+        long originX = Math.round(origin[0] * SUB_PIXELS);
+        long originY = Math.round(origin[1] * SUB_PIXELS);
+        int deviceX = (int) Math.floor(originX / (double) SUB_PIXELS);
+        int deviceY = (int) Math.floor(originY / (double) SUB_PIXELS);
+        int subX = (int) (originX - deviceX * (long) SUB_PIXELS);
+        int subY = (int) (originY - deviceY * (long) SUB_PIXELS);
+        Color color = (Color) g.getPaint();
+        MaskKey key = new MaskKey(font, displayText, af, subX, subY, color.getRGB(),
+                g.getRenderingHint(RenderingHints.KEY_ANTIALIASING),
+                g.getRenderingHint(RenderingHints.KEY_STROKE_CONTROL));
+        Mask mask = masks.get(key);
+        if (mask == null) {
+            mask = createMask(g, af, outline, subX, subY, color);
+            masks.put(key, mask);
+        }
+        if (mask == NO_MASK) {
+            return false;
+        }
+        if (mask.image != null) {
+            g.setTransform(new AffineTransform());
+            g.drawImage(mask.image, deviceX + mask.x, deviceY + mask.y, null);
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the graphics context rasterizes to an image or the screen.
+     * Printer and vector contexts, SVG or PDF exporters for example, would
+     * record a blitted mask as a bitmap so they're given the outline.
+     *
+     * @param g graphics context to check.
+     * @return true if masks can be blitted to the graphics context.
+     */
+    private static boolean isRasterTarget(Graphics2D g) {
+        if (g.getClass() != rasterGraphicsClass || g instanceof PrintGraphics) {
+            return false;
+        }
+        GraphicsConfiguration config = g.getDeviceConfiguration();
+        if (config == null) {
+            return false;
+        }
+        int type = config.getDevice().getType();
+        return type == GraphicsDevice.TYPE_IMAGE_BUFFER || type == GraphicsDevice.TYPE_RASTER_SCREEN;
+    }
+
+    private static Mask createMask(Graphics2D g, AffineTransform af, Shape outline,
+                                   int subX, int subY, Color color) {
+        AffineTransform maskTransform = new AffineTransform(
+                af.getScaleX(), af.getShearY(), af.getShearX(), af.getScaleY(),
+                subX / (double) SUB_PIXELS, subY / (double) SUB_PIXELS);
+        Shape deviceOutline = maskTransform.createTransformedShape(outline);
+        Rectangle bounds = deviceOutline.getBounds();
+        if (bounds.isEmpty()) {
+            // white space, nothing to paint.
+            return new Mask(null, 0, 0);
+        }
+        if (bounds.width > maxMaskDimension || bounds.height > maxMaskDimension) {
+            return NO_MASK;
+        }
+        BufferedImage image = new BufferedImage(bounds.width, bounds.height,
+                BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D maskGraphics = image.createGraphics();
+        maskGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                g.getRenderingHint(RenderingHints.KEY_ANTIALIASING));
+        maskGraphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL,
+                g.getRenderingHint(RenderingHints.KEY_STROKE_CONTROL));
+        maskGraphics.setColor(color);
+        maskGraphics.translate(-bounds.x, -bounds.y);
+        maskGraphics.fill(deviceOutline);
+        maskGraphics.dispose();
+        return new Mask(image, bounds.x, bounds.y);
+    }
+
+    /**
+     * Removes all outlines from the cache.
+     */
+    public synchronized void clear() {
+        outlines.clear();
+    }
+
+    /**
+     * Removes the masks of all fonts.
+     */
+    public static void clearMasks() {
+        masks.clear();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public synchronized int getOutlineCount() {
+        return outlines.size();
+    }
+
+    public static int getMaskCount() {
+        return masks.getEntryCount();
+    }
+
+    /**
+     * Gets the number of raster bytes currently held by the masks of all
+     * fonts.
+     *
+     * @return size in bytes.
+     */
+    public static long getMaskSize() {
+        return masks.getSize();
+    }
+
+    public static long getMaxMaskSize() {
+        return masks.getMaxSize();
+    }
+
+    private static class OutlineKey {
+        private final Font font;
+        private final String displayText;
+        private final int hashCode;
+
+        OutlineKey(Font font, String displayText) {
+            this.font = font;
+            this.displayText = displayText;
+            hashCode = font.hashCode() * 31 + displayText.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof OutlineKey)) {
+                return false;
+            }
+            OutlineKey key = (OutlineKey) o;
+            return displayText.equals(key.displayText) && font.equals(key.font);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class MaskKey {
+        private final Font font;
+        private final String displayText;
+        private final float m00, m10, m01, m11;
+        private final int subX, subY;
+        private final int rgb;
+        private final Object antiAliasing;
+        private final Object strokeControl;
+        private final int hashCode;
+
+        MaskKey(Font font, String displayText, AffineTransform af, int subX, int subY,
+                int rgb, Object antiAliasing, Object strokeControl) {
+            this.font = font;
+            this.displayText = displayText;
+            m00 = (float) af.getScaleX();
+            m10 = (float) af.getShearY();
+            m01 = (float) af.getShearX();
+            m11 = (float) af.getScaleY();
+            this.subX = subX;
+            this.subY = subY;
+            this.rgb = rgb;
+            this.antiAliasing = antiAliasing;
+            this.strokeControl = strokeControl;
+            int hash = font.hashCode() * 31 + displayText.hashCode();
+            hash = hash * 31 + Float.floatToIntBits(m00);
+            hash = hash * 31 + Float.floatToIntBits(m10);
+            hash = hash * 31 + Float.floatToIntBits(m01);
+            hash = hash * 31 + Float.floatToIntBits(m11);
+            hash = hash * 31 + subX * SUB_PIXELS + subY;
+            hashCode = hash * 31 + rgb;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MaskKey)) {
+                return false;
+            }
+            MaskKey key = (MaskKey) o;
+            return m00 == key.m00 && m10 == key.m10 && m01 == key.m01 && m11 == key.m11 &&
+                    subX == key.subX && subY == key.subY && rgb == key.rgb &&
+                    antiAliasing == key.antiAliasing && strokeControl == key.strokeControl &&
+                    displayText.equals(key.displayText) && font.equals(key.font);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class Mask {
+        final BufferedImage image;
+        final int x, y;
+        final long size;
+
+        Mask(BufferedImage image, int x, int y) {
+            this.image = image;
+            this.x = x;
+            this.y = y;
+            // keys and bookkeeping for empty masks still cost something.
+            size = image != null ? image.getWidth() * image.getHeight() * 4L + 64 : 64;
+        }
+    }
+}
@@ -51,6 +51,8 @@ public class OFont implements FontFile {
 
     // text layout map, very expensive to create, so we'll cache them.
     private HashMap<String, Point2D.Float> echarAdvanceCache;
+    // glyph outlines and masks, shared by all fonts derived from this font.
+    private GlyphCache glyphCache;
 
     protected float[] widths;
     protected Map<Integer, Float> cidWidths;
@@ -67,10 +69,14 @@ public class OFont implements FontFile {
         this.awtFont = awtFont;
         maxCharBounds = new Rectangle2D.Double();
         this.echarAdvanceCache = new HashMap<String, Point2D.Float>(256);
+        if (GlyphCache.isEnabled()) {
+            this.glyphCache = new GlyphCache();
+        }
     }
 
     private OFont(OFont font) {
         this.echarAdvanceCache = font.echarAdvanceCache;
+        this.glyphCache = font.glyphCache;
         this.awtFont = font.awtFont;
         this.encoding = font.encoding;
         this.toUnicode = font.toUnicode;
@@ -307,7 +313,21 @@ public class OFont implements FontFile {
                             long layout, int mode, Color strokecolor) {
 
         AffineTransform af = g.getTransform();
-        Shape outline = getEstringOutline(displayText, x, y);
+        Shape outline;
+        String glyph = toUnicode(displayText);
+        Shape glyphOutline = getGlyphOutline(glyph);
+        if (glyphOutline != null) {
+            // filled glyphs at a zoom we've already painted are just a blit.
+            if ((TextState.MODE_FILL == mode || TextState.MODE_FILL_ADD == mode) &&
+                    glyphCache.fillMask(g, awtFont, glyph, glyphOutline, x, y)) {
+                g.setTransform(af);
+                return;
+            }
+            g.translate(x, y);
+            outline = glyphOutline;
+        } else {
+            outline = getEstringOutline(displayText, x, y);
+        }
 
         if (TextState.MODE_FILL == mode || TextState.MODE_FILL_STROKE == mode ||
                 TextState.MODE_FILL_ADD == mode || TextState.MODE_FILL_STROKE_ADD == mode) {
@@ -390,6 +410,34 @@ public class OFont implements FontFile {
     public Shape getEstringOutline(String displayText, float x, float y) {
 
         displayText = toUnicode(displayText);
+        Shape glyphOutline = getGlyphOutline(displayText);
+        if (glyphOutline != null) {
+            return AffineTransform.getTranslateInstance(x, y).createTransformedShape(glyphOutline);
+        }
+        return createEstringOutline(displayText, x, y);
+    }
+
+    /**
+     * Gets the outline of a single glyph drawn at the origin from the glyph
+     * cache, the outline is created and cached if needed.
+     *
+     * @param displayText unicode value of the glyph.
+     * @return glyph outline that must not be modified, null if the cache is
+     * disabled or the text isn't a single glyph.
+     */
+    private Shape getGlyphOutline(String displayText) {
+        if (glyphCache == null || displayText.length() != 1) {
+            return null;
+        }
+        Shape outline = glyphCache.getOutline(awtFont, displayText);
+        if (outline == null) {
+            outline = createEstringOutline(displayText, 0, 0);
+            glyphCache.putOutline(awtFont, displayText, outline);
+        }
+        return outline;
+    }
+
+    private Shape createEstringOutline(String displayText, float x, float y) {
         FontRenderContext frc = new FontRenderContext(new AffineTransform(), true, true);
         GlyphVector glyphVector = awtFont.createGlyphVector(frc, displayText);
         glyphVector.setGlyphPosition(0, new Point2D.Float(x, y));
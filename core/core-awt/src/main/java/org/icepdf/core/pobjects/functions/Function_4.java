@@ -18,12 +18,13 @@ package org.icepdf.core.pobjects.functions;
 import org.icepdf.core.pobjects.Dictionary;
 import org.icepdf.core.pobjects.Stream;
 import org.icepdf.core.pobjects.functions.postscript.Lexer;
+import org.icepdf.core.pobjects.functions.postscript.Program;
+import org.icepdf.core.util.Defs;
 import org.icepdf.core.util.Utils;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.Stack;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -37,6 +38,11 @@ import java.util.logging.Logger;
  * without the loss of accuracy that comes from sampling, and without adding to
  * the list a predefined spot function (10.5.3 spot functions).  All of the
  * predefined spot functions can be written as type 4 functions. </p>
+ * <p>The function is compiled once into a {@link Program} and results are kept
+ * in a fixed size cache keyed by the input values.  Functions that can't be
+ * compiled fall back to the {@link Lexer} which interprets the function
+ * content on each call.  The cache size can be set with the system property
+ * org.icepdf.core.functions.type4.cacheSize, default is 4096 entries.</p>
  *
  * @author ICEsoft Technologies Inc.
  * @since 4.2
@@ -46,11 +52,32 @@ public class Function_4 extends Function {
     private static final Logger logger =
             Logger.getLogger(Function_4.class.toString());
 
+    private static final int cacheSize;
+
+    static {
+        int size = Defs.intProperty("org.icepdf.core.functions.type4.cacheSize", 4096);
+        // power of two so the slot can be masked from the key.
+        cacheSize = size > 1 ? Integer.highestOneBit(size - 1) << 1 : 0;
+    }
+
+    // operand stack for each thread evaluating a compiled function.
+    private static final ThreadLocal<Program.ExecutionStack> executionStacks =
+            new ThreadLocal<Program.ExecutionStack>() {
+                @Override
+                protected Program.ExecutionStack initialValue() {
+                    return new Program.ExecutionStack();
+                }
+            };
+
     // decoded content that makes up the type 4 functions.
     private byte[] functionContent;
 
-    // cache for calculated colour values
-    private ConcurrentHashMap<Integer, float[]> resultCache;
+    // compiled function, null if the content could not be compiled.
+    private Program program;
+
+    // direct mapped cache for calculated colour values, a slot is simply
+    // replaced when a different key maps to it.
+    private final CacheEntry[] resultCache;
 
     public Function_4(Dictionary d) {
         super(d);
@@ -61,12 +88,19 @@ public class Function_4 extends Function {
             if (logger.isLoggable(Level.FINER)) {
                 logger.finer("Function 4: " + Utils.convertByteArrayToByteString(functionContent));
             }
-
+            if (functionContent != null) {
+                try {
+                    program = Program.compile(functionContent);
+                } catch (IllegalArgumentException e) {
+                    logger.log(Level.FINE, "Type 4 function could not be compiled, " +
+                            "falling back to interpreter.", e);
+                }
+            }
         } else {
             logger.finer("Type 4 function operands could not be found.");
         }
         // cache for type 4 function results.
-        resultCache = new ConcurrentHashMap<Integer, float[]>();
+        resultCache = new CacheEntry[cacheSize];
     }
 
     /**
@@ -78,12 +112,65 @@ public class Function_4 extends Function {
     public float[] calculate(float[] x) {
 
         // check the cache in case we've already made the calculation.
-        Integer colourKey = calculateColourKey(x);
-        float[] result = resultCache.get(colourKey);
-        if (result != null) {
-            return result;
+        boolean cacheable = resultCache.length > 0 && x.length <= 4;
+        long colourKey = 0;
+        int slot = 0;
+        if (cacheable) {
+            colourKey = calculateColourKey(x);
+            slot = (int) (colourKey ^ (colourKey >>> 32)) * 0x9E3779B9;
+            slot = (slot ^ (slot >>> 16)) & (resultCache.length - 1);
+            CacheEntry entry = resultCache[slot];
+            if (entry != null && entry.key == colourKey) {
+                return entry.value;
+            }
+        }
+
+        float[] y;
+        if (program != null) {
+            y = execute(x);
+        } else {
+            y = interpret(x);
+        }
+
+        // add the new value to the cache.
+        if (cacheable) {
+            resultCache[slot] = new CacheEntry(colourKey, y);
+        }
+        return y;
+    }
+
+    /**
+     * Evaluates the compiled program, inputs are clipped to the domain.
+     */
+    private float[] execute(float[] x) {
+        int m = x.length;
+        float[] input = new float[m];
+        for (int i = 0; i < m; i++) {
+            input[i] = 2 * i + 1 < domain.length ?
+                    Math.min(Math.max(x[i], domain[2 * i]), domain[2 * i + 1]) : x[i];
+        }
+        Program.ExecutionStack stack = executionStacks.get();
+        try {
+            program.execute(input, stack);
+        } catch (IllegalStateException e) {
+            logger.log(Level.FINER, "Error Processing Type 4 definition", e);
+        }
+        // length of output array
+        int n = range.length / 2;
+        // ready output array
+        float y[] = new float[n];
+        for (int i = 0; i < n; i++) {
+            float value = i < stack.size() ? stack.get(i) : range[2 * i];
+            y[i] = Math.min(Math.max(value, range[2 * i]), range[2 * i + 1]);
         }
+        return y;
+    }
 
+    /**
+     * Interprets the function content with the lexer, used when the
+     * function could not be compiled.
+     */
+    private float[] interpret(float[] x) {
         // setup the lexer stream
         InputStream content = new ByteArrayInputStream(functionContent);
         Lexer lex = new Lexer();
@@ -109,35 +196,47 @@ public class Function_4 extends Function {
             y[i] = Math.min(Math.max((Float) stack.elementAt(i),
                     range[2 * i]), range[2 * i + 1]);
         }
-        // add the new value to the cache.
-        resultCache.put(colourKey, y);
         return y;
     }
 
     /**
-     * Utility for creating a comparable colour key for colour components.
+     * Utility for creating a primitive cache key for colour components.  One
+     * or two values are keyed by their exact bits, three or four values are
+     * quantized to 16 bits over the function's domain.
      *
-     * @param colours one or more colour values,  usually maxes out at four.
-     * @return concatenation of colour values.
+     * @param colours one to four colour values.
+     * @return key for the colour values.
      */
-    private Integer calculateColourKey(float[] colours) {
+    private long calculateColourKey(float[] colours) {
         int length = colours.length;
-        // only works for colour vlues 0-255
-        if (!(colours[0] <= 1.0)) {
-            if (length == 1) {
-                return (int) colours[0];
-            } else if (length == 2) {
-                return ((int) colours[1] << 8) | (int) colours[0];
-            } else if (length == 3) {
-                return ((int) colours[2] << 16) |
-                        ((int) colours[1] << 8) | (int) colours[0];
+        if (length == 1) {
+            return Float.floatToIntBits(colours[0]) & 0xffffffffL;
+        } else if (length == 2) {
+            return ((long) Float.floatToIntBits(colours[0]) << 32) |
+                    (Float.floatToIntBits(colours[1]) & 0xffffffffL);
+        }
+        long key = 0;
+        for (int i = 0; i < length; i++) {
+            float min = 0;
+            float max = 1;
+            if (2 * i + 1 < domain.length) {
+                min = domain[2 * i];
+                max = domain[2 * i + 1];
             }
+            float value = Math.min(Math.max(colours[i], min), max);
+            long level = max > min ? Math.round((value - min) / (max - min) * 0xffff) : 0;
+            key = (key << 16) | level;
         }
-        // otherwise expensive hash generation.
-        StringBuilder builder = new StringBuilder();
-        for (float colour : colours) {
-            builder.append(colour);
+        return key;
+    }
+
+    private static class CacheEntry {
+        final long key;
+        final float[] value;
+
+        CacheEntry(long key, float[] value) {
+            this.key = key;
+            this.value = value;
         }
-        return builder.toString().hashCode();
     }
 }
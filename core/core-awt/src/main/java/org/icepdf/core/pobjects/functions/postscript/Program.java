@@ -0,0 +1,647 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.pobjects.functions.postscript;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A type 4 function compiled once into a flat array of int op codes which is
+ * then executed against a primitive operand stack.  The if and ifelse
+ * procedures are compiled to conditional jumps so no Procedure or boxed
+ * number is created while the function is evaluated.
+ * <br>
+ * Operators are identified by the OperatorNames constants.  Numbers are kept
+ * as floats with a type tag so integer, real and boolean results follow the
+ * PostScript rules, for example <code>3 2 idiv</code> is an integer and
+ * <code>true not</code> a boolean.
+ * <br>
+ * A compiled program can be shared by several threads, each thread evaluating
+ * it needs its own {@link ExecutionStack}.
+ *
+ * @since 6.3
+ */
+public class Program {
+
+    // op codes not covered by OperatorNames.
+    private static final int
+            OP_PUSH = 100,
+            OP_JUMP = 101,
+            OP_JUMP_IF_FALSE = 102;
+
+    // operand type tags.
+    static final byte
+            TYPE_REAL = 0,
+            TYPE_INT = 1,
+            TYPE_BOOLEAN = 2;
+
+    // operand stack limit of the PostScript calculator functions.
+    private static final int STACK_LIMIT = 100;
+
+    private static final HashMap<String, Integer> operatorNames = new HashMap<String, Integer>();
+
+    static {
+        operatorNames.put("abs", OperatorNames.OP_ABS);
+        operatorNames.put("add", OperatorNames.OP_ADD);
+        operatorNames.put("and", OperatorNames.OP_AND);
+        operatorNames.put("atan", OperatorNames.OP_ATAN);
+        operatorNames.put("bitshift", OperatorNames.OP_BITSHIFT);
+        operatorNames.put("ceiling", OperatorNames.OP_CEILING);
+        operatorNames.put("cos", OperatorNames.OP_COS);
+        operatorNames.put("copy", OperatorNames.OP_COPY);
+        operatorNames.put("cvi", OperatorNames.OP_CVI);
+        operatorNames.put("cvr", OperatorNames.OP_CVR);
+        operatorNames.put("div", OperatorNames.OP_DIV);
+        operatorNames.put("dup", OperatorNames.OP_DUP);
+        operatorNames.put("eq", OperatorNames.OP_EQ);
+        operatorNames.put("exch", OperatorNames.OP_EXCH);
+        operatorNames.put("exp", OperatorNames.OP_EXP);
+        operatorNames.put("false", OperatorNames.OP_FALSE);
+        operatorNames.put("floor", OperatorNames.OP_FLOOR);
+        operatorNames.put("ge", OperatorNames.OP_GE);
+        operatorNames.put("gt", OperatorNames.OP_GT);
+        operatorNames.put("idiv", OperatorNames.OP_IDIV);
+        operatorNames.put("if", OperatorNames.OP_IF);
+        operatorNames.put("ifelse", OperatorNames.OP_IFELSE);
+        operatorNames.put("index", OperatorNames.OP_INDEX);
+        operatorNames.put("le", OperatorNames.OP_LE);
+        operatorNames.put("ln", OperatorNames.OP_LN);
+        operatorNames.put("log", OperatorNames.OP_LOG);
+        operatorNames.put("lt", OperatorNames.OP_LT);
+        operatorNames.put("mod", OperatorNames.OP_MOD);
+        operatorNames.put("mul", OperatorNames.OP_MUL);
+        operatorNames.put("ne", OperatorNames.OP_NE);
+        operatorNames.put("neg", OperatorNames.OP_NEG);
+        operatorNames.put("not", OperatorNames.OP_NOT);
+        operatorNames.put("or", OperatorNames.OP_OR);
+        operatorNames.put("pop", OperatorNames.OP_POP);
+        operatorNames.put("roll", OperatorNames.OP_ROLL);
+        operatorNames.put("round", OperatorNames.OP_ROUND);
+        operatorNames.put("sin", OperatorNames.OP_SIN);
+        operatorNames.put("sqrt", OperatorNames.OP_SQRT);
+        operatorNames.put("sub", OperatorNames.OP_SUB);
+        operatorNames.put("true", OperatorNames.OP_TRUE);
+        operatorNames.put("truncate", OperatorNames.OP_TRUNCATE);
+        operatorNames.put("xor", OperatorNames.OP_XOR);
+    }
+
+    // op codes, OP_PUSH and the jumps are followed by one int argument.
+    private final int[] code;
+    // constants referenced by OP_PUSH.
+    private final float[] constants;
+    private final byte[] constantTypes;
+
+    private Program(int[] code, float[] constants, byte[] constantTypes) {
+        this.code = code;
+        this.constants = constants;
+        this.constantTypes = constantTypes;
+    }
+
+    /**
+     * Compiles the decoded content of a type 4 function stream.
+     *
+     * @param content decoded function stream, a procedure enclosed by braces.
+     * @return compiled program.
+     * @throws IllegalArgumentException if the content is not a valid type 4
+     *                                  function.
+     */
+    public static Program compile(byte[] content) {
+        return new Compiler(content).compile();
+    }
+
+    /**
+     * Executes the program.  The input values are pushed on the stack first
+     * and once the program completes the stack holds the output values, bottom
+     * most first.
+     *
+     * @param input input values of the function.
+     * @param stack stack the program is executed on, cleared first.
+     * @throws IllegalStateException if the program under or over flows the
+     *                               stack or an operand has the wrong type.
+     */
+    public void execute(float[] input, ExecutionStack stack) {
+        stack.size = 0;
+        for (float value : input) {
+            stack.push(value, TYPE_REAL);
+        }
+        float[] values = stack.values;
+        byte[] types = stack.types;
+        int[] code = this.code;
+        int pc = 0;
+        int length = code.length;
+        try {
+            while (pc < length) {
+                int op = code[pc++];
+                int top = stack.size - 1;
+                switch (op) {
+                    case OP_PUSH: {
+                        int constant = code[pc++];
+                        stack.push(constants[constant], constantTypes[constant]);
+                        break;
+                    }
+                    case OP_JUMP:
+                        pc = code[pc];
+                        break;
+                    case OP_JUMP_IF_FALSE:
+                        if (stack.popBoolean()) {
+                            pc++;
+                        } else {
+                            pc = code[pc];
+                        }
+                        break;
+                    case OperatorNames.OP_TRUE:
+                        stack.push(1, TYPE_BOOLEAN);
+                        break;
+                    case OperatorNames.OP_FALSE:
+                        stack.push(0, TYPE_BOOLEAN);
+                        break;
+                    case OperatorNames.OP_ABS:
+                        stack.checkNumber(top);
+                        values[top] = Math.abs(values[top]);
+                        break;
+                    case OperatorNames.OP_NEG:
+                        stack.checkNumber(top);
+                        values[top] = -values[top];
+                        break;
+                    case OperatorNames.OP_ADD:
+                    case OperatorNames.OP_SUB:
+                    case OperatorNames.OP_MUL: {
+                        stack.checkNumber(top);
+                        stack.checkNumber(top - 1);
+                        float num2 = values[top];
+                        float num1 = values[top - 1];
+                        float result = op == OperatorNames.OP_ADD ? num1 + num2 :
+                                op == OperatorNames.OP_SUB ? num1 - num2 : num1 * num2;
+                        boolean integer = types[top] == TYPE_INT && types[top - 1] == TYPE_INT;
+                        stack.size--;
+                        values[top - 1] = result;
+                        types[top - 1] = integer ? TYPE_INT : TYPE_REAL;
+                        break;
+                    }
+                    case OperatorNames.OP_DIV: {
+                        float num2 = stack.popNumber();
+                        float num1 = stack.popNumber();
+                        stack.push(num1 / num2, TYPE_REAL);
+                        break;
+                    }
+                    case OperatorNames.OP_IDIV: {
+                        int int2 = (int) stack.popNumber();
+                        int int1 = (int) stack.popNumber();
+                        stack.push(int1 / int2, TYPE_INT);
+                        break;
+                    }
+                    case OperatorNames.OP_MOD: {
+                        int int2 = (int) stack.popNumber();
+                        int int1 = (int) stack.popNumber();
+                        stack.push(int1 % int2, TYPE_INT);
+                        break;
+                    }
+                    case OperatorNames.OP_ATAN: {
+                        float den = stack.popNumber();
+                        float num = stack.popNumber();
+                        double angle = Math.toDegrees(Math.atan2(num, den));
+                        if (angle < 0) {
+                            angle += 360;
+                        }
+                        stack.push((float) angle, TYPE_REAL);
+                        break;
+                    }
+                    case OperatorNames.OP_COS:
+                        stack.checkNumber(top);
+                        values[top] = (float) Math.cos(Math.toRadians(values[top]));
+                        types[top] = TYPE_REAL;
+                        break;
+                    case OperatorNames.OP_SIN:
+                        stack.checkNumber(top);
+                        values[top] = (float) Math.sin(Math.toRadians(values[top]));
+                        types[top] = TYPE_REAL;
+                        break;
+                    case OperatorNames.OP_EXP: {
+                        float exponent = stack.popNumber();
+                        float base = stack.popNumber();
+                        stack.push((float) Math.pow(base, exponent), TYPE_REAL);
+                        break;
+                    }
+                    case OperatorNames.OP_LN:
+                        stack.checkNumber(top);
+                        values[top] = (float) Math.log(values[top]);
+                        types[top] = TYPE_REAL;
+                        break;
+                    case OperatorNames.OP_LOG:
+                        stack.checkNumber(top);
+                        values[top] = (float) Math.log10(values[top]);
+                        types[top] = TYPE_REAL;
+                        break;
+                    case OperatorNames.OP_SQRT:
+                        stack.checkNumber(top);
+                        values[top] = (float) Math.sqrt(values[top]);
+                        types[top] = TYPE_REAL;
+                        break;
+                    case OperatorNames.OP_CEILING:
+                        stack.checkNumber(top);
+                        values[top] = (float) Math.ceil(values[top]);
+                        break;
+                    case OperatorNames.OP_FLOOR:
+                        stack.checkNumber(top);
+                        values[top] = (float) Math.floor(values[top]);
+                        break;
+                    case OperatorNames.OP_ROUND:
+                        stack.checkNumber(top);
+                        values[top] = (float) Math.floor(values[top] + 0.5);
+                        break;
+                    case OperatorNames.OP_TRUNCATE:
+                        stack.checkNumber(top);
+                        values[top] = (int) values[top];
+                        break;
+                    case OperatorNames.OP_CVI:
+                        stack.checkNumber(top);
+                        values[top] = (int) values[top];
+                        types[top] = TYPE_INT;
+                        break;
+                    case OperatorNames.OP_CVR:
+                        stack.checkNumber(top);
+                        types[top] = TYPE_REAL;
+                        break;
+                    case OperatorNames.OP_EQ:
+                    case OperatorNames.OP_NE: {
+                        stack.check(top - 1);
+                        boolean equal = values[top] == values[top - 1] &&
+                                (types[top] == TYPE_BOOLEAN) == (types[top - 1] == TYPE_BOOLEAN);
+                        stack.size -= 2;
+                        stack.push(equal == (op == OperatorNames.OP_EQ) ? 1 : 0, TYPE_BOOLEAN);
+                        break;
+                    }
+                    case OperatorNames.OP_GE:
+                    case OperatorNames.OP_GT:
+                    case OperatorNames.OP_LE:
+                    case OperatorNames.OP_LT: {
+                        float num2 = stack.popNumber();
+                        float num1 = stack.popNumber();
+                        boolean result = op == OperatorNames.OP_GE ? num1 >= num2 :
+                                op == OperatorNames.OP_GT ? num1 > num2 :
+                                        op == OperatorNames.OP_LE ? num1 <= num2 : num1 < num2;
+                        stack.push(result ? 1 : 0, TYPE_BOOLEAN);
+                        break;
+                    }
+                    case OperatorNames.OP_AND:
+                    case OperatorNames.OP_OR:
+                    case OperatorNames.OP_XOR: {
+                        stack.check(top - 1);
+                        byte type = types[top];
+                        if (type != TYPE_BOOLEAN && type != TYPE_INT || types[top - 1] != type) {
+                            throw new IllegalStateException("Type check error");
+                        }
+                        int value2 = (int) values[top];
+                        int value1 = (int) values[top - 1];
+                        int result = op == OperatorNames.OP_AND ? value1 & value2 :
+                                op == OperatorNames.OP_OR ? value1 | value2 : value1 ^ value2;
+                        stack.size -= 2;
+                        stack.push(result, type);
+                        break;
+                    }
+                    case OperatorNames.OP_NOT:
+                        stack.check(top);
+                        if (types[top] == TYPE_BOOLEAN) {
+                            values[top] = values[top] != 0 ? 0 : 1;
+                        } else if (types[top] == TYPE_INT) {
+                            values[top] = ~(int) values[top];
+                        } else {
+                            throw new IllegalStateException("Type check error");
+                        }
+                        break;
+                    case OperatorNames.OP_BITSHIFT: {
+                        int shift = (int) stack.popNumber();
+                        int int1 = (int) stack.popNumber();
+                        stack.push(shift >= 0 ? int1 << shift : int1 >> -shift, TYPE_INT);
+                        break;
+                    }
+                    case OperatorNames.OP_DUP:
+                        stack.check(top);
+                        stack.push(values[top], types[top]);
+                        break;
+                    case OperatorNames.OP_POP:
+                        stack.check(top);
+                        stack.size--;
+                        break;
+                    case OperatorNames.OP_EXCH: {
+                        stack.check(top - 1);
+                        float value = values[top];
+                        byte type = types[top];
+                        values[top] = values[top - 1];
+                        types[top] = types[top - 1];
+                        values[top - 1] = value;
+                        types[top - 1] = type;
+                        break;
+                    }
+                    case OperatorNames.OP_COPY: {
+                        int n = (int) stack.popNumber();
+                        int start = stack.size - n;
+                        stack.check(start);
+                        for (int i = 0; i < n; i++) {
+                            stack.push(values[start + i], types[start + i]);
+                        }
+                        break;
+                    }
+                    case OperatorNames.OP_INDEX: {
+                        int n = (int) stack.popNumber();
+                        int index = stack.size - 1 - n;
+                        stack.check(index);
+                        stack.push(values[index], types[index]);
+                        break;
+                    }
+                    case OperatorNames.OP_ROLL: {
+                        int j = (int) stack.popNumber();
+                        int n = (int) stack.popNumber();
+                        stack.roll(n, j);
+                        break;
+                    }
+                    default:
+                        throw new IllegalStateException("Unsupported operator " + op);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalStateException("Stack over or under flow");
+        }
+    }
+
+    /**
+     * Operand stack of a program, values are kept as floats with a type tag
+     * for each entry.
+     */
+    public static class ExecutionStack {
+
+        private final float[] values = new float[STACK_LIMIT];
+        private final byte[] types = new byte[STACK_LIMIT];
+        private int size;
+
+        public int size() {
+            return size;
+        }
+
+        public float get(int index) {
+            return values[index];
+        }
+
+        void push(float value, byte type) {
+            values[size] = value;
+            types[size] = type;
+            size++;
+        }
+
+        float popNumber() {
+            int top = size - 1;
+            checkNumber(top);
+            size--;
+            return values[top];
+        }
+
+        boolean popBoolean() {
+            int top = size - 1;
+            check(top);
+            if (types[top] != TYPE_BOOLEAN) {
+                throw new IllegalStateException("Type check error");
+            }
+            size--;
+            return values[top] != 0;
+        }
+
+        void check(int index) {
+            if (index < 0) {
+                throw new IllegalStateException("Stack under flow");
+            }
+        }
+
+        void checkNumber(int index) {
+            check(index);
+            if (types[index] == TYPE_BOOLEAN) {
+                throw new IllegalStateException("Type check error");
+            }
+        }
+
+        void roll(int n, int j) {
+            int start = size - n;
+            if (n < 0 || start < 0) {
+                throw new IllegalStateException("Stack under flow");
+            }
+            if (n == 0) {
+                return;
+            }
+            j %= n;
+            if (j < 0) {
+                j += n;
+            }
+            if (j == 0) {
+                return;
+            }
+            // rotate the top n entries up by j in place, reversing the
+            // bottom n - j and top j entries and then all n.
+            reverse(start, size - j);
+            reverse(size - j, size);
+            reverse(start, size);
+        }
+
+        private void reverse(int from, int to) {
+            for (int i = from, k = to - 1; i < k; i++, k--) {
+                float value = values[i];
+                values[i] = values[k];
+                values[k] = value;
+                byte type = types[i];
+                types[i] = types[k];
+                types[k] = type;
+            }
+        }
+    }
+
+    /**
+     * Parses the function's tokens into nested procedures and emits the op
+     * codes, if and ifelse must directly follow their procedures.
+     */
+    private static class Compiler {
+
+        private final byte[] content;
+        private int pos;
+
+        private final List<Integer> code = new ArrayList<Integer>();
+        private final List<Float> constants = new ArrayList<Float>();
+        private final List<Byte> constantTypes = new ArrayList<Byte>();
+
+        Compiler(byte[] content) {
+            this.content = content;
+        }
+
+        Program compile() {
+            String token = nextToken();
+            if (!"{".equals(token)) {
+                throw new IllegalArgumentException("Type 4 function must start with '{'");
+            }
+            emit(parseProcedure());
+            int[] codeArray = new int[code.size()];
+            for (int i = 0; i < codeArray.length; i++) {
+                codeArray[i] = code.get(i);
+            }
+            float[] constantArray = new float[constants.size()];
+            byte[] typeArray = new byte[constants.size()];
+            for (int i = 0; i < constantArray.length; i++) {
+                constantArray[i] = constants.get(i);
+                typeArray[i] = constantTypes.get(i);
+            }
+            return new Program(codeArray, constantArray, typeArray);
+        }
+
+        /**
+         * Parses the tokens up to the closing brace, items are an int[] {op}
+         * operator, a Float or Integer constant, a Conditional or a nested
+         * Procedure not yet consumed by an if or ifelse.
+         */
+        private List<Object> parseProcedure() {
+            List<Object> items = new ArrayList<Object>();
+            String token;
+            while ((token = nextToken()) != null) {
+                if ("}".equals(token)) {
+                    return items;
+                } else if ("{".equals(token)) {
+                    items.add(new Procedure(parseProcedure()));
+                } else {
+                    Integer op = operatorNames.get(token);
+                    if (op == null) {
+                        items.add(parseNumber(token));
+                    } else if (op == OperatorNames.OP_IF || op == OperatorNames.OP_IFELSE) {
+                        int count = op == OperatorNames.OP_IF ? 1 : 2;
+                        int first = items.size() - count;
+                        if (first < 0) {
+                            throw new IllegalArgumentException("Missing procedure for " + token);
+                        }
+                        List<List<Object>> procedures = new ArrayList<List<Object>>(count);
+                        for (int i = 0; i < count; i++) {
+                            Object procedure = items.remove(first);
+                            if (!(procedure instanceof Procedure)) {
+                                throw new IllegalArgumentException("Missing procedure for " + token);
+                            }
+                            procedures.add(((Procedure) procedure).items);
+                        }
+                        items.add(new Conditional(procedures));
+                    } else {
+                        items.add(new int[]{op});
+                    }
+                }
+            }
+            throw new IllegalArgumentException("Type 4 function is missing a '}'");
+        }
+
+        private void emit(List<Object> items) {
+            for (Object item : items) {
+                if (item instanceof int[]) {
+                    code.add(((int[]) item)[0]);
+                } else if (item instanceof Number) {
+                    code.add(OP_PUSH);
+                    code.add(constants.size());
+                    constants.add(((Number) item).floatValue());
+                    constantTypes.add(item instanceof Float ? TYPE_REAL : TYPE_INT);
+                } else if (item instanceof Conditional) {
+                    List<List<Object>> procedures = ((Conditional) item).procedures;
+                    code.add(OP_JUMP_IF_FALSE);
+                    int falseJump = code.size();
+                    code.add(0);
+                    emit(procedures.get(0));
+                    if (procedures.size() == 2) {
+                        code.add(OP_JUMP);
+                        int endJump = code.size();
+                        code.add(0);
+                        code.set(falseJump, code.size());
+                        emit(procedures.get(1));
+                        code.set(endJump, code.size());
+                    } else {
+                        code.set(falseJump, code.size());
+                    }
+                } else {
+                    throw new IllegalArgumentException("Procedure not followed by if or ifelse");
+                }
+            }
+        }
+
+        private Number parseNumber(String token) {
+            try {
+                if (token.indexOf('.') < 0 && token.indexOf('e') < 0 && token.indexOf('E') < 0) {
+                    return Integer.parseInt(token);
+                }
+                return Float.parseFloat(token);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Unknown type 4 function token " + token);
+            }
+        }
+
+        private String nextToken() {
+            int length = content.length;
+            while (pos < length) {
+                int c = content[pos] & 0xff;
+                if (c == '%') {
+                    // comment runs to the end of the line.
+                    while (pos < length && content[pos] != '\n' && content[pos] != '\r') {
+                        pos++;
+                    }
+                } else if (isWhiteSpace(c)) {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+            if (pos >= length) {
+                return null;
+            }
+            int c = content[pos];
+            if (c == '{' || c == '}') {
+                pos++;
+                return c == '{' ? "{" : "}";
+            }
+            int start = pos;
+            while (pos < length) {
+                c = content[pos] & 0xff;
+                if (isWhiteSpace(c) || c == '{' || c == '}' || c == '%') {
+                    break;
+                }
+                pos++;
+            }
+            return new String(content, start, pos - start);
+        }
+
+        private static boolean isWhiteSpace(int c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0;
+        }
+    }
+
+    /**
+     * An if or ifelse with its one or two procedures.
+     */
+    private static class Conditional {
+        final List<List<Object>> procedures;
+
+        Conditional(List<List<Object>> procedures) {
+            this.procedures = procedures;
+        }
+    }
+
+    /**
+     * A nested procedure waiting for its if or ifelse.
+     */
+    private static class Procedure {
+        final List<Object> items;
+
+        Procedure(List<Object> items) {
+            this.items = items;
+        }
+    }
+}
@@ -50,6 +50,8 @@ import java.awt.image.ColorModel;
 import java.awt.image.DataBuffer;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Logger;
 
 public final class BlendComposite implements Composite {
@@ -97,10 +99,15 @@ public final class BlendComposite implements Composite {
     // graphics context.
     private static boolean disableBlendComposite;
 
+    // rasters with more pixels then this are composed a band of rows at a time on the fork-join pool.
+    private static int parallelThreshold;
+
     static {
         // sets the shadow colour of the decorator.
         disableBlendComposite = Defs.booleanProperty(
                 "org.icepdf.core.paint.disableBlendComposite", false);
+        parallelThreshold = Defs.intProperty(
+                "org.icepdf.core.paint.blendComposite.parallelThreshold", 65536);
     }
 
     public static final Name NORMAL_VALUE = new Name("Normal");
@@ -261,47 +268,124 @@ public final class BlendComposite implements Composite {
             int width = Math.min(src.getWidth(), dstIn.getWidth());
             int height = Math.min(src.getHeight(), dstIn.getHeight());
 
-            float alpha = composite.getAlpha();
+            ComposeTask task = new ComposeTask(blender, composite.getAlpha(),
+                    src, dstIn, dstOut, width, 0, height);
+            if (width * height > parallelThreshold && height > 1) {
+                ForkJoinPool.commonPool().invoke(task);
+            } else {
+                task.compose();
+            }
+        }
+    }
 
-            int[] srcPixel = new int[4];
-            int[] dstPixel = new int[4];
+    /**
+     * Composes a band of rows, large bands are split in half and composed
+     * in parallel.
+     */
+    @SuppressWarnings("serial")
+    private static final class ComposeTask extends RecursiveAction {
+        private final Blender blender;
+        private final float alpha;
+        private final Raster src;
+        private final Raster dstIn;
+        private final WritableRaster dstOut;
+        private final int width;
+        private final int firstRow;
+        private final int lastRow;
+
+        private ComposeTask(Blender blender, float alpha, Raster src, Raster dstIn,
+                            WritableRaster dstOut, int width, int firstRow, int lastRow) {
+            this.blender = blender;
+            this.alpha = alpha;
+            this.src = src;
+            this.dstIn = dstIn;
+            this.dstOut = dstOut;
+            this.width = width;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = lastRow - firstRow;
+            if (rows > 1 && rows * width > parallelThreshold) {
+                int middle = firstRow + rows / 2;
+                invokeAll(new ComposeTask(blender, alpha, src, dstIn, dstOut, width, firstRow, middle),
+                        new ComposeTask(blender, alpha, src, dstIn, dstOut, width, middle, lastRow));
+            } else {
+                compose();
+            }
+        }
+
+        private void compose() {
             int[] srcPixels = new int[width];
             int[] dstPixels = new int[width];
-
-            for (int y = 0; y < height; y++) {
+            for (int y = firstRow; y < lastRow; y++) {
                 src.getDataElements(0, y, width, 1, srcPixels);
                 dstIn.getDataElements(0, y, width, 1, dstPixels);
-                for (int x = 0; x < width; x++) {
-                    // pixels are stored as INT_ARGB
-                    // our arrays are [R, G, B, A]
-                    int pixel = srcPixels[x];
-                    srcPixel[0] = (pixel >> 16) & 0xFF;
-                    srcPixel[1] = (pixel >> 8) & 0xFF;
-                    srcPixel[2] = (pixel) & 0xFF;
-                    srcPixel[3] = (pixel >> 24) & 0xFF;
-
-                    pixel = dstPixels[x];
-                    dstPixel[0] = (pixel >> 16) & 0xFF;
-                    dstPixel[1] = (pixel >> 8) & 0xFF;
-                    dstPixel[2] = (pixel) & 0xFF;
-                    dstPixel[3] = (pixel >> 24) & 0xFF;
-
-                    int[] result = blender.blend(srcPixel, dstPixel);
-
-                    // mixes the result with the opacity
-                    dstPixels[x] =
-                            ((int) (dstPixel[3] + (result[3] - dstPixel[3]) * alpha) & 0xFF) << 24 |
-                                    ((int) (dstPixel[0] + (result[0] - dstPixel[0]) * alpha) & 0xFF) << 16 |
-                                    ((int) (dstPixel[1] + (result[1] - dstPixel[1]) * alpha) & 0xFF) << 8 |
-                                    (int) (dstPixel[2] + (result[2] - dstPixel[2]) * alpha) & 0xFF;
-                }
+                blender.blend(srcPixels, dstPixels, width, alpha);
                 dstOut.setDataElements(0, y, width, 1, dstPixels);
             }
         }
     }
 
+    /**
+     * Blends rows of INT_ARGB pixels, each mode has its own loop working on
+     * the packed pixels so there is no per pixel allocation or virtual call.
+     */
     private static abstract class Blender {
-        public abstract int[] blend(int[] src, int[] dst);
+
+        /**
+         * Blends the source row into the destination row, the blended result
+         * is mixed with the destination by the given opacity.
+         *
+         * @param srcPixels source row, INT_ARGB.
+         * @param dstPixels destination row, INT_ARGB, replaced by the result.
+         * @param width     number of pixels in the row.
+         * @param opacity   constant alpha of the composite.
+         */
+        public abstract void blend(int[] srcPixels, int[] dstPixels, int width, float opacity);
+
+        private static int red(int pixel) {
+            return (pixel >> 16) & 0xFF;
+        }
+
+        private static int green(int pixel) {
+            return (pixel >> 8) & 0xFF;
+        }
+
+        private static int blue(int pixel) {
+            return pixel & 0xFF;
+        }
+
+        private static int alpha(int pixel) {
+            return (pixel >> 24) & 0xFF;
+        }
+
+        /**
+         * Mixes the blended result with the destination pixel by the opacity.
+         */
+        private static int mix(int dst, int red, int green, int blue, int alpha, float opacity) {
+            if (opacity == 1.0f) {
+                return (alpha & 0xFF) << 24 | (red & 0xFF) << 16 | (green & 0xFF) << 8 | blue & 0xFF;
+            }
+            int dstRed = red(dst);
+            int dstGreen = green(dst);
+            int dstBlue = blue(dst);
+            int dstAlpha = alpha(dst);
+            return ((int) (dstAlpha + (alpha - dstAlpha) * opacity) & 0xFF) << 24 |
+                    ((int) (dstRed + (red - dstRed) * opacity) & 0xFF) << 16 |
+                    ((int) (dstGreen + (green - dstGreen) * opacity) & 0xFF) << 8 |
+                    (int) (dstBlue + (blue - dstBlue) * opacity) & 0xFF;
+        }
+
+        private static int mix(int dst, int result, float opacity) {
+            return mix(dst, red(result), green(result), blue(result), alpha(result), opacity);
+        }
+
+        private static int addAlpha(int src, int dst) {
+            return Math.min(255, alpha(src) + alpha(dst));
+        }
 
         private static void RGBtoHSL(int r, int g, int b, float[] hsl) {
             float var_R = (r / 255f);
@@ -415,480 +499,549 @@ public final class BlendComposite implements Composite {
                 case NORMAL:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            if (src[3] == 0) {
-                                return dst;
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                if (alpha(src) != 0) {
+                                    dstPixels[x] = mix(dstPixels[x], src, opacity);
+                                }
                             }
-                            return src;
                         }
                     };
                 case MULTIPLY:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            // white stays white.
-                            if (src[3] == 0) {
-                                return dst;
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                // white stays white.
+                                if (alpha(src) == 0) {
+                                    continue;
+                                }
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        (red(src) * red(dst)) >> 8,
+                                        (green(src) * green(dst)) >> 8,
+                                        (blue(src) * blue(dst)) >> 8,
+                                        addAlpha(src, dst), opacity);
                             }
-                            return new int[]{
-                                    (src[0] * dst[0]) >> 8,
-                                    (src[1] * dst[1]) >> 8,
-                                    (src[2] * dst[2]) >> 8,
-                                    Math.min(255, src[3] + dst[3])
-                            };
                         }
                     };
                 case ADD:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    Math.min(255, src[0] + dst[0]),
-                                    Math.min(255, src[1] + dst[1]),
-                                    Math.min(255, src[2] + dst[2]),
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        Math.min(255, red(src) + red(dst)),
+                                        Math.min(255, green(src) + green(dst)),
+                                        Math.min(255, blue(src) + blue(dst)),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case AVERAGE:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    (src[0] + dst[0]) >> 1,
-                                    (src[1] + dst[1]) >> 1,
-                                    (src[2] + dst[2]) >> 1,
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        (red(src) + red(dst)) >> 1,
+                                        (green(src) + green(dst)) >> 1,
+                                        (blue(src) + blue(dst)) >> 1,
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case BLUE:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    dst[0],
-                                    src[1],
-                                    dst[2],
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        red(dst),
+                                        green(src),
+                                        blue(dst),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case COLOR:
-                    return new Blender() {
+                    return new HslBlender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            float[] srcHSL = new float[3];
-                            RGBtoHSL(src[0], src[1], src[2], srcHSL);
-                            float[] dstHSL = new float[3];
-                            RGBtoHSL(dst[0], dst[1], dst[2], dstHSL);
-
-                            int[] result = new int[4];
+                        void blendHSL(float[] srcHSL, float[] dstHSL, int[] result) {
                             HSLtoRGB(srcHSL[0], srcHSL[1], dstHSL[2], result);
-                            result[3] = Math.min(255, src[3] + dst[3]);
-
-                            return result;
                         }
                     };
                 case COLOR_BURN:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    src[0] == 0 ? 0 :
-                                            Math.max(0, 255 - (((255 - dst[0]) << 8) / src[0])),
-                                    src[1] == 0 ? 0 :
-                                            Math.max(0, 255 - (((255 - dst[1]) << 8) / src[1])),
-                                    src[2] == 0 ? 0 :
-                                            Math.max(0, 255 - (((255 - dst[2]) << 8) / src[2])),
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        colorBurn(red(src), red(dst)),
+                                        colorBurn(green(src), green(dst)),
+                                        colorBurn(blue(src), blue(dst)),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case COLOR_DODGE:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    src[0] == 255 ? 255 :
-                                            Math.min((dst[0] << 8) / (255 - src[0]), 255),
-                                    src[1] == 255 ? 255 :
-                                            Math.min((dst[1] << 8) / (255 - src[1]), 255),
-                                    src[2] == 255 ? 255 :
-                                            Math.min((dst[2] << 8) / (255 - src[2]), 255),
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        colorDodge(red(src), red(dst)),
+                                        colorDodge(green(src), green(dst)),
+                                        colorDodge(blue(src), blue(dst)),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case DARKEN:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    Math.min(src[0], dst[0]),
-                                    Math.min(src[1], dst[1]),
-                                    Math.min(src[2], dst[2]),
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        Math.min(red(src), red(dst)),
+                                        Math.min(green(src), green(dst)),
+                                        Math.min(blue(src), blue(dst)),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case DIFFERENCE:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    Math.abs(dst[0] - src[0]),
-                                    Math.abs(dst[1] - src[1]),
-                                    Math.abs(dst[2] - src[2]),
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        Math.abs(red(dst) - red(src)),
+                                        Math.abs(green(dst) - green(src)),
+                                        Math.abs(blue(dst) - blue(src)),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case EXCLUSION:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    dst[0] + src[0] - (dst[0] * src[0] >> 7),
-                                    dst[1] + src[1] - (dst[1] * src[1] >> 7),
-                                    dst[2] + src[2] - (dst[2] * src[2] >> 7),
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        red(dst) + red(src) - (red(dst) * red(src) >> 7),
+                                        green(dst) + green(src) - (green(dst) * green(src) >> 7),
+                                        blue(dst) + blue(src) - (blue(dst) * blue(src) >> 7),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case FREEZE:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    src[0] == 0 ? 0 : Math.max(0, 255 - (255 - dst[0]) * (255 - dst[0]) / src[0]),
-                                    src[1] == 0 ? 0 : Math.max(0, 255 - (255 - dst[1]) * (255 - dst[1]) / src[1]),
-                                    src[2] == 0 ? 0 : Math.max(0, 255 - (255 - dst[2]) * (255 - dst[2]) / src[2]),
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        freeze(red(src), red(dst)),
+                                        freeze(green(src), green(dst)),
+                                        freeze(blue(src), blue(dst)),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case GLOW:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    dst[0] == 255 ? 255 : Math.min(255, src[0] * src[0] / (255 - dst[0])),
-                                    dst[1] == 255 ? 255 : Math.min(255, src[1] * src[1] / (255 - dst[1])),
-                                    dst[2] == 255 ? 255 : Math.min(255, src[2] * src[2] / (255 - dst[2])),
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        reflect(red(dst), red(src)),
+                                        reflect(green(dst), green(src)),
+                                        reflect(blue(dst), blue(src)),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case GREEN:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    dst[0],
-                                    dst[1],
-                                    src[2],
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        red(dst),
+                                        green(dst),
+                                        blue(src),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case HARD_LIGHT:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            if (src[3] == 0) {
-                                return dst;
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                if (alpha(src) == 0) {
+                                    continue;
+                                }
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        overlay(red(src), red(dst)),
+                                        overlay(green(src), green(dst)),
+                                        overlay(blue(src), blue(dst)),
+                                        addAlpha(src, dst), opacity);
                             }
-                            return new int[]{
-                                    src[0] < 128 ? dst[0] * src[0] >> 7 :
-                                            255 - ((255 - src[0]) * (255 - dst[0]) >> 7),
-                                    src[1] < 128 ? dst[1] * src[1] >> 7 :
-                                            255 - ((255 - src[1]) * (255 - dst[1]) >> 7),
-                                    src[2] < 128 ? dst[2] * src[2] >> 7 :
-                                            255 - ((255 - src[2]) * (255 - dst[2]) >> 7),
-                                    Math.min(255, src[3] + dst[3])
-                            };
                         }
                     };
                 case HEAT:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    dst[0] == 0 ? 0 : Math.max(0, 255 - (255 - src[0]) * (255 - src[0]) / dst[0]),
-                                    dst[1] == 0 ? 0 : Math.max(0, 255 - (255 - src[1]) * (255 - src[1]) / dst[1]),
-                                    dst[2] == 0 ? 0 : Math.max(0, 255 - (255 - src[2]) * (255 - src[2]) / dst[2]),
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        freeze(red(dst), red(src)),
+                                        freeze(green(dst), green(src)),
+                                        freeze(blue(dst), blue(src)),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case HUE:
-                    return new Blender() {
+                    return new HslBlender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            float[] srcHSL = new float[3];
-                            RGBtoHSL(src[0], src[1], src[2], srcHSL);
-                            float[] dstHSL = new float[3];
-                            RGBtoHSL(dst[0], dst[1], dst[2], dstHSL);
-
-                            int[] result = new int[4];
+                        void blendHSL(float[] srcHSL, float[] dstHSL, int[] result) {
                             HSLtoRGB(srcHSL[0], dstHSL[1], dstHSL[2], result);
-                            result[3] = Math.min(255, src[3] + dst[3]);
-
-                            return result;
                         }
                     };
                 case INVERSE_COLOR_BURN:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    dst[0] == 0 ? 0 :
-                                            Math.max(0, 255 - (((255 - src[0]) << 8) / dst[0])),
-                                    dst[1] == 0 ? 0 :
-                                            Math.max(0, 255 - (((255 - src[1]) << 8) / dst[1])),
-                                    dst[2] == 0 ? 0 :
-                                            Math.max(0, 255 - (((255 - src[2]) << 8) / dst[2])),
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        colorBurn(red(dst), red(src)),
+                                        colorBurn(green(dst), green(src)),
+                                        colorBurn(blue(dst), blue(src)),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case INVERSE_COLOR_DODGE:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    dst[0] == 255 ? 255 :
-                                            Math.min((src[0] << 8) / (255 - dst[0]), 255),
-                                    dst[1] == 255 ? 255 :
-                                            Math.min((src[1] << 8) / (255 - dst[1]), 255),
-                                    dst[2] == 255 ? 255 :
-                                            Math.min((src[2] << 8) / (255 - dst[2]), 255),
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        colorDodge(red(dst), red(src)),
+                                        colorDodge(green(dst), green(src)),
+                                        colorDodge(blue(dst), blue(src)),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case LIGHTEN:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    Math.max(src[0], dst[0]),
-                                    Math.max(src[1], dst[1]),
-                                    Math.max(src[2], dst[2]),
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        Math.max(red(src), red(dst)),
+                                        Math.max(green(src), green(dst)),
+                                        Math.max(blue(src), blue(dst)),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case LUMINOSITY:
-                    return new Blender() {
+                    return new HslBlender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-
-                            float[] srcHSL = new float[3];
-                            RGBtoHSL(src[0], src[1], src[2], srcHSL);
-                            float[] dstHSL = new float[3];
-                            RGBtoHSL(dst[0], dst[1], dst[2], dstHSL);
-
-                            int[] result = new int[4];
+                        void blendHSL(float[] srcHSL, float[] dstHSL, int[] result) {
                             HSLtoRGB(dstHSL[0], dstHSL[1], srcHSL[2], result);
-                            result[3] = Math.min(255, src[3] + dst[3]);
-
-                            return result;
                         }
                     };
                 case NEGATION:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    255 - Math.abs(255 - dst[0] - src[0]),
-                                    255 - Math.abs(255 - dst[1] - src[1]),
-                                    255 - Math.abs(255 - dst[2] - src[2]),
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        255 - Math.abs(255 - red(dst) - red(src)),
+                                        255 - Math.abs(255 - green(dst) - green(src)),
+                                        255 - Math.abs(255 - blue(dst) - blue(src)),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case OVERLAY:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            // screening with black leaves the underlying colour unchanged.
-                            if (src[3] == 0) {
-                                return dst;
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                // screening with black leaves the underlying colour unchanged.
+                                if (alpha(src) == 0) {
+                                    continue;
+                                }
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        overlay(red(dst), red(src)),
+                                        overlay(green(dst), green(src)),
+                                        overlay(blue(dst), blue(src)),
+                                        alpha(dst), opacity);
                             }
-                            return new int[]{
-                                    dst[0] < 128 ? (dst[0] * src[0]) >> 7 :
-                                            255 - ((255 - dst[0]) * (255 - src[0]) >> 7),
-                                    dst[1] < 128 ? dst[1] * src[1] >> 7 :
-                                            255 - ((255 - dst[1]) * (255 - src[1]) >> 7),
-                                    dst[2] < 128 ? (dst[2] * src[2]) >> 7 :
-                                            255 - ((255 - dst[2]) * (255 - src[2]) >> 7),
-                                    Math.min(255, dst[3])
-                            };
-//                            return dst;
                         }
                     };
                 case RED:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    src[0],
-                                    dst[1],
-                                    dst[2],
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        red(src),
+                                        green(dst),
+                                        blue(dst),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case REFLECT:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    src[0] == 255 ? 255 : Math.min(255, dst[0] * dst[0] / (255 - src[0])),
-                                    src[1] == 255 ? 255 : Math.min(255, dst[1] * dst[1] / (255 - src[1])),
-                                    src[2] == 255 ? 255 : Math.min(255, dst[2] * dst[2] / (255 - src[2])),
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        reflect(red(src), red(dst)),
+                                        reflect(green(src), green(dst)),
+                                        reflect(blue(src), blue(dst)),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case SATURATION:
-                    return new Blender() {
+                    return new HslBlender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            float[] srcHSL = new float[3];
-                            RGBtoHSL(src[0], src[1], src[2], srcHSL);
-                            float[] dstHSL = new float[3];
-                            RGBtoHSL(dst[0], dst[1], dst[2], dstHSL);
-
-                            int[] result = new int[4];
+                        void blendHSL(float[] srcHSL, float[] dstHSL, int[] result) {
                             HSLtoRGB(dstHSL[0], srcHSL[1], dstHSL[2], result);
-                            result[3] = Math.min(255, src[3] + dst[3]);
-
-                            return result;
                         }
                     };
                 case SCREEN:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            // screening with black leaves the underlying colour unchanged.
-                            if ((src[0] == 0 && src[1] == 0 && src[2] == 0)) {
-                                return dst;
-                            }
-                            // screening any colour with white, produces white.
-                            if ((dst[0] != 255 && dst[1] != 255 && dst[2] != 255)) {
-                                int[] value = new int[]{
-                                        255 - ((255 - src[0]) * (255 - dst[0]) >> 8),
-                                        255 - ((255 - src[1]) * (255 - dst[1]) >> 8),
-                                        255 - ((255 - src[2]) * (255 - dst[2]) >> 8),
-                                        Math.min(255, src[3] + (dst[3]))
-                                };
-                                return value;
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                // screening with black leaves the underlying colour unchanged.
+                                if ((src & 0xFFFFFF) == 0) {
+                                    continue;
+                                }
+                                int dst = dstPixels[x];
+                                // screening any colour with white, produces white.
+                                if (red(dst) != 255 && green(dst) != 255 && blue(dst) != 255) {
+                                    dstPixels[x] = mix(dst,
+                                            255 - ((255 - red(src)) * (255 - red(dst)) >> 8),
+                                            255 - ((255 - green(src)) * (255 - green(dst)) >> 8),
+                                            255 - ((255 - blue(src)) * (255 - blue(dst)) >> 8),
+                                            addAlpha(src, dst), opacity);
+                                } else {
+                                    dstPixels[x] = mix(dst, src, opacity);
+                                }
                             }
-                            return src;
                         }
                     };
                 case SOFT_BURN:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    dst[0] + src[0] < 256 ?
-                                            (dst[0] == 255 ? 255 :
-                                                    Math.min(255, (src[0] << 7) / (255 - dst[0]))) :
-                                            Math.max(0, 255 - (((255 - dst[0]) << 7) / src[0])),
-                                    dst[1] + src[1] < 256 ?
-                                            (dst[1] == 255 ? 255 :
-                                                    Math.min(255, (src[1] << 7) / (255 - dst[1]))) :
-                                            Math.max(0, 255 - (((255 - dst[1]) << 7) / src[1])),
-                                    dst[2] + src[2] < 256 ?
-                                            (dst[2] == 255 ? 255 :
-                                                    Math.min(255, (src[2] << 7) / (255 - dst[2]))) :
-                                            Math.max(0, 255 - (((255 - dst[2]) << 7) / src[2])),
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        softBurn(red(src), red(dst)),
+                                        softBurn(green(src), green(dst)),
+                                        softBurn(blue(src), blue(dst)),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 case SOFT_DODGE:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            if (src[3] == 0) {
-                                return dst;
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                if (alpha(src) == 0) {
+                                    continue;
+                                }
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        softBurn(red(dst), red(src)),
+                                        softBurn(green(dst), green(src)),
+                                        softBurn(blue(dst), blue(src)),
+                                        addAlpha(src, dst), opacity);
                             }
-                            return new int[]{
-
-                                    dst[0] + src[0] < 256 ?
-                                            (src[0] == 255 ? 255 :
-                                                    Math.min(255, (dst[0] << 7) / (255 - src[0]))) :
-                                            Math.max(0, 255 - (((255 - src[0]) << 7) / dst[0])),
-                                    dst[1] + src[1] < 256 ?
-                                            (src[1] == 255 ? 255 :
-                                                    Math.min(255, (dst[1] << 7) / (255 - src[1]))) :
-                                            Math.max(0, 255 - (((255 - src[1]) << 7) / dst[1])),
-                                    dst[2] + src[2] < 256 ?
-                                            (src[2] == 255 ? 255 :
-                                                    Math.min(255, (dst[2] << 7) / (255 - src[2]))) :
-                                            Math.max(0, 255 - (((255 - src[2]) << 7) / dst[2])),
-                                    Math.min(255, src[3] + dst[3])
-                            };
                         }
                     };
                 case SOFT_LIGHT:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            int mRed = src[0] * dst[0] / 255;
-                            int mGreen = src[1] * dst[1] / 255;
-                            int mBlue = src[2] * dst[2] / 255;
-                            return new int[]{
-                                    mRed + src[0] * (255 - ((255 - src[0]) * (255 - dst[0]) / 255) - mRed) / 255,
-                                    mGreen + src[1] * (255 - ((255 - src[1]) * (255 - dst[1]) / 255) - mGreen) / 255,
-                                    mBlue + src[2] * (255 - ((255 - src[2]) * (255 - dst[2]) / 255) - mBlue),
-                                    Math.min(255, src[3] + dst[3] - (src[3] * dst[3]) / 255)};
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                int srcRed = red(src);
+                                int srcGreen = green(src);
+                                int srcBlue = blue(src);
+                                int mRed = srcRed * red(dst) / 255;
+                                int mGreen = srcGreen * green(dst) / 255;
+                                int mBlue = srcBlue * blue(dst) / 255;
+                                dstPixels[x] = mix(dst,
+                                        mRed + srcRed * (255 - ((255 - srcRed) * (255 - red(dst)) / 255) - mRed) / 255,
+                                        mGreen + srcGreen * (255 - ((255 - srcGreen) * (255 - green(dst)) / 255) - mGreen) / 255,
+                                        mBlue + srcBlue * (255 - ((255 - srcBlue) * (255 - blue(dst)) / 255) - mBlue),
+                                        Math.min(255, alpha(src) + alpha(dst) - (alpha(src) * alpha(dst)) / 255),
+                                        opacity);
+                            }
                         }
                     };
                 case STAMP:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            if (src[3] == 0) {
-                                return dst;
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                if (alpha(src) == 0) {
+                                    continue;
+                                }
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        Math.max(0, Math.min(255, red(dst) + 2 * red(src) - 256)),
+                                        Math.max(0, Math.min(255, green(dst) + 2 * green(src) - 256)),
+                                        Math.max(0, Math.min(255, blue(dst) + 2 * blue(src) - 256)),
+                                        addAlpha(src, dst), opacity);
                             }
-                            return new int[]{
-                                    Math.max(0, Math.min(255, dst[0] + 2 * src[0] - 256)),
-                                    Math.max(0, Math.min(255, dst[1] + 2 * src[1] - 256)),
-                                    Math.max(0, Math.min(255, dst[2] + 2 * src[2] - 256)),
-                                    Math.min(255, src[3] + dst[3])
-                            };
                         }
                     };
                 case SUBTRACT:
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            return new int[]{
-                                    Math.max(0, src[0] + dst[0] - 256),
-                                    Math.max(0, src[1] + dst[1] - 256),
-                                    Math.max(0, src[2] + dst[2] - 256),
-                                    Math.min(255, src[3] + dst[3])
-                            };
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                int dst = dstPixels[x];
+                                dstPixels[x] = mix(dst,
+                                        Math.max(0, red(src) + red(dst) - 256),
+                                        Math.max(0, green(src) + green(dst) - 256),
+                                        Math.max(0, blue(src) + blue(dst) - 256),
+                                        addAlpha(src, dst), opacity);
+                            }
                         }
                     };
                 default:
                     logger.finer("Blender not implement for " + composite.getMode().name());
                     return new Blender() {
                         @Override
-                        public int[] blend(int[] src, int[] dst) {
-                            if (src[3] == 0) {
-                                return dst;
+                        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+                            for (int x = 0; x < width; x++) {
+                                int src = srcPixels[x];
+                                if (alpha(src) != 0) {
+                                    dstPixels[x] = mix(dstPixels[x], src, opacity);
+                                }
                             }
-                            return src;
                         }
                     };
             }
         }
+
+        // channel formulas shared by a mode and its inverse, the inverse
+        // mode swaps the arguments.
+
+        private static int colorBurn(int a, int b) {
+            return a == 0 ? 0 : Math.max(0, 255 - (((255 - b) << 8) / a));
+        }
+
+        private static int colorDodge(int a, int b) {
+            return a == 255 ? 255 : Math.min((b << 8) / (255 - a), 255);
+        }
+
+        private static int freeze(int a, int b) {
+            return a == 0 ? 0 : Math.max(0, 255 - (255 - b) * (255 - b) / a);
+        }
+
+        private static int reflect(int a, int b) {
+            return a == 255 ? 255 : Math.min(255, b * b / (255 - a));
+        }
+
+        private static int overlay(int a, int b) {
+            return a < 128 ? a * b >> 7 : 255 - ((255 - a) * (255 - b) >> 7);
+        }
+
+        private static int softBurn(int a, int b) {
+            return b + a < 256 ?
+                    (b == 255 ? 255 : Math.min(255, (a << 7) / (255 - b))) :
+                    Math.max(0, 255 - (((255 - b) << 7) / a));
+        }
+    }
+
+    /**
+     * Blender for the non separable modes, converts both pixels to HSL and
+     * combines components of each.
+     */
+    private static abstract class HslBlender extends Blender {
+
+        abstract void blendHSL(float[] srcHSL, float[] dstHSL, int[] result);
+
+        @Override
+        public void blend(int[] srcPixels, int[] dstPixels, int width, float opacity) {
+            float[] srcHSL = new float[3];
+            float[] dstHSL = new float[3];
+            int[] result = new int[3];
+            for (int x = 0; x < width; x++) {
+                int src = srcPixels[x];
+                int dst = dstPixels[x];
+                Blender.RGBtoHSL(Blender.red(src), Blender.green(src), Blender.blue(src), srcHSL);
+                Blender.RGBtoHSL(Blender.red(dst), Blender.green(dst), Blender.blue(dst), dstHSL);
+                blendHSL(srcHSL, dstHSL, result);
+                dstPixels[x] = Blender.mix(dst, result[0], result[1], result[2],
+                        Blender.addAlpha(src, dst), opacity);
+            }
+        }
     }
 }
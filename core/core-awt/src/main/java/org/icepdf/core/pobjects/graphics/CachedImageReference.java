@@ -33,6 +33,8 @@ public abstract class CachedImageReference extends ImageReference {
 
     private ImagePool imagePool;
     private boolean isNull;
+    // image masks are painted in the fill colour so can't be shared.
+    protected boolean pooled;
 
     protected CachedImageReference(ImageStream imageStream, GraphicsState graphicsState,
                                    Resources resources, int imageIndex,
@@ -40,24 +42,25 @@ public abstract class CachedImageReference extends ImageReference {
         super(imageStream, graphicsState, resources, imageIndex, page);
         imagePool = imageStream.getLibrary().getImagePool();
         this.reference = imageStream.getPObjectReference();
+        pooled = reference != null && !imageStream.isImageMask();
     }
 
     public BufferedImage getImage() throws InterruptedException {
         if (isNull) {
             return null;
         }
-        if (image != null && reference != null) {
+        if (image != null && pooled) {
             imagePool.put(reference, image);
             return image;
         }
-        BufferedImage cached = imagePool.get(reference);
+        BufferedImage cached = pooled ? imagePool.get(reference) : null;
         if (cached != null) {
             return cached;
         } else {
             BufferedImage im = createImage();
-            if (im != null && reference != null) {
+            if (im != null && pooled) {
                 imagePool.put(reference, im);
-            } else if (reference != null) {
+            } else if (im == null && reference != null) {
                 isNull = true;
             }
             return im;
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.pobjects.graphics;
+
+import org.icepdf.core.pobjects.graphics.commands.*;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Grid of the bounds of the painting commands of a Shapes draw command list,
+ * used to cull the commands that can't intersect the clip when a small
+ * region of a large page is painted, for example a zoomed in viewport of an
+ * engineering drawing.
+ * <br>
+ * Only fills, strokes, text sprites and images, and the shape commands that
+ * only feed them, are indexed.  Their bounds are calculated in the space the
+ * list is painted in by replaying the transform and stroke commands.  Every
+ * other command changes the graphics state or paints something that can't be
+ * bounded cheaply, so it's always replayed in order, as is any painting
+ * command whose transform or stroke isn't known, for example after a form.
+ * {@link #query(Rectangle2D)} returns the commands to replay for a clip.
+ * <br>
+ * The index is immutable and only valid for the list it was built from.
+ *
+ * @since 6.3
+ */
+public class DisplayListIndex {
+
+    // grid cells along each axis, roughly one cell per few commands.
+    private static final int MAX_GRID_SIZE = 256;
+    private static final int COMMANDS_PER_CELL = 4;
+    // commands covering more cells are checked on every query.
+    private static final int MAX_ITEM_CELLS = 16;
+
+    private static final Rectangle2D UNIT_SQUARE = new Rectangle2D.Float(0, 0, 1, 1);
+
+    private final int size;
+    // commands always replayed.
+    private final BitSet replayed;
+
+    // indexed commands, command index and bounds, minX, minY, maxX, maxY.
+    private final int[] items;
+    private final float[] itemBounds;
+
+    // grid over the bounds of the indexed commands, cell c holds items
+    // cellItems[cellStarts[c]] to cellItems[cellStarts[c + 1]].
+    private final float minX, minY, cellWidth, cellHeight;
+    private final int columns, rows;
+    private final int[] cellStarts;
+    private final int[] cellItems;
+    private final int[] largeItems;
+
+    private DisplayListIndex(int size, BitSet replayed, int[] items, float[] itemBounds, int itemCount) {
+        this.size = size;
+        this.replayed = replayed;
+        this.items = Arrays.copyOf(items, itemCount);
+        this.itemBounds = Arrays.copyOf(itemBounds, itemCount * 4);
+
+        float x1 = Float.MAX_VALUE, y1 = Float.MAX_VALUE;
+        float x2 = -Float.MAX_VALUE, y2 = -Float.MAX_VALUE;
+        for (int i = 0; i < itemCount; i++) {
+            x1 = Math.min(x1, itemBounds[i * 4]);
+            y1 = Math.min(y1, itemBounds[i * 4 + 1]);
+            x2 = Math.max(x2, itemBounds[i * 4 + 2]);
+            y2 = Math.max(y2, itemBounds[i * 4 + 3]);
+        }
+        int gridSize = Math.max(1, Math.min(MAX_GRID_SIZE,
+                (int) Math.sqrt(itemCount / (double) COMMANDS_PER_CELL)));
+        if (itemCount == 0) {
+            x1 = y1 = x2 = y2 = 0;
+        }
+        minX = x1;
+        minY = y1;
+        columns = gridSize;
+        rows = gridSize;
+        cellWidth = Math.max((x2 - x1) / columns, Float.MIN_NORMAL);
+        cellHeight = Math.max((y2 - y1) / rows, Float.MIN_NORMAL);
+
+        // count the items per cell, then fill the cells.
+        int[] counts = new int[columns * rows + 1];
+        int largeCount = 0;
+        for (int i = 0; i < itemCount; i++) {
+            int c1 = column(this.itemBounds[i * 4]), c2 = column(this.itemBounds[i * 4 + 2]);
+            int r1 = row(this.itemBounds[i * 4 + 1]), r2 = row(this.itemBounds[i * 4 + 3]);
+            if ((c2 - c1 + 1) * (r2 - r1 + 1) > MAX_ITEM_CELLS) {
+                largeCount++;
+                continue;
+            }
+            for (int r = r1; r <= r2; r++) {
+                for (int c = c1; c <= c2; c++) {
+                    counts[r * columns + c + 1]++;
+                }
+            }
+        }
+        for (int c = 1; c < counts.length; c++) {
+            counts[c] += counts[c - 1];
+        }
+        cellStarts = counts.clone();
+        cellItems = new int[counts[counts.length - 1]];
+        largeItems = new int[largeCount];
+        largeCount = 0;
+        for (int i = 0; i < itemCount; i++) {
+            int c1 = column(this.itemBounds[i * 4]), c2 = column(this.itemBounds[i * 4 + 2]);
+            int r1 = row(this.itemBounds[i * 4 + 1]), r2 = row(this.itemBounds[i * 4 + 3]);
+            if ((c2 - c1 + 1) * (r2 - r1 + 1) > MAX_ITEM_CELLS) {
+                largeItems[largeCount++] = i;
+                continue;
+            }
+            for (int r = r1; r <= r2; r++) {
+                for (int c = c1; c <= c2; c++) {
+                    cellItems[counts[r * columns + c]++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the index of a draw command list.
+     *
+     * @param drawCmds draw commands, not modified.  The list is read once in
+     *                 order with its iterator, so a packed list view can be
+     *                 indexed without unpacking it.
+     * @return index of the list.
+     */
+    public static DisplayListIndex build(List<DrawCmd> drawCmds) {
+        int size = drawCmds.size();
+        BitSet replayed = new BitSet(size);
+        int[] items = new int[Math.max(size / 2, 16)];
+        float[] itemBounds = new float[items.length * 4];
+        int itemCount = 0;
+
+        // transform relative to the painting space, null if not known.
+        AffineTransform transform = new AffineTransform();
+        // half the width a stroke can extend past its shape, -1 if not known.
+        float strokeExtent = -1;
+        // index of the current shape command, its bounds and whether it only
+        // feeds fills and strokes so can be culled with them.
+        int shapeIndex = -1;
+        Shape currentShape = null;
+        boolean shapeIndexed = false;
+        float[] shapeBounds = new float[4];
+        float[] bounds = new float[4];
+
+        Iterator<DrawCmd> iterator = drawCmds.iterator();
+        for (int i = 0; i < size; i++) {
+            DrawCmd drawCmd = iterator.next();
+            Class<?> type = drawCmd.getClass();
+            boolean indexed = false;
+            if (type == ShapeDrawCmd.class) {
+                // the previous shape's bounds are now known.
+                if (shapeIndexed) {
+                    itemCount = addItem(items, itemBounds, itemCount, shapeIndex, shapeBounds);
+                    items = grow(items, itemCount);
+                    itemBounds = grow(itemBounds, itemCount * 4);
+                }
+                shapeIndex = i;
+                currentShape = ((ShapeDrawCmd) drawCmd).getShape();
+                shapeIndexed = true;
+                // empty until a fill or stroke paints it.
+                shapeBounds[0] = shapeBounds[1] = Float.MAX_VALUE;
+                shapeBounds[2] = shapeBounds[3] = -Float.MAX_VALUE;
+                indexed = true;
+            } else if (type == FillDrawCmd.class || type == DrawDrawCmd.class) {
+                Shape shape = currentShape;
+                float extent = type == FillDrawCmd.class ? 0 : strokeExtent;
+                if (shape != null && transform != null && extent >= 0 &&
+                        transformBounds(shape.getBounds2D(), extent, transform, bounds)) {
+                    if (shapeIndexed) {
+                        shapeBounds[0] = Math.min(shapeBounds[0], bounds[0]);
+                        shapeBounds[1] = Math.min(shapeBounds[1], bounds[1]);
+                        shapeBounds[2] = Math.max(shapeBounds[2], bounds[2]);
+                        shapeBounds[3] = Math.max(shapeBounds[3], bounds[3]);
+                    }
+                    itemCount = addItem(items, itemBounds, itemCount, i, bounds);
+                    indexed = true;
+                } else if (shapeIndexed) {
+                    // the shape has to be replayed along with the command.
+                    replayed.set(shapeIndex);
+                    shapeIndexed = false;
+                }
+            } else if (type == TextSpriteDrawCmd.class) {
+                TextSprite textSprite = ((TextSpriteDrawCmd) drawCmd).getTextSprite();
+                if (transform != null && textSprite.isOptimizedDrawing() &&
+                        transformBounds(textSprite.getBounds(), 0, transform, bounds)) {
+                    itemCount = addItem(items, itemBounds, itemCount, i, bounds);
+                    indexed = true;
+                }
+            } else if (type == ImageDrawCmd.class) {
+                // images are painted into the unit square.
+                if (transform != null && !((ImageDrawCmd) drawCmd).isScaled() &&
+                        transformBounds(UNIT_SQUARE, 0, transform, bounds)) {
+                    itemCount = addItem(items, itemBounds, itemCount, i, bounds);
+                    indexed = true;
+                }
+            } else if (type == TransformDrawCmd.class) {
+                transform = ((TransformDrawCmd) drawCmd).getAffineTransform();
+            } else if (type == TextTransformDrawCmd.class) {
+                transform = ((TextTransformDrawCmd) drawCmd).getAffineTransform();
+            } else if (type == StrokeDrawCmd.class) {
+                Stroke stroke = ((StrokeDrawCmd) drawCmd).getStroke();
+                if (stroke instanceof BasicStroke) {
+                    BasicStroke basicStroke = (BasicStroke) stroke;
+                    // miter joins reach furthest, square caps sqrt(2).
+                    strokeExtent = basicStroke.getLineWidth() / 2 *
+                            Math.max(basicStroke.getMiterLimit(), 1.5f);
+                } else {
+                    strokeExtent = -1;
+                }
+            } else if (type == ClipDrawCmd.class) {
+                // clips with the current shape but restores the transform.
+                if (shapeIndexed) {
+                    replayed.set(shapeIndex);
+                    shapeIndexed = false;
+                }
+            } else if (type != ColorDrawCmd.class && type != PaintDrawCmd.class &&
+                    type != AlphaDrawCmd.class && type != BlendCompositeDrawCmd.class &&
+                    type != GraphicsStateCmd.class && type != OCGStartDrawCmd.class &&
+                    type != OCGEndDrawCmd.class && type != NoClipDrawCmd.class) {
+                // anything else may use the current shape and change the
+                // transform or stroke.
+                if (shapeIndexed) {
+                    replayed.set(shapeIndex);
+                    shapeIndexed = false;
+                }
+                transform = null;
+                strokeExtent = -1;
+            }
+            if (!indexed) {
+                replayed.set(i);
+            }
+            items = grow(items, itemCount);
+            itemBounds = grow(itemBounds, itemCount * 4);
+        }
+        if (shapeIndexed) {
+            itemCount = addItem(items, itemBounds, itemCount, shapeIndex, shapeBounds);
+        }
+        return new DisplayListIndex(size, replayed, items, itemBounds, itemCount);
+    }
+
+    /**
+     * Gets the number of draw commands in the list the index was built from.
+     *
+     * @return command count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of commands that can be culled.
+     *
+     * @return indexed command count.
+     */
+    public int getIndexedCount() {
+        return items.length;
+    }
+
+    /**
+     * Finds the commands to replay to paint the given region.
+     *
+     * @param region region in the space the list is painted in, null for
+     *               the whole list.
+     * @return indices of the commands to replay, callers must not modify it.
+     */
+    public BitSet query(Rectangle2D region) {
+        if (region == null) {
+            BitSet all = new BitSet(size);
+            all.set(0, size);
+            return all;
+        }
+        BitSet visible = (BitSet) replayed.clone();
+        float x1 = (float) region.getMinX(), y1 = (float) region.getMinY();
+        float x2 = (float) region.getMaxX(), y2 = (float) region.getMaxY();
+        int c1 = column(x1), c2 = column(x2);
+        int r1 = row(y1), r2 = row(y2);
+        for (int r = r1; r <= r2; r++) {
+            for (int c = c1; c <= c2; c++) {
+                int cell = r * columns + c;
+                for (int j = cellStarts[cell], max = cellStarts[cell + 1]; j < max; j++) {
+                    addVisible(visible, cellItems[j], x1, y1, x2, y2);
+                }
+            }
+        }
+        for (int item : largeItems) {
+            addVisible(visible, item, x1, y1, x2, y2);
+        }
+        return visible;
+    }
+
+    private void addVisible(BitSet visible, int item, float x1, float y1, float x2, float y2) {
+        int offset = item * 4;
+        if (itemBounds[offset] <= x2 && itemBounds[offset + 2] >= x1 &&
+                itemBounds[offset + 1] <= y2 && itemBounds[offset + 3] >= y1) {
+            visible.set(items[item]);
+        }
+    }
+
+    private int column(float x) {
+        return Math.max(0, Math.min(columns - 1, (int) ((x - minX) / cellWidth)));
+    }
+
+    private int row(float y) {
+        return Math.max(0, Math.min(rows - 1, (int) ((y - minY) / cellHeight)));
+    }
+
+    private static int addItem(int[] items, float[] itemBounds, int itemCount, int index, float[] bounds) {
+        items[itemCount] = index;
+        System.arraycopy(bounds, 0, itemBounds, itemCount * 4, 4);
+        return itemCount + 1;
+    }
+
+    private static int[] grow(int[] array, int count) {
+        return count < array.length ? array : Arrays.copyOf(array, array.length * 2);
+    }
+
+    private static float[] grow(float[] array, int count) {
+        return count < array.length ? array : Arrays.copyOf(array, array.length * 2);
+    }
+
+    /**
+     * Transforms a rectangle grown by the given extent on each side.
+     *
+     * @return false if the bounds aren't finite.
+     */
+    private static boolean transformBounds(Rectangle2D rect, float extent, AffineTransform af,
+                                           float[] bounds) {
+        double x1 = rect.getMinX() - extent, y1 = rect.getMinY() - extent;
+        double x2 = rect.getMaxX() + extent, y2 = rect.getMaxY() + extent;
+        double[] corners = {x1, y1, x2, y1, x2, y2, x1, y2};
+        af.transform(corners, 0, corners, 0, 4);
+        double minX = corners[0], maxX = minX, minY = corners[1], maxY = minY;
+        for (int i = 2; i < corners.length; i += 2) {
+            minX = Math.min(minX, corners[i]);
+            maxX = Math.max(maxX, corners[i]);
+            minY = Math.min(minY, corners[i + 1]);
+            maxY = Math.max(maxY, corners[i + 1]);
+        }
+        if (Double.isNaN(minX) || Double.isNaN(minY) || Double.isInfinite(minX) ||
+                Double.isInfinite(minY) || Double.isInfinite(maxX) || Double.isInfinite(maxY)) {
+            return false;
+        }
+        bounds[0] = (float) minX;
+        bounds[1] = (float) minY;
+        bounds[2] = (float) maxX;
+        bounds[3] = (float) maxY;
+        return true;
+    }
+}
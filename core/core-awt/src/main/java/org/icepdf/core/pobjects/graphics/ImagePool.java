@@ -17,31 +17,38 @@ package org.icepdf.core.pobjects.graphics;
 
 import org.icepdf.core.pobjects.Reference;
 import org.icepdf.core.util.Defs;
+import org.icepdf.core.util.SizedLRUCache;
 
 import java.awt.image.BufferedImage;
-import java.util.Collections;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * The Image pool is a Map of the most recently used images.  The pools size
- * by default is setup to be 1/4 the heap size.  So as the pool grows it
- * will self trim to keep the memory foot print at the specified max.  The
- * max pool size can be specified by using the org.icepdf.core.views.imagePoolSize
- * system property.  The value is specified in MB.
+ * The Image pool is a least recently used cache of decoded images keyed by
+ * the image's object reference.  Images are held strongly and the pool is
+ * bounded by the number of bytes used by the images' rasters, so repeated
+ * images such as logos and page backgrounds are only decoded once.  Once the
+ * budget is exceeded the least recently used images are evicted.
  * <br>
- * The pool also contains an executor pool for processing Images.  The executor
- * allows the pageInitialization thread to continue while the executor processes
- * the image data on another thread.
+ * Each document has its own pool but the budget is shared by the pools of all
+ * open documents, the images of every pool are kept in one set of static
+ * caches so opening more documents doesn't raise the memory held.  The
+ * caches are split into stripes, each with its own lock and an equal share of
+ * the budget, so image loading threads working on different images don't
+ * contend on a single lock.
  * <br>
- * Teh pool size can be set with the system property  org.icepdf.core.views.imagePoolSize
- * where the default value is 1/4 the heap size.  The pool set can be specified in
- * using a int value representing the desired size in MB.
+ * The budget can be set with the system property org.icepdf.core.views.imagePoolSize
+ * where the default value is 1/4 the heap size.  The budget is specified
+ * using an int value representing the desired size in MB.
  * <br>
  * The pool can also be disabled using the boolean system property
  * org.icepdf.core.views.imagePoolEnabled=false.  The default state is for the
  * ImagePool to be enabled.
+ * <br>
+ * Hit, miss and eviction counts as well as the bytes held are kept per pool
+ * and for all pools together, see the getGlobalXXX() methods.
  *
  * @since 5.0
  */
@@ -50,48 +57,236 @@ public class ImagePool {
     private static final Logger log =
             Logger.getLogger(ImagePool.class.toString());
 
-    // Image pool
-    private final Map<Reference, BufferedImage> fCache;
-
+    private static final int STRIPE_COUNT = 8;
 
     private static boolean enabled;
+    private static long maxSize;
+
     static {
         // enable/disable the image pool all together.
         enabled = Defs.booleanProperty("org.icepdf.core.views.imagePoolEnabled", true);
+        int poolSize = Defs.intProperty("org.icepdf.core.views.imagePoolSize", -1);
+        if (poolSize > 0) {
+            maxSize = poolSize * 1024L * 1024L;
+        } else {
+            maxSize = Runtime.getRuntime().maxMemory() / 4;
+        }
     }
 
+    // images of all pools, keyed by the owning pool and the image reference.
+    private static final Stripe[] stripes = new Stripe[STRIPE_COUNT];
 
-    public ImagePool() {
-        fCache = Collections.synchronizedMap(new WeakHashMap<Reference, BufferedImage>(50));
+    static {
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe(maxSize / STRIPE_COUNT);
+        }
     }
 
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicInteger entryCount = new AtomicInteger();
+
     public void put(Reference ref, BufferedImage image) {
-        // create a new reference so we don't have a hard link to the page
-        // which will likely keep a page from being GC'd.
-        if (enabled) {
-//            synchronized (fCache) {
-                fCache.put(new Reference(ref.getObjectNumber(), ref.getGenerationNumber()), image);
-//            }
+        if (enabled && ref != null && image != null) {
+            // create a new reference so we don't have a hard link to the page
+            // which will likely keep a page from being GC'd.
+            Key key = new Key(this, ref);
+            Stripe stripe = stripeFor(key);
+            synchronized (stripe) {
+                // don't keep serving an older image for this reference.
+                stripe.remove(key);
+                if (stripe.put(key, image)) {
+                    size.addAndGet(SizedLRUCache.imageSize(image));
+                    entryCount.incrementAndGet();
+                } else if (log.isLoggable(Level.FINER)) {
+                    log.finer("Image " + ref + " too large for image pool: " +
+                            SizedLRUCache.imageSize(image));
+                }
+            }
         }
     }
 
     public BufferedImage get(Reference ref) {
-        if (enabled) {
-//            synchronized (fCache) {
-                return fCache.get(ref);
-//            }
+        if (enabled && ref != null) {
+            Key key = new Key(this, ref);
+            BufferedImage image = stripeFor(key).get(key);
+            if (image != null) {
+                hitCount.incrementAndGet();
+            } else {
+                missCount.incrementAndGet();
+            }
+            return image;
         } else {
             return null;
         }
     }
 
     public boolean containsKey(Reference ref) {
-        if (enabled) {
-//            synchronized (fCache) {
-                return fCache.containsKey(ref);
-//            }
+        if (enabled && ref != null) {
+            Key key = new Key(this, ref);
+            return stripeFor(key).containsKey(key);
         } else {
             return false;
         }
     }
+
+    /**
+     * Removes all images of this pool from the shared budget.  Should be
+     * called when the owning document is disposed.
+     */
+    public void clear() {
+        SizedLRUCache.KeyFilter<Key> ownedKeys = new SizedLRUCache.KeyFilter<Key>() {
+            public boolean accept(Key key) {
+                return key.pool == ImagePool.this;
+            }
+        };
+        for (Stripe stripe : stripes) {
+            stripe.removeAll(ownedKeys);
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Gets the number of raster bytes currently held for this pool.
+     *
+     * @return size in bytes.
+     */
+    public long getSize() {
+        return size.get();
+    }
+
+    /**
+     * Gets the budget shared by all pools.
+     *
+     * @return maximum number of raster bytes held by all pools.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public int getEntryCount() {
+        return entryCount.get();
+    }
+
+    public static long getGlobalHitCount() {
+        long count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.getHitCount();
+        }
+        return count;
+    }
+
+    public static long getGlobalMissCount() {
+        long count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.getMissCount();
+        }
+        return count;
+    }
+
+    public static long getGlobalEvictionCount() {
+        long count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.getEvictionCount();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of raster bytes currently held by all pools.
+     *
+     * @return size in bytes.
+     */
+    public static long getGlobalSize() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the approximate number of bytes used by the image's raster data.
+     *
+     * @param image image to size.
+     * @return raster size in bytes.
+     */
+    public static long sizeOf(BufferedImage image) {
+        return SizedLRUCache.imageSize(image);
+    }
+
+    private static Stripe stripeFor(Key key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & (STRIPE_COUNT - 1)];
+    }
+
+    /**
+     * Identifies an image of a pool.
+     */
+    private static class Key {
+        private final ImagePool pool;
+        private final int objectNumber;
+        private final int generationNumber;
+
+        Key(ImagePool pool, Reference ref) {
+            this.pool = pool;
+            objectNumber = ref.getObjectNumber();
+            generationNumber = ref.getGenerationNumber();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return pool == key.pool && objectNumber == key.objectNumber &&
+                    generationNumber == key.generationNumber;
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(pool) * 31 + objectNumber) * 31 + generationNumber;
+        }
+    }
+
+    /**
+     * One lock's share of the budget, keeps the owning pools' counts in step.
+     */
+    private static class Stripe extends SizedLRUCache<Key, BufferedImage> {
+
+        Stripe(long maxSize) {
+            super(maxSize);
+        }
+
+        @Override
+        protected long sizeOf(BufferedImage image) {
+            return imageSize(image);
+        }
+
+        @Override
+        protected void entryRemoved(Key key, BufferedImage image, boolean evicted) {
+            key.pool.size.addAndGet(-imageSize(image));
+            key.pool.entryCount.decrementAndGet();
+            if (evicted) {
+                key.pool.evictionCount.incrementAndGet();
+            }
+        }
+    }
 }
@@ -0,0 +1,669 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.pobjects.graphics;
+
+import org.icepdf.core.util.Defs;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+
+/**
+ * Paint for the mesh based shadings, types 4 through 7.
+ * <br>
+ * Triangles and patches are stored in primitive arrays in shading space.
+ * When a paint context is created the Coons and tensor-product patches are
+ * subdivided into triangles, with the number of steps picked so a step is a
+ * few device pixels long, and the triangles are rasterized with the colour
+ * interpolated incrementally along each scan line (Gouraud shading).
+ * <br>
+ * Each vertex carries three values, either the red, green and blue of the
+ * vertex colour or, when the shading has a Function, the parametric t value
+ * scaled to 0-255 which is mapped through a colour table after interpolation.
+ * <br>
+ * The whole mesh is rasterized and cached for the last device transform it
+ * was painted with, a repaint at the same scale and a whole pixel offset,
+ * such as a scroll, reuses the raster whatever area is being painted.  Meshes
+ * larger then the system property org.icepdf.core.shading.mesh.maxCachedPixels
+ * (default 4194304) are rasterized a tile at a time, their device space
+ * triangles are cached instead along with a grid index so a tile only
+ * rasterizes the triangles that overlap it.
+ *
+ * @since 6.3
+ */
+public class MeshShadingPaint implements Paint {
+
+    private static int maxCachedPixels;
+
+    static {
+        maxCachedPixels = Defs.intProperty("org.icepdf.core.shading.mesh.maxCachedPixels", 4194304);
+    }
+
+    // approximate length in device pixels of a patch subdivision step.
+    private static final float PATCH_STEP_SIZE = 4f;
+    private static final int MAX_PATCH_STEPS = 64;
+
+    // tensor control point index, i * 4 + j, of the points in the order they
+    // are stored in the mesh data stream.
+    static final int[] PATCH_POINT_ORDER = {
+            0, 1, 2, 3, 7, 11, 15, 14, 13, 12, 8, 4, 5, 6, 10, 9};
+
+    private final AffineTransform matrix;
+    // colour of each t value, null if vertices have rgb values.
+    private final int[] colorTable;
+
+    // triangle vertices, x and y of each vertex, three vertices per triangle.
+    private float[] points = new float[64];
+    // three values per triangle vertex.
+    private float[] values = new float[96];
+    private int vertexCount;
+
+    // tensor-product patch control points, 16 x and y pairs per patch.
+    private float[] patchPoints = new float[0];
+    // values of the patch corners c00, c03, c33 and c30, three per corner.
+    private float[] patchValues = new float[0];
+    private int patchCount;
+
+    private volatile SoftReference<DeviceCache> cache;
+
+    /**
+     * Creates a new empty mesh paint.
+     *
+     * @param matrix     pattern matrix applied to the mesh coordinates.
+     * @param colorTable 256 colours for the scaled t value of a shading with a
+     *                   Function, null if the vertices have rgb values.
+     */
+    public MeshShadingPaint(AffineTransform matrix, int[] colorTable) {
+        this.matrix = matrix != null ? matrix : new AffineTransform();
+        this.colorTable = colorTable;
+    }
+
+    /**
+     * Adds a triangle made up of three vertices of a vertex list.
+     *
+     * @param vertexPoints x and y of each vertex.
+     * @param vertexValues three values of each vertex.
+     * @param a            index of the first vertex.
+     * @param b            index of the second vertex.
+     * @param c            index of the third vertex.
+     */
+    public void addTriangle(float[] vertexPoints, float[] vertexValues, int a, int b, int c) {
+        if (vertexCount + 3 > points.length / 2) {
+            points = Arrays.copyOf(points, points.length * 2);
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        addVertex(vertexPoints, vertexValues, a);
+        addVertex(vertexPoints, vertexValues, b);
+        addVertex(vertexPoints, vertexValues, c);
+    }
+
+    private void addVertex(float[] vertexPoints, float[] vertexValues, int index) {
+        points[vertexCount * 2] = vertexPoints[index * 2];
+        points[vertexCount * 2 + 1] = vertexPoints[index * 2 + 1];
+        System.arraycopy(vertexValues, index * 3, values, vertexCount * 3, 3);
+        vertexCount++;
+    }
+
+    /**
+     * Adds a tensor-product patch, Coons patches should have their four
+     * interior control points calculated before being added.
+     *
+     * @param controlPoints 16 control points, x and y in p00, p01, ... p33 order.
+     * @param cornerValues  three values for each of the corners c00, c03, c33
+     *                      and c30.
+     */
+    public void addPatch(float[] controlPoints, float[] cornerValues) {
+        if (patchCount * 32 == patchPoints.length) {
+            int size = Math.max(patchCount * 2, 8);
+            patchPoints = Arrays.copyOf(patchPoints, size * 32);
+            patchValues = Arrays.copyOf(patchValues, size * 12);
+        }
+        System.arraycopy(controlPoints, 0, patchPoints, patchCount * 32, 32);
+        System.arraycopy(cornerValues, 0, patchValues, patchCount * 12, 12);
+        patchCount++;
+    }
+
+    /**
+     * Indicates the mesh has no triangles or patches to paint.
+     *
+     * @return true if the mesh is empty.
+     */
+    public boolean isEmpty() {
+        return vertexCount == 0 && patchCount == 0;
+    }
+
+    public int getTransparency() {
+        return TRANSLUCENT;
+    }
+
+    public PaintContext createContext(ColorModel cm, Rectangle deviceBounds,
+                                      Rectangle2D userBounds, AffineTransform xform,
+                                      RenderingHints hints) {
+        AffineTransform transform = new AffineTransform(xform);
+        transform.concatenate(matrix);
+        Rectangle meshBounds = getDeviceBounds(transform);
+        if (deviceBounds.intersection(meshBounds).isEmpty()) {
+            return new MeshPaintContext(null, 0, 0);
+        }
+        // reuse the last mesh if it was painted at the same scale and a
+        // whole pixel offset, which is the case when a page is scrolled.
+        SoftReference<DeviceCache> cacheReference = cache;
+        DeviceCache deviceCache = cacheReference != null ? cacheReference.get() : null;
+        if (deviceCache != null) {
+            AffineTransform cached = deviceCache.transform;
+            double dx = transform.getTranslateX() - cached.getTranslateX();
+            double dy = transform.getTranslateY() - cached.getTranslateY();
+            if (cached.getScaleX() == transform.getScaleX() &&
+                    cached.getScaleY() == transform.getScaleY() &&
+                    cached.getShearX() == transform.getShearX() &&
+                    cached.getShearY() == transform.getShearY() &&
+                    dx == Math.rint(dx) && dy == Math.rint(dy)) {
+                return new MeshPaintContext(deviceCache, (int) dx, (int) dy);
+            }
+        }
+        DeviceMesh deviceMesh = triangulate(transform);
+        if ((long) meshBounds.width * meshBounds.height <= maxCachedPixels) {
+            int[] pixels = new int[meshBounds.width * meshBounds.height];
+            rasterize(deviceMesh, pixels, meshBounds.x, meshBounds.y,
+                    meshBounds.width, meshBounds.height);
+            deviceCache = new DeviceCache(transform, meshBounds, pixels, null);
+        } else {
+            deviceMesh.buildIndex(meshBounds);
+            deviceCache = new DeviceCache(transform, meshBounds, null, deviceMesh);
+        }
+        cache = new SoftReference<DeviceCache>(deviceCache);
+        return new MeshPaintContext(deviceCache, 0, 0);
+    }
+
+    /**
+     * Device space bounds of the mesh, patches lie within the convex hull of
+     * their control points.
+     */
+    private Rectangle getDeviceBounds(AffineTransform transform) {
+        float[] device = new float[Math.max(vertexCount * 2, patchCount * 32)];
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int pass = 0; pass < 2; pass++) {
+            int count = pass == 0 ? vertexCount : patchCount * 16;
+            transform.transform(pass == 0 ? points : patchPoints, 0, device, 0, count);
+            for (int i = 0; i < count * 2; i += 2) {
+                minX = Math.min(minX, device[i]);
+                maxX = Math.max(maxX, device[i]);
+                minY = Math.min(minY, device[i + 1]);
+                maxY = Math.max(maxY, device[i + 1]);
+            }
+        }
+        if (minX > maxX) {
+            return new Rectangle();
+        }
+        int x = (int) Math.floor(minX);
+        int y = (int) Math.floor(minY);
+        return new Rectangle(x, y, (int) Math.ceil(maxX) - x + 1, (int) Math.ceil(maxY) - y + 1);
+    }
+
+    /**
+     * Converts the triangles to device space and subdivides the patches into
+     * triangles at a resolution suitable for the transform.
+     */
+    private DeviceMesh triangulate(AffineTransform transform) {
+        DeviceMesh mesh = new DeviceMesh(vertexCount + patchCount * 24);
+        transform.transform(points, 0, mesh.points, 0, vertexCount);
+        System.arraycopy(values, 0, mesh.values, 0, vertexCount * 3);
+        mesh.vertexCount = vertexCount;
+
+        float[] control = new float[32];
+        float[] basisU = new float[4];
+        float[] basisV = new float[4];
+        float[] gridPoints = new float[0];
+        float[] gridValues = new float[0];
+        for (int patch = 0; patch < patchCount; patch++) {
+            transform.transform(patchPoints, patch * 32, control, 0, 16);
+            int steps = getPatchSteps(control);
+            int size = steps + 1;
+            if (gridPoints.length < size * size * 2) {
+                gridPoints = new float[size * size * 2];
+                gridValues = new float[size * size * 3];
+            }
+            int valueOffset = patch * 12;
+            for (int i = 0; i < size; i++) {
+                float u = i / (float) steps;
+                bernstein(u, basisU);
+                for (int j = 0; j < size; j++) {
+                    float v = j / (float) steps;
+                    bernstein(v, basisV);
+                    float x = 0, y = 0;
+                    for (int pi = 0; pi < 4; pi++) {
+                        for (int pj = 0; pj < 4; pj++) {
+                            float weight = basisU[pi] * basisV[pj];
+                            int point = (pi * 4 + pj) * 2;
+                            x += weight * control[point];
+                            y += weight * control[point + 1];
+                        }
+                    }
+                    int grid = i * size + j;
+                    gridPoints[grid * 2] = x;
+                    gridPoints[grid * 2 + 1] = y;
+                    // bilinear colour between the corners c00, c03, c33 and c30.
+                    float w00 = (1 - u) * (1 - v);
+                    float w03 = (1 - u) * v;
+                    float w33 = u * v;
+                    float w30 = u * (1 - v);
+                    for (int k = 0; k < 3; k++) {
+                        gridValues[grid * 3 + k] =
+                                w00 * patchValues[valueOffset + k] +
+                                        w03 * patchValues[valueOffset + 3 + k] +
+                                        w33 * patchValues[valueOffset + 6 + k] +
+                                        w30 * patchValues[valueOffset + 9 + k];
+                    }
+                }
+            }
+            for (int i = 0; i < steps; i++) {
+                for (int j = 0; j < steps; j++) {
+                    int a = i * size + j;
+                    int b = a + size;
+                    mesh.addTriangle(gridPoints, gridValues, a, b, a + 1);
+                    mesh.addTriangle(gridPoints, gridValues, b, b + 1, a + 1);
+                }
+            }
+        }
+        return mesh;
+    }
+
+    /**
+     * Number of subdivision steps for a patch, based on the longest control
+     * polygon row or column in device space.
+     */
+    private static int getPatchSteps(float[] control) {
+        float longest = 0;
+        for (int i = 0; i < 4; i++) {
+            float rowLength = 0;
+            float columnLength = 0;
+            for (int j = 0; j < 3; j++) {
+                int row = (i * 4 + j) * 2;
+                rowLength += (float) Math.hypot(control[row + 2] - control[row],
+                        control[row + 3] - control[row + 1]);
+                int column = (j * 4 + i) * 2;
+                columnLength += (float) Math.hypot(control[column + 8] - control[column],
+                        control[column + 9] - control[column + 1]);
+            }
+            longest = Math.max(longest, Math.max(rowLength, columnLength));
+        }
+        int steps = (int) Math.ceil(longest / PATCH_STEP_SIZE);
+        return Math.max(1, Math.min(steps, MAX_PATCH_STEPS));
+    }
+
+    private static void bernstein(float t, float[] basis) {
+        float s = 1 - t;
+        basis[0] = s * s * s;
+        basis[1] = 3 * t * s * s;
+        basis[2] = 3 * t * t * s;
+        basis[3] = t * t * t;
+    }
+
+    /**
+     * Rasterizes the device space triangles that cover the given area of
+     * device pixels.
+     */
+    private void rasterize(DeviceMesh mesh, int[] pixels, int areaX, int areaY,
+                           int areaWidth, int areaHeight) {
+        float[] dx = new float[3];
+        float[] dy = new float[3];
+        for (int triangle = 0, count = mesh.vertexCount / 3; triangle < count; triangle++) {
+            rasterize(mesh, triangle, pixels, areaX, areaY, areaWidth, areaHeight, dx, dy);
+        }
+    }
+
+    /**
+     * Rasterizes the indexed device space triangles that overlap the given
+     * area of device pixels, in the order they were added.
+     */
+    private void rasterizeIndexed(DeviceMesh mesh, int[] pixels, int areaX, int areaY,
+                                  int areaWidth, int areaHeight) {
+        int[] triangles = mesh.query(areaX, areaY, areaWidth, areaHeight);
+        float[] dx = new float[3];
+        float[] dy = new float[3];
+        for (int triangle : triangles) {
+            rasterize(mesh, triangle, pixels, areaX, areaY, areaWidth, areaHeight, dx, dy);
+        }
+    }
+
+    /**
+     * Rasterizes one device space triangle clipped to the given area, dx and
+     * dy are scratch arrays of three values.
+     */
+    private void rasterize(DeviceMesh mesh, int triangle, int[] pixels, int areaX, int areaY,
+                           int areaWidth, int areaHeight, float[] dx, float[] dy) {
+        float[] points = mesh.points;
+        float[] values = mesh.values;
+        int[] colorTable = this.colorTable;
+        int areaMaxX = areaX + areaWidth;
+        int areaMaxY = areaY + areaHeight;
+        int vertex = triangle * 3;
+        int a = vertex * 2;
+        float ax = points[a], ay = points[a + 1];
+        float bx = points[a + 2], by = points[a + 3];
+        float cx = points[a + 4], cy = points[a + 5];
+        float area = (bx - ax) * (cy - ay) - (cx - ax) * (by - ay);
+        if (area == 0 || Float.isNaN(area)) {
+            return;
+        }
+        int minY = Math.max(areaY, (int) Math.ceil(Math.min(ay, Math.min(by, cy)) - 0.5f));
+        int maxY = Math.min(areaMaxY, (int) Math.ceil(Math.max(ay, Math.max(by, cy)) - 0.5f));
+        if (minY >= maxY ||
+                Math.max(ax, Math.max(bx, cx)) - 0.5f < areaX ||
+                Math.min(ax, Math.min(bx, cx)) - 0.5f >= areaMaxX) {
+            return;
+        }
+        // the values change by a constant amount per pixel in x and y.
+        int v = vertex * 3;
+        for (int k = 0; k < 3; k++) {
+            float d1 = values[v + 3 + k] - values[v + k];
+            float d2 = values[v + 6 + k] - values[v + k];
+            dx[k] = (d1 * (cy - ay) - d2 * (by - ay)) / area;
+            dy[k] = (d2 * (bx - ax) - d1 * (cx - ax)) / area;
+        }
+        float dx0 = dx[0], dx1 = dx[1], dx2 = dx[2];
+        for (int y = minY; y < maxY; y++) {
+            float centerY = y + 0.5f;
+            float left = Float.MAX_VALUE;
+            float right = -Float.MAX_VALUE;
+            for (int edge = 0; edge < 3; edge++) {
+                int p = a + edge * 2;
+                int q = a + ((edge + 1) % 3) * 2;
+                // order the edge end points so shared edges give the same x.
+                if (points[p + 1] > points[q + 1] ||
+                        (points[p + 1] == points[q + 1] && points[p] > points[q])) {
+                    int swap = p;
+                    p = q;
+                    q = swap;
+                }
+                float y0 = points[p + 1], y1 = points[q + 1];
+                if (centerY < y0 || centerY >= y1) {
+                    continue;
+                }
+                float x = points[p] + (centerY - y0) * (points[q] - points[p]) / (y1 - y0);
+                left = Math.min(left, x);
+                right = Math.max(right, x);
+            }
+            int minX = Math.max(areaX, (int) Math.ceil(left - 0.5f));
+            int maxX = Math.min(areaMaxX, (int) Math.ceil(right - 0.5f));
+            if (minX >= maxX) {
+                continue;
+            }
+            float offsetX = minX + 0.5f - ax;
+            float offsetY = centerY - ay;
+            float value0 = values[v] + dx0 * offsetX + dy[0] * offsetY;
+            float value1 = values[v + 1] + dx1 * offsetX + dy[1] * offsetY;
+            float value2 = values[v + 2] + dx2 * offsetX + dy[2] * offsetY;
+            int pixel = (y - areaY) * areaWidth + (minX - areaX);
+            for (int x = minX; x < maxX; x++, pixel++) {
+                if (colorTable != null) {
+                    pixels[pixel] = colorTable[clamp(value0)];
+                } else {
+                    pixels[pixel] = 0xFF000000 | (clamp(value0) << 16) |
+                            (clamp(value1) << 8) | clamp(value2);
+                }
+                value0 += dx0;
+                value1 += dx1;
+                value2 += dx2;
+            }
+        }
+    }
+
+    private static int clamp(float value) {
+        int result = (int) (value + 0.5f);
+        return result < 0 ? 0 : result > 255 ? 255 : result;
+    }
+
+    /**
+     * Triangles in device space, optionally indexed by a grid of square cells
+     * so the triangles overlapping a tile can be found without visiting all of
+     * them.
+     */
+    private static class DeviceMesh {
+        // grid cells are at least 2^6 pixels square, there are no more cells
+        // then triangles, within MIN_CELLS and MAX_CELLS, so large triangles
+        // can't fill the grid with entries.
+        private static final int MIN_CELL_SHIFT = 6;
+        private static final int MIN_CELLS = 256;
+        private static final int MAX_CELLS = 1 << 16;
+
+        float[] points;
+        float[] values;
+        int vertexCount;
+
+        private int gridX, gridY;
+        private int cellShift;
+        private int columns, rows;
+        // triangles of cell i are cellTriangles[cellStart[i]..cellStart[i + 1]).
+        private int[] cellStart;
+        private int[] cellTriangles;
+        // query scratch, the query each triangle was last returned by.
+        private int[] queryMarks;
+        private int queryCount;
+
+        DeviceMesh(int capacity) {
+            capacity = Math.max(capacity, 3);
+            points = new float[capacity * 2];
+            values = new float[capacity * 3];
+        }
+
+        void addTriangle(float[] vertexPoints, float[] vertexValues, int a, int b, int c) {
+            if (vertexCount + 3 > points.length / 2) {
+                points = Arrays.copyOf(points, points.length * 2);
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            addVertex(vertexPoints, vertexValues, a);
+            addVertex(vertexPoints, vertexValues, b);
+            addVertex(vertexPoints, vertexValues, c);
+        }
+
+        private void addVertex(float[] vertexPoints, float[] vertexValues, int index) {
+            points[vertexCount * 2] = vertexPoints[index * 2];
+            points[vertexCount * 2 + 1] = vertexPoints[index * 2 + 1];
+            System.arraycopy(vertexValues, index * 3, values, vertexCount * 3, 3);
+            vertexCount++;
+        }
+
+        /**
+         * Bins each triangle into the grid cells its bounding box covers.
+         *
+         * @param bounds device bounds of the mesh.
+         */
+        void buildIndex(Rectangle bounds) {
+            gridX = bounds.x;
+            gridY = bounds.y;
+            int triangleCount = vertexCount / 3;
+            int maxCells = Math.max(MIN_CELLS, Math.min(MAX_CELLS, triangleCount));
+            cellShift = MIN_CELL_SHIFT;
+            while (((long) (bounds.width >> cellShift) + 1) *
+                    ((bounds.height >> cellShift) + 1) > maxCells) {
+                cellShift++;
+            }
+            columns = (bounds.width >> cellShift) + 1;
+            rows = (bounds.height >> cellShift) + 1;
+            int[] cellBounds = new int[triangleCount * 4];
+            cellStart = new int[columns * rows + 1];
+            // count the triangles of each cell, then fill in the lists.
+            for (int pass = 0; pass < 2; pass++) {
+                for (int triangle = 0; triangle < triangleCount; triangle++) {
+                    int c = triangle * 4;
+                    if (pass == 0) {
+                        int a = triangle * 6;
+                        float minX = Math.min(points[a], Math.min(points[a + 2], points[a + 4]));
+                        float maxX = Math.max(points[a], Math.max(points[a + 2], points[a + 4]));
+                        float minY = Math.min(points[a + 1], Math.min(points[a + 3], points[a + 5]));
+                        float maxY = Math.max(points[a + 1], Math.max(points[a + 3], points[a + 5]));
+                        cellBounds[c] = column((int) Math.floor(minX));
+                        cellBounds[c + 1] = row((int) Math.floor(minY));
+                        cellBounds[c + 2] = column((int) Math.ceil(maxX));
+                        cellBounds[c + 3] = row((int) Math.ceil(maxY));
+                        // NaN vertices are never painted.
+                        if (Float.isNaN(minX + maxX + minY + maxY)) {
+                            cellBounds[c + 2] = cellBounds[c] - 1;
+                        }
+                    }
+                    for (int cellY = cellBounds[c + 1]; cellY <= cellBounds[c + 3]; cellY++) {
+                        for (int cellX = cellBounds[c]; cellX <= cellBounds[c + 2]; cellX++) {
+                            int cell = cellY * columns + cellX;
+                            if (pass == 0) {
+                                cellStart[cell + 1]++;
+                            } else {
+                                cellTriangles[cellStart[cell]++] = triangle;
+                            }
+                        }
+                    }
+                }
+                if (pass == 0) {
+                    for (int i = 0; i < columns * rows; i++) {
+                        cellStart[i + 1] += cellStart[i];
+                    }
+                    cellTriangles = new int[cellStart[columns * rows]];
+                } else {
+                    // the fill advanced each start to the next cell's start.
+                    System.arraycopy(cellStart, 0, cellStart, 1, columns * rows);
+                    cellStart[0] = 0;
+                }
+            }
+            queryMarks = new int[triangleCount];
+        }
+
+        private int column(int x) {
+            return Math.max(0, Math.min(columns - 1, (x - gridX) >> cellShift));
+        }
+
+        private int row(int y) {
+            return Math.max(0, Math.min(rows - 1, (y - gridY) >> cellShift));
+        }
+
+        /**
+         * Gets the triangles in the grid cells the area overlaps, in the
+         * order they were added.  Not thread safe.
+         */
+        int[] query(int x, int y, int width, int height) {
+            int minColumn = column(x);
+            int maxColumn = column(x + width);
+            int minRow = row(y);
+            int maxRow = row(y + height);
+            if (++queryCount == 0) {
+                Arrays.fill(queryMarks, 0);
+                queryCount = 1;
+            }
+            int count = 0;
+            for (int cellY = minRow; cellY <= maxRow; cellY++) {
+                for (int cellX = minColumn; cellX <= maxColumn; cellX++) {
+                    int cell = cellY * columns + cellX;
+                    count += cellStart[cell + 1] - cellStart[cell];
+                }
+            }
+            int[] triangles = new int[count];
+            count = 0;
+            for (int cellY = minRow; cellY <= maxRow; cellY++) {
+                for (int cellX = minColumn; cellX <= maxColumn; cellX++) {
+                    int cell = cellY * columns + cellX;
+                    for (int i = cellStart[cell], max = cellStart[cell + 1]; i < max; i++) {
+                        int triangle = cellTriangles[i];
+                        if (queryMarks[triangle] != queryCount) {
+                            queryMarks[triangle] = queryCount;
+                            triangles[count++] = triangle;
+                        }
+                    }
+                }
+            }
+            if (minColumn != maxColumn || minRow != maxRow) {
+                Arrays.sort(triangles, 0, count);
+            }
+            return count == triangles.length ? triangles : Arrays.copyOf(triangles, count);
+        }
+    }
+
+    /**
+     * Mesh in device space for a transform, either as the ARGB pixels covering
+     * the mesh's device bounds or as the indexed triangles of a mesh too large
+     * to be rasterized in one piece.
+     */
+    private static class DeviceCache {
+        final AffineTransform transform;
+        final Rectangle bounds;
+        final int[] pixels;
+        final DeviceMesh deviceMesh;
+
+        DeviceCache(AffineTransform transform, Rectangle bounds, int[] pixels,
+                    DeviceMesh deviceMesh) {
+            this.transform = transform;
+            this.bounds = bounds;
+            this.pixels = pixels;
+            this.deviceMesh = deviceMesh;
+        }
+    }
+
+    private class MeshPaintContext implements PaintContext {
+
+        // cached pixels or indexed triangles, null if nothing is painted.
+        private final DeviceCache deviceCache;
+        // device offset from where the mesh was cached.
+        private final int offsetX;
+        private final int offsetY;
+
+        MeshPaintContext(DeviceCache deviceCache, int offsetX, int offsetY) {
+            this.deviceCache = deviceCache;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+        }
+
+        public void dispose() {
+        }
+
+        public ColorModel getColorModel() {
+            return ColorModel.getRGBdefault();
+        }
+
+        public Raster getRaster(int x, int y, int w, int h) {
+            WritableRaster raster = getColorModel().createCompatibleWritableRaster(w, h);
+            int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+            if (deviceCache == null) {
+                return raster;
+            }
+            if (deviceCache.pixels != null) {
+                Rectangle bounds = deviceCache.bounds;
+                int rasterX = bounds.x + offsetX;
+                int rasterY = bounds.y + offsetY;
+                int minX = Math.max(x, rasterX);
+                int maxX = Math.min(x + w, rasterX + bounds.width);
+                int minY = Math.max(y, rasterY);
+                int maxY = Math.min(y + h, rasterY + bounds.height);
+                for (int row = minY; row < maxY && minX < maxX; row++) {
+                    System.arraycopy(deviceCache.pixels,
+                            (row - rasterY) * bounds.width + (minX - rasterX),
+                            data, (row - y) * w + (minX - x), maxX - minX);
+                }
+            } else {
+                // the triangles are shared by every context of the cache.
+                DeviceMesh deviceMesh = deviceCache.deviceMesh;
+                synchronized (deviceMesh) {
+                    rasterizeIndexed(deviceMesh, data, x - offsetX, y - offsetY, w, h);
+                }
+            }
+            return raster;
+        }
+    }
+}
@@ -133,6 +133,9 @@ public abstract class PColorSpace extends Dictionary {
                                 patternColour.setPColorSpace(
                                         getColorSpace(library, tmp));
                             }
+                        } else if (tmp instanceof Name || tmp instanceof List) {
+                            // underlying space of an uncoloured pattern, [/Pattern /DeviceRGB].
+                            patternColour.setPColorSpace(getColorSpace(library, tmp));
                         } else {
                             patternColour.setPColorSpace(
                                     getColorSpace(library,
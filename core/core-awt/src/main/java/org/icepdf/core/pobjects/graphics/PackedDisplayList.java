@@ -0,0 +1,674 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.pobjects.graphics;
+
+import org.icepdf.core.pobjects.Page;
+import org.icepdf.core.pobjects.graphics.commands.*;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Compact encoding of a Shapes draw command list.  The common commands,
+ * shape, fill, draw, colour, transform and clip, are stored as an opcode
+ * byte stream with their operands held in primitive arrays:
+ * <ul>
+ * <li>GeneralPath geometry is copied into one shared segment type and
+ * coordinate buffer, a path referenced by several commands is stored
+ * once.</li>
+ * <li>Colours are de-duplicated by value.</li>
+ * <li>Transforms are stored as six doubles.</li>
+ * </ul>
+ * Any other command, text sprites, images, forms and so on, is kept as a
+ * reference and painted as is.
+ * <br>
+ * The list is immutable.  Commands can be read in place with a
+ * {@link Reader} or the read only {@link #asList()} view, which decode a
+ * command only when it's asked for, {@link #unpack()} rebuilds an
+ * equivalent DrawCmd list for code that needs to modify it.
+ *
+ * @since 6.3
+ */
+public class PackedDisplayList {
+
+    private static final byte OP_COMMAND = 0;
+    private static final byte OP_PATH = 1;
+    private static final byte OP_SHAPE = 2;
+    private static final byte OP_FILL = 3;
+    private static final byte OP_DRAW = 4;
+    private static final byte OP_COLOR = 5;
+    private static final byte OP_TRANSFORM = 6;
+    private static final byte OP_CLIP = 7;
+    private static final byte OP_NO_CLIP = 8;
+
+    // the stateless commands are shared for painting.
+    private static final FillDrawCmd FILL_CMD = new FillDrawCmd();
+    private static final DrawDrawCmd DRAW_CMD = new DrawDrawCmd();
+    private static final ClipDrawCmd CLIP_CMD = new ClipDrawCmd();
+    private static final NoClipDrawCmd NO_CLIP_CMD = new NoClipDrawCmd();
+
+    private static final int[] SEGMENT_COORDS = {2, 2, 4, 6, 0};
+
+    // operand position is recorded every 256 commands for random access.
+    private static final int CHECKPOINT_SHIFT = 8;
+    private static final int CHECKPOINT_INTERVAL = 1 << CHECKPOINT_SHIFT;
+
+    // one opcode per command.
+    private final byte[] opcodes;
+    // operand of each opcode that has one, read in sequence.
+    private final int[] operands;
+    // draw commands, shapes and colours which aren't packed.
+    private final Object[] references;
+    private final double[] transforms;
+    // path geometry, path i covers segments pathSegments[i] to
+    // pathSegments[i + 1] and coordinates pathCoords[i] to pathCoords[i + 1]
+    private final byte[] segmentTypes;
+    private final float[] coords;
+    private final int[] pathSegments;
+    private final int[] pathCoords;
+    private final byte[] windingRules;
+    private final float[] pathBounds;
+    // operand index of every CHECKPOINT_INTERVAL'th command.
+    private final int[] operandCheckpoints;
+
+    private PackedDisplayList(Builder builder) {
+        opcodes = Arrays.copyOf(builder.opcodes, builder.opcodeCount);
+        operands = Arrays.copyOf(builder.operands, builder.operandCount);
+        references = builder.references.toArray();
+        transforms = Arrays.copyOf(builder.transforms, builder.transformCount);
+        segmentTypes = Arrays.copyOf(builder.segmentTypes, builder.segmentCount);
+        coords = Arrays.copyOf(builder.coords, builder.coordCount);
+        int pathCount = builder.pathCount;
+        pathSegments = Arrays.copyOf(builder.pathSegments, pathCount + 1);
+        pathCoords = Arrays.copyOf(builder.pathCoords, pathCount + 1);
+        windingRules = Arrays.copyOf(builder.windingRules, pathCount);
+        pathBounds = Arrays.copyOf(builder.pathBounds, pathCount * 4);
+        operandCheckpoints = new int[(opcodes.length >> CHECKPOINT_SHIFT) + 1];
+        for (int i = 0, operand = 0; i < opcodes.length; i++) {
+            if ((i & (CHECKPOINT_INTERVAL - 1)) == 0) {
+                operandCheckpoints[i >> CHECKPOINT_SHIFT] = operand;
+            }
+            if (hasOperand(opcodes[i])) {
+                operand++;
+            }
+        }
+    }
+
+    private static boolean hasOperand(byte opcode) {
+        return opcode == OP_COMMAND || opcode == OP_PATH || opcode == OP_SHAPE ||
+                opcode == OP_COLOR || opcode == OP_TRANSFORM;
+    }
+
+    /**
+     * Packs the given draw commands.
+     *
+     * @param drawCmds draw commands to pack, not modified.
+     * @return packed equivalent of the command list.
+     */
+    public static PackedDisplayList pack(List<DrawCmd> drawCmds) {
+        Builder builder = new Builder(drawCmds.size());
+        for (DrawCmd drawCmd : drawCmds) {
+            builder.add(drawCmd);
+        }
+        return new PackedDisplayList(builder);
+    }
+
+    /**
+     * Gets the number of draw commands in the list.
+     *
+     * @return command count.
+     */
+    public int size() {
+        return opcodes.length;
+    }
+
+    /**
+     * Gets the draw commands, shapes and colours which are held as object
+     * references rather then packed.
+     *
+     * @return referenced objects in the order they were first added.
+     */
+    public List<Object> getReferences() {
+        return Collections.unmodifiableList(Arrays.asList(references));
+    }
+
+    /**
+     * Estimates the number of bytes retained by the packed arrays, not
+     * counting the referenced objects.
+     *
+     * @return approximate retained size in bytes.
+     */
+    public long getPackedSize() {
+        return opcodes.length + operands.length * 4L + references.length * 4L +
+                transforms.length * 8L + segmentTypes.length + coords.length * 4L +
+                pathSegments.length * 4L + pathCoords.length * 4L +
+                windingRules.length + pathBounds.length * 4L +
+                operandCheckpoints.length * 4L;
+    }
+
+    /**
+     * Gets the draw command at the given position.  Packed commands are
+     * decoded into a new command object on each call, paths are returned as
+     * a read only Shape over the packed geometry.
+     *
+     * @param index command position.
+     * @return draw command at the position.
+     */
+    public DrawCmd get(int index) {
+        return new Reader().get(index);
+    }
+
+    /**
+     * Gets a read only list view of the commands that decodes each command as
+     * it's accessed, see {@link #get(int)}.  Iterating the view is linear in
+     * the list size.
+     *
+     * @return unmodifiable view of the draw commands.
+     */
+    public List<DrawCmd> asList() {
+        return new AbstractList<DrawCmd>() {
+            @Override
+            public DrawCmd get(int index) {
+                return PackedDisplayList.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return opcodes.length;
+            }
+
+            @Override
+            public Iterator<DrawCmd> iterator() {
+                return new Iterator<DrawCmd>() {
+                    private final Reader reader = new Reader();
+                    private int next;
+
+                    public boolean hasNext() {
+                        return next < opcodes.length;
+                    }
+
+                    public DrawCmd next() {
+                        if (next >= opcodes.length) {
+                            throw new NoSuchElementException();
+                        }
+                        return reader.get(next++);
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Replays the list to the graphics context, equivalent to calling
+     * paintOperand on each of the unpacked commands in turn.
+     */
+    public void paint(Graphics2D g, Page parentPage, Shape clip, AffineTransform base,
+                      OptionalContentState optionalContentState, boolean paintAlpha,
+                      PaintTimer paintTimer) throws InterruptedException {
+        AffineTransform transform = new AffineTransform();
+        AffineTransform matrix = new AffineTransform();
+        Shape previousShape = null;
+        int operand = 0;
+        for (int i = 0, max = opcodes.length; i < max; i++) {
+            // try and minimize interrupted checks, costly.
+            if (i % 1000 == 0 && Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("Page painting thread interrupted");
+            }
+            switch (opcodes[i]) {
+                case OP_COMMAND:
+                    previousShape = ((DrawCmd) references[operands[operand++]]).paintOperand(
+                            g, parentPage, previousShape, clip, base,
+                            optionalContentState, paintAlpha, paintTimer);
+                    break;
+                case OP_PATH:
+                    previousShape = new PackedPath(this, operands[operand++]);
+                    break;
+                case OP_SHAPE:
+                    previousShape = (Shape) references[operands[operand++]];
+                    break;
+                case OP_FILL:
+                    previousShape = FILL_CMD.paintOperand(g, parentPage, previousShape, clip,
+                            base, optionalContentState, paintAlpha, paintTimer);
+                    break;
+                case OP_DRAW:
+                    previousShape = DRAW_CMD.paintOperand(g, parentPage, previousShape, clip,
+                            base, optionalContentState, paintAlpha, paintTimer);
+                    break;
+                case OP_COLOR:
+                    g.setColor((Color) references[operands[operand++]]);
+                    break;
+                case OP_TRANSFORM:
+                    int offset = operands[operand++];
+                    matrix.setTransform(
+                            transforms[offset], transforms[offset + 1],
+                            transforms[offset + 2], transforms[offset + 3],
+                            transforms[offset + 4], transforms[offset + 5]);
+                    transform.setTransform(base);
+                    transform.concatenate(matrix);
+                    g.setTransform(transform);
+                    break;
+                case OP_CLIP:
+                    previousShape = CLIP_CMD.paintOperand(g, parentPage, previousShape, clip,
+                            base, optionalContentState, paintAlpha, paintTimer);
+                    break;
+                case OP_NO_CLIP:
+                    previousShape = NO_CLIP_CMD.paintOperand(g, parentPage, previousShape, clip,
+                            base, optionalContentState, paintAlpha, paintTimer);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the draw command list.  Paths shared by several commands are
+     * rebuilt as a single GeneralPath instance.
+     *
+     * @return new draw command list.
+     */
+    public ArrayList<DrawCmd> unpack() {
+        ArrayList<DrawCmd> drawCmds = new ArrayList<DrawCmd>(opcodes.length);
+        GeneralPath[] paths = new GeneralPath[windingRules.length];
+        int operand = 0;
+        for (byte opcode : opcodes) {
+            switch (opcode) {
+                case OP_COMMAND:
+                    drawCmds.add((DrawCmd) references[operands[operand++]]);
+                    break;
+                case OP_PATH:
+                    int path = operands[operand++];
+                    if (paths[path] == null) {
+                        paths[path] = new GeneralPath(new PackedPath(this, path));
+                    }
+                    drawCmds.add(new ShapeDrawCmd(paths[path]));
+                    break;
+                case OP_SHAPE:
+                    drawCmds.add(new ShapeDrawCmd((Shape) references[operands[operand++]]));
+                    break;
+                case OP_FILL:
+                    drawCmds.add(new FillDrawCmd());
+                    break;
+                case OP_DRAW:
+                    drawCmds.add(new DrawDrawCmd());
+                    break;
+                case OP_COLOR:
+                    drawCmds.add(new ColorDrawCmd((Color) references[operands[operand++]]));
+                    break;
+                case OP_TRANSFORM:
+                    int offset = operands[operand++];
+                    drawCmds.add(new TransformDrawCmd(new AffineTransform(
+                            transforms[offset], transforms[offset + 1],
+                            transforms[offset + 2], transforms[offset + 3],
+                            transforms[offset + 4], transforms[offset + 5])));
+                    break;
+                case OP_CLIP:
+                    drawCmds.add(new ClipDrawCmd());
+                    break;
+                case OP_NO_CLIP:
+                    drawCmds.add(new NoClipDrawCmd());
+                    break;
+            }
+        }
+        return drawCmds;
+    }
+
+    /**
+     * Reads commands in place.  Reading forward from the last position read
+     * only walks the opcodes in between, any other position starts from the
+     * nearest operand checkpoint, so reading a sorted set of positions, such
+     * as the commands a {@link DisplayListIndex} query returns, costs about
+     * the same as a replay of the commands read.  A reader isn't thread safe.
+     */
+    public class Reader {
+
+        // next command and the operand index it reads from.
+        private int command;
+        private int operand;
+
+        /**
+         * Gets the draw command at the given position, see
+         * {@link PackedDisplayList#get(int)}.
+         *
+         * @param index command position.
+         * @return draw command at the position.
+         */
+        public DrawCmd get(int index) {
+            if (index < 0 || index >= opcodes.length) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + opcodes.length);
+            }
+            seek(index);
+            byte opcode = opcodes[index];
+            int value = hasOperand(opcode) ? operands[operand] : 0;
+            DrawCmd drawCmd;
+            switch (opcode) {
+                case OP_COMMAND:
+                    drawCmd = (DrawCmd) references[value];
+                    break;
+                case OP_PATH:
+                    drawCmd = new ShapeDrawCmd(new PackedPath(PackedDisplayList.this, value));
+                    break;
+                case OP_SHAPE:
+                    drawCmd = new ShapeDrawCmd((Shape) references[value]);
+                    break;
+                case OP_FILL:
+                    drawCmd = FILL_CMD;
+                    break;
+                case OP_DRAW:
+                    drawCmd = DRAW_CMD;
+                    break;
+                case OP_COLOR:
+                    drawCmd = new ColorDrawCmd((Color) references[value]);
+                    break;
+                case OP_TRANSFORM:
+                    drawCmd = new TransformDrawCmd(new AffineTransform(
+                            transforms[value], transforms[value + 1],
+                            transforms[value + 2], transforms[value + 3],
+                            transforms[value + 4], transforms[value + 5]));
+                    break;
+                case OP_CLIP:
+                    drawCmd = CLIP_CMD;
+                    break;
+                default:
+                    drawCmd = NO_CLIP_CMD;
+                    break;
+            }
+            return drawCmd;
+        }
+
+        private void seek(int index) {
+            if (index < command || index - command > CHECKPOINT_INTERVAL) {
+                command = index & ~(CHECKPOINT_INTERVAL - 1);
+                operand = operandCheckpoints[index >> CHECKPOINT_SHIFT];
+            }
+            for (; command < index; command++) {
+                if (hasOperand(opcodes[command])) {
+                    operand++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Accumulates the packed arrays, growing them as needed.
+     */
+    private static class Builder {
+
+        private byte[] opcodes;
+        private int opcodeCount;
+        private int[] operands;
+        private int operandCount;
+        private ArrayList<Object> references = new ArrayList<Object>();
+        private IdentityHashMap<Object, Integer> referenceIndex = new IdentityHashMap<Object, Integer>();
+        private HashMap<Color, Integer> colorIndex = new HashMap<Color, Integer>();
+        private double[] transforms = new double[60];
+        private int transformCount;
+
+        private IdentityHashMap<GeneralPath, Integer> pathIndex = new IdentityHashMap<GeneralPath, Integer>();
+        private byte[] segmentTypes = new byte[256];
+        private int segmentCount;
+        private float[] coords = new float[512];
+        private int coordCount;
+        private int[] pathSegments = new int[65];
+        private int[] pathCoords = new int[65];
+        private byte[] windingRules = new byte[64];
+        private float[] pathBounds = new float[256];
+        private int pathCount;
+        private float[] segment = new float[6];
+        private double[] matrix = new double[6];
+
+        Builder(int size) {
+            opcodes = new byte[Math.max(size, 16)];
+            operands = new int[Math.max(size, 16)];
+        }
+
+        void add(DrawCmd drawCmd) {
+            Class<?> type = drawCmd.getClass();
+            if (type == ShapeDrawCmd.class) {
+                Shape shape = ((ShapeDrawCmd) drawCmd).getShape();
+                if (shape != null && shape.getClass() == GeneralPath.class) {
+                    addOpcode(OP_PATH, addPath((GeneralPath) shape));
+                } else {
+                    addOpcode(OP_SHAPE, addReference(shape));
+                }
+            } else if (type == FillDrawCmd.class) {
+                addOpcode(OP_FILL);
+            } else if (type == DrawDrawCmd.class) {
+                addOpcode(OP_DRAW);
+            } else if (type == ClipDrawCmd.class) {
+                addOpcode(OP_CLIP);
+            } else if (type == NoClipDrawCmd.class) {
+                addOpcode(OP_NO_CLIP);
+            } else if (type == ColorDrawCmd.class &&
+                    ((ColorDrawCmd) drawCmd).getColor() != null &&
+                    ((ColorDrawCmd) drawCmd).getColor().getClass() == Color.class) {
+                addOpcode(OP_COLOR, addColor(((ColorDrawCmd) drawCmd).getColor()));
+            } else if (type == TransformDrawCmd.class &&
+                    ((TransformDrawCmd) drawCmd).getAffineTransform() != null) {
+                addOpcode(OP_TRANSFORM, addTransform(((TransformDrawCmd) drawCmd).getAffineTransform()));
+            } else {
+                addOpcode(OP_COMMAND, addReference(drawCmd));
+            }
+        }
+
+        private void addOpcode(byte opcode) {
+            if (opcodeCount == opcodes.length) {
+                opcodes = Arrays.copyOf(opcodes, opcodeCount * 2);
+            }
+            opcodes[opcodeCount++] = opcode;
+        }
+
+        private void addOpcode(byte opcode, int operand) {
+            addOpcode(opcode);
+            if (operandCount == operands.length) {
+                operands = Arrays.copyOf(operands, operandCount * 2);
+            }
+            operands[operandCount++] = operand;
+        }
+
+        private int addReference(Object object) {
+            Integer index = referenceIndex.get(object);
+            if (index == null) {
+                index = references.size();
+                references.add(object);
+                referenceIndex.put(object, index);
+            }
+            return index;
+        }
+
+        private int addColor(Color color) {
+            Integer index = colorIndex.get(color);
+            if (index == null) {
+                index = references.size();
+                references.add(color);
+                colorIndex.put(color, index);
+            }
+            return index;
+        }
+
+        private int addTransform(AffineTransform affineTransform) {
+            if (transformCount + 6 > transforms.length) {
+                transforms = Arrays.copyOf(transforms, transforms.length * 2);
+            }
+            int offset = transformCount;
+            affineTransform.getMatrix(matrix);
+            System.arraycopy(matrix, 0, transforms, offset, 6);
+            transformCount += 6;
+            return offset;
+        }
+
+        private int addPath(GeneralPath path) {
+            Integer index = pathIndex.get(path);
+            if (index != null) {
+                return index;
+            }
+            index = pathCount;
+            if (pathCount + 1 == windingRules.length) {
+                int length = windingRules.length * 2;
+                windingRules = Arrays.copyOf(windingRules, length);
+                pathSegments = Arrays.copyOf(pathSegments, length + 1);
+                pathCoords = Arrays.copyOf(pathCoords, length + 1);
+                pathBounds = Arrays.copyOf(pathBounds, length * 4);
+            }
+            pathSegments[pathCount] = segmentCount;
+            pathCoords[pathCount] = coordCount;
+            windingRules[pathCount] = (byte) path.getWindingRule();
+            for (PathIterator iterator = path.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+                int segmentType = iterator.currentSegment(segment);
+                int count = SEGMENT_COORDS[segmentType];
+                if (segmentCount == segmentTypes.length) {
+                    segmentTypes = Arrays.copyOf(segmentTypes, segmentCount * 2);
+                }
+                if (coordCount + count > coords.length) {
+                    coords = Arrays.copyOf(coords, Math.max(coords.length * 2, coordCount + count));
+                }
+                segmentTypes[segmentCount++] = (byte) segmentType;
+                System.arraycopy(segment, 0, coords, coordCount, count);
+                coordCount += count;
+            }
+            Rectangle2D bounds = path.getBounds2D();
+            int boundsOffset = pathCount * 4;
+            pathBounds[boundsOffset] = (float) bounds.getX();
+            pathBounds[boundsOffset + 1] = (float) bounds.getY();
+            pathBounds[boundsOffset + 2] = (float) bounds.getWidth();
+            pathBounds[boundsOffset + 3] = (float) bounds.getHeight();
+            pathCount++;
+            pathSegments[pathCount] = segmentCount;
+            pathCoords[pathCount] = coordCount;
+            pathIndex.put(path, index);
+            return index;
+        }
+    }
+
+    /**
+     * Read only Shape view of a path stored in the shared geometry buffers.
+     */
+    private static class PackedPath implements Shape {
+
+        private final PackedDisplayList list;
+        private final int path;
+
+        PackedPath(PackedDisplayList list, int path) {
+            this.list = list;
+            this.path = path;
+        }
+
+        public Rectangle getBounds() {
+            return getBounds2D().getBounds();
+        }
+
+        public Rectangle2D getBounds2D() {
+            int offset = path * 4;
+            float[] bounds = list.pathBounds;
+            return new Rectangle2D.Float(bounds[offset], bounds[offset + 1],
+                    bounds[offset + 2], bounds[offset + 3]);
+        }
+
+        public boolean contains(double x, double y) {
+            return Path2D.contains(getPathIterator(null), x, y);
+        }
+
+        public boolean contains(Point2D p) {
+            return contains(p.getX(), p.getY());
+        }
+
+        public boolean intersects(double x, double y, double w, double h) {
+            return Path2D.intersects(getPathIterator(null), x, y, w, h);
+        }
+
+        public boolean intersects(Rectangle2D r) {
+            return intersects(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+        }
+
+        public boolean contains(double x, double y, double w, double h) {
+            return Path2D.contains(getPathIterator(null), x, y, w, h);
+        }
+
+        public boolean contains(Rectangle2D r) {
+            return contains(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+        }
+
+        public PathIterator getPathIterator(AffineTransform at) {
+            return new PackedPathIterator(list, path, at);
+        }
+
+        public PathIterator getPathIterator(AffineTransform at, double flatness) {
+            return new FlatteningPathIterator(getPathIterator(at), flatness);
+        }
+    }
+
+    private static class PackedPathIterator implements PathIterator {
+
+        private final byte[] segmentTypes;
+        private final float[] coords;
+        private final int windingRule;
+        private final int end;
+        private final AffineTransform transform;
+        private int segment;
+        private int coord;
+
+        PackedPathIterator(PackedDisplayList list, int path, AffineTransform transform) {
+            segmentTypes = list.segmentTypes;
+            coords = list.coords;
+            windingRule = list.windingRules[path];
+            segment = list.pathSegments[path];
+            end = list.pathSegments[path + 1];
+            coord = list.pathCoords[path];
+            this.transform = transform;
+        }
+
+        public int getWindingRule() {
+            return windingRule;
+        }
+
+        public boolean isDone() {
+            return segment >= end;
+        }
+
+        public void next() {
+            coord += SEGMENT_COORDS[segmentTypes[segment]];
+            segment++;
+        }
+
+        public int currentSegment(float[] coords) {
+            int type = segmentTypes[segment];
+            int count = SEGMENT_COORDS[type];
+            if (transform != null) {
+                transform.transform(this.coords, coord, coords, 0, count / 2);
+            } else {
+                System.arraycopy(this.coords, coord, coords, 0, count);
+            }
+            return type;
+        }
+
+        public int currentSegment(double[] coords) {
+            int type = segmentTypes[segment];
+            int count = SEGMENT_COORDS[type];
+            if (transform != null) {
+                transform.transform(this.coords, coord, coords, 0, count / 2);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    coords[i] = this.coords[coord + i];
+                }
+            }
+            return type;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package org.icepdf.core.pobjects.graphics.RasterOps;
+
+import org.icepdf.core.pobjects.graphics.DeviceCMYK;
+import org.icepdf.core.util.Defs;
+
+import java.awt.color.ColorSpace;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Colour lookup table for converting 8 bit CMYK samples to RGB with an ICC
+ * colour profile.
+ * <br>
+ * ICC_ColorSpace.toRGB() is accurate but very slow when called for every pixel
+ * of a large image.  This class samples the profile once on a regular 4D grid
+ * and converts pixels using tetrahedral (simplex) interpolation between the
+ * five grid points that enclose each sample, all in integer arithmetic.
+ * Large rasters are split into bands of rows that are converted on the
+ * fork-join common pool.
+ * <br>
+ * Building a table takes a few thousand toRGB() calls so tables are cached
+ * per colour space and only built for images with more pixels then grid
+ * points.  The lookup tables can be disabled with the system property
+ * org.icepdf.core.cmyk.lookupTable.enabled=false.
+ *
+ * @since 6.3
+ */
+public class CmykLookupTable {
+
+    private static final Logger logger =
+            Logger.getLogger(CmykLookupTable.class.toString());
+
+    private static boolean enabled;
+
+    // number of pixels converted by a single fork-join task.
+    private static int parallelThreshold;
+
+    static {
+        enabled = Defs.booleanProperty("org.icepdf.core.cmyk.lookupTable.enabled", true);
+        parallelThreshold = Defs.intProperty("org.icepdf.core.cmyk.lookupTable.parallelThreshold", 65536);
+    }
+
+    // grid points along each axis, samples 0, 16, 32 ... 255.
+    private static final int GRID_SIZE = 17;
+    private static final int GRID_POINTS = GRID_SIZE * GRID_SIZE * GRID_SIZE * GRID_SIZE;
+
+    // fixed point precision of the interpolation weights.
+    private static final int FRACTION_BITS = 12;
+    private static final int FRACTION_ONE = 1 << FRACTION_BITS;
+
+    // grid cell and fraction of each sample value, shared by all tables.
+    private static final int[] SAMPLE_CELL = new int[256];
+    private static final int[] SAMPLE_FRACTION = new int[256];
+
+    static {
+        int cells = GRID_SIZE - 1;
+        for (int sample = 0; sample < 256; sample++) {
+            double position = sample * cells / 255.0;
+            int cell = Math.min((int) position, cells - 1);
+            SAMPLE_CELL[sample] = cell;
+            SAMPLE_FRACTION[sample] = (int) Math.round((position - cell) * FRACTION_ONE);
+        }
+    }
+
+    // table for the DeviceCMYK profile, created on first use.
+    private static CmykLookupTable deviceCmykTable;
+    private static boolean deviceCmykTableFailed;
+
+    // tables for embedded ICCBased profiles.
+    private static final Map<ColorSpace, CmykLookupTable> tables =
+            new WeakHashMap<ColorSpace, CmykLookupTable>();
+
+    // packed rgb of each grid point, cyan varies slowest.
+    private final int[] table;
+
+    private CmykLookupTable(int[] table) {
+        this.table = table;
+    }
+
+    /**
+     * Gets the lookup table for the DeviceCMYK ICC colour profile.
+     *
+     * @param pixelCount number of pixels to be converted, the table is only
+     *                   built if it's faster then converting each pixel.
+     * @return lookup table, null if the table is disabled, the profile can't be
+     * loaded or the image is too small to be worth building the table.
+     */
+    public static synchronized CmykLookupTable getDeviceCmykInstance(int pixelCount) {
+        if (!enabled || deviceCmykTableFailed) {
+            return null;
+        }
+        if (deviceCmykTable == null && pixelCount > GRID_POINTS) {
+            ColorSpace colorSpace = DeviceCMYK.getIccCmykColorSpace();
+            deviceCmykTable = colorSpace != null ? createTable(colorSpace) : null;
+            deviceCmykTableFailed = deviceCmykTable == null;
+        }
+        return deviceCmykTable;
+    }
+
+    /**
+     * Gets the lookup table for a four component ICC colour space such as the
+     * colour space of a ICCBased CMYK profile.
+     *
+     * @param colorSpace four component colour space.
+     * @param pixelCount number of pixels to be converted, the table is only
+     *                   built if it's faster then converting each pixel.
+     * @return lookup table, null if the table is disabled, the colour space
+     * can't be sampled or the image is too small to be worth building the table.
+     */
+    public static synchronized CmykLookupTable getInstance(ColorSpace colorSpace, int pixelCount) {
+        if (!enabled || colorSpace == null || colorSpace.getNumComponents() != 4) {
+            return null;
+        }
+        CmykLookupTable lookupTable = tables.get(colorSpace);
+        if (lookupTable == null && !tables.containsKey(colorSpace) && pixelCount > GRID_POINTS) {
+            lookupTable = createTable(colorSpace);
+            // remember failures so we don't try again for every image.
+            tables.put(colorSpace, lookupTable);
+        }
+        return lookupTable;
+    }
+
+    private static CmykLookupTable createTable(ColorSpace colorSpace) {
+        try {
+            int[] table = new int[GRID_POINTS];
+            float[] cmyk = new float[4];
+            float max = GRID_SIZE - 1;
+            int index = 0;
+            for (int c = 0; c < GRID_SIZE; c++) {
+                cmyk[0] = c / max;
+                for (int m = 0; m < GRID_SIZE; m++) {
+                    cmyk[1] = m / max;
+                    for (int y = 0; y < GRID_SIZE; y++) {
+                        cmyk[2] = y / max;
+                        for (int k = 0; k < GRID_SIZE; k++) {
+                            cmyk[3] = k / max;
+                            float[] rgb = colorSpace.toRGB(cmyk);
+                            table[index++] = (toByte(rgb[0]) << 16) | (toByte(rgb[1]) << 8) | toByte(rgb[2]);
+                        }
+                    }
+                }
+            }
+            return new CmykLookupTable(table);
+        } catch (Throwable e) {
+            logger.log(Level.WARNING, "Error creating CMYK colour lookup table.", e);
+        }
+        return null;
+    }
+
+    private static int toByte(float value) {
+        int result = Math.round(value * 255);
+        return result < 0 ? 0 : result > 255 ? 255 : result;
+    }
+
+    /**
+     * Converts interleaved 8 bit CMYK samples to opaque RGB pixels.  Samples
+     * with more then four bands only use the first four.
+     *
+     * @param src    interleaved CMYK samples.
+     * @param bands  number of samples per pixel, at least four.
+     * @param invert true if the samples should be inverted, for a [1 0] decode.
+     * @param dest   packed RGB destination.
+     * @param width  image width.
+     * @param height image height.
+     */
+    public void convert(byte[] src, int bands, boolean invert, int[] dest, int width, int height) {
+        // inline images can be short a few bytes, only convert what we have.
+        int pixelCount = Math.min(Math.min(src.length / bands, dest.length), width * height);
+        if (pixelCount <= 0) {
+            return;
+        }
+        int rows = (pixelCount + width - 1) / width;
+        ConvertTask task = new ConvertTask(src, bands, invert ? 0xff : 0, dest,
+                width, pixelCount, 0, rows);
+        if (pixelCount > parallelThreshold) {
+            ForkJoinPool.commonPool().invoke(task);
+        } else {
+            task.compute();
+        }
+    }
+
+    private void convert(byte[] src, int bands, int invertMask, int[] dest, int start, int end) {
+        int[] table = this.table;
+        int[] strides = new int[4];
+        int[] fractions = new int[4];
+        int lastCmyk = -1;
+        int lastRgb = 0;
+        for (int pixel = start, offset = start * bands; pixel < end; pixel++, offset += bands) {
+            int c = (src[offset] & 0xff) ^ invertMask;
+            int m = (src[offset + 1] & 0xff) ^ invertMask;
+            int y = (src[offset + 2] & 0xff) ^ invertMask;
+            int k = (src[offset + 3] & 0xff) ^ invertMask;
+            int cmyk = (c << 24) | (m << 16) | (y << 8) | k;
+            // runs of the same colour are common, skip the interpolation.
+            if (cmyk == lastCmyk && pixel > start) {
+                dest[pixel] = lastRgb;
+                continue;
+            }
+            int base = ((SAMPLE_CELL[c] * GRID_SIZE + SAMPLE_CELL[m]) * GRID_SIZE +
+                    SAMPLE_CELL[y]) * GRID_SIZE + SAMPLE_CELL[k];
+            fractions[0] = SAMPLE_FRACTION[c];
+            strides[0] = GRID_SIZE * GRID_SIZE * GRID_SIZE;
+            fractions[1] = SAMPLE_FRACTION[m];
+            strides[1] = GRID_SIZE * GRID_SIZE;
+            fractions[2] = SAMPLE_FRACTION[y];
+            strides[2] = GRID_SIZE;
+            fractions[3] = SAMPLE_FRACTION[k];
+            strides[3] = 1;
+            // order the axes by descending fraction, which picks the simplex
+            // of the grid cell that contains the sample.
+            for (int i = 1; i < 4; i++) {
+                int fraction = fractions[i];
+                int stride = strides[i];
+                int j = i - 1;
+                while (j >= 0 && fractions[j] < fraction) {
+                    fractions[j + 1] = fractions[j];
+                    strides[j + 1] = strides[j];
+                    j--;
+                }
+                fractions[j + 1] = fraction;
+                strides[j + 1] = stride;
+            }
+            // walk from the cell's base corner to its far corner one axis at
+            // a time, weighting each vertex by the difference in fractions.
+            int vertex = base;
+            int weight = FRACTION_ONE - fractions[0];
+            int rgb = table[vertex];
+            int r = weight * ((rgb >> 16) & 0xff);
+            int g = weight * ((rgb >> 8) & 0xff);
+            int b = weight * (rgb & 0xff);
+            for (int i = 0; i < 4; i++) {
+                vertex += strides[i];
+                weight = i < 3 ? fractions[i] - fractions[i + 1] : fractions[3];
+                if (weight != 0) {
+                    rgb = table[vertex];
+                    r += weight * ((rgb >> 16) & 0xff);
+                    g += weight * ((rgb >> 8) & 0xff);
+                    b += weight * (rgb & 0xff);
+                }
+            }
+            int half = FRACTION_ONE >> 1;
+            lastRgb = 0xff000000 |
+                    (((r + half) >> FRACTION_BITS) << 16) |
+                    (((g + half) >> FRACTION_BITS) << 8) |
+                    ((b + half) >> FRACTION_BITS);
+            lastCmyk = cmyk;
+            dest[pixel] = lastRgb;
+        }
+    }
+
+    /**
+     * Converts a band of rows, splitting it in half until it's small enough
+     * to convert directly.
+     */
+    @SuppressWarnings("serial")
+    private class ConvertTask extends RecursiveAction {
+
+        private final byte[] src;
+        private final int bands;
+        private final int invertMask;
+        private final int[] dest;
+        private final int width;
+        private final int pixelCount;
+        private final int firstRow;
+        private final int lastRow;
+
+        ConvertTask(byte[] src, int bands, int invertMask, int[] dest, int width,
+                    int pixelCount, int firstRow, int lastRow) {
+            this.src = src;
+            this.bands = bands;
+            this.invertMask = invertMask;
+            this.dest = dest;
+            this.width = width;
+            this.pixelCount = pixelCount;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = lastRow - firstRow;
+            if (rows > 1 && rows * width > parallelThreshold) {
+                int middle = firstRow + rows / 2;
+                invokeAll(new ConvertTask(src, bands, invertMask, dest, width, pixelCount, firstRow, middle),
+                        new ConvertTask(src, bands, invertMask, dest, width, pixelCount, middle, lastRow));
+            } else {
+                int start = firstRow * width;
+                int end = Math.min(lastRow * width, pixelCount);
+                convert(src, bands, invertMask, dest, start, end);
+            }
+        }
+    }
+}
@@ -12,18 +12,34 @@ import java.awt.image.*;
  * Raster operation for converting a CMYK colour to RGB using an ICC colour profile.
  * <br>
  * CC Color Profile for colour conversion is very accurate but it's also very slow.  Calls
- * to ColorConvertOp can be very slow.  This class attempts to use a colour cache to speed
- * up decoding on larger images.
+ * to ColorConvertOp can be very slow.  Larger images are converted with a
+ * CmykLookupTable sampled from the profile, smaller images fall back to calling
+ * toRGB() for each pixel.
  *
  * @since 6.2.3
  */
 public class IccCmykRasterOp implements RasterOp {
     private RenderingHints hints = null;
     private ColorSpace colorSpace;
+    // true if the colour space is the DeviceCMYK profile.
+    private boolean deviceCmyk;
 
     public IccCmykRasterOp(RenderingHints hints) {
         this.hints = hints;
-        this.colorSpace = DeviceCMYK.getIccCmykColorSpace();
+        this.deviceCmyk = true;
+    }
+
+    /**
+     * Creates a raster op that converts using the given four component colour
+     * space, usually the profile of an ICCBased colour space.
+     *
+     * @param colorSpace four component ICC colour space.
+     * @param hints      rendering hints, can be null.
+     * @since 6.3
+     */
+    public IccCmykRasterOp(ColorSpace colorSpace, RenderingHints hints) {
+        this.hints = hints;
+        this.colorSpace = colorSpace;
     }
 
     public WritableRaster filter(Raster src, WritableRaster dest) {
@@ -35,6 +51,21 @@ public class IccCmykRasterOp implements RasterOp {
         int[] destPixels = ((DataBufferInt) dest.getDataBuffer()).getData();
 
         int bands = src.getNumBands();
+
+        int width = dest.getWidth();
+        int height = dest.getHeight();
+        CmykLookupTable lookupTable = deviceCmyk ?
+                CmykLookupTable.getDeviceCmykInstance(width * height) :
+                CmykLookupTable.getInstance(colorSpace, width * height);
+        if (lookupTable != null && bands >= 4) {
+            lookupTable.convert(srcPixels, bands, false, destPixels, width, height);
+            return dest;
+        }
+        if (colorSpace == null) {
+            // only load the profile if we need to convert each pixel.
+            colorSpace = DeviceCMYK.getIccCmykColorSpace();
+        }
+
         float[] colorValue = new float[bands];
 
         float[] rgbColorValue;
@@ -1,7 +1,10 @@
 package org.icepdf.core.pobjects.graphics.RasterOps;
 
+import org.icepdf.core.pobjects.graphics.DeviceN;
 import org.icepdf.core.pobjects.graphics.DeviceRGB;
 import org.icepdf.core.pobjects.graphics.PColorSpace;
+import org.icepdf.core.pobjects.graphics.Separation;
+import org.icepdf.core.pobjects.graphics.TintLookupTable;
 
 import java.awt.*;
 import java.awt.geom.Point2D;
@@ -30,6 +33,14 @@ public class PColorSpaceRasterOp implements RasterOp {
         // may have to add some instance of checks
         byte[] srcPixels = ((DataBufferByte) src.getDataBuffer()).getData();
         int[] destPixels = ((DataBufferInt) dest.getDataBuffer()).getData();
+        // tint transforms are sampled once rather then for every pixel.
+        TintLookupTable lookupTable = null;
+        if ((colorSpace instanceof DeviceN || colorSpace instanceof Separation) &&
+                src.getNumBands() == colorSpace.getNumComponents() &&
+                src.getSampleModel().getSampleSize(0) == 8) {
+            lookupTable = TintLookupTable.getInstance(colorSpace, 8, false,
+                    src.getWidth() * src.getHeight());
+        }
 
         // already RGB not much to do so we just build the colour
         if (colorSpace instanceof DeviceRGB) {
@@ -47,6 +58,8 @@ public class PColorSpaceRasterOp implements RasterOp {
                         ((rgbValues[1] & 0xff) << 8) |
                         (rgbValues[2] & 0xff);
             }
+        } else if (lookupTable != null) {
+            lookupTable.convert(srcPixels, srcPixels.length, src.getWidth(), src.getHeight(), destPixels);
         } else {
             int bands = src.getNumBands();
             float[] values = new float[3];
@@ -72,12 +72,13 @@ public class ScaledImageReference extends CachedImageReference {
             image = imageReference.getImage();
         }
 
-        // kick off a new thread to load the image, if not already in pool.
-        ImagePool imagePool = imageStream.getLibrary().getImagePool();
-        if (useProxy && imagePool.get(reference) == null) {
+        // mip map levels share the stream's reference, keep them out of the
+        // pool so they don't replace the full size image.
+        pooled = false;
+        if (image == null && useProxy) {
             futureTask = new FutureTask<BufferedImage>(this);
             Library.executeImage(futureTask);
-        } else if (!useProxy && imagePool.get(reference) == null) {
+        } else if (image == null) {
             image = call();
         }
     }
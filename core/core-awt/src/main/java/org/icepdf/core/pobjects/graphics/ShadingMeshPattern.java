@@ -8,14 +8,16 @@ import org.icepdf.core.pobjects.functions.Function;
 import org.icepdf.core.util.Library;
 
 import java.awt.*;
-import java.awt.geom.Point2D;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Base class for Mesh shading types 4-7. Each subtype parses the shading vertex information slighly differently
  * but the decode and base parse for flag, coordinate and colour is the same.
+ * <br>
+ * The parsed triangles and patches are added to a MeshShadingPaint which rasterizes the mesh with Gouraud shading.
  *
  * @since 6.2
  */
@@ -26,12 +28,16 @@ public abstract class ShadingMeshPattern extends ShadingPattern implements Patte
 
     public static final Name BITS_PER_FLAG_KEY = new Name("BitsPerFlag");
     public static final Name BITS_PER_COORDINATE_KEY = new Name("BitsPerCoordinate");
+    public static final Name VERTICES_PER_ROW_KEY = new Name("VerticesPerRow");
 
     protected static final int DECODE_X_MIN = 0;
     protected static final int DECODE_X_MAX = 1;
     protected static final int DECODE_Y_MIN = 2;
     protected static final int DECODE_Y_MAX = 3;
 
+    // number of colours sampled from the function of a shading, vertices store t.
+    private static final int COLOR_TABLE_SIZE = 256;
+
     // (Required) The number of bits used to represent the edge flag for each vertex (see below). The value of
     // BitsPerFlag shall be 2, 4, or 8, but only the least significant 2 bits in each flag value shall be used.
     // The value for the edge flag shall be 0, 1, or 2.
@@ -50,12 +56,17 @@ public abstract class ShadingMeshPattern extends ShadingPattern implements Patte
     protected Stream meshDataStream;
 
     // converted decode data to simply process later on, taken from our DecodeRasterOp class.
+    // pairs of minimum value and scale for each coordinate and colour component.
     protected float[] decode;
 
+    // paint the mesh is added to.
+    protected MeshShadingPaint meshShadingPaint;
+
     public ShadingMeshPattern(Library l, HashMap h, Stream meshDataStream) {
         super(l, h);
         this.meshDataStream = meshDataStream;
         shadingDictionary = meshDataStream.getEntries();
+        shadingType = library.getInt(shadingDictionary, SHADING_TYPE_KEY);
         bitsPerFlag = library.getInt(shadingDictionary, BITS_PER_FLAG_KEY);
         bitsPerCoordinate = library.getInt(shadingDictionary, BITS_PER_COORDINATE_KEY);
         bitsPerComponent = library.getInt(shadingDictionary, ImageStream.BITSPERCOMPONENT_KEY);
@@ -77,10 +88,42 @@ public abstract class ShadingMeshPattern extends ShadingPattern implements Patte
             }
         }
         decode = processDecode();
+    }
+
+    /**
+     * Parses the mesh data stream and builds the mesh paint, the stream is only parsed once.
+     *
+     * @param graphicsState current graphics state.
+     */
+    public synchronized void init(GraphicsState graphicsState) {
+        if (inited) {
+            return;
+        }
+        meshShadingPaint = new MeshShadingPaint(matrix, createColorTable());
         vertexBitStream = new BitStream(meshDataStream.getDecodedByteArrayInputStream());
+        try {
+            readMesh();
+        } catch (IOException e) {
+            logger.warning("Error parsing Shading type " + shadingType + " pattern vertices.");
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Error building Shading type " + shadingType + " pattern mesh.", e);
+        }
+        inited = true;
     }
 
-    public abstract Paint getPaint() throws InterruptedException;
+    /**
+     * Reads the vertices or patches from the vertex bit stream and adds them to the mesh paint.
+     *
+     * @throws IOException bit stream issue.
+     */
+    protected abstract void readMesh() throws IOException;
+
+    public Paint getPaint() throws InterruptedException {
+        if (!inited) {
+            init(null);
+        }
+        return meshShadingPaint;
+    }
 
     /**
      * An array of numbers specifying how to map vertex coordinates and colour components into the
@@ -97,7 +140,7 @@ public abstract class ShadingMeshPattern extends ShadingPattern implements Patte
 
         java.util.List<Number> decodeVec = (java.util.List<Number>) library.getObject(shadingDictionary, ImageStream.DECODE_KEY);
 
-        float maxValue = bitsPerCoordinate < 32 ? (float) ((1 << bitsPerCoordinate) - 1) : (float) 2.3283064365386963e-10; // 2^-32;
+        float maxValue = bitsPerCoordinate < 32 ? (float) ((1 << bitsPerCoordinate) - 1) : 4294967295f; // 2^32 - 1
         for (int i = 0; i <= DECODE_Y_MAX; ) {
             float Dmin = decodeVec.get(i).floatValue();
             float Dmax = decodeVec.get(i + 1).floatValue();
@@ -114,6 +157,31 @@ public abstract class ShadingMeshPattern extends ShadingPattern implements Patte
         return decode;
     }
 
+    /**
+     * Samples the function over the decoded t range so vertices can store t and be mapped to a colour
+     * after interpolation.
+     *
+     * @return colour table, null if the shading doesn't have a function.
+     */
+    private int[] createColorTable() {
+        if (function == null) {
+            return null;
+        }
+        float tMin = decode[4];
+        float tRange = decode[5] * (((int) Math.pow(2, bitsPerComponent)) - 1);
+        int[] colorTable = new int[COLOR_TABLE_SIZE];
+        float[] input = new float[1];
+        for (int i = 0; i < COLOR_TABLE_SIZE; i++) {
+            input[0] = tMin + tRange * i / (COLOR_TABLE_SIZE - 1);
+            float[] output = calculateValues(input);
+            if (output != null) {
+                output = PColorSpace.reverse(output);
+                colorTable[i] = colorSpace.getColor(output, true).getRGB();
+            }
+        }
+        return colorTable;
+    }
+
     /**
      * Reads the vertex descriptor flag, length of flag is defined by the bitsPerFlag dictionary entry.
      *
@@ -121,53 +189,151 @@ public abstract class ShadingMeshPattern extends ShadingPattern implements Patte
      * @throws IOException bit stream issue.
      */
     protected int readFlag() throws IOException {
-        return vertexBitStream.getBits(bitsPerFlag);
+        return vertexBitStream.getBits(bitsPerFlag) & 3;
     }
 
     /**
      * Reads the vertex coordinate data, length of flag is defined by the bitsPerCoordinate dictionary entry.
      *
-     * @return int value of the vertex coordinate.
+     * @param points vertex coordinates, x and y are stored at index * 2.
+     * @param index  index of the vertex.
      * @throws IOException bit stream issue.
      */
-    protected Point2D.Float readCoord() throws IOException {
-        float x = vertexBitStream.getBits(bitsPerCoordinate);
-        float y = vertexBitStream.getBits(bitsPerCoordinate);
+    protected void readCoord(float[] points, int index) throws IOException {
+        float x = readBits(bitsPerCoordinate);
+        float y = readBits(bitsPerCoordinate);
         // normalize components to decode array
-        x *= decode[DECODE_X_MAX] - decode[DECODE_X_MIN] + decode[DECODE_X_MIN];
-        y *= decode[DECODE_Y_MAX] - decode[DECODE_Y_MIN] + decode[DECODE_Y_MIN];
-        return new Point2D.Float(x, y);
+        points[index * 2] = decode[DECODE_X_MIN] + x * decode[DECODE_X_MAX];
+        points[index * 2 + 1] = decode[DECODE_Y_MIN] + y * decode[DECODE_Y_MAX];
     }
 
     /**
      * Reads the vertex colour data, length of flag is defined by the colorSpaceCompCount dictionary entry.
-     * Color data is generate using the function if present as well as the defined colour space.
+     * Without a function the colour is converted to rgb, with a function the parametric value t is stored
+     * scaled to the colour table.
      *
-     * @return int value of the vertex colour.
+     * @param values vertex values, three values are stored at index * 3.
+     * @param index  index of the vertex.
      * @throws IOException bit stream issue.
      */
-    protected Color readColor() throws IOException {
-        float[] primitives;
+    protected void readColor(float[] values, int index) throws IOException {
+        int offset = index * 3;
         if (function == null) {
-            primitives = new float[colorSpaceCompCount];
+            float[] primitives = new float[colorSpaceCompCount];
             for (int i = 0, j = 4; i < colorSpaceCompCount; i++, j += 2) {
-                primitives[i] = vertexBitStream.getBits(bitsPerComponent);
                 // normalize
-                primitives[i] *= decode[j + 1] - decode[j] + decode[j];
+                primitives[i] = decode[j] + readBits(bitsPerComponent) * decode[j + 1];
             }
             primitives = PColorSpace.reverse(primitives);
-            return colorSpace.getColor(primitives, true);
+            Color color = colorSpace.getColor(primitives, true);
+            values[offset] = color.getRed();
+            values[offset + 1] = color.getGreen();
+            values[offset + 2] = color.getBlue();
         } else {
-            float value = vertexBitStream.getBits(bitsPerComponent);
-            // normalize
-            value *= (decode[5] - decode[4]) + decode[4];
-            primitives = new float[]{value};
-            float[] output = calculateValues(primitives);
-            if (output != null) {
-                output = PColorSpace.reverse(output);
-                return colorSpace.getColor(output, true);
+            // t scaled over the decode range.
+            float maxValue = ((int) Math.pow(2, bitsPerComponent)) - 1;
+            values[offset] = readBits(bitsPerComponent) * (COLOR_TABLE_SIZE - 1) / maxValue;
+            values[offset + 1] = 0;
+            values[offset + 2] = 0;
+        }
+    }
+
+    /**
+     * Reads the patches of a Coons (type 6) or tensor-product (type 7) patch mesh.
+     *
+     * @param tensor true if patches have all 16 control points, false for Coons patches with 12.
+     * @throws IOException bit stream issue.
+     */
+    protected void readPatches(boolean tensor) throws IOException {
+        int pointCount = tensor ? 16 : 12;
+        float[] stream = new float[32];
+        float[] control = new float[32];
+        float[] previous = new float[32];
+        float[] corners = new float[12];
+        float[] previousCorners = new float[12];
+        boolean first = true;
+        while (vertexBitStream.available() > 0) {
+            int flag = readFlag();
+            if (first && flag != 0) {
+                logger.warning("Shading mesh patch doesn't start with a new patch.");
+                return;
+            }
+            int point = 0;
+            int corner = 0;
+            if (flag != 0) {
+                // first edge is shared with the previous patch.
+                int[] edge;
+                int[] edgeCorners;
+                if (flag == 1) {
+                    edge = new int[]{3, 7, 11, 15};
+                    edgeCorners = new int[]{1, 2};
+                } else if (flag == 2) {
+                    edge = new int[]{15, 14, 13, 12};
+                    edgeCorners = new int[]{2, 3};
+                } else {
+                    edge = new int[]{12, 8, 4, 0};
+                    edgeCorners = new int[]{3, 0};
+                }
+                for (; point < 4; point++) {
+                    stream[point * 2] = previous[edge[point] * 2];
+                    stream[point * 2 + 1] = previous[edge[point] * 2 + 1];
+                }
+                for (; corner < 2; corner++) {
+                    System.arraycopy(previousCorners, edgeCorners[corner] * 3, corners, corner * 3, 3);
+                }
+            }
+            for (; point < pointCount; point++) {
+                readCoord(stream, point);
+            }
+            for (; corner < 4; corner++) {
+                readColor(corners, corner);
             }
+            if (vertexBitStream.atEndOfFile()) {
+                // incomplete patch, padding at the end of the stream.
+                return;
+            }
+            for (int i = 0; i < pointCount; i++) {
+                int target = MeshShadingPaint.PATCH_POINT_ORDER[i] * 2;
+                control[target] = stream[i * 2];
+                control[target + 1] = stream[i * 2 + 1];
+            }
+            if (!tensor) {
+                calculateCoonsInteriorPoints(control);
+            }
+            meshShadingPaint.addPatch(control, corners);
+            System.arraycopy(control, 0, previous, 0, 32);
+            System.arraycopy(corners, 0, previousCorners, 0, 12);
+            first = false;
+        }
+    }
+
+    /**
+     * Calculates the four interior control points p11, p12, p21 and p22 of a Coons patch so it can be
+     * treated as a tensor-product patch.
+     *
+     * @param control control points in p00, p01, ... p33 order.
+     */
+    private static void calculateCoonsInteriorPoints(float[] control) {
+        for (int k = 0; k < 2; k++) {
+            control[5 * 2 + k] = coonsPoint(control, k, 0, 1, 4, 3, 12, 13, 7, 15);
+            control[6 * 2 + k] = coonsPoint(control, k, 3, 2, 7, 0, 15, 14, 4, 12);
+            control[10 * 2 + k] = coonsPoint(control, k, 15, 14, 11, 12, 3, 8, 2, 0);
+            control[9 * 2 + k] = coonsPoint(control, k, 12, 13, 8, 15, 0, 11, 1, 3);
+        }
+    }
+
+    // 1/9 * (-4 c + 6 (a1 + a2) - 2 (b1 + b2) + 3 (d1 + d2) - e)
+    private static float coonsPoint(float[] p, int k, int c, int a1, int a2, int b1, int b2,
+                                    int d1, int d2, int e) {
+        return (-4 * p[c * 2 + k] + 6 * (p[a1 * 2 + k] + p[a2 * 2 + k]) -
+                2 * (p[b1 * 2 + k] + p[b2 * 2 + k]) + 3 * (p[d1 * 2 + k] + p[d2 * 2 + k]) -
+                p[e * 2 + k]) / 9;
+    }
+
+    private float readBits(int bits) throws IOException {
+        if (bits == 32) {
+            return vertexBitStream.getBits(32) & 0xFFFFFFFFL;
         }
-        return null;
+        return vertexBitStream.getBits(bits);
     }
 }
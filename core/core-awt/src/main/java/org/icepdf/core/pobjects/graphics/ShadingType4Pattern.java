@@ -3,51 +3,61 @@ package org.icepdf.core.pobjects.graphics;
 import org.icepdf.core.pobjects.Stream;
 import org.icepdf.core.util.Library;
 
-import java.awt.*;
-import java.awt.geom.Point2D;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.logging.Logger;
 
 /**
  * Free-form Gouraud-shaded Triangle Meshes support.
  *
- * Note: currently only parsing data and returning the first colour of the first vertex.
+ * Each vertex has an edge flag, a flag of 0 starts a new triangle and 1 or 2 forms a triangle with the last
+ * edge of the previous one.
  *
  * @since 6.2
  */
 public class ShadingType4Pattern extends ShadingMeshPattern {
 
-    private static final Logger logger =
-            Logger.getLogger(ShadingType4Pattern.class.toString());
-
-    private ArrayList<Integer> vertexEdgeFlag = new ArrayList<Integer>();
-    private ArrayList<Point2D.Float> coordinates = new ArrayList<Point2D.Float>();
-    private ArrayList<Color> colorComponents = new ArrayList<Color>();
-
     public ShadingType4Pattern(Library l, HashMap h, Stream meshDataStream) {
         super(l, h, meshDataStream);
     }
 
-    public void init(GraphicsState graphicsState) {
-
-        vertexEdgeFlag = new ArrayList<Integer>();
-        coordinates = new ArrayList<Point2D.Float>();
-        colorComponents = new ArrayList<Color>();
-        try {
-            while (vertexBitStream.available() > 0) {
-                vertexEdgeFlag.add(readFlag());
-                coordinates.add(readCoord());
-                colorComponents.add(readColor());
+    protected void readMesh() throws IOException {
+        // vertices of the current triangle, the fourth slot holds the vertex being read.
+        float[] points = new float[8];
+        float[] values = new float[12];
+        int vertexCount = 0;
+        while (vertexBitStream.available() > 0) {
+            int flag = readFlag();
+            int slot = vertexCount < 3 ? vertexCount : 3;
+            readCoord(points, slot);
+            readColor(values, slot);
+            // each vertex starts on a byte boundary.
+            vertexBitStream.skipByte();
+            if (vertexBitStream.atEndOfFile()) {
+                break;
+            }
+            if (vertexCount < 3) {
+                // flags of the first three vertices of a new triangle are ignored.
+                vertexCount++;
+                if (vertexCount == 3) {
+                    meshShadingPaint.addTriangle(points, values, 0, 1, 2);
+                }
+                continue;
+            }
+            if (flag == 0) {
+                // start a new triangle with the vertex just read.
+                System.arraycopy(points, 6, points, 0, 2);
+                System.arraycopy(values, 9, values, 0, 3);
+                vertexCount = 1;
+                continue;
             }
-        } catch (IOException e) {
-            logger.warning("Error parsing Shading type 4 pattern vertices.");
+            // flag 1 continues from edge vb vc, flag 2 from edge va vc.
+            if (flag == 1) {
+                System.arraycopy(points, 2, points, 0, 2);
+                System.arraycopy(values, 3, values, 0, 3);
+            }
+            System.arraycopy(points, 4, points, 2, 4);
+            System.arraycopy(values, 6, values, 3, 6);
+            meshShadingPaint.addTriangle(points, values, 0, 1, 2);
         }
     }
-
-    public Paint getPaint() throws InterruptedException {
-        return colorComponents.get(0);
-    }
-
 }
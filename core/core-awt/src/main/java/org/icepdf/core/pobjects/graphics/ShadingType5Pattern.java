@@ -3,17 +3,14 @@ package org.icepdf.core.pobjects.graphics;
 import org.icepdf.core.pobjects.Stream;
 import org.icepdf.core.util.Library;
 
-import java.awt.*;
-import java.awt.geom.Point2D;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.logging.Logger;
 
 /**
  * Lattice-Form Gouraud-shaded Triangle Meshes support.
  *
- * Note: currently only parsing data and returning the first colour of the first vertex.
+ * Vertices are arranged in rows of VerticesPerRow, each cell of two adjacent rows is split into two triangles.
  *
  * @since 6.2
  */
@@ -22,27 +19,47 @@ public class ShadingType5Pattern extends ShadingMeshPattern {
     private static final Logger logger =
             Logger.getLogger(ShadingType5Pattern.class.toString());
 
-    private ArrayList<Point2D.Float> coordinates = new ArrayList<Point2D.Float>();
-    private ArrayList<Color> colorComponents = new ArrayList<Color>();
+    // (Required) The number of vertices in each row of the lattice; the value shall be greater than or equal to 2.
+    private int verticesPerRow;
 
     public ShadingType5Pattern(Library l, HashMap h, Stream meshDataStream) {
         super(l, h, meshDataStream);
+        verticesPerRow = library.getInt(shadingDictionary, VERTICES_PER_ROW_KEY);
     }
 
-    public void init(GraphicsState graphicsState) {
-        coordinates = new ArrayList<Point2D.Float>();
-        colorComponents = new ArrayList<Color>();
-        try {
-            while (vertexBitStream.available() > 0) {
-                coordinates.add(readCoord());
-                colorComponents.add(readColor());
+    protected void readMesh() throws IOException {
+        if (verticesPerRow < 2) {
+            logger.warning("Shading type 5 pattern has an invalid VerticesPerRow " + verticesPerRow);
+            return;
+        }
+        // previous and current row, the previous row comes first.
+        float[] points = new float[verticesPerRow * 4];
+        float[] values = new float[verticesPerRow * 6];
+        int rows = 0;
+        int column = 0;
+        while (vertexBitStream.available() > 0) {
+            int index = verticesPerRow + column;
+            readCoord(points, index);
+            readColor(values, index);
+            if (vertexBitStream.atEndOfFile()) {
+                break;
+            }
+            column++;
+            if (column < verticesPerRow) {
+                continue;
+            }
+            if (rows > 0) {
+                for (int i = 0; i < verticesPerRow - 1; i++) {
+                    int below = verticesPerRow + i;
+                    meshShadingPaint.addTriangle(points, values, i, i + 1, below);
+                    meshShadingPaint.addTriangle(points, values, i + 1, below + 1, below);
+                }
             }
-        } catch (IOException e) {
-            logger.warning("Error parsing Shading type 5 pattern vertices.");
+            // current row becomes the previous row.
+            System.arraycopy(points, verticesPerRow * 2, points, 0, verticesPerRow * 2);
+            System.arraycopy(values, verticesPerRow * 3, values, 0, verticesPerRow * 3);
+            column = 0;
+            rows++;
         }
     }
-
-    public Paint getPaint() throws InterruptedException {
-        return colorComponents.get(0);
-    }
 }
@@ -16,16 +16,17 @@
 package org.icepdf.core.pobjects.graphics;
 
 import org.icepdf.core.pobjects.Page;
-import org.icepdf.core.pobjects.graphics.commands.DrawCmd;
-import org.icepdf.core.pobjects.graphics.commands.FormDrawCmd;
-import org.icepdf.core.pobjects.graphics.commands.ImageDrawCmd;
-import org.icepdf.core.pobjects.graphics.commands.ShapesDrawCmd;
+import org.icepdf.core.pobjects.graphics.commands.*;
 import org.icepdf.core.pobjects.graphics.text.PageText;
 import org.icepdf.core.util.Defs;
 
 import java.awt.*;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -46,6 +47,13 @@ public class Shapes {
             Logger.getLogger(Shapes.class.toString());
 
     private static int shapesInitialCapacity = 5000;
+    // kinds of graphics state deferred when painting an indexed clip.
+    private static final int STATE_KINDS = 4;
+    // pack page display lists once parsed.
+    private static boolean packDisplayList;
+    // index larger display lists so painting a clip only visits its commands.
+    private static boolean indexDisplayList;
+    private static int indexMinSize;
     // disables alpha painting.
     protected boolean paintAlpha =
             !Defs.sysPropertyBoolean("org.icepdf.core.paint.disableAlpha", false);
@@ -53,6 +61,12 @@ public class Shapes {
     static {
         shapesInitialCapacity = Defs.sysPropertyInt(
                 "org.icepdf.core.shapes.initialCapacity", shapesInitialCapacity);
+        packDisplayList = Defs.sysPropertyBoolean(
+                "org.icepdf.core.shapes.packed", true);
+        indexDisplayList = Defs.sysPropertyBoolean(
+                "org.icepdf.core.shapes.indexed", true);
+        indexMinSize = Defs.sysPropertyInt(
+                "org.icepdf.core.shapes.indexMinSize", 2000);
     }
 
     // cache of common draw state, we try to avoid adding new operands if the
@@ -62,7 +76,11 @@ public class Shapes {
     private boolean interrupted;
 
     // Graphics stack for a page's content.
-    protected ArrayList<DrawCmd> shapes = new ArrayList<DrawCmd>(shapesInitialCapacity);
+    protected ArrayList<DrawCmd> shapes;
+    // compact form of the graphics stack, when set shapes is null.
+    protected PackedDisplayList packedShapes;
+    // bounds of the graphics stack's painting commands, null if not indexed.
+    protected DisplayListIndex index;
 
     // stores the state of the currently visible optional content.
     protected OptionalContentState optionalContentState = new OptionalContentState();
@@ -72,6 +90,24 @@ public class Shapes {
 
     // text extraction data structure
     private PageText pageText = new PageText();
+    // only the page text is collected, draw commands are discarded.
+    private final boolean textOnly;
+
+    public Shapes() {
+        this(false);
+    }
+
+    /**
+     * Creates a new shapes stack.
+     *
+     * @param textOnly true if only the page text is collected, draw commands
+     *                 added to a text only stack are discarded.  Used by the
+     *                 text extraction parse.
+     */
+    public Shapes(boolean textOnly) {
+        this.textOnly = textOnly;
+        shapes = new ArrayList<DrawCmd>(textOnly ? 0 : shapesInitialCapacity);
+    }
 
     public PageText getPageText() {
         return pageText;
@@ -83,6 +119,10 @@ public class Shapes {
      * @return number of shapes on the stack
      */
     public int getShapesCount() {
+        PackedDisplayList packed = packedShapes;
+        if (packed != null) {
+            return packed.size();
+        }
         if (shapes != null) {
             return shapes.size();
         } else {
@@ -90,10 +130,102 @@ public class Shapes {
         }
     }
 
+    /**
+     * Gets the modifiable draw command list, a packed list is unpacked first.
+     * Code that only reads the commands should use {@link #getDrawCmds()}.
+     *
+     * @return draw commands of the stack.
+     */
     public ArrayList<DrawCmd> getShapes() {
+        unpack();
         return shapes;
     }
 
+    /**
+     * Gets a read only view of the draw commands that leaves a packed list
+     * packed, its commands are decoded as they're read.
+     *
+     * @return unmodifiable view of the draw commands.
+     */
+    public List<DrawCmd> getDrawCmds() {
+        PackedDisplayList packed = packedShapes;
+        if (packed != null) {
+            return packed.asList();
+        }
+        List<DrawCmd> shapes = this.shapes;
+        if (shapes != null) {
+            return Collections.unmodifiableList(shapes);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Indicates if page display lists should be packed once parsed, set with
+     * the system property org.icepdf.core.shapes.packed, default is true.
+     *
+     * @return true if packing is enabled.
+     */
+    public static boolean isPackDisplayList() {
+        return packDisplayList;
+    }
+
+    /**
+     * Replaces the draw command list with a {@link PackedDisplayList} which
+     * retains considerably less memory for vector heavy content.  The index
+     * is kept as the packed list holds the same commands in the same order.
+     * The list is transparently unpacked again if the commands are accessed
+     * with getShapes() or more commands are added.
+     */
+    public synchronized void pack() {
+        if (shapes != null && packedShapes == null) {
+            PackedDisplayList packed = PackedDisplayList.pack(shapes);
+            if (logger.isLoggable(Level.FINER)) {
+                logger.finer("Packed " + packed.size() + " draw commands into " +
+                        packed.getPackedSize() + " bytes.");
+            }
+            packedShapes = packed;
+            shapes = null;
+        }
+    }
+
+    /**
+     * Builds a {@link DisplayListIndex} of the draw commands so painting a
+     * clip only replays the commands that can intersect it.  Only lists of at
+     * least org.icepdf.core.shapes.indexMinSize commands, default 2000, are
+     * indexed, indexing can be disabled with org.icepdf.core.shapes.indexed.
+     * The index is dropped if more commands are added.
+     */
+    public synchronized void buildIndex() {
+        int size = getShapesCount();
+        if (!indexDisplayList || textOnly || size < indexMinSize) {
+            return;
+        }
+        if (index == null || index.size() != size) {
+            index = DisplayListIndex.build(getDrawCmds());
+            if (logger.isLoggable(Level.FINER)) {
+                logger.finer("Indexed " + index.getIndexedCount() + " of " +
+                        size + " draw commands.");
+            }
+        }
+    }
+
+    /**
+     * Indicates the draw commands are held in packed form.
+     *
+     * @return true if pack() has been called and the list hasn't since been
+     * unpacked.
+     */
+    public boolean isPacked() {
+        return packedShapes != null;
+    }
+
+    private synchronized void unpack() {
+        if (packedShapes != null) {
+            shapes = packedShapes.unpack();
+            packedShapes = null;
+        }
+    }
+
     public void add(ArrayList<DrawCmd> shapes) {
         shapes.addAll(shapes);
     }
@@ -103,6 +235,11 @@ public class Shapes {
     }
 
     public void add(DrawCmd drawCmd){
+        if (textOnly) {
+            return;
+        }
+        unpack();
+        index = null;
 
         if (!(drawCmd instanceof FormDrawCmd)){
             shapes.add(drawCmd);
@@ -111,6 +248,16 @@ public class Shapes {
         }
     }
 
+    /**
+     * Indicates only the page text is collected and draw commands are
+     * discarded, the parser can skip work that only produces draw commands.
+     *
+     * @return true if this is a text only stack.
+     */
+    public boolean isTextOnly() {
+        return textOnly;
+    }
+
     public boolean isPaintAlpha() {
         return paintAlpha;
     }
@@ -132,9 +279,48 @@ public class Shapes {
             Shape clip = g.getClip();
 
             PaintTimer paintTimer = new PaintTimer();
+
+            PackedDisplayList packed = packedShapes;
+            List<DrawCmd> shapes = packed == null ? this.shapes : null;
+            int size = packed != null ? packed.size() : shapes.size();
             Shape previousShape = null;
 
             DrawCmd nextShape;
+            // only replay the commands that can intersect the clip, a packed
+            // list only decodes the commands that are replayed.
+            DisplayListIndex index = this.index;
+            if (index != null && clip != null && index.size() == size) {
+                PackedDisplayList.Reader reader = packed != null ? packed.new Reader() : null;
+                BitSet visible = index.query(getCullRegion(clip, base));
+                // transforms, colours, strokes and alpha are only set when
+                // something after them is painted, most are overridden by the
+                // next command of the same kind.
+                DrawCmd[] pendingState = new DrawCmd[STATE_KINDS];
+                for (int i = visible.nextSetBit(0), count = 0; i >= 0;
+                     i = visible.nextSetBit(i + 1), count++) {
+                    if (interrupted || (count % 1000 == 0 && Thread.currentThread().isInterrupted())) {
+                        interrupted = false;
+                        throw new InterruptedException("Page painting thread interrupted");
+                    }
+                    nextShape = reader != null ? reader.get(i) : shapes.get(i);
+                    int stateKind = getStateKind(nextShape);
+                    if (stateKind >= 0) {
+                        pendingState[stateKind] = nextShape;
+                        continue;
+                    }
+                    applyState(pendingState, g, previousShape, clip, base, paintTimer);
+                    previousShape = nextShape.paintOperand(g, parentPage,
+                            previousShape, clip, base, optionalContentState, paintAlpha, paintTimer);
+                }
+                // leave the graphics state as a full replay would.
+                applyState(pendingState, g, previousShape, clip, base, paintTimer);
+                return;
+            }
+            if (packed != null) {
+                packed.paint(g, parentPage, clip, base, optionalContentState,
+                        paintAlpha, paintTimer);
+                return;
+            }
             // for loops actually faster in this case.
             for (int i = 0, max = shapes.size(); i < max; i++) {
                 // try and minimize interrupted checks, costly.
@@ -155,6 +341,53 @@ public class Shapes {
         }
     }
 
+    /**
+     * Gets the kind of graphics state a command only sets, commands of the
+     * same kind override each other.
+     *
+     * @return state kind, -1 if the command does anything else.
+     */
+    private static int getStateKind(DrawCmd drawCmd) {
+        Class<?> type = drawCmd.getClass();
+        if (type == TransformDrawCmd.class || type == TextTransformDrawCmd.class) {
+            return 0;
+        } else if (type == ColorDrawCmd.class) {
+            return 1;
+        } else if (type == StrokeDrawCmd.class) {
+            return 2;
+        } else if (type == AlphaDrawCmd.class) {
+            return 3;
+        }
+        return -1;
+    }
+
+    private void applyState(DrawCmd[] pendingState, Graphics2D g, Shape currentShape, Shape clip,
+                            AffineTransform base, PaintTimer paintTimer) throws InterruptedException {
+        for (int i = 0; i < STATE_KINDS; i++) {
+            if (pendingState[i] != null) {
+                pendingState[i].paintOperand(g, parentPage, currentShape, clip, base,
+                        optionalContentState, paintAlpha, paintTimer);
+                pendingState[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Gets the region of the clip commands are culled against, grown by a
+     * couple of device pixels to allow for anti-aliasing and hairlines.
+     */
+    private static Rectangle2D getCullRegion(Shape clip, AffineTransform base) {
+        Rectangle2D region = clip.getBounds2D();
+        double scale = Math.sqrt(Math.abs(base.getDeterminant()));
+        if (scale == 0 || Double.isNaN(scale) || Double.isInfinite(scale)) {
+            return null;
+        }
+        double margin = 2 / scale;
+        region.setRect(region.getX() - margin, region.getY() - margin,
+                region.getWidth() + margin * 2, region.getHeight() + margin * 2);
+        return region;
+    }
+
     /**
      * @deprecated use Thread.interrupt() instead.
      */
@@ -176,7 +409,9 @@ public class Shapes {
      */
     public ArrayList<Image> getImages() throws InterruptedException {
         ArrayList<Image> images = new ArrayList<Image>();
-        for (Object object : shapes) {
+        PackedDisplayList packed = packedShapes;
+        Iterable<?> drawCmds = packed != null ? packed.getReferences() : shapes;
+        for (Object object : drawCmds) {
             if (object instanceof ImageDrawCmd) {
                 images.add(((ImageDrawCmd) object).getImage());
             } else if (object instanceof ShapesDrawCmd) {
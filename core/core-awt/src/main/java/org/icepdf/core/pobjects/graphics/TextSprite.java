@@ -361,4 +361,14 @@ public class TextSprite {
         return !(optimizedDrawingEnabled)||
                 (shape != null && shape.intersects(bounds));
     }
+
+    /**
+     * Indicates the sprite is only painted if its bounds intersect the clip,
+     * see intersects().
+     *
+     * @return true if optimized drawing is enabled.
+     */
+    public boolean isOptimizedDrawing() {
+        return optimizedDrawingEnabled;
+    }
 }
@@ -334,6 +334,22 @@ public class TilingPattern extends Stream implements Pattern {
      *             space transform of the page.
      */
     public void paintPattern(Graphics2D g, final AffineTransform base) {
+        paintPattern(g, base, unColored);
+    }
+
+    /**
+     * Applies the pattern paint specified by this TilingPattern instance.
+     * Handles both uncoloured and coloured pattern types.  The rasterized
+     * pattern cell is kept in the document's TilingPatternCache so fills
+     * using the pattern at the same scale reuse it.
+     *
+     * @param g         graphics context to apply textured paint too.
+     * @param base      base transform before painting started, generally the page
+     *                  space transform of the page.
+     * @param unColored colour to paint an uncoloured pattern with, ignored for
+     *                  coloured patterns.
+     */
+    public void paintPattern(Graphics2D g, final AffineTransform base, Color unColored) {
 
         // base represents the current page transform, zoom and rotation,
         // the g.getTransform() will be the state of the current graphics
@@ -384,6 +400,32 @@ public class TilingPattern extends Stream implements Pattern {
                 - matrix.getTranslateY();
         yOffset *= context.getScaleY() * -base.getScaleY();
         if (Double.isNaN(yOffset)) yOffset = 0;
+
+        // the cell only depends on the scale, rotation and shear of the transforms, so
+        // it can be reused for fills at the same scale.
+        if (paintType != PAINTING_TYPE_UNCOLORED_TILING_PATTERN) {
+            unColored = null;
+        }
+        TilingPatternCache tileCache = library.getTilingPatternCache();
+        TilingPatternCache.Key key = TilingPatternCache.createKey(getPObjectReference(),
+                originalPageSpace, baseScale, unColored);
+        BufferedImage bi = tileCache.get(key);
+        if (bi == null) {
+            bi = createTile(originalPageSpace, width, height, baseScale, unColored);
+            tileCache.put(key, bi);
+        }
+
+        TexturePaint patternPaint = new TexturePaint(bi, new Rectangle2D.Double(
+                xOffset, yOffset,
+                width, height));
+        g.setPaint(patternPaint);
+    }
+
+    /**
+     * Paints the pattern cell into a new image.
+     */
+    private BufferedImage createTile(AffineTransform originalPageSpace, int width, int height,
+                                     double baseScale, Color unColored) {
         // corner cases where some bBoxes don't have a dimension.
         double imageWidth = width * baseScale;
         double imageHeight = height * baseScale;
@@ -400,11 +442,6 @@ public class TilingPattern extends Stream implements Pattern {
         final BufferedImage bi = ImageUtility.createTranslucentCompatibleImage((int)Math.round(imageWidth), (int) Math.round(imageHeight));
         Graphics2D canvas = bi.createGraphics();
 
-        TexturePaint patternPaint = new TexturePaint(bi, new Rectangle2D.Double(
-                xOffset, yOffset,
-                width, height));
-        g.setPaint(patternPaint);
-
         // apply current hints
         canvas.setRenderingHints(renderingHints);
         // copy over the rendering hints
@@ -421,29 +458,20 @@ public class TilingPattern extends Stream implements Pattern {
             Thread.currentThread().interrupt();
             logger.log(Level.FINER, "Interrupted painting tiling pattern.");
         }
-
-        // show it in a frame
-//        final JFrame f = new JFrame(this.toString());
-//        final int w = (int) bBoxMod.getWidth();
-//        final int h = (int) bBoxMod.getHeight();
-//        final double scale = base.getScaleX();
-//        final AffineTransform tmpPatternMatrix = originalPageSpace;
-//        f.setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
-//        f.getContentPane().add(new JComponent() {
-//            @Override
-//            public void paint(Graphics g_) {
-//                super.paint(g_);
-//                Graphics2D g2d = (Graphics2D) g_;
-//                g2d.scale(scale, scale);
-//                g2d.setPaint(patternPaint);
-//                g2d.fillRect(0, 0, 1000, 1000);
-//            }
-//        });
-//        f.setSize(new Dimension(800, 800));
-//        f.setVisible(true);
         // post paint cleanup
         canvas.dispose();
-        bi.flush();
+
+        // the cell of an uncoloured pattern is a stencil, the content stream was parsed with
+        // the colour of the first use so pour in the colour of this use.
+        if (unColored != null) {
+            int rgb = unColored.getRGB() & 0xffffff;
+            int[] pixels = bi.getRGB(0, 0, bi.getWidth(), bi.getHeight(), null, 0, bi.getWidth());
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] = (pixels[i] & 0xff000000) | rgb;
+            }
+            bi.setRGB(0, 0, bi.getWidth(), bi.getHeight(), pixels, 0, bi.getWidth());
+        }
+        return bi;
     }
 
     private void paintPattern(Graphics2D g2d, Shapes tilingShapes, AffineTransform matrix, AffineTransform base,
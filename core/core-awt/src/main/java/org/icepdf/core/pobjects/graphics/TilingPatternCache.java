@@ -0,0 +1,198 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.pobjects.graphics;
+
+import org.icepdf.core.pobjects.Reference;
+import org.icepdf.core.util.Defs;
+import org.icepdf.core.util.SizedLRUCache;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least recently used cache of rasterized tiling pattern cells.  Documents
+ * such as hatched CAD drawings fill thousands of shapes with the same pattern,
+ * with the cache the pattern cell is only painted once for each scale it's
+ * used at and the image is reused by every fill's TexturePaint.
+ * <br>
+ * Cells are keyed by the pattern's object reference, the scale, rotation and
+ * shear of the device transform and, for uncoloured patterns, the colour the
+ * cell is painted in.
+ * <br>
+ * Each document has its own cache, see Library.getTilingPatternCache(), but
+ * the cells of all documents are kept in one static SizedLRUCache bounded by
+ * the bytes used by the cells' rasters, so opening more documents doesn't
+ * raise the memory held.  The budget can be set with the system property
+ * org.icepdf.core.tiling.cacheSize in MB, default 32.  The cache can be
+ * disabled with org.icepdf.core.tiling.cacheEnabled=false.
+ *
+ * @since 6.3
+ */
+public class TilingPatternCache {
+
+    private static boolean enabled;
+    private static long maxSize;
+
+    static {
+        enabled = Defs.booleanProperty("org.icepdf.core.tiling.cacheEnabled", true);
+        maxSize = Defs.intProperty("org.icepdf.core.tiling.cacheSize", 32) * 1024L * 1024L;
+    }
+
+    // cells of all documents, keyed by the owning cache and cell key.
+    private static final SizedLRUCache<SizedLRUCache.OwnerKey<Key>, BufferedImage> cells =
+            new SizedLRUCache<SizedLRUCache.OwnerKey<Key>, BufferedImage>(maxSize) {
+                @Override
+                protected long sizeOf(BufferedImage image) {
+                    return imageSize(image);
+                }
+            };
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Creates the key for a pattern cell.
+     *
+     * @param ref       pattern object reference.
+     * @param transform transform the cell is painted with, only the scale,
+     *                  rotation and shear are used.
+     * @param scale     additional scale the cell is painted at.
+     * @param color     colour of an uncoloured pattern, null for coloured
+     *                  patterns.
+     * @return key for the cell, null if the cache is disabled or the pattern
+     * has no reference.
+     */
+    public static Key createKey(Reference ref, AffineTransform transform, double scale, Color color) {
+        if (!enabled || ref == null) {
+            return null;
+        }
+        return new Key(ref, transform, scale, color);
+    }
+
+    public BufferedImage get(Key key) {
+        if (key == null) {
+            return null;
+        }
+        BufferedImage image = cells.get(new SizedLRUCache.OwnerKey<Key>(this, key));
+        if (image != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return image;
+    }
+
+    public void put(Key key, BufferedImage image) {
+        if (key == null || image == null) {
+            return;
+        }
+        cells.put(new SizedLRUCache.OwnerKey<Key>(this, key), image);
+    }
+
+    /**
+     * Removes this document's cells from the shared budget.
+     */
+    public void clear() {
+        cells.removeOwner(this);
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of cells evicted from the budget shared by all
+     * documents.
+     *
+     * @return eviction count.
+     */
+    public static long getEvictionCount() {
+        return cells.getEvictionCount();
+    }
+
+    /**
+     * Gets the number of raster bytes currently held for all documents.
+     *
+     * @return size in bytes.
+     */
+    public static long getSize() {
+        return cells.getSize();
+    }
+
+    public static long getMaxSize() {
+        return maxSize;
+    }
+
+    public static int getEntryCount() {
+        return cells.getEntryCount();
+    }
+
+    /**
+     * Identifies a rasterized pattern cell.
+     */
+    public static class Key {
+        private final int objectNumber;
+        private final int generationNumber;
+        private final double m00, m10, m01, m11;
+        private final double scale;
+        private final int rgb;
+        private final int hashCode;
+
+        private Key(Reference ref, AffineTransform transform, double scale, Color color) {
+            objectNumber = ref.getObjectNumber();
+            generationNumber = ref.getGenerationNumber();
+            m00 = transform.getScaleX();
+            m10 = transform.getShearY();
+            m01 = transform.getShearX();
+            m11 = transform.getScaleY();
+            this.scale = scale;
+            // colours are opaque so 0 can mark a coloured pattern.
+            rgb = color != null ? color.getRGB() : 0;
+            int hash = objectNumber * 31 + generationNumber;
+            hash = hash * 31 + Double.valueOf(m00).hashCode();
+            hash = hash * 31 + Double.valueOf(m10).hashCode();
+            hash = hash * 31 + Double.valueOf(m01).hashCode();
+            hash = hash * 31 + Double.valueOf(m11).hashCode();
+            hash = hash * 31 + Double.valueOf(scale).hashCode();
+            hashCode = hash * 31 + rgb;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return objectNumber == key.objectNumber && generationNumber == key.generationNumber &&
+                    m00 == key.m00 && m10 == key.m10 && m01 == key.m01 && m11 == key.m11 &&
+                    scale == key.scale && rgb == key.rgb;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
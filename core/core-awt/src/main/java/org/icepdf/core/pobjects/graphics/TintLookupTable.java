@@ -0,0 +1,238 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.pobjects.graphics;
+
+import org.icepdf.core.util.Defs;
+
+/**
+ * Precomputed ARGB lookup table for image samples in a Separation or DeviceN
+ * colour space, so an image can be converted without calling the tint
+ * transform and creating a Color for every pixel.
+ * <br>
+ * Single component spaces get a dense table with an entry for every possible
+ * sample value, which gives exactly the colours of a per pixel conversion.
+ * Spaces with two or more 8 bit components are sampled on a regular grid and
+ * pixels are multilinear interpolated between the grid points.  The grid is
+ * only built when the image has more pixels then grid points, otherwise the
+ * per pixel conversion is cheaper.
+ * <br>
+ * Samples are converted the same way the per pixel image decode does, the
+ * components are normalized, reversed and passed to PColorSpace.getColor().
+ * The lookup tables can be disabled with the system property
+ * org.icepdf.core.tintLookupTable.enabled=false.
+ *
+ * @since 6.3
+ */
+public class TintLookupTable {
+
+    private static boolean enabled;
+
+    static {
+        enabled = Defs.booleanProperty("org.icepdf.core.tintLookupTable.enabled", true);
+    }
+
+    // maximum number of tint transform evaluations for a grid table.
+    private static final int MAX_GRID_POINTS = 8192;
+    private static final int MAX_GRID_SIZE = 33;
+    private static final int MIN_GRID_SIZE = 5;
+
+    private final int components;
+    private final int bitsPerComponent;
+    // number of grid points along each axis, 0 for a dense table.
+    private final int gridSize;
+    // argb for each dense sample value or grid point, first component varies slowest.
+    private final int[] table;
+
+    private TintLookupTable(int components, int bitsPerComponent, int gridSize, int[] table) {
+        this.components = components;
+        this.bitsPerComponent = bitsPerComponent;
+        this.gridSize = gridSize;
+        this.table = table;
+    }
+
+    /**
+     * Creates a lookup table for an image in the given colour space.
+     *
+     * @param colorSpace       Separation or DeviceN colour space of the image.
+     * @param bitsPerComponent bits per component of the image samples.
+     * @param invert           true if the decode array inverts the samples.
+     * @param pixelCount       number of pixels in the image.
+     * @return new lookup table, null if a table can't be used or wouldn't be
+     * any faster then converting each pixel.
+     */
+    public static TintLookupTable getInstance(PColorSpace colorSpace, int bitsPerComponent,
+                                              boolean invert, int pixelCount) {
+        if (!enabled) {
+            return null;
+        }
+        int components = colorSpace.getNumComponents();
+        if (components == 1 && (bitsPerComponent == 1 || bitsPerComponent == 2 ||
+                bitsPerComponent == 4 || bitsPerComponent == 8)) {
+            int maxValue = (1 << bitsPerComponent) - 1;
+            int[] table = new int[maxValue + 1];
+            float[] values = new float[1];
+            for (int sample = 0; sample <= maxValue; sample++) {
+                int value = invert ? maxValue - sample : sample;
+                values[0] = value / (float) maxValue;
+                table[sample] = colorSpace.getColor(values).getRGB();
+            }
+            return new TintLookupTable(1, bitsPerComponent, 0, table);
+        } else if (components > 1 && bitsPerComponent == 8) {
+            int gridSize = MAX_GRID_SIZE;
+            while (gridSize >= MIN_GRID_SIZE && Math.pow(gridSize, components) > MAX_GRID_POINTS) {
+                gridSize--;
+            }
+            if (gridSize < MIN_GRID_SIZE) {
+                return null;
+            }
+            int points = (int) Math.pow(gridSize, components);
+            if (points >= pixelCount) {
+                return null;
+            }
+            int[] table = new int[points];
+            int[] index = new int[components];
+            float[] values = new float[components];
+            for (int point = 0; point < points; point++) {
+                for (int i = 0; i < components; i++) {
+                    float value = index[i] / (float) (gridSize - 1);
+                    if (invert) {
+                        value = 1 - value;
+                    }
+                    // components are passed reversed.
+                    values[components - 1 - i] = value;
+                }
+                table[point] = colorSpace.getColor(values).getRGB();
+                // advance the grid index, last component varies fastest.
+                for (int i = components - 1; i >= 0; i--) {
+                    if (++index[i] < gridSize) {
+                        break;
+                    }
+                    index[i] = 0;
+                }
+            }
+            return new TintLookupTable(components, bitsPerComponent, gridSize, table);
+        }
+        return null;
+    }
+
+    /**
+     * Converts the image samples to ARGB pixels.
+     *
+     * @param data   decoded image samples, rows are byte aligned.
+     * @param length number of valid bytes in data.
+     * @param width  image width.
+     * @param height image height.
+     * @param pixels ARGB destination, width * height long.
+     */
+    public void convert(byte[] data, int length, int width, int height, int[] pixels) {
+        if (gridSize == 0) {
+            convertDense(data, length, width, height, pixels);
+        } else {
+            convertGrid(data, length, width, height, pixels);
+        }
+    }
+
+    private void convertDense(byte[] data, int length, int width, int height, int[] pixels) {
+        int bits = bitsPerComponent;
+        int mask = (1 << bits) - 1;
+        int rowBytes = (width * bits + 7) / 8;
+        int[] table = this.table;
+        for (int y = 0, pixel = 0; y < height; y++) {
+            int rowStart = y * rowBytes;
+            for (int x = 0; x < width; x++, pixel++) {
+                int bitOffset = x * bits;
+                int offset = rowStart + (bitOffset >> 3);
+                int sample = 0;
+                if (offset < length) {
+                    int shift = 8 - bits - (bitOffset & 7);
+                    sample = (data[offset] >> shift) & mask;
+                }
+                pixels[pixel] = table[sample];
+            }
+        }
+    }
+
+    private void convertGrid(byte[] data, int length, int width, int height, int[] pixels) {
+        int n = components;
+        int cells = gridSize - 1;
+        int[] table = this.table;
+        // grid index stride of each component.
+        int[] strides = new int[n];
+        for (int i = n - 1, stride = 1; i >= 0; i--, stride *= gridSize) {
+            strides[i] = stride;
+        }
+        int corners = 1 << n;
+        // offset of each cell corner from the cell's base grid index.
+        int[] cornerOffsets = new int[corners];
+        for (int corner = 0; corner < corners; corner++) {
+            for (int i = 0; i < n; i++) {
+                if ((corner & (1 << i)) != 0) {
+                    cornerOffsets[corner] += strides[i];
+                }
+            }
+        }
+        float[] fractions = new float[n];
+        int pixelCount = width * height;
+        int lastOffset = -1;
+        int lastArgb = 0;
+        for (int pixel = 0, offset = 0; pixel < pixelCount; pixel++, offset += n) {
+            if (offset + n > length) {
+                pixels[pixel] = 0;
+                continue;
+            }
+            // runs of the same colour are common, skip the interpolation.
+            if (lastOffset >= 0 && sameSamples(data, lastOffset, offset, n)) {
+                pixels[pixel] = lastArgb;
+                continue;
+            }
+            int base = 0;
+            for (int i = 0; i < n; i++) {
+                float position = (data[offset + i] & 0xff) * cells / 255f;
+                int cell = Math.min((int) position, cells - 1);
+                fractions[i] = position - cell;
+                base += cell * strides[i];
+            }
+            float a = 0, r = 0, g = 0, b = 0;
+            for (int corner = 0; corner < corners; corner++) {
+                float weight = 1;
+                for (int i = 0; i < n; i++) {
+                    weight *= (corner & (1 << i)) != 0 ? fractions[i] : 1 - fractions[i];
+                }
+                if (weight == 0) {
+                    continue;
+                }
+                int argb = table[base + cornerOffsets[corner]];
+                a += weight * ((argb >>> 24) & 0xff);
+                r += weight * ((argb >> 16) & 0xff);
+                g += weight * ((argb >> 8) & 0xff);
+                b += weight * (argb & 0xff);
+            }
+            lastArgb = ((int) (a + 0.5f) << 24) | ((int) (r + 0.5f) << 16) |
+                    ((int) (g + 0.5f) << 8) | (int) (b + 0.5f);
+            lastOffset = offset;
+            pixels[pixel] = lastArgb;
+        }
+    }
+
+    private static boolean sameSamples(byte[] data, int offset1, int offset2, int n) {
+        for (int i = 0; i < n; i++) {
+            if (data[offset1 + i] != data[offset2 + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.pobjects.graphics;
+
+import org.icepdf.core.pobjects.Form;
+import org.icepdf.core.pobjects.Reference;
+import org.icepdf.core.util.Defs;
+import org.icepdf.core.util.SizedLRUCache;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least recently used cache of the buffers FormDrawCmd paints transparency
+ * groups and soft masks into.  Reports often use the same soft masked form on
+ * every page, with the cache the group and its luminosity mask are only
+ * rasterized once per document and shared by every page and render thread.
+ * <br>
+ * Buffers are painted just as they are without the cache, in form space at
+ * one pixel per unit of the form's BBox whatever the zoom, so the device
+ * transform isn't part of the key.  Group buffers are keyed by the form's
+ * reference and BBox, the references of the soft mask groups, the blending
+ * flags and the rendering hints; mask buffers by the mask group's reference,
+ * BBox and the rendering hints.  Cached buffers must not be modified.
+ * <br>
+ * Each document has its own cache but the buffers of all documents are kept
+ * in one static SizedLRUCache, bounded by the bytes used by the buffers'
+ * rasters, so opening more documents doesn't raise the memory held.  The
+ * budget can be set with the system property
+ * org.icepdf.core.transparencyGroupCache.size in MB, default 64.  The cache
+ * can be disabled with org.icepdf.core.transparencyGroupCache.enabled=false.
+ *
+ * @since 6.3
+ */
+public class TransparencyGroupCache {
+
+    private static boolean enabled;
+    private static long maxSize;
+
+    static {
+        enabled = Defs.booleanProperty("org.icepdf.core.transparencyGroupCache.enabled", true);
+        maxSize = Defs.intProperty("org.icepdf.core.transparencyGroupCache.size", 64) * 1024L * 1024L;
+    }
+
+    private static final Integer GROUP_BUFFER = 0;
+    private static final Integer MASK_BUFFER = 1;
+
+    // buffers of all documents, keyed by the owning cache and buffer key.
+    private static final SizedLRUCache<SizedLRUCache.OwnerKey<Key>, Entry> buffers =
+            new SizedLRUCache<SizedLRUCache.OwnerKey<Key>, Entry>(maxSize) {
+                @Override
+                protected long sizeOf(Entry entry) {
+                    return entry.size;
+                }
+            };
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Creates the key for the final buffer of a transparency group.
+     *
+     * @param form           transparency group form.
+     * @param softMask       soft mask of the graphics state, can be null.
+     * @param formSoftMask   soft mask of the form's graphics state, can be null.
+     * @param normalBM       true if the group uses the normal blending mode.
+     * @param extendedState  true if the form and graphics state both have an
+     *                       extended graphics state.
+     * @param renderingHints rendering hints the buffer is painted with.
+     * @return key for the buffer, null if the cache is disabled or a form
+     * doesn't have a reference.
+     */
+    public static Key createGroupKey(Form form, SoftMask softMask, SoftMask formSoftMask,
+                                     boolean normalBM, boolean extendedState,
+                                     RenderingHints renderingHints) {
+        if (!enabled || form.getPObjectReference() == null) {
+            return null;
+        }
+        Object softMaskGroup = null;
+        if (softMask != null) {
+            softMaskGroup = softMask.getG().getPObjectReference();
+            if (softMaskGroup == null) {
+                return null;
+            }
+        }
+        Object formSoftMaskGroup = null;
+        if (formSoftMask != null) {
+            formSoftMaskGroup = formSoftMask.getG().getPObjectReference();
+            if (formSoftMaskGroup == null) {
+                return null;
+            }
+        }
+        return new Key(GROUP_BUFFER, form.getPObjectReference(), form.getBBox(),
+                softMaskGroup, softMask != null ? softMask.getS() : null,
+                formSoftMaskGroup, formSoftMask != null ? formSoftMask.getS() : null,
+                normalBM, extendedState, renderingHints);
+    }
+
+    /**
+     * Creates the key for the buffer of a luminosity soft mask group.
+     *
+     * @param maskGroup      soft mask group form.
+     * @param width          width of the buffer.
+     * @param height         height of the buffer.
+     * @param renderingHints rendering hints the buffer is painted with.
+     * @return key for the buffer, null if the cache is disabled or the form
+     * doesn't have a reference.
+     */
+    public static Key createMaskKey(Form maskGroup, int width, int height, RenderingHints renderingHints) {
+        Reference reference = maskGroup.getPObjectReference();
+        if (!enabled || reference == null) {
+            return null;
+        }
+        return new Key(MASK_BUFFER, reference, maskGroup.getBBox(), width, height, renderingHints);
+    }
+
+    public Entry get(Key key) {
+        if (key == null) {
+            return null;
+        }
+        Entry entry = buffers.get(new SizedLRUCache.OwnerKey<Key>(this, key));
+        if (entry != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Adds a buffer to the cache.
+     *
+     * @param key   buffer key.
+     * @param image buffer, it must not be modified once cached.
+     * @param x     x coordinate the buffer is painted at.
+     * @param y     y coordinate the buffer is painted at.
+     */
+    public void put(Key key, BufferedImage image, int x, int y) {
+        if (key == null || image == null) {
+            return;
+        }
+        buffers.put(new SizedLRUCache.OwnerKey<Key>(this, key), new Entry(image, x, y));
+    }
+
+    /**
+     * Removes this document's buffers from the shared budget.
+     */
+    public void clear() {
+        buffers.removeOwner(this);
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of buffers evicted from the budget shared by all
+     * documents.
+     *
+     * @return eviction count.
+     */
+    public static long getEvictionCount() {
+        return buffers.getEvictionCount();
+    }
+
+    /**
+     * Gets the number of raster bytes currently held for all documents.
+     *
+     * @return size in bytes.
+     */
+    public static long getSize() {
+        return buffers.getSize();
+    }
+
+    public static long getMaxSize() {
+        return maxSize;
+    }
+
+    public static int getEntryCount() {
+        return buffers.getEntryCount();
+    }
+
+    /**
+     * Identifies a cached buffer.
+     */
+    public static class Key {
+        private final Object[] values;
+        private final int hashCode;
+
+        private Key(Object... values) {
+            this.values = values;
+            hashCode = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Key && Arrays.equals(values, ((Key) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * A cached buffer and the coordinates it's painted at.
+     */
+    public static class Entry {
+        private final BufferedImage image;
+        private final int x, y;
+        private final long size;
+
+        Entry(BufferedImage image, int x, int y) {
+            this.image = image;
+            this.x = x;
+            this.y = y;
+            size = SizedLRUCache.imageSize(image);
+        }
+
+        public BufferedImage getImage() {
+            return image;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+    }
+}
@@ -39,6 +39,9 @@ import java.util.HashMap;
 public class FormDrawCmd extends AbstractDrawCmd {
 
     private Form xForm;
+    // graphics state of the form when the command was created.
+    private GraphicsState graphicsState;
+    private ExtGState extGState;
 
     private BufferedImage xFormBuffer;
     private int x, y;
@@ -60,6 +63,9 @@ public class FormDrawCmd extends AbstractDrawCmd {
 
     public FormDrawCmd(Form xForm) {
         this.xForm = xForm;
+        // the form is shared by every use, keep the state of this use.
+        graphicsState = xForm.getGraphicsState();
+        extGState = xForm.getExtGState();
     }
 
     @Override
@@ -72,46 +78,21 @@ public class FormDrawCmd extends AbstractDrawCmd {
             Rectangle2D bBox = xForm.getBBox();
             x = (int) bBox.getX();
             y = (int) bBox.getY();
-            boolean hasMask = ((xForm.getGraphicsState().getExtGState() != null &&
-                    xForm.getGraphicsState().getExtGState().getSMask() != null) ||
-                    (xForm.getExtGState() != null && xForm.getExtGState().getSMask() != null));
-            boolean isExtendGraphicState = xForm.getGraphicsState().getExtGState() != null &&
-                    xForm.getExtGState() != null;
+            boolean hasMask = ((graphicsState.getExtGState() != null &&
+                    graphicsState.getExtGState().getSMask() != null) ||
+                    (extGState != null && extGState.getSMask() != null));
+            boolean isExtendGraphicState = graphicsState.getExtGState() != null &&
+                    extGState != null;
             boolean normalBM = false;
-            if (isExtendGraphicState && xForm.getExtGState().getBlendingMode() != null) {
-                normalBM = xForm.getExtGState().getBlendingMode().equals(new Name("Normal")) &&
-                        xForm.getGraphicsState().getExtGState().getBlendingMode().equals(new Name("Normal")) &&
-                        (xForm.getExtGState() != null &&
-                                (!xForm.getExtGState().isAlphaAShape() || xForm.getExtGState().getOverprintMode() == 0));
+            if (isExtendGraphicState && extGState.getBlendingMode() != null) {
+                normalBM = extGState.getBlendingMode().equals(new Name("Normal")) &&
+                        graphicsState.getExtGState().getBlendingMode().equals(new Name("Normal")) &&
+                        (extGState != null &&
+                                (!extGState.isAlphaAShape() || extGState.getOverprintMode() == 0));
             }
 
-            SoftMask formSoftMask = null;
-            SoftMask softMask = null;
-
-            if (xForm.getGraphicsState().getExtGState().getSMask() != null) {
-                softMask = xForm.getGraphicsState().getExtGState().getSMask();
-                boolean isShading = softMask.getG().getResources().isShading();
-                if (isShading) {
-                    isShading = checkForShaddingFill(softMask.getG());
-                    softMask.getG().setShading(isShading);
-                }
-                if (!isShading) {
-                    x = (int) softMask.getG().getBBox().getX();
-                    y = (int) softMask.getG().getBBox().getY();
-                }
-            }
-            if (xForm.getExtGState().getSMask() != null) {
-                formSoftMask = xForm.getExtGState().getSMask();
-                boolean isShading = formSoftMask.getG().getResources().isShading();
-                if (isShading) {
-                    isShading = checkForShaddingFill(formSoftMask.getG());
-                    formSoftMask.getG().setShading(isShading);
-                }
-                if (!isShading) {
-                    x = (int) formSoftMask.getG().getBBox().getX();
-                    y = (int) formSoftMask.getG().getBBox().getY();
-                }
-            }
+            SoftMask formSoftMask = extGState.getSMask();
+            SoftMask softMask = graphicsState.getExtGState().getSMask();
             // check if we have the same xobject.
             if (softMask != null && formSoftMask != null) {
                 if (softMask.getPObjectReference() != null && formSoftMask.getPObjectReference() != null &&
@@ -123,62 +104,111 @@ public class FormDrawCmd extends AbstractDrawCmd {
                     softMask = null;
                 }
             }
-            // need to check if we really have a shading pattern, as the resources check can be false positive.
-            if (xForm.getResources().isShading()) {
-                boolean isFormShading = checkForShaddingFill(xForm);
-                xForm.setShading(isFormShading);
+
+            // the same group is often painted on every page, reuse the buffer if we have it.
+            TransparencyGroupCache groupCache = xForm.getLibrary().getTransparencyGroupCache();
+            TransparencyGroupCache.Key groupKey = TransparencyGroupCache.createGroupKey(xForm,
+                    softMask, formSoftMask, normalBM, isExtendGraphicState, renderingHints);
+            TransparencyGroupCache.Entry cachedGroup = groupCache.get(groupKey);
+            if (cachedGroup != null) {
+                xFormBuffer = cachedGroup.getImage();
+                x = cachedGroup.getX();
+                y = cachedGroup.getY();
+            } else if (createGroupBuffer(parentPage, renderingHints, softMask, formSoftMask,
+                    hasMask, isExtendGraphicState, normalBM)) {
+                groupCache.put(groupKey, xFormBuffer, x, y);
+            } else {
+                return currentShape;
             }
+//            ImageUtility.displayImage(xFormBuffer, "final" + xForm.getGroup() + " " + xForm.getPObjectReference() +
+//                    xFormBuffer.getHeight() + "x" + xFormBuffer.getHeight());
+        }
+        g.drawImage(xFormBuffer, null, x, y);
+        return currentShape;
+    }
 
-            // create the form and we'll paint it at the very least
-            xFormBuffer = createBufferXObject(parentPage, xForm, null, renderingHints, normalBM);
-            if (!disableXObjectSMask && hasMask) {
+    /**
+     * Paints the form to xFormBuffer and applies its soft masks.
+     *
+     * @return true if the buffer should be painted, false if painting is skipped.
+     */
+    private boolean createGroupBuffer(Page parentPage, RenderingHints renderingHints,
+                                      SoftMask softMask, SoftMask formSoftMask, boolean hasMask,
+                                      boolean isExtendGraphicState, boolean normalBM) {
+        if (softMask != null) {
+            boolean isShading = softMask.getG().getResources().isShading();
+            if (isShading) {
+                isShading = checkForShaddingFill(softMask.getG());
+                softMask.getG().setShading(isShading);
+            }
+            if (!isShading) {
+                x = (int) softMask.getG().getBBox().getX();
+                y = (int) softMask.getG().getBBox().getY();
+            }
+        }
+        if (formSoftMask != null) {
+            boolean isShading = formSoftMask.getG().getResources().isShading();
+            if (isShading) {
+                isShading = checkForShaddingFill(formSoftMask.getG());
+                formSoftMask.getG().setShading(isShading);
+            }
+            if (!isShading) {
+                x = (int) formSoftMask.getG().getBBox().getX();
+                y = (int) formSoftMask.getG().getBBox().getY();
+            }
+        }
+        // need to check if we really have a shading pattern, as the resources check can be false positive.
+        if (xForm.getResources().isShading()) {
+            boolean isFormShading = checkForShaddingFill(xForm);
+            xForm.setShading(isFormShading);
+        }
 
-                // apply the mask and paint.
-                if (!xForm.isShading()) {
-                    if (softMask != null && softMask.getS().equals(SoftMask.SOFT_MASK_TYPE_ALPHA)) {
-                        logger.warning("Smask alpha example, currently not supported.");
-                    } else if (softMask != null && softMask.getS().equals(SoftMask.SOFT_MASK_TYPE_LUMINOSITY)) {
-                        xFormBuffer = applyMask(parentPage, xFormBuffer, softMask, formSoftMask, g.getRenderingHints());
-                    }
-                } else if (softMask != null) {
-                    // still not property aligning the form or mask space to correctly apply a shading pattern.
-                    // experimental as it fixes some, breaks others, but regardless we don't support it well.
-                    logger.warning("Smask pattern paint example, currently not supported.");
-                    xFormBuffer.flush();
-                    xFormBuffer = createBufferXObject(parentPage, softMask.getG(), null, renderingHints, true);
-                    return currentShape;
+        // create the form and we'll paint it at the very least
+        xFormBuffer = createBufferXObject(parentPage, xForm, null, renderingHints, normalBM);
+        if (!disableXObjectSMask && hasMask) {
+
+            // apply the mask and paint.
+            if (!xForm.isShading()) {
+                if (softMask != null && softMask.getS().equals(SoftMask.SOFT_MASK_TYPE_ALPHA)) {
+                    logger.warning("Smask alpha example, currently not supported.");
+                } else if (softMask != null && softMask.getS().equals(SoftMask.SOFT_MASK_TYPE_LUMINOSITY)) {
+                    xFormBuffer = applyMask(parentPage, xFormBuffer, softMask, formSoftMask, renderingHints);
                 }
-                // apply the form mask to current form content that has been rasterized to xFormBuffer
-                if (formSoftMask != null) {
-                    BufferedImage formSMaskBuffer = applyMask(parentPage, xFormBuffer, formSoftMask, softMask,
-                            g.getRenderingHints());
-                    // compost all the images.
-                    if (softMask != null) {
-                        BufferedImage formBuffer = new ImageUtility().createTranslucentCompatibleImage(
-                                xFormBuffer.getWidth(), xFormBuffer.getHeight());
-                        Graphics2D g2d = (Graphics2D) formBuffer.getGraphics();
+            } else if (softMask != null) {
+                // still not property aligning the form or mask space to correctly apply a shading pattern.
+                // experimental as it fixes some, breaks others, but regardless we don't support it well.
+                logger.warning("Smask pattern paint example, currently not supported.");
+                xFormBuffer.flush();
+                xFormBuffer = createBufferXObject(parentPage, softMask.getG(), null, renderingHints, true);
+                return false;
+            }
+            // apply the form mask to current form content that has been rasterized to xFormBuffer
+            if (formSoftMask != null) {
+                BufferedImage formSMaskBuffer = applyMask(parentPage, xFormBuffer, formSoftMask, softMask,
+                        renderingHints);
+                // compost all the images.
+                if (softMask != null) {
+                    BufferedImage formBuffer = new ImageUtility().createTranslucentCompatibleImage(
+                            xFormBuffer.getWidth(), xFormBuffer.getHeight());
+                    Graphics2D g2d = (Graphics2D) formBuffer.getGraphics();
 //                        java.util.List<Number> compRaw = formSoftMask.getBC();
 //                        if (compRaw != null) {
 //                            g2d.setColor(Color.BLACK);
 //                            g2d.fillRect(0, 0, xFormBuffer.getWidth(), xFormBuffer.getHeight());
 //                        }
-                        g2d.drawImage(formSMaskBuffer, 0, 0, null);
+                    g2d.drawImage(formSMaskBuffer, 0, 0, null);
 //                        g2d.drawImage(xFormBuffer, 0, 0, null);
-                        xFormBuffer.flush();
-                        xFormBuffer = formBuffer;
-                    } else {
-                        xFormBuffer = formSMaskBuffer;
-                    }
+                    xFormBuffer.flush();
+                    xFormBuffer = formBuffer;
+                } else {
+                    xFormBuffer = formSMaskBuffer;
                 }
-            } else if (isExtendGraphicState) {
-                BufferedImage shape = createBufferXObject(parentPage, xForm, null, renderingHints, true);
-                xFormBuffer = new ImageUtility().applyExplicitOutline(xFormBuffer, shape);
             }
-//            ImageUtility.displayImage(xFormBuffer, "final" + xForm.getGroup() + " " + xForm.getPObjectReference() +
-//                    xFormBuffer.getHeight() + "x" + xFormBuffer.getHeight());
+        } else if (isExtendGraphicState) {
+            BufferedImage shape = createBufferXObject(parentPage, xForm, null, renderingHints, true);
+            xFormBuffer = new ImageUtility().applyExplicitOutline(xFormBuffer, shape);
         }
-        g.drawImage(xFormBuffer, null, x, y);
-        return currentShape;
+        return true;
     }
 
     private BufferedImage applyMask(Page parentPage, BufferedImage xFormBuffer, SoftMask softMask, SoftMask gsSoftMask,
@@ -186,7 +216,7 @@ public class FormDrawCmd extends AbstractDrawCmd {
         if (softMask != null && softMask.getS().equals(SoftMask.SOFT_MASK_TYPE_ALPHA)) {
             logger.warning("Smask alpha example, currently not supported.");
         } else if (softMask != null && softMask.getS().equals(SoftMask.SOFT_MASK_TYPE_LUMINOSITY)) {
-            BufferedImage sMaskBuffer = createBufferXObject(parentPage, softMask.getG(), softMask, renderingHints, true);
+            BufferedImage sMaskBuffer = createMaskBuffer(parentPage, softMask, renderingHints);
 //            ImageUtility.displayImage(xFormBuffer, "base " + xForm.getPObjectReference() + " " + xFormBuffer.getHeight() + " x " + xFormBuffer.getHeight());
 //            ImageUtility.displayImage(sMaskBuffer, "smask " + softMask.getG().getPObjectReference() + " " + useLuminosity);
             if (!(gsSoftMask != null)) {
@@ -206,6 +236,25 @@ public class FormDrawCmd extends AbstractDrawCmd {
         return xFormBuffer;
     }
 
+    /**
+     * Gets the luminosity buffer of the soft mask group from the document's
+     * TransparencyGroupCache, painting it if it isn't cached.
+     */
+    private BufferedImage createMaskBuffer(Page parentPage, SoftMask softMask, RenderingHints renderingHints) {
+        Form maskGroup = softMask.getG();
+        TransparencyGroupCache groupCache = maskGroup.getLibrary().getTransparencyGroupCache();
+        // large masks are clamped to the size of the form buffer.
+        TransparencyGroupCache.Key maskKey = TransparencyGroupCache.createMaskKey(maskGroup,
+                xFormBuffer.getWidth(), xFormBuffer.getHeight(), renderingHints);
+        TransparencyGroupCache.Entry cachedMask = groupCache.get(maskKey);
+        if (cachedMask != null) {
+            return cachedMask.getImage();
+        }
+        BufferedImage sMaskBuffer = createBufferXObject(parentPage, maskGroup, softMask, renderingHints, true);
+        groupCache.put(maskKey, sMaskBuffer, 0, 0);
+        return sMaskBuffer;
+    }
+
     /**
      * Paint the form content to a BufferedImage so that the forms content can be
      * used to apply the sMask data.  Further work is needed to fully support this
@@ -289,7 +338,7 @@ public class FormDrawCmd extends AbstractDrawCmd {
 
     private boolean checkForShaddingFill(Form xform) {
         boolean found = false;
-        for (DrawCmd cmd : xform.getShapes().getShapes()) {
+        for (DrawCmd cmd : xform.getShapes().getDrawCmds()) {
             if (cmd instanceof ShapeDrawCmd && ((ShapeDrawCmd) cmd).getShape() == null) {
                 found = true;
             }
@@ -84,6 +84,16 @@ public class ImageDrawCmd extends AbstractDrawCmd {
         return image.getImage();
     }
 
+    /**
+     * Indicates a thin image is painted scaled up past the unit square, see
+     * org.icepdf.core.imageDrawCmd.scale.enabled.
+     *
+     * @return true if the image may be painted scaled.
+     */
+    public boolean isScaled() {
+        return xIsScale || yIsScale;
+    }
+
     @Override
     public Shape paintOperand(Graphics2D g, Page parentPage, Shape currentShape,
                               Shape clip, AffineTransform base,
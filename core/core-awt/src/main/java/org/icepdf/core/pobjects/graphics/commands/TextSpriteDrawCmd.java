@@ -19,9 +19,11 @@ import org.icepdf.core.pobjects.Page;
 import org.icepdf.core.pobjects.graphics.OptionalContentState;
 import org.icepdf.core.pobjects.graphics.PaintTimer;
 import org.icepdf.core.pobjects.graphics.TextSprite;
+import org.icepdf.core.util.GraphicsRenderingHints;
 
 import java.awt.*;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
 
 /**
  * The TextSpriteDrawCmd stores an TextSprite instance and when executed the
@@ -45,13 +47,29 @@ public class TextSpriteDrawCmd extends AbstractDrawCmd {
                               boolean paintAlpha, PaintTimer lastPaintTime) {
 
         if (optionalContentState.isVisible() &&
-                textSprite.intersects(g.getClip())) {
+                textSprite.intersects(g.getClip()) &&
+                !isBelowMinimumSize(g)) {
             textSprite.paint(g);
         }
 
         return currentShape;
     }
 
+    /**
+     * Checks the sprite against the GraphicsRenderingHints.KEY_MINIMUM_TEXT_SIZE
+     * hint, the smaller side of the sprite's bounds is compared so rotated
+     * text is treated the same.
+     */
+    private boolean isBelowMinimumSize(Graphics2D g) {
+        Object minimumSize = g.getRenderingHint(GraphicsRenderingHints.KEY_MINIMUM_TEXT_SIZE);
+        if (minimumSize == null) {
+            return false;
+        }
+        double scale = Math.sqrt(Math.abs(g.getTransform().getDeterminant()));
+        Rectangle2D bounds = textSprite.getBounds();
+        return Math.min(bounds.getWidth(), bounds.getHeight()) * scale < (Float) minimumSize;
+    }
+
     public TextSprite getTextSprite() {
         return textSprite;
     }
@@ -32,9 +32,12 @@ import java.awt.geom.AffineTransform;
 public class TilingPatternDrawCmd extends AbstractDrawCmd {
 
     private TilingPattern tilingPattern;
+    // colour of an uncoloured pattern when the command was created.
+    private Color unColored;
 
     public TilingPatternDrawCmd(TilingPattern tilingPattern) {
         this.tilingPattern = tilingPattern;
+        unColored = tilingPattern.getUnColored();
     }
 
     @Override
@@ -42,7 +45,7 @@ public class TilingPatternDrawCmd extends AbstractDrawCmd {
                               Shape clip, AffineTransform base,
                               OptionalContentState optionalContentState,
                               boolean paintAlpha, PaintTimer paintTimer) {
-        tilingPattern.paintPattern(g, base);
+        tilingPattern.paintPattern(g, base, unColored);
         return currentShape;
     }
 }
@@ -16,7 +16,6 @@
 package org.icepdf.core.pobjects.graphics.text;
 
 import java.awt.geom.AffineTransform;
-import java.awt.geom.GeneralPath;
 import java.awt.geom.Rectangle2D;
 import java.util.logging.Logger;
 
@@ -61,23 +60,17 @@ public class GlyphText extends AbstractText {
      */
     public void normalizeToUserSpace(AffineTransform af, AffineTransform af1) {
         // map the coordinates from glyph space to user space.
-        GeneralPath generalPath = new GeneralPath(bounds);
-        generalPath.transform(af);
-        bounds = (Rectangle2D.Float) generalPath.getBounds2D();
+        bounds = transformBounds(bounds, af);
         // we have some portrait type layouts where the text is actually
         // running on the y-axis.  The reason for this is Tm that specifies
         // a -1 shear which is basically a 90 degree rotation.  Which breaks
         // our left to right top down text extraction logic (PDF-854).
         if (af1 != null && af1.getShearX() < -1) {
             // adjust of the rotation, move the text back to a normal layout.
-            generalPath = new GeneralPath(bounds);
-            generalPath.transform(new AffineTransform(0, -1, 1, 0, 0, 0));
-            textExtractionBounds = (Rectangle2D.Float) generalPath.getBounds2D();
+            textExtractionBounds = transformBounds(bounds, new AffineTransform(0, -1, 1, 0, 0, 0));
         } else if (af1 != null && af1.getShearY() < -1) {
             // adjust of the rotation, move the text back to a normal layout.
-            generalPath = new GeneralPath(bounds);
-            generalPath.transform(new AffineTransform(0, 1, -1, 0, 0, 0));
-            textExtractionBounds = (Rectangle2D.Float) generalPath.getBounds2D();
+            textExtractionBounds = transformBounds(bounds, new AffineTransform(0, 1, -1, 0, 0, 0));
         } else {
             // 99% of the time we just use the bounds.
             textExtractionBounds = bounds;
@@ -85,6 +78,37 @@ public class GlyphText extends AbstractText {
 
     }
 
+    /**
+     * Transforms a rectangle and returns the bounds of the result, the same
+     * bounds as transforming a GeneralPath of the rectangle but without
+     * building the path for every glyph.
+     *
+     * @param rect rectangle to transform.
+     * @param af   transform to apply.
+     * @return bounds of the transformed rectangle.
+     */
+    private static Rectangle2D.Float transformBounds(Rectangle2D.Float rect, AffineTransform af) {
+        // a rectangle with a negative size has an empty path.
+        if (rect.width < 0 || rect.height < 0) {
+            return new Rectangle2D.Float();
+        }
+        float right = rect.x + rect.width;
+        float bottom = rect.y + rect.height;
+        float[] corners = {rect.x, rect.y, right, rect.y, right, bottom, rect.x, bottom};
+        af.transform(corners, 0, corners, 0, 4);
+        float x1 = corners[0], x2 = x1;
+        float y1 = corners[1], y2 = y1;
+        for (int i = 2; i < corners.length; i += 2) {
+            float x = corners[i];
+            float y = corners[i + 1];
+            if (x < x1) x1 = x;
+            if (y < y1) y1 = y;
+            if (x > x2) x2 = x;
+            if (y > y2) y2 = y;
+        }
+        return new Rectangle2D.Float(x1, y1, x2 - x1, y2 - y1);
+    }
+
     public String getCid() {
         return cid;
     }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.pobjects.graphics.text;
+
+import java.io.IOException;
+
+/**
+ * PageTextCallback receives the text of each page extracted by a
+ * TextExtractor, in page order.
+ * <br>
+ * <b>Note:</b> the PageText is released once the callback returns, don't hold
+ * a reference to it or the memory used by the extraction will grow with the
+ * number of pages.
+ *
+ * @since 6.3
+ */
+public interface PageTextCallback {
+
+    /**
+     * Called with the text of a page once it and every page before it have
+     * been extracted.
+     *
+     * @param pageIndex zero-based index of the page.
+     * @param pageText  text of the page, null if the page has no text.
+     * @throws IOException if the text can't be written, extraction is stopped.
+     */
+    void pageTextExtracted(int pageIndex, PageText pageText) throws IOException;
+}
@@ -0,0 +1,802 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.search;
+
+import org.icepdf.core.pobjects.Document;
+import org.icepdf.core.pobjects.Page;
+import org.icepdf.core.pobjects.PageInitializer;
+import org.icepdf.core.pobjects.graphics.text.LineText;
+import org.icepdf.core.pobjects.graphics.text.PageText;
+import org.icepdf.core.pobjects.graphics.text.WordText;
+import org.icepdf.core.util.Defs;
+
+import java.awt.geom.Rectangle2D;
+import java.io.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Inverted index of the words of a document's pages.  The text of every page
+ * is extracted once, with the pages parsed in parallel, and searches are then
+ * answered from the index without walking or lower casing the page text again.
+ * <br>
+ * Words are the WordText of PageText.getPageLines(), including white space and
+ * punctuation, so queries have the same semantics as the default
+ * DocumentSearchController search.  Each distinct word is stored once in a
+ * vocabulary; for every page the index keeps the vocabulary id and bounds of
+ * each word in reading order and for every word the pages it occurs on.  A
+ * {@link Query} resolves its search terms against the vocabulary once, which
+ * leaves pages without a candidate word to be skipped and the remaining pages
+ * to be matched by comparing integer ids.
+ * <br>
+ * Indexes can be persisted to a local directory set with the system property
+ * org.icepdf.core.search.index.cacheDir.  Index files are named by the MD5
+ * hash of the document's bytes, so the index of a document that was already
+ * indexed is read back rather then rebuilt.  The number of pages parsed ahead
+ * of the page being indexed can be set with
+ * org.icepdf.core.search.index.lookAhead, default 4.
+ *
+ * @since 6.3
+ */
+public class DocumentTextIndex {
+
+    private static final Logger logger =
+            Logger.getLogger(DocumentTextIndex.class.toString());
+
+    private static String cacheDir;
+    private static int lookAhead;
+
+    static {
+        cacheDir = Defs.property("org.icepdf.core.search.index.cacheDir");
+        lookAhead = Defs.intProperty("org.icepdf.core.search.index.lookAhead", 4);
+    }
+
+    private static final int FILE_MAGIC = 0x49504458;
+    private static final int FILE_VERSION = 1;
+    private static final String FILE_EXTENSION = ".idx";
+
+    // distinct words, case preserved, indexed by word id.
+    private final String[] words;
+    // lower case of each word, only used for case insensitive queries.
+    private final String[] lowerWords;
+    // word ids of each page in reading order.
+    private final int[][] pageWords;
+    // position of the first word of each line of each page.
+    private final int[][] pageLines;
+    // x, y, width and height of each word of each page.
+    private final float[][] pageBounds;
+    // sorted pages each word id occurs on.
+    private final int[][] postings;
+    // word ids ordered by their lower case word, for prefix queries.
+    private final int[] sortedWords;
+
+    private DocumentTextIndex(String[] words, int[][] pageWords, int[][] pageLines,
+                              float[][] pageBounds) {
+        this.words = words;
+        this.pageWords = pageWords;
+        this.pageLines = pageLines;
+        this.pageBounds = pageBounds;
+        lowerWords = new String[words.length];
+        for (int i = 0; i < words.length; i++) {
+            lowerWords[i] = words[i].toLowerCase();
+        }
+        // build the posting lists, counting first so each list is allocated once.
+        int[] counts = new int[words.length];
+        int[] lastPage = new int[words.length];
+        Arrays.fill(lastPage, -1);
+        for (int page = 0; page < pageWords.length; page++) {
+            for (int id : pageWords[page]) {
+                if (lastPage[id] != page) {
+                    lastPage[id] = page;
+                    counts[id]++;
+                }
+            }
+        }
+        postings = new int[words.length][];
+        for (int id = 0; id < words.length; id++) {
+            postings[id] = new int[counts[id]];
+            counts[id] = 0;
+        }
+        Arrays.fill(lastPage, -1);
+        for (int page = 0; page < pageWords.length; page++) {
+            for (int id : pageWords[page]) {
+                if (lastPage[id] != page) {
+                    lastPage[id] = page;
+                    postings[id][counts[id]++] = page;
+                }
+            }
+        }
+        Integer[] order = new Integer[words.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                return lowerWords[o1].compareTo(lowerWords[o2]);
+            }
+        });
+        sortedWords = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedWords[i] = order[i];
+        }
+    }
+
+    /**
+     * Gets the index of the given document.  If an index cache directory is
+     * configured the index is read from it when present, otherwise the index
+     * is built and written to the directory.
+     *
+     * @param document document to index.
+     * @return document index.
+     * @throws InterruptedException if the thread is interrupted while the
+     *                              pages are being parsed.
+     */
+    public static DocumentTextIndex getInstance(Document document) throws InterruptedException {
+        File indexFile = getIndexFile(document);
+        if (indexFile != null && indexFile.isFile()) {
+            InputStream in = null;
+            try {
+                in = new BufferedInputStream(new FileInputStream(indexFile));
+                return read(in, indexFile.length(), document.getNumberOfPages());
+            } catch (Exception | OutOfMemoryError e) {
+                // a corrupt or stale index is deleted and rebuilt.
+                logger.log(Level.WARNING, "Error reading search index " + indexFile, e);
+            } finally {
+                close(in);
+            }
+            if (!indexFile.delete()) {
+                logger.warning("Error deleting search index " + indexFile);
+            }
+        }
+        DocumentTextIndex index = build(document);
+        if (indexFile != null) {
+            index.write(indexFile);
+        }
+        return index;
+    }
+
+    /**
+     * Builds the index of the given document.  Pages are parsed ahead of the
+     * page being indexed on the library's common thread pool.
+     *
+     * @param document document to index.
+     * @return document index.
+     * @throws InterruptedException if the thread is interrupted while the
+     *                              pages are being parsed.
+     */
+    public static DocumentTextIndex build(Document document) throws InterruptedException {
+        int pageCount = document.getNumberOfPages();
+        Builder builder = new Builder(pageCount);
+        if (pageCount == 0) {
+            return builder.create();
+        }
+        PageInitializer initializer = document.initPages(0, pageCount - 1, lookAhead);
+        try {
+            for (int i = 0; i < pageCount; i++) {
+                Page page = initializer.getPage(i);
+                builder.addPage(i, page != null ? page.getViewText() : null);
+            }
+        } finally {
+            if (!initializer.isDone()) {
+                initializer.cancel();
+            }
+        }
+        return builder.create();
+    }
+
+    /**
+     * Creates a query for a search term, the term's words are matched the same
+     * way as the default search; whole words are compared for equality and
+     * other words match any word that contains them.
+     *
+     * @param searchTerm term to search for.
+     * @return query for the term.
+     */
+    public Query createQuery(SearchTerm searchTerm) {
+        List<String> terms = searchTerm.getTerms();
+        BitSet[] matches = new BitSet[terms.size()];
+        for (int i = 0; i < matches.length; i++) {
+            String term = terms.get(i);
+            if (searchTerm.isWholeWord()) {
+                matches[i] = findWords(term, searchTerm.isCaseSensitive());
+            } else {
+                matches[i] = findWordsContaining(term, searchTerm.isCaseSensitive());
+            }
+        }
+        return new Query(matches);
+    }
+
+    /**
+     * Creates a query for the words that start with the given prefix.
+     *
+     * @param prefix        word prefix.
+     * @param caseSensitive true for a case sensitive query.
+     * @return query for the prefix.
+     */
+    public Query createPrefixQuery(String prefix, boolean caseSensitive) {
+        String lowerPrefix = prefix.toLowerCase();
+        BitSet match = new BitSet(words.length);
+        // binary search for the first word in the prefix's range.
+        int low = 0;
+        int high = sortedWords.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lowerWords[sortedWords[middle]].compareTo(lowerPrefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        for (int i = low; i < sortedWords.length; i++) {
+            int id = sortedWords[i];
+            if (!lowerWords[id].startsWith(lowerPrefix)) {
+                break;
+            }
+            if (!caseSensitive || words[id].startsWith(prefix)) {
+                match.set(id);
+            }
+        }
+        return new Query(new BitSet[]{match});
+    }
+
+    private BitSet findWords(String term, boolean caseSensitive) {
+        BitSet match = new BitSet(words.length);
+        String[] vocabulary = caseSensitive ? words : lowerWords;
+        for (int id = 0; id < vocabulary.length; id++) {
+            if (vocabulary[id].equals(term)) {
+                match.set(id);
+            }
+        }
+        return match;
+    }
+
+    private BitSet findWordsContaining(String term, boolean caseSensitive) {
+        BitSet match = new BitSet(words.length);
+        String[] vocabulary = caseSensitive ? words : lowerWords;
+        for (int id = 0; id < vocabulary.length; id++) {
+            if (vocabulary[id].contains(term)) {
+                match.set(id);
+            }
+        }
+        return match;
+    }
+
+    public int getPageCount() {
+        return pageWords.length;
+    }
+
+    /**
+     * Gets the number of distinct words in the document.
+     *
+     * @return vocabulary size.
+     */
+    public int getVocabularySize() {
+        return words.length;
+    }
+
+    /**
+     * Gets the number of words on a page, including white space and
+     * punctuation.
+     *
+     * @param pageIndex zero-based page index.
+     * @return number of words.
+     */
+    public int getWordCount(int pageIndex) {
+        return pageWords[pageIndex].length;
+    }
+
+    /**
+     * Gets a word of a page.
+     *
+     * @param pageIndex zero-based page index.
+     * @param wordIndex position of the word in the page's reading order.
+     * @return word text.
+     */
+    public String getWord(int pageIndex, int wordIndex) {
+        return words[pageWords[pageIndex][wordIndex]];
+    }
+
+    /**
+     * Gets the line a word of a page is on.
+     *
+     * @param pageIndex zero-based page index.
+     * @param wordIndex position of the word in the page's reading order.
+     * @return index of the line in PageText.getPageLines().
+     */
+    public int getLineIndex(int pageIndex, int wordIndex) {
+        int line = Arrays.binarySearch(pageLines[pageIndex], wordIndex);
+        if (line < 0) {
+            line = -line - 2;
+        }
+        // skip over empty lines that start at the same word.
+        int[] lines = pageLines[pageIndex];
+        while (line + 1 < lines.length && lines[line + 1] == wordIndex) {
+            line++;
+        }
+        return line;
+    }
+
+    /**
+     * Gets the bounds of a word of a page in page space.
+     *
+     * @param pageIndex zero-based page index.
+     * @param wordIndex position of the word in the page's reading order.
+     * @return word bounds.
+     */
+    public Rectangle2D.Float getBounds(int pageIndex, int wordIndex) {
+        float[] bounds = pageBounds[pageIndex];
+        int offset = wordIndex * 4;
+        return new Rectangle2D.Float(bounds[offset], bounds[offset + 1],
+                bounds[offset + 2], bounds[offset + 3]);
+    }
+
+    /**
+     * Writes the index to a file, the file is written under a temporary name
+     * and renamed so a partially written index is never read.
+     *
+     * @param file index file.
+     */
+    public void write(File file) {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            logger.warning("Error creating search index directory " + parent);
+            return;
+        }
+        File tempFile = new File(file.getPath() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(tempFile));
+            write(out);
+            out.close();
+            out = null;
+            if (!tempFile.renameTo(file)) {
+                file.delete();
+                if (!tempFile.renameTo(file)) {
+                    logger.warning("Error renaming search index " + tempFile);
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error writing search index " + file, e);
+        } finally {
+            close(out);
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Writes the index to a stream.
+     *
+     * @param out output stream, it isn't closed.
+     * @throws IOException if the index can't be written.
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(FILE_MAGIC);
+        data.writeInt(FILE_VERSION);
+        data.writeInt(words.length);
+        for (String word : words) {
+            data.writeUTF(word);
+        }
+        data.writeInt(pageWords.length);
+        for (int page = 0; page < pageWords.length; page++) {
+            int[] ids = pageWords[page];
+            data.writeInt(ids.length);
+            for (int id : ids) {
+                data.writeInt(id);
+            }
+            int[] lines = pageLines[page];
+            data.writeInt(lines.length);
+            for (int line : lines) {
+                data.writeInt(line);
+            }
+            for (float value : pageBounds[page]) {
+                data.writeFloat(value);
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads an index written with {@link #write(OutputStream)}.  Every count
+     * and offset is checked against the bytes left in the stream and the
+     * document's page count so a corrupt or truncated index fails with an
+     * IOException.
+     *
+     * @param in        input stream, it isn't closed.
+     * @param length    number of bytes of the index in the stream.
+     * @param pageCount number of pages of the indexed document.
+     * @return index read from the stream.
+     * @throws IOException if the stream isn't a valid index of pageCount pages.
+     */
+    public static DocumentTextIndex read(InputStream in, long length, int pageCount)
+            throws IOException {
+        LimitedInputStream limited = new LimitedInputStream(in, length);
+        DataInputStream data = new DataInputStream(limited);
+        if (data.readInt() != FILE_MAGIC || data.readInt() != FILE_VERSION) {
+            throw new IOException("Not a search index or unsupported version.");
+        }
+        // each word takes at least its two byte length.
+        String[] words = new String[readCount(data, limited, 2)];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = data.readUTF();
+        }
+        if (data.readInt() != pageCount) {
+            throw new IOException("Search index page count doesn't match the document.");
+        }
+        int[][] pageWords = new int[pageCount][];
+        int[][] pageLines = new int[pageCount][];
+        float[][] pageBounds = new float[pageCount][];
+        for (int page = 0; page < pageCount; page++) {
+            // each word takes its id and four bounds values.
+            int[] ids = new int[readCount(data, limited, 20)];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = data.readInt();
+                if (ids[i] < 0 || ids[i] >= words.length) {
+                    throw new IOException("Invalid word id " + ids[i]);
+                }
+            }
+            int[] lines = new int[readCount(data, limited, 4)];
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = data.readInt();
+                // line starts are sorted word positions, a line can be empty.
+                if (lines[i] < (i > 0 ? lines[i - 1] : 0) || lines[i] > ids.length) {
+                    throw new IOException("Invalid line offset " + lines[i]);
+                }
+            }
+            float[] bounds = new float[ids.length * 4];
+            for (int i = 0; i < bounds.length; i++) {
+                bounds[i] = data.readFloat();
+            }
+            pageWords[page] = ids;
+            pageLines[page] = lines;
+            pageBounds[page] = bounds;
+        }
+        if (limited.remaining() != 0) {
+            throw new IOException("Unexpected data after the search index.");
+        }
+        return new DocumentTextIndex(words, pageWords, pageLines, pageBounds);
+    }
+
+    /**
+     * Reads a count and checks that that many items of at least itemSize
+     * bytes fit in what's left of the stream.
+     */
+    private static int readCount(DataInputStream data, LimitedInputStream limited, int itemSize)
+            throws IOException {
+        int count = data.readInt();
+        if (count < 0 || (long) count * itemSize > limited.remaining()) {
+            throw new IOException("Invalid search index count " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the file the document's index is persisted to.
+     *
+     * @param document document to index.
+     * @return index file, null if no cache directory is configured or the
+     * document's bytes can't be read.
+     */
+    public static File getIndexFile(Document document) {
+        if (cacheDir == null || cacheDir.length() == 0) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            OutputStream hashStream = new DigestOutputStream(new OutputStream() {
+                public void write(int b) {
+                }
+
+                public void write(byte[] b, int off, int len) {
+                }
+            }, digest);
+            document.writeToOutputStream(hashStream);
+            StringBuilder name = new StringBuilder(40);
+            for (byte b : digest.digest()) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16));
+                name.append(Character.forDigit(b & 0xf, 16));
+            }
+            return new File(cacheDir, name.append(FILE_EXTENSION).toString());
+        } catch (NoSuchAlgorithmException e) {
+            logger.log(Level.WARNING, "MD5 digest not available for search index.", e);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error hashing document for search index.", e);
+        } catch (RuntimeException e) {
+            // documents created without an input can't be hashed.
+            logger.log(Level.FINE, "Document can't be hashed for search index.", e);
+        }
+        return null;
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // forget about it.
+            }
+        }
+    }
+
+    /**
+     * Stream that ends after a given number of bytes and keeps track of how
+     * many are left.
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long length) {
+            super(in);
+            remaining = length;
+        }
+
+        long remaining() {
+            return remaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int count = in.read(b, off, (int) Math.min(len, remaining));
+            if (count > 0) {
+                remaining -= count;
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long count = in.skip(Math.min(n, remaining));
+            remaining -= count;
+            return count;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    /**
+     * Search query resolved against the index's vocabulary.  A query matches
+     * a run of consecutive words where each word is one of the words matched
+     * by the corresponding search term word.  Queries are immutable and can be
+     * used by several threads.
+     */
+    public class Query {
+
+        // words matched by each term word.
+        private final BitSet[] matches;
+        // pages that contain a match for every term word.
+        private final BitSet pages;
+
+        private Query(BitSet[] matches) {
+            this.matches = matches;
+            if (matches.length == 0) {
+                pages = new BitSet();
+                return;
+            }
+            BitSet candidates = null;
+            for (BitSet match : matches) {
+                BitSet termPages = new BitSet(pageWords.length);
+                for (int id = match.nextSetBit(0); id >= 0; id = match.nextSetBit(id + 1)) {
+                    for (int page : postings[id]) {
+                        termPages.set(page);
+                    }
+                }
+                if (candidates == null) {
+                    candidates = termPages;
+                } else {
+                    candidates.and(termPages);
+                }
+            }
+            pages = candidates;
+        }
+
+        /**
+         * Indicates the page may have a match, pages without one don't have
+         * to be searched.
+         *
+         * @param pageIndex zero-based page index.
+         * @return true if the page contains every word of the query.
+         */
+        public boolean isCandidate(int pageIndex) {
+            return pages.get(pageIndex);
+        }
+
+        /**
+         * Finds the matches on a page.  Like the default search, matching is
+         * greedy; once a run of words matches the query the search continues
+         * after the run.
+         *
+         * @param pageIndex zero-based page index.
+         * @return matches in reading order, empty if there are none.
+         */
+        public List<Match> search(int pageIndex) {
+            if (!pages.get(pageIndex)) {
+                return Collections.emptyList();
+            }
+            List<Match> hits = new ArrayList<Match>();
+            int[] ids = pageWords[pageIndex];
+            int matchCount = matches.length;
+            int matched = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (matches[matched].get(ids[i])) {
+                    matched++;
+                } else {
+                    matched = 0;
+                }
+                if (matched == matchCount) {
+                    hits.add(new Match(pageIndex, i - matchCount + 1, matchCount));
+                    matched = 0;
+                }
+            }
+            return hits;
+        }
+
+        /**
+         * Finds the matches on every page of the document.
+         *
+         * @return matches in page and reading order.
+         */
+        public List<Match> search() {
+            List<Match> hits = new ArrayList<Match>();
+            for (int page = pages.nextSetBit(0); page >= 0; page = pages.nextSetBit(page + 1)) {
+                hits.addAll(search(page));
+            }
+            return hits;
+        }
+    }
+
+    /**
+     * A run of words of a page matched by a query.
+     */
+    public class Match {
+
+        private final int pageIndex;
+        private final int wordIndex;
+        private final int wordCount;
+
+        private Match(int pageIndex, int wordIndex, int wordCount) {
+            this.pageIndex = pageIndex;
+            this.wordIndex = wordIndex;
+            this.wordCount = wordCount;
+        }
+
+        public int getPageIndex() {
+            return pageIndex;
+        }
+
+        /**
+         * Gets the position of the first matched word in the page's reading
+         * order.
+         *
+         * @return word position.
+         */
+        public int getWordIndex() {
+            return wordIndex;
+        }
+
+        public int getWordCount() {
+            return wordCount;
+        }
+
+        /**
+         * Gets the union of the bounds of the matched words.
+         *
+         * @return bounds in page space.
+         */
+        public Rectangle2D.Float getBounds() {
+            Rectangle2D.Float bounds = DocumentTextIndex.this.getBounds(pageIndex, wordIndex);
+            for (int i = 1; i < wordCount; i++) {
+                bounds.add(DocumentTextIndex.this.getBounds(pageIndex, wordIndex + i));
+            }
+            return bounds;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < wordCount; i++) {
+                text.append(getWord(pageIndex, wordIndex + i));
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * Collects the words of each page, assigning vocabulary ids.
+     */
+    private static class Builder {
+
+        private final HashMap<String, Integer> wordIds = new HashMap<String, Integer>();
+        private final ArrayList<String> words = new ArrayList<String>();
+        private final int[][] pageWords;
+        private final int[][] pageLines;
+        private final float[][] pageBounds;
+
+        Builder(int pageCount) {
+            pageWords = new int[pageCount][];
+            pageLines = new int[pageCount][];
+            pageBounds = new float[pageCount][];
+        }
+
+        void addPage(int pageIndex, PageText pageText) {
+            ArrayList<LineText> lines = pageText != null ? pageText.getPageLines() : null;
+            if (lines == null) {
+                pageWords[pageIndex] = new int[0];
+                pageLines[pageIndex] = new int[0];
+                pageBounds[pageIndex] = new float[0];
+                return;
+            }
+            int wordCount = 0;
+            for (LineText line : lines) {
+                wordCount += line.getWords().size();
+            }
+            int[] ids = new int[wordCount];
+            int[] lineStarts = new int[lines.size()];
+            float[] bounds = new float[wordCount * 4];
+            int index = 0;
+            for (int i = 0; i < lineStarts.length; i++) {
+                lineStarts[i] = index;
+                for (WordText word : lines.get(i).getWords()) {
+                    String text = word.toString();
+                    Integer id = wordIds.get(text);
+                    if (id == null) {
+                        id = words.size();
+                        wordIds.put(text, id);
+                        words.add(text);
+                    }
+                    ids[index] = id;
+                    Rectangle2D.Float wordBounds = word.getBounds();
+                    if (wordBounds != null) {
+                        bounds[index * 4] = wordBounds.x;
+                        bounds[index * 4 + 1] = wordBounds.y;
+                        bounds[index * 4 + 2] = wordBounds.width;
+                        bounds[index * 4 + 3] = wordBounds.height;
+                    }
+                    index++;
+                }
+            }
+            pageWords[pageIndex] = ids;
+            pageLines[pageIndex] = lineStarts;
+            pageBounds[pageIndex] = bounds;
+        }
+
+        DocumentTextIndex create() {
+            return new DocumentTextIndex(words.toArray(new String[words.size()]),
+                    pageWords, pageLines, pageBounds);
+        }
+    }
+}
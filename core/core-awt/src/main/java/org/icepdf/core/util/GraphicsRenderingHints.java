@@ -42,6 +42,16 @@ public class GraphicsRenderingHints {
      */
     public static final int PRINT = 2;
 
+    /**
+     * Rendering hint key for the size, in device pixels, below which text is
+     * not painted.  The value is a Float, text is painted regardless of size
+     * when the hint isn't set.  Used for reduced fidelity rendering such as
+     * page thumbnails, where small text can't be read anyway.
+     *
+     * @since 6.3
+     */
+    public static final RenderingHints.Key KEY_MINIMUM_TEXT_SIZE = new MinimumTextSizeKey();
+
     /**
      * Gets the singleton representation of this object.
      *
@@ -433,4 +443,16 @@ public class GraphicsRenderingHints {
 
     private RenderingHints screenHints;
     private RenderingHints printHints;
+
+    private static class MinimumTextSizeKey extends RenderingHints.Key {
+
+        MinimumTextSizeKey() {
+            super(1);
+        }
+
+        @Override
+        public boolean isCompatibleValue(Object val) {
+            return val instanceof Float;
+        }
+    }
 }
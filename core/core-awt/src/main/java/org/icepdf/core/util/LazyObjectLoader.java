@@ -15,9 +15,11 @@
  */
 package org.icepdf.core.util;
 
+import org.icepdf.core.io.ConcurrentSeekableInput;
 import org.icepdf.core.io.SeekableInput;
 import org.icepdf.core.pobjects.*;
 
+import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,18 +32,30 @@ public class LazyObjectLoader {
     private static final Logger logger =
             Logger.getLogger(LazyObjectLoader.class.toString());
 
+    // allows objects to be loaded concurrently when the document input
+    // supports independent views.
+    private static boolean isConcurrentLoadingEnabled;
+
+    static {
+        isConcurrentLoadingEnabled =
+                Defs.sysPropertyBoolean("org.icepdf.core.library.concurrentLoading",
+                        true);
+    }
+
     private Library library;
     private SeekableInput seekableInput;
     private CrossReference crossReference;
-    protected SoftLRUCache<Reference, ObjectStream> leastRecentlyUsed;
-    private final Object leastRectlyUsedLock = new Object();
+    protected ObjectStreamCache objectStreamCache;
     private final Object streamLock = new Object();
+    private boolean concurrentLoading;
 
     public LazyObjectLoader(Library lib, SeekableInput seekableInput, CrossReference xref) {
         library = lib;
         this.seekableInput = seekableInput;
         crossReference = xref;
-        leastRecentlyUsed = new SoftLRUCache<Reference, ObjectStream>(256);
+        objectStreamCache = new ObjectStreamCache();
+        concurrentLoading = isConcurrentLoadingEnabled &&
+                seekableInput instanceof ConcurrentSeekableInput;
     }
 
     /**
@@ -61,6 +75,9 @@ public class LazyObjectLoader {
         // base cross reference lookup.
 
         if (entry instanceof CrossReference.UsedEntry) {
+            if (concurrentLoading) {
+                return loadObjectConcurrently(reference, (CrossReference.UsedEntry) entry);
+            }
             try {
                 if (seekableInput != null) {
                     synchronized (streamLock) {
@@ -89,27 +106,41 @@ public class LazyObjectLoader {
                 CrossReference.CompressedEntry compressedEntry = (CrossReference.CompressedEntry) entry;
                 int objectStreamsObjectNumber = compressedEntry.getObjectNumberOfContainingObjectStream();
                 int objectIndex = compressedEntry.getIndexWithinObjectStream();
-                Reference objectStreamRef = new Reference(objectStreamsObjectNumber, 0);
-                ObjectStream objectStream;
-                synchronized (leastRectlyUsedLock) {
-                    objectStream = leastRecentlyUsed.get(objectStreamRef);
-                }
+                ObjectStream objectStream = objectStreamCache.get(objectStreamsObjectNumber);
 
                 if (objectStream == null) {
-                    synchronized (streamLock) {
+                    Reference objectStreamRef = new Reference(objectStreamsObjectNumber, 0);
+                    if (concurrentLoading) {
                         objectStream = (ObjectStream) library.getObject(objectStreamRef);
+                    } else {
+                        synchronized (streamLock) {
+                            objectStream = (ObjectStream) library.getObject(objectStreamRef);
+                        }
                     }
                     if (objectStream != null) {
-                        synchronized (leastRectlyUsedLock) {
-                            leastRecentlyUsed.put(objectStreamRef, objectStream);
-                        }
+                        // decode before caching so the cache can account for its size.
+                        objectStream.init();
+                        objectStreamCache.put(objectStreamsObjectNumber, objectStream);
                     }
                 }
 
                 if (objectStream != null) {
-                    synchronized (streamLock) {
-                        return objectStream.loadObject(library, objectIndex);
+                    // data released by an eviction after the lookup is decoded
+                    // again by loadObject(), put it back so it's accounted for.
+                    boolean released = objectStream.getDecodedSize() == 0;
+                    Object ob;
+                    // object streams are decoded once and can be read concurrently.
+                    if (concurrentLoading) {
+                        ob = objectStream.loadObject(library, objectIndex);
+                    } else {
+                        synchronized (streamLock) {
+                            ob = objectStream.loadObject(library, objectIndex);
+                        }
                     }
+                    if (released) {
+                        objectStreamCache.put(objectStreamsObjectNumber, objectStream);
+                    }
+                    return ob;
                 }
             } catch (Exception e) {
                 logger.log(Level.SEVERE,
@@ -120,6 +151,38 @@ public class LazyObjectLoader {
         return null;
     }
 
+    /**
+     * Loads an uncompressed object from a private view of the document input.
+     * The view has its own file pointer so no thread access locking is needed
+     * and several threads can parse objects at the same time.
+     *
+     * @param reference object reference
+     * @param usedEntry cross reference entry of the object
+     * @return found object; dictionary, stream or pobject.
+     */
+    private Object loadObjectConcurrently(Reference reference, CrossReference.UsedEntry usedEntry) {
+        SeekableInput view = null;
+        try {
+            view = ((ConcurrentSeekableInput) seekableInput).createView();
+            view.seekAbsolute(usedEntry.getFilePositionOfObject());
+            Parser parser = new Parser(view);
+            return parser.getObject(library);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE,
+                    "Error loading object instance: " + reference.toString(), e);
+        } finally {
+            // stream bytes are copied out by the parser, the view can go.
+            if (view != null) {
+                try {
+                    view.close();
+                } catch (IOException e) {
+                    logger.log(Level.FINE, "Error closing input view.", e);
+                }
+            }
+        }
+        return null;
+    }
+
     public boolean haveEntry(Reference reference) {
         if (reference == null || crossReference == null)
             return false;
@@ -154,6 +217,15 @@ public class LazyObjectLoader {
         return trailer;
     }
 
+    /**
+     * Gets the cache of decoded object streams used to load compressed objects.
+     *
+     * @return document's object stream cache.
+     */
+    public ObjectStreamCache getObjectStreamCache() {
+        return objectStreamCache;
+    }
+
     /**
      * Get the documents library object.
      *
@@ -24,6 +24,8 @@ import org.icepdf.core.pobjects.fonts.Font;
 import org.icepdf.core.pobjects.fonts.FontDescriptor;
 import org.icepdf.core.pobjects.graphics.ICCBased;
 import org.icepdf.core.pobjects.graphics.ImagePool;
+import org.icepdf.core.pobjects.graphics.TilingPatternCache;
+import org.icepdf.core.pobjects.graphics.TransparencyGroupCache;
 import org.icepdf.core.pobjects.security.SecurityManager;
 
 import java.awt.geom.Rectangle2D;
@@ -111,6 +113,8 @@ public class Library {
     private boolean isEncrypted;
     private boolean isLinearTraversal;
     private ImagePool imagePool;
+    private TilingPatternCache tilingPatternCache;
+    private TransparencyGroupCache transparencyGroupCache;
 
     /**
      * Sets a document loader for the library.
@@ -121,6 +125,18 @@ public class Library {
         lazyObjectLoader = lol;
     }
 
+    /**
+     * Gets the document's cache of decoded object streams, useful for
+     * monitoring hit and miss rates of compressed object loading.
+     *
+     * @return object stream cache, null if no document loader has been set.
+     */
+    public ObjectStreamCache getObjectStreamCache() {
+        if (lazyObjectLoader == null)
+            return null;
+        return lazyObjectLoader.getObjectStreamCache();
+    }
+
     /**
      * Gets the document's trailer.
      *
@@ -581,6 +597,8 @@ public class Library {
     public Library() {
         // set Catalog memory Manager and cache manager.
         imagePool = new ImagePool();
+        tilingPatternCache = new TilingPatternCache();
+        transparencyGroupCache = new TransparencyGroupCache();
         signatureHandler = new SignatureHandler();
     }
 
@@ -754,6 +772,14 @@ public class Library {
         return imagePool;
     }
 
+    public TilingPatternCache getTilingPatternCache() {
+        return tilingPatternCache;
+    }
+
+    public TransparencyGroupCache getTransparencyGroupCache() {
+        return transparencyGroupCache;
+    }
+
     public static void initializeThreadPool() {
 
         log.fine("Starting ICEpdf Thread Pool: " + commonPoolThreads + " threads.");
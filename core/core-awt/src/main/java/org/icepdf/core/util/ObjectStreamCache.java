@@ -0,0 +1,137 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.util;
+
+import org.icepdf.core.pobjects.ObjectStream;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least recently used cache of decoded object streams, bounded by the number
+ * of decoded bytes held rather then the number of entries.  Entries are held
+ * strongly so a decoded object stream isn't lost on the first sign of memory
+ * pressure, once the byte budget is exceeded the least recently used streams
+ * have their decoded data released.  The size of a stream is taken when
+ * it's added and that same size is given back when it's evicted.
+ * <br>
+ * Each document has its own cache, see Library.getObjectStreamCache(), but
+ * the streams of all documents are kept in one static SizedLRUCache so
+ * opening more documents doesn't raise the memory held.  The budget can be
+ * set with the system property org.icepdf.core.library.objectStreamCache.size,
+ * default is 16MB.  A stream larger than the whole budget isn't cached.
+ *
+ * @since 6.3
+ */
+public class ObjectStreamCache {
+
+    private static long maxSize;
+
+    static {
+        maxSize = Defs.intProperty(
+                "org.icepdf.core.library.objectStreamCache.size", 16 * 1024 * 1024);
+    }
+
+    // decoded streams of all documents, keyed by the owning cache and the
+    // stream's object number.
+    private static final SizedLRUCache<SizedLRUCache.OwnerKey<Integer>, ObjectStream> streams =
+            new SizedLRUCache<SizedLRUCache.OwnerKey<Integer>, ObjectStream>(maxSize) {
+                @Override
+                protected long sizeOf(ObjectStream objectStream) {
+                    return objectStream.getDecodedSize();
+                }
+
+                @Override
+                protected void entryRemoved(SizedLRUCache.OwnerKey<Integer> key,
+                                            ObjectStream objectStream, boolean evicted) {
+                    objectStream.releaseDecodedData();
+                }
+            };
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Gets the decoded object stream with the given object number.
+     *
+     * @param objectNumber object number of the object stream.
+     * @return cached object stream, null if not in the cache.
+     */
+    public ObjectStream get(int objectNumber) {
+        ObjectStream objectStream = streams.get(
+                new SizedLRUCache.OwnerKey<Integer>(this, objectNumber));
+        if (objectStream != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return objectStream;
+    }
+
+    /**
+     * Adds a decoded object stream to the cache, evicting the least recently
+     * used streams if the byte budget is exceeded.  A stream that is already
+     * cached is counted again at its current decoded size.
+     *
+     * @param objectNumber object number of the object stream.
+     * @param objectStream initialized object stream.
+     */
+    public void put(int objectNumber, ObjectStream objectStream) {
+        streams.put(new SizedLRUCache.OwnerKey<Integer>(this, objectNumber), objectStream);
+    }
+
+    /**
+     * Removes this document's streams from the shared budget, releasing their
+     * decoded data.
+     */
+    public void clear() {
+        streams.removeOwner(this);
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of streams evicted from the budget shared by all
+     * documents.
+     *
+     * @return eviction count.
+     */
+    public static long getEvictionCount() {
+        return streams.getEvictionCount();
+    }
+
+    /**
+     * Gets the number of decoded bytes currently held for all documents.
+     *
+     * @return size in bytes.
+     */
+    public static long getSize() {
+        return streams.getSize();
+    }
+
+    public static long getMaxSize() {
+        return maxSize;
+    }
+
+    public static int getEntryCount() {
+        return streams.getEntryCount();
+    }
+}
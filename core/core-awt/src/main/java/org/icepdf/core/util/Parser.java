@@ -46,12 +46,24 @@ public class Parser {
     public static final int PARSE_MODE_NORMAL = 0;
     public static final int PARSE_MODE_OBJECT_STREAM = 1;
 
+    /**
+     * Returned by getStreamOperand() in place of a boxed number, the value
+     * is available from getLastNumber().
+     */
+    public static final Object NUMBER_TOKEN = new Object();
+
     // InputStream has to support mark(), reset(), and markSupported()
     // DO NOT close this, since we have two cases: read everything up front, and progressive reads
 //    private BufferedMarkedInputStream reader;
 
     private InputStream reader;
     boolean lastTokenHString = false;
+    // operator code of the last token, PdfOps.NO_OP if it wasn't an operator.
+    private int lastOperator;
+    // value of the last number token returned as NUMBER_TOKEN.
+    private float lastNumber;
+    private int lastInteger;
+    private boolean lastNumberInteger;
     private Stack<Object> stack = new Stack<Object>();
     private Stack<Integer> offSetStack = new Stack<Integer>();
     private int parseMode;
@@ -705,8 +717,28 @@ public class Parser {
      *                             has been encountered.
      */
     public Object getStreamObject() throws IOException {
+        return getStreamObject(getToken(false));
+    }
 
-        Object o = getToken();
+    /**
+     * Same as getStreamObject() except numbers which aren't part of an array
+     * or dictionary aren't boxed.  A number is returned as NUMBER_TOKEN and
+     * its value is available from getLastNumber() and isLastNumberInteger().
+     * Used by the content parsers where numeric operands make up the bulk of
+     * the tokens.
+     *
+     * @return next content stream object or NUMBER_TOKEN.
+     * @throws java.io.IOException end of stream or an I/O error.
+     */
+    public Object getStreamOperand() throws IOException {
+        Object o = getToken(true);
+        if (o == NUMBER_TOKEN) {
+            return o;
+        }
+        return getStreamObject(o);
+    }
+
+    private Object getStreamObject(Object o) throws IOException {
         if (o instanceof String) {
             if (o.equals("<<")) {
                 HashMap<Object, Object> h = new HashMap<Object, Object>();
@@ -741,6 +773,10 @@ public class Parser {
      * @throws java.io.IOException if an I/O error occurs.
      */
     public Object getToken() throws IOException {
+        return getToken(false);
+    }
+
+    private Object getToken(boolean primitiveNumbers) throws IOException {
 
         int currentByte;
         char currentChar;
@@ -748,6 +784,7 @@ public class Parser {
         boolean hexString = false;
         boolean inNumber = false;
         lastTokenHString = false;
+        lastOperator = PdfOps.NO_OP;
 
         // strip all white space characters
         do {
@@ -1030,11 +1067,61 @@ public class Parser {
         }
         // if a number try and parse it
         else if (inNumber) {
+            if (primitiveNumbers) {
+                parseLastNumber(stringBuffer);
+                return NUMBER_TOKEN;
+            }
             return getNumber(stringBuffer);
         }
+        // content stream operators share one token instance, no new String.
+        lastOperator = PdfOps.getOperator(stringBuffer);
+        if (lastOperator != PdfOps.NO_OP) {
+            return PdfOps.getOperatorToken(lastOperator);
+        }
         return stringBuffer.toString();
     }
 
+    /**
+     * Gets the operator code of the last token returned by getToken() or
+     * getStreamObject().
+     *
+     * @return one of the PdfOps operator codes, PdfOps.NO_OP if the last token
+     * wasn't a content stream operator.
+     */
+    public int getLastOperator() {
+        return lastOperator;
+    }
+
+    /**
+     * Gets the value of the last number returned as NUMBER_TOKEN by
+     * getStreamOperand().
+     *
+     * @return last number value.
+     */
+    public float getLastNumber() {
+        return lastNumber;
+    }
+
+    /**
+     * Gets the value of the last number returned as NUMBER_TOKEN if it was
+     * an integer.
+     *
+     * @return last integer value, only valid if isLastNumberInteger().
+     */
+    public int getLastInteger() {
+        return lastInteger;
+    }
+
+    /**
+     * Indicates the last number returned as NUMBER_TOKEN had no decimal
+     * part, getNumber() would have returned an Integer for it.
+     *
+     * @return true if the last number was an integer.
+     */
+    public boolean isLastNumberInteger() {
+        return lastNumberInteger;
+    }
+
     public Object getNumberOrStringWithMark(int maxLength) throws IOException {
         reader.mark(maxLength);
 
@@ -1165,6 +1252,50 @@ public class Parser {
         }
     }
 
+    /**
+     * Primitive version of getNumber(), stores the result in lastNumber,
+     * lastInteger and lastNumberInteger rather then boxing it.
+     */
+    private void parseLastNumber(StringBuilder value) {
+        int digit = 0;
+        float decimal = 0;
+        float divisor = 10;
+        boolean isDigit;
+        boolean isDecimal = false;
+        int length = value.length();
+        int startTokenPos = 0;
+        boolean singed = value.charAt(startTokenPos) == '-';
+        boolean positive = value.charAt(startTokenPos) == '+';
+        startTokenPos = singed || positive ? startTokenPos + 1 : startTokenPos;
+        // check for  double sign, thanks oracle forms!
+        if (singed && startTokenPos < length && value.charAt(startTokenPos) == '-') {
+            startTokenPos++;
+        }
+        char current;
+        for (int i = startTokenPos; i < length; i++) {
+            current = value.charAt(i);
+            isDigit = current >= '0' && current <= '9';
+            if (!isDecimal && isDigit) {
+                digit = (digit * 10) + (current - '0');
+            } else if (isDecimal && isDigit) {
+                decimal += ((current - '0') / divisor);
+                divisor *= 10;
+            } else if (current == '.') {
+                isDecimal = true;
+            } else {
+                // anything else we can assume malformed and should break.
+                break;
+            }
+        }
+        if (singed) {
+            digit = -digit;
+            decimal = -decimal;
+        }
+        lastNumberInteger = !isDecimal;
+        lastInteger = digit;
+        lastNumber = isDecimal ? digit + decimal : digit;
+    }
+
     public long getLongSurroundedByWhitespace() {
         long num = 0L;
         boolean makeNegative = false;
@@ -15,6 +15,8 @@
  */
 package org.icepdf.core.util;
 
+import java.util.Arrays;
+
 /**
  *
  */
@@ -116,6 +118,7 @@ public final class PdfOps {
     // Inline Images
     public static final String BI_TOKEN = "BI";
     public static final String ID_TOKEN = "ID";
+    public static final String EI_TOKEN = "EI";
     public static final String BPC_TOKEN = "BPC";
     public static final String BPC_NAME = "BitsPerComponent";
     public static final String CS_NAME = "ColorSpace";
@@ -130,4 +133,192 @@ public final class PdfOps {
     public static final String I_TOKEN = "I";
     public static final String I_NAME = "Indexed";
     public static final String W_NAME = "Width";
+
+    /**
+     * Operator codes, assigned by the {@link Parser} to content stream
+     * operator tokens so content parsers can switch on an int rather then
+     * comparing token strings.
+     */
+    public static final int NO_OP = 0;
+
+    // Path Tokens
+    public static final int m_OP = 1;
+    public static final int l_OP = 2;
+    public static final int c_OP = 3;
+    public static final int v_OP = 4;
+    public static final int y_OP = 5;
+    public static final int h_OP = 6;
+    public static final int re_OP = 7;
+
+    // Path Painting
+    public static final int S_OP = 8;
+    public static final int s_OP = 9;
+    public static final int f_OP = 10;
+    public static final int F_OP = 11;
+    public static final int f_STAR_OP = 12;
+    public static final int B_OP = 13;
+    public static final int b_OP = 14;
+    public static final int B_STAR_OP = 15;
+    public static final int b_STAR_OP = 16;
+
+    // external object
+    public static final int Do_OP = 17;
+
+    // clipping
+    public static final int n_OP = 18;
+    public static final int W_OP = 19;
+    public static final int W_STAR_OP = 20;
+
+    // compatibility
+    public static final int BX_OP = 21;
+    public static final int EX_OP = 22;
+
+    // Marked Content
+    public static final int BDC_OP = 23;
+    public static final int BMC_OP = 24;
+    public static final int EMC_OP = 25;
+    public static final int DP_OP = 26;
+    public static final int MP_OP = 27;
+
+    // General Path Stats
+    public static final int ri_OP = 28;
+    public static final int sh_OP = 29;
+    public static final int d0_OP = 30;
+    public static final int d1_OP = 31;
+
+    // text tokens
+    public static final int BT_OP = 32;
+    public static final int ET_OP = 33;
+    public static final int Tm_OP = 34;
+    public static final int Td_OP = 35;
+    public static final int TD_OP = 36;
+    public static final int T_STAR_OP = 37;
+    public static final int Tj_OP = 38;
+    public static final int Tc_OP = 39;
+    public static final int Tz_OP = 40;
+    public static final int Tw_OP = 41;
+    public static final int Tr_OP = 42;
+    public static final int TL_OP = 43;
+    public static final int Ts_OP = 44;
+    public static final int TJ_OP = 45;
+    public static final int Tf_OP = 46;
+    public static final int SINGLE_QUOTE_OP = 47;
+    public static final int DOUBLE_QUOTE_OP = 48;
+
+    // Color State
+    public static final int G_OP = 49;
+    public static final int g_OP = 50;
+    public static final int RG_OP = 51;
+    public static final int rg_OP = 52;
+    public static final int K_OP = 53;
+    public static final int k_OP = 54;
+    public static final int CS_OP = 55;
+    public static final int cs_OP = 56;
+    public static final int SC_OP = 57;
+    public static final int SCN_OP = 58;
+    public static final int sc_OP = 59;
+    public static final int scn_OP = 60;
+
+    // Graphics STate
+    public static final int q_OP = 61;
+    public static final int Q_OP = 62;
+    public static final int cm_OP = 63;
+    public static final int i_OP = 64;
+    public static final int J_OP = 65;
+    public static final int j_OP = 66;
+    public static final int d_OP = 67;
+    public static final int w_OP = 68;
+    public static final int LW_OP = 69;
+    public static final int M_OP = 70;
+    public static final int gs_OP = 71;
+
+    // Inline Images
+    public static final int BI_OP = 72;
+    public static final int ID_OP = 73;
+    public static final int EI_OP = 74;
+
+    // operator token of each operator code.
+    private static final String[] OPERATOR_TOKENS = {
+            null,
+            m_TOKEN, l_TOKEN, c_TOKEN, v_TOKEN, y_TOKEN, h_TOKEN,
+            re_TOKEN, S_TOKEN, s_TOKEN, f_TOKEN, F_TOKEN, f_STAR_TOKEN,
+            B_TOKEN, b_TOKEN, B_STAR_TOKEN, b_STAR_TOKEN, Do_TOKEN, n_TOKEN,
+            W_TOKEN, W_STAR_TOKEN, BX_TOKEN, EX_TOKEN, BDC_TOKEN, BMC_TOKEN,
+            EMC_TOKEN, DP_TOKEN, MP_TOKEN, ri_TOKEN, sh_TOKEN, d0_TOKEN,
+            d1_TOKEN, BT_TOKEN, ET_TOKEN, Tm_TOKEN, Td_TOKEN, TD_TOKEN,
+            T_STAR_TOKEN, Tj_TOKEN, Tc_TOKEN, Tz_TOKEN, Tw_TOKEN, Tr_TOKEN,
+            TL_TOKEN, Ts_TOKEN, TJ_TOKEN, Tf_TOKEN, SINGLE_QUOTE_TOKEN, DOUBLE_QUOTE__TOKEN,
+            G_TOKEN, g_TOKEN, RG_TOKEN, rg_TOKEN, K_TOKEN, k_TOKEN,
+            CS_TOKEN, cs_TOKEN, SC_TOKEN, SCN_TOKEN, sc_TOKEN, scn_TOKEN,
+            q_TOKEN, Q_TOKEN, cm_TOKEN, i_TOKEN, J_TOKEN, j_TOKEN,
+            d_TOKEN, w_TOKEN, LW_TOKEN, M_TOKEN, gs_TOKEN, BI_TOKEN,
+            ID_TOKEN, EI_TOKEN
+    };
+
+    // packed operator characters, sorted, and the matching operator codes.
+    private static final int[] OPERATOR_KEYS;
+    private static final int[] OPERATOR_CODES;
+
+    static {
+        int count = OPERATOR_TOKENS.length - 1;
+        long[] sorted = new long[count];
+        for (int code = 1; code <= count; code++) {
+            String token = OPERATOR_TOKENS[code];
+            sorted[code - 1] = ((long) packOperator(token, token.length()) << 32) | code;
+        }
+        Arrays.sort(sorted);
+        OPERATOR_KEYS = new int[count];
+        OPERATOR_CODES = new int[count];
+        for (int i = 0; i < count; i++) {
+            OPERATOR_KEYS[i] = (int) (sorted[i] >> 32);
+            OPERATOR_CODES[i] = (int) sorted[i];
+        }
+    }
+
+    /**
+     * Gets the operator code of the given token characters without creating
+     * a String.
+     *
+     * @param token token characters.
+     * @return operator code, NO_OP if the token isn't a content stream operator.
+     */
+    public static int getOperator(CharSequence token) {
+        int length = token.length();
+        if (length == 0 || length > 3) {
+            return NO_OP;
+        }
+        int key = packOperator(token, length);
+        if (key == 0) {
+            return NO_OP;
+        }
+        int index = Arrays.binarySearch(OPERATOR_KEYS, key);
+        return index >= 0 ? OPERATOR_CODES[index] : NO_OP;
+    }
+
+    /**
+     * Gets the token string of the given operator code, the same String
+     * instance is returned for every call.
+     *
+     * @param operator operator code.
+     * @return operator token, null if NO_OP or not a valid code.
+     */
+    public static String getOperatorToken(int operator) {
+        if (operator <= NO_OP || operator >= OPERATOR_TOKENS.length) {
+            return null;
+        }
+        return OPERATOR_TOKENS[operator];
+    }
+
+    // packs up to three 7-bit characters and the length into an int.
+    private static int packOperator(CharSequence token, int length) {
+        int key = length;
+        for (int i = 0; i < 3; i++) {
+            char c = i < length ? token.charAt(i) : 0;
+            if (c > 127) {
+                return 0;
+            }
+            key = (key << 8) | c;
+        }
+        return key;
+    }
 }
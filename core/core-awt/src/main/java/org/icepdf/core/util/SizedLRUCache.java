@@ -0,0 +1,287 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least recently used cache bounded by the number of bytes its values use.
+ * Subclasses give the size of a value with {@link #sizeOf(Object)}, once the
+ * budget is exceeded the least recently used values are evicted.  A value
+ * larger than the whole budget isn't cached.
+ * <br>
+ * The cache is thread safe, all access is synchronized on the cache.  Hit,
+ * miss and eviction counts are kept for get() calls and budget evictions.
+ * <br>
+ * A single cache can hold the values of several owners, such as documents,
+ * so they share one budget.  Values are keyed with an {@link OwnerKey} and an
+ * owner's values are dropped with {@link #removeOwner(Object)}.
+ *
+ * @since 6.3
+ */
+public abstract class SizedLRUCache<K, V> {
+
+    private final LinkedHashMap<K, Entry<V>> cache;
+    private final long maxSize;
+    private long size;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Creates a new cache with the given byte budget.
+     *
+     * @param maxSize maximum number of bytes held by the cache.
+     */
+    public SizedLRUCache(long maxSize) {
+        this.maxSize = maxSize;
+        cache = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+    }
+
+    /**
+     * Gets the number of bytes used by a value, called once when the value is
+     * added.
+     *
+     * @param value value to size.
+     * @return size in bytes.
+     */
+    protected abstract long sizeOf(V value);
+
+    /**
+     * Called with the cache lock held when a value is evicted, removed or
+     * replaced by a different value.
+     *
+     * @param key     key of the value.
+     * @param value   value no longer held by the cache.
+     * @param evicted true if the value was evicted to stay within the budget.
+     */
+    protected void entryRemoved(K key, V value, boolean evicted) {
+    }
+
+    /**
+     * Gets the value for the key, and marks it as the most recently used.
+     *
+     * @param key value key.
+     * @return cached value, null if not cached.
+     */
+    public V get(K key) {
+        Entry<V> entry;
+        synchronized (this) {
+            entry = cache.get(key);
+        }
+        if (entry != null) {
+            hitCount.incrementAndGet();
+            return entry.value;
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    public synchronized boolean containsKey(K key) {
+        return cache.containsKey(key);
+    }
+
+    /**
+     * Adds a value to the cache, evicting the least recently used values if
+     * the budget is exceeded.  A value larger than the budget isn't added and
+     * any value already cached for the key is removed.
+     *
+     * @param key   value key.
+     * @param value value to cache.
+     * @return true if the value was added.
+     */
+    public synchronized boolean put(K key, V value) {
+        long valueSize = sizeOf(value);
+        if (valueSize > maxSize) {
+            remove(key);
+            return false;
+        }
+        Entry<V> old = cache.put(key, new Entry<V>(value, valueSize));
+        size += valueSize;
+        if (old != null) {
+            size -= old.size;
+            if (old.value != value) {
+                entryRemoved(key, old.value, false);
+            }
+        }
+        // the new value is the most recently used so it's reached last.
+        Iterator<Map.Entry<K, Entry<V>>> entries = cache.entrySet().iterator();
+        while (size > maxSize && entries.hasNext()) {
+            Map.Entry<K, Entry<V>> eldest = entries.next();
+            entries.remove();
+            size -= eldest.getValue().size;
+            evictionCount.incrementAndGet();
+            entryRemoved(eldest.getKey(), eldest.getValue().value, true);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the value for the key.
+     *
+     * @param key value key.
+     * @return removed value, null if not cached.
+     */
+    public synchronized V remove(K key) {
+        Entry<V> old = cache.remove(key);
+        if (old != null) {
+            size -= old.size;
+            entryRemoved(key, old.value, false);
+            return old.value;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the values whose keys are accepted by the filter.
+     *
+     * @param filter selects the keys to remove.
+     */
+    public synchronized void removeAll(KeyFilter<? super K> filter) {
+        Iterator<Map.Entry<K, Entry<V>>> entries = cache.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<K, Entry<V>> entry = entries.next();
+            if (filter.accept(entry.getKey())) {
+                entries.remove();
+                size -= entry.getValue().size;
+                entryRemoved(entry.getKey(), entry.getValue().value, false);
+            }
+        }
+    }
+
+    /**
+     * Removes the values whose keys are {@link OwnerKey}s of the given owner.
+     *
+     * @param owner owner of the values to remove.
+     */
+    public void removeOwner(final Object owner) {
+        removeAll(new KeyFilter<K>() {
+            public boolean accept(K key) {
+                return key instanceof OwnerKey && ((OwnerKey<?>) key).owner == owner;
+            }
+        });
+    }
+
+    /**
+     * Removes all values from the cache.
+     */
+    public synchronized void clear() {
+        Iterator<Map.Entry<K, Entry<V>>> entries = cache.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<K, Entry<V>> entry = entries.next();
+            entries.remove();
+            entryRemoved(entry.getKey(), entry.getValue().value, false);
+        }
+        size = 0;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Gets the number of bytes currently held by the cache.
+     *
+     * @return size in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized int getEntryCount() {
+        return cache.size();
+    }
+
+    /**
+     * Gets the approximate number of bytes used by an image's raster data.
+     *
+     * @param image image to size.
+     * @return raster size in bytes.
+     */
+    public static long imageSize(BufferedImage image) {
+        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        return (long) dataBuffer.getSize() * dataBuffer.getNumBanks() *
+                Math.max(DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8, 1);
+    }
+
+    /**
+     * Selects the keys removed by {@link #removeAll(KeyFilter)}.
+     */
+    public interface KeyFilter<K> {
+        boolean accept(K key);
+    }
+
+    /**
+     * Key of a value in a cache shared by several owners, owners are compared
+     * by identity.
+     */
+    public static final class OwnerKey<K> {
+        private final Object owner;
+        private final K key;
+        private final int hashCode;
+
+        public OwnerKey(Object owner, K key) {
+            this.owner = owner;
+            this.key = key;
+            hashCode = System.identityHashCode(owner) * 31 + key.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof OwnerKey)) {
+                return false;
+            }
+            OwnerKey<?> ownerKey = (OwnerKey<?>) o;
+            return owner == ownerKey.owner && key.equals(ownerKey.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long size;
+
+        Entry(V value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.icepdf.core.pobjects.graphics.text.GlyphText;
 import org.icepdf.core.pobjects.graphics.text.PageText;
 import org.icepdf.core.util.Defs;
 import org.icepdf.core.util.Library;
+import org.icepdf.core.util.PdfOps;
 
 import java.awt.*;
 import java.awt.geom.*;
@@ -90,6 +91,10 @@ public abstract class AbstractContentParser implements ContentParser {
     // the text base affine transform must be accessible outside the parsTtext method
     protected AffineTransform textBlockBase;
 
+    // the text block parse applies q, Q and cm outside of text blocks, set
+    // when parsing a form XObject's text.
+    protected boolean textBlockTransforms;
+
     // when parsing a type3 font we need to keep track of the the scale factor
     // of the device space ctm.
     protected float glyph2UserSpaceScale = 1.0f;
@@ -99,6 +104,8 @@ public abstract class AbstractContentParser implements ContentParser {
 
     // stack to help with the parse
     protected Stack<Object> stack = new Stack<Object>();
+    // numeric operands not yet moved to the stack, see OperandStack.
+    protected OperandStack operands = new OperandStack();
 
     /**
      * @param l PDF library master object.
@@ -117,6 +124,7 @@ public abstract class AbstractContentParser implements ContentParser {
      */
     public Shapes getShapes() {
         shapes.contract();
+        shapes.buildIndex();
         return shapes;
     }
 
@@ -163,6 +171,55 @@ public abstract class AbstractContentParser implements ContentParser {
     public abstract ContentParser parse(byte[][] streamBytes, Page page)
             throws InterruptedException, IOException;
 
+    /**
+     * Parse a pages content streams.  This default implementation decodes
+     * all the streams up front and calls {@link #parse(byte[][], Page)},
+     * implementations should override it to parse the streams incrementally.
+     *
+     * @param streams content streams making up the page content
+     * @return a Shapes Object containing all the pages text and images shapes.
+     * @throws InterruptedException if current parse thread is interrupted.
+     * @throws java.io.IOException  unexpected end of content stream.
+     */
+    public ContentParser parse(Stream[] streams, Page page)
+            throws InterruptedException, IOException {
+        return parse(getDecodedStreamBytes(streams), page);
+    }
+
+    /**
+     * Parses content streams with the given parser, incrementally if it's an
+     * AbstractContentParser, other ContentParser implementations are given
+     * the decoded bytes of all the streams.
+     *
+     * @param contentParser parser to parse the streams with.
+     * @param streams       content streams making up the page content.
+     * @param page          page the content belongs to.
+     * @return the content parser.
+     * @throws InterruptedException if current parse thread is interrupted.
+     * @throws java.io.IOException  unexpected end of content stream.
+     */
+    public static ContentParser parseStreams(ContentParser contentParser, Stream[] streams, Page page)
+            throws InterruptedException, IOException {
+        if (contentParser instanceof AbstractContentParser) {
+            return ((AbstractContentParser) contentParser).parse(streams, page);
+        }
+        return contentParser.parse(getDecodedStreamBytes(streams), page);
+    }
+
+    /**
+     * Decodes all the given streams up front.
+     *
+     * @param streams content streams.
+     * @return decoded bytes of each stream.
+     */
+    protected static byte[][] getDecodedStreamBytes(Stream[] streams) {
+        byte[][] streamBytes = new byte[streams.length][];
+        for (int i = 0; i < streams.length; i++) {
+            streamBytes[i] = streams[i].getDecodedStreamBytes();
+        }
+        return streamBytes;
+    }
+
     /**
      * Specialized method for extracting text from documents.
      *
@@ -171,6 +228,83 @@ public abstract class AbstractContentParser implements ContentParser {
      */
     public abstract Shapes parseTextBlocks(byte[][] source) throws UnsupportedEncodingException, InterruptedException;
 
+    /**
+     * Specialized method for extracting text from a page's content streams.
+     * This default implementation decodes all the streams up front and calls
+     * {@link #parseTextBlocks(byte[][])}.
+     *
+     * @param streams content streams making up the page content.
+     * @return vector where each entry is the text extracted from a text block.
+     */
+    public Shapes parseTextBlocks(Stream[] streams) throws UnsupportedEncodingException, InterruptedException {
+        return parseTextBlocks(getDecodedStreamBytes(streams));
+    }
+
+    /**
+     * Parses the text of content streams with the given parser, incrementally
+     * if it's an AbstractContentParser, other ContentParser implementations
+     * are given the decoded bytes of all the streams.
+     *
+     * @param contentParser parser to parse the streams with.
+     * @param streams       content streams making up the page content.
+     * @return Shapes object which contains the extract PageText object.
+     * @throws UnsupportedEncodingException encoding error.
+     * @throws InterruptedException         if current parse thread is interrupted.
+     */
+    public static Shapes parseStreamTextBlocks(ContentParser contentParser, Stream[] streams)
+            throws UnsupportedEncodingException, InterruptedException {
+        return parseStreamTextBlocks(contentParser, streams, false);
+    }
+
+    /**
+     * Parses the text of content streams with the given parser, see
+     * {@link #parseStreamTextBlocks(ContentParser, Stream[])}.
+     *
+     * @param contentParser parser to parse the streams with.
+     * @param streams       content streams to parse.
+     * @param transforms    true to apply the q, Q and cm operators found
+     *                      outside of text blocks to the text, as a form
+     *                      XObject's text needs.
+     * @return Shapes object which contains the extract PageText object.
+     * @throws UnsupportedEncodingException encoding error.
+     * @throws InterruptedException         if current parse thread is interrupted.
+     */
+    public static Shapes parseStreamTextBlocks(ContentParser contentParser, Stream[] streams,
+                                               boolean transforms)
+            throws UnsupportedEncodingException, InterruptedException {
+        if (contentParser instanceof AbstractContentParser) {
+            AbstractContentParser parser = (AbstractContentParser) contentParser;
+            parser.textBlockTransforms = transforms;
+            return parser.parseTextBlocks(streams);
+        }
+        return contentParser.parseTextBlocks(getDecodedStreamBytes(streams));
+    }
+
+    /**
+     * Operators which pop their numeric operands straight from the
+     * OperandStack, any other operator needs the pending numbers moved to
+     * the object stack first.
+     *
+     * @param operator PdfOps operator code.
+     * @return true if the operator reads the OperandStack directly.
+     */
+    protected static boolean readsOperands(int operator) {
+        switch (operator) {
+            case PdfOps.m_OP:
+            case PdfOps.l_OP:
+            case PdfOps.c_OP:
+            case PdfOps.v_OP:
+            case PdfOps.y_OP:
+            case PdfOps.re_OP:
+            case PdfOps.cm_OP:
+            case PdfOps.Td_OP:
+            case PdfOps.Tm_OP:
+                return true;
+            default:
+                return false;
+        }
+    }
+
     protected static void consume_G(GraphicsState graphicState, Stack stack,
                                     Library library) {
         float gray = ((Number) stack.pop()).floatValue();
@@ -463,6 +597,12 @@ public abstract class AbstractContentParser implements ContentParser {
         float c = ((Number) stack.pop()).floatValue();
         float b = ((Number) stack.pop()).floatValue();
         float a = ((Number) stack.pop()).floatValue();
+        concatenateCM(graphicState, inTextBlock, textBlockBase, a, b, c, d, e, f);
+    }
+
+    private static void concatenateCM(GraphicsState graphicState, boolean inTextBlock,
+                                      AffineTransform textBlockBase,
+                                      float a, float b, float c, float d, float e, float f) {
         // get the current CTM
         AffineTransform af = new AffineTransform(graphicState.getCTM());
         // do the matrix concatenation math
@@ -487,6 +627,23 @@ public abstract class AbstractContentParser implements ContentParser {
         }
     }
 
+    protected static void consume_cm(GraphicsState graphicState, OperandStack operands,
+                                     Stack<Object> stack,
+                                     boolean inTextBlock, AffineTransform textBlockBase) {
+        if (operands.size() < 6) {
+            operands.flushTo(stack);
+            consume_cm(graphicState, stack, inTextBlock, textBlockBase);
+            return;
+        }
+        float f = operands.pop();
+        float e = operands.pop();
+        float d = operands.pop();
+        float c = operands.pop();
+        float b = operands.pop();
+        float a = operands.pop();
+        concatenateCM(graphicState, inTextBlock, textBlockBase, a, b, c, d, e, f);
+    }
+
     protected static void consume_i(Stack stack) {
         if (stack.size() >= 1) {
             stack.pop();
@@ -554,6 +711,20 @@ public abstract class AbstractContentParser implements ContentParser {
                     }
                 }
                 // init form XObject with current gs state but we need to keep the original state for blending
+                // text extraction only needs the form's text, the shared form
+                // object and its shapes are left alone.
+                if (shapes.isTextOnly()) {
+                    PageText formText = formXObject.getText(graphicState, resources);
+                    if (formText != null) {
+                        AffineTransform pageSpace = new AffineTransform(graphicState.getCTM());
+                        pageSpace.concatenate(formXObject.getMatrix());
+                        formText.applyXObjectTransform(pageSpace);
+                        if (formText.getPageLines() != null) {
+                            shapes.getPageText().addPageLines(formText.getPageLines());
+                        }
+                    }
+                    return graphicState.restore();
+                }
                 GraphicsState xformGraphicsState =
                         new GraphicsState(graphicState);
                 formXObject.setGraphicsState(xformGraphicsState);
@@ -816,7 +987,7 @@ public abstract class AbstractContentParser implements ContentParser {
                     ) {
                 // BlendComposite is still having trouble with alpha values < 1.0 and if we apply a blend to the top of
                 // the stack, the src pixels aren't the intended value.
-                if (!(shapes.getShapes().size() == 0 &&
+                if (!(shapes.getShapesCount() == 0 &&
                         BlendComposite.OVERLAY_VALUE.equals(graphicState.getExtGState().getBlendingMode()))) {
                     shapes.add(new BlendCompositeDrawCmd(graphicState.getExtGState().getBlendingMode(), alpha));
                 }
@@ -918,6 +1089,12 @@ public abstract class AbstractContentParser implements ContentParser {
                 hits--;
             }
         }
+        applyTm(graphicState, textMetrics, pageText, textBlockBase, tm);
+    }
+
+    private static void applyTm(GraphicsState graphicState, TextMetrics textMetrics,
+                                PageText pageText, AffineTransform textBlockBase,
+                                float[] tm) {
         AffineTransform af = new AffineTransform(textBlockBase);
 
         // grab old values.
@@ -942,6 +1119,30 @@ public abstract class AbstractContentParser implements ContentParser {
 
     }
 
+    protected static void consume_tm(GraphicsState graphicState, OperandStack operands,
+                                     Stack<Object> stack,
+                                     TextMetrics textMetrics,
+                                     PageText pageText,
+                                     double previousBTStart,
+                                     AffineTransform textBlockBase,
+                                     LinkedList<OptionalContents> oCGs) {
+        // the split up corner cases are left to the object stack version.
+        if (operands.size() < 6) {
+            operands.flushTo(stack);
+            consume_tm(graphicState, stack, textMetrics, pageText, previousBTStart,
+                    textBlockBase, oCGs);
+            return;
+        }
+        textMetrics.setShift(0);
+        textMetrics.setPreviousAdvance(0);
+        textMetrics.getAdvance().setLocation(0, 0);
+        float[] tm = new float[6];
+        for (int hits = 5; hits >= 0; hits--) {
+            tm[hits] = operands.pop();
+        }
+        applyTm(graphicState, textMetrics, pageText, textBlockBase, tm);
+    }
+
     protected static void consume_T_star(GraphicsState graphicState,
                                          TextMetrics textMetrics, PageText pageText,
                                          LinkedList<OptionalContents> oCGs) {
@@ -1022,6 +1223,27 @@ public abstract class AbstractContentParser implements ContentParser {
                                      LinkedList<OptionalContents> oCGs) {
         float y = ((Number) stack.pop()).floatValue();
         float x = ((Number) stack.pop()).floatValue();
+        moveText(graphicState, textMetrics, x, y);
+    }
+
+    protected static void consume_Td(GraphicsState graphicState, OperandStack operands,
+                                     Stack<Object> stack,
+                                     TextMetrics textMetrics,
+                                     PageText pageText,
+                                     double previousBTStart,
+                                     LinkedList<OptionalContents> oCGs) {
+        if (operands.size() < 2) {
+            operands.flushTo(stack);
+            consume_Td(graphicState, stack, textMetrics, pageText, previousBTStart, oCGs);
+            return;
+        }
+        float y = operands.pop();
+        float x = operands.pop();
+        moveText(graphicState, textMetrics, x, y);
+    }
+
+    private static void moveText(GraphicsState graphicState, TextMetrics textMetrics,
+                                 float x, float y) {
         graphicState.translate(-textMetrics.getShift(), 0);
         textMetrics.setShift(0);
         textMetrics.setPreviousAdvance(0);
@@ -1073,6 +1295,21 @@ public abstract class AbstractContentParser implements ContentParser {
         return geometricPath;
     }
 
+    protected static GeneralPath consume_L(OperandStack operands, Stack<Object> stack,
+                                           GeneralPath geometricPath) {
+        if (operands.size() < 2) {
+            operands.flushTo(stack);
+            return consume_L(stack, geometricPath);
+        }
+        float y = operands.pop();
+        float x = operands.pop();
+        if (geometricPath == null) {
+            geometricPath = new GeneralPath();
+        }
+        geometricPath.lineTo(x, y);
+        return geometricPath;
+    }
+
     protected static GeneralPath consume_m(Stack stack,
                                            GeneralPath geometricPath) {
         if (geometricPath == null) {
@@ -1086,6 +1323,21 @@ public abstract class AbstractContentParser implements ContentParser {
         return geometricPath;
     }
 
+    protected static GeneralPath consume_m(OperandStack operands, Stack<Object> stack,
+                                           GeneralPath geometricPath) {
+        if (operands.size() < 2) {
+            operands.flushTo(stack);
+            return consume_m(stack, geometricPath);
+        }
+        if (geometricPath == null) {
+            geometricPath = new GeneralPath();
+        }
+        float y = operands.pop();
+        float x = operands.pop();
+        geometricPath.moveTo(x, y);
+        return geometricPath;
+    }
+
     protected static GeneralPath consume_c(Stack stack,
                                            GeneralPath geometricPath) {
         if (!stack.isEmpty()) {
@@ -1103,6 +1355,25 @@ public abstract class AbstractContentParser implements ContentParser {
         return geometricPath;
     }
 
+    protected static GeneralPath consume_c(OperandStack operands, Stack<Object> stack,
+                                           GeneralPath geometricPath) {
+        if (operands.size() < 6) {
+            operands.flushTo(stack);
+            return consume_c(stack, geometricPath);
+        }
+        float y3 = operands.pop();
+        float x3 = operands.pop();
+        float y2 = operands.pop();
+        float x2 = operands.pop();
+        float y1 = operands.pop();
+        float x1 = operands.pop();
+        if (geometricPath == null) {
+            geometricPath = new GeneralPath();
+        }
+        geometricPath.curveTo(x1, y1, x2, y2, x3, y3);
+        return geometricPath;
+    }
+
     protected static GeneralPath consume_S(GraphicsState graphicState,
                                            Shapes shapes,
                                            GeneralPath geometricPath) throws InterruptedException {
@@ -1154,6 +1425,27 @@ public abstract class AbstractContentParser implements ContentParser {
         return geometricPath;
     }
 
+    protected static GeneralPath consume_re(OperandStack operands, Stack<Object> stack,
+                                            GeneralPath geometricPath) {
+        if (operands.size() < 4) {
+            operands.flushTo(stack);
+            return consume_re(stack, geometricPath);
+        }
+        if (geometricPath == null) {
+            geometricPath = new GeneralPath();
+        }
+        float h = operands.pop();
+        float w = operands.pop();
+        float y = operands.pop();
+        float x = operands.pop();
+        geometricPath.moveTo(x, y);
+        geometricPath.lineTo(x + w, y);
+        geometricPath.lineTo(x + w, y + h);
+        geometricPath.lineTo(x, y + h);
+        geometricPath.lineTo(x, y);
+        return geometricPath;
+    }
+
     protected static void consume_h(GeneralPath geometricPath) {
         if (geometricPath != null) {
             geometricPath.closePath();
@@ -1290,6 +1582,26 @@ public abstract class AbstractContentParser implements ContentParser {
                 y3);
     }
 
+    protected static void consume_v(OperandStack operands, Stack<Object> stack,
+                                    GeneralPath geometricPath) {
+        if (operands.size() < 4) {
+            operands.flushTo(stack);
+            consume_v(stack, geometricPath);
+            return;
+        }
+        float y3 = operands.pop();
+        float x3 = operands.pop();
+        float y2 = operands.pop();
+        float x2 = operands.pop();
+        geometricPath.curveTo(
+                (float) geometricPath.getCurrentPoint().getX(),
+                (float) geometricPath.getCurrentPoint().getY(),
+                x2,
+                y2,
+                x3,
+                y3);
+    }
+
     protected static void consume_y(Stack stack,
                                     GeneralPath geometricPath) {
         float y3 = ((Number) stack.pop()).floatValue();
@@ -1299,6 +1611,20 @@ public abstract class AbstractContentParser implements ContentParser {
         geometricPath.curveTo(x1, y1, x3, y3, x3, y3);
     }
 
+    protected static void consume_y(OperandStack operands, Stack<Object> stack,
+                                    GeneralPath geometricPath) {
+        if (operands.size() < 4) {
+            operands.flushTo(stack);
+            consume_y(stack, geometricPath);
+            return;
+        }
+        float y3 = operands.pop();
+        float x3 = operands.pop();
+        float y1 = operands.pop();
+        float x1 = operands.pop();
+        geometricPath.curveTo(x1, y1, x3, y3, x3, y3);
+    }
+
     protected static GeneralPath consume_B(GraphicsState graphicState,
                                            Shapes shapes,
                                            GeneralPath geometricPath)
@@ -1632,6 +1958,10 @@ public abstract class AbstractContentParser implements ContentParser {
          */
 
         int rmode = textState.rmode;
+        // text extraction doesn't need the sprites or glyph outlines.
+        if (shapes.isTextOnly()) {
+            rmode = TextState.MODE_INVISIBLE;
+        }
         switch (rmode) {
             // fill text: 0
             case TextState.MODE_FILL:
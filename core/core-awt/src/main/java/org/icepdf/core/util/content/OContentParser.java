@@ -67,6 +67,54 @@ public class OContentParser extends AbstractContentParser {
      */
     public ContentParser parse(byte[][] streamBytes, Page page)
             throws InterruptedException, IOException {
+        if (logger.isLoggable(Level.FINER)) {
+            logger.fine("Parsing page content streams: " + streamBytes.length);
+            // print all the stream byte chunks.
+            for (byte[] streamByte : streamBytes) {
+                if (streamByte != null) {
+                    String tmp = new String(streamByte, "ISO-8859-1");
+                    logger.finer("Content = " + tmp);
+                }
+            }
+        }
+
+        // test case for progress bar
+        java.util.List<InputStream> in = new ArrayList<InputStream>();
+        for (int i = 0; i < streamBytes.length; i++) {
+            in.add(new ByteArrayInputStream(streamBytes[i]));
+        }
+        return parse(in, page);
+    }
+
+    /**
+     * Parse a pages content streams.  Each stream is only decoded once the
+     * parser reaches it and is read through the parser's buffer, so the
+     * decoded content is never held in memory as a whole.
+     *
+     * @param streams content streams making up the page content
+     * @return a Shapes Object containing all the pages text and images shapes.
+     * @throws InterruptedException if current parse thread is interrupted.
+     * @throws IOException          unexpected end of content stream.
+     */
+    public ContentParser parse(Stream[] streams, Page page)
+            throws InterruptedException, IOException {
+        if (logger.isLoggable(Level.FINER)) {
+            logger.fine("Parsing page content streams: " + streams.length);
+        }
+        java.util.List<InputStream> in = new ArrayList<InputStream>(streams.length);
+        for (Stream stream : streams) {
+            in.add(new DecodedStreamInputStream(stream));
+        }
+        try {
+            return parse(in, page);
+        } finally {
+            // an interrupted or failed parse leaves streams open.
+            closeStreams(in);
+        }
+    }
+
+    private ContentParser parse(java.util.List<InputStream> in, Page page)
+            throws InterruptedException, IOException {
         if (shapes == null) {
             shapes = new Shapes();
             // Normal, clean content parse where graphics state is null
@@ -92,26 +140,8 @@ public class OContentParser extends AbstractContentParser {
             oCGs = new LinkedList<OptionalContents>();
         }
 
-        if (logger.isLoggable(Level.FINER)) {
-            logger.fine("Parsing page content streams: " + streamBytes.length);
-            // print all the stream byte chunks.
-            for (byte[] streamByte : streamBytes) {
-                if (streamByte != null) {
-                    String tmp = new String(streamByte, "ISO-8859-1");
-                    logger.finer("Content = " + tmp);
-                }
-            }
-        }
-
         // great a parser to get tokens for stream
-        Parser parser;
-
-        // test case for progress bar
-        java.util.List<InputStream> in = new ArrayList<InputStream>();
-        for (int i = 0; i < streamBytes.length; i++) {
-            in.add(new ByteArrayInputStream(streamBytes[i]));
-        }
-        parser = new Parser(new SequenceInputStream(in, ' '));
+        Parser parser = new Parser(new SequenceInputStream(in, ' '));
 
         // text block y offset.
         float yBTstart = 0;
@@ -127,7 +157,18 @@ public class OContentParser extends AbstractContentParser {
                     throw new InterruptedException("ContentParser thread interrupted");
                 }
 
-                tok = parser.getStreamObject();
+                tok = parser.getStreamOperand();
+
+                // numbers are kept unboxed until an operator needs them
+                if (tok == Parser.NUMBER_TOKEN) {
+                    operands.push(parser);
+                    continue;
+                }
+                // any other operand or operator sees the pending numbers on
+                // the stack in content stream order.
+                if (!readsOperands(parser.getLastOperator())) {
+                    operands.flushTo(stack);
+                }
 
                 // add any names and numbers and every thing else on the
                 // stack for future reference
@@ -135,493 +176,498 @@ public class OContentParser extends AbstractContentParser {
                     stack.push(tok);
                 } else {
 
-                    // Append a straight line segment from the current point to the
-                    // point (x, y). The new current point is (x, y).
-                    if (tok.equals(PdfOps.l_TOKEN)) {
+                    switch (parser.getLastOperator()) {
+                        // Append a straight line segment from the current point to the
+                        // point (x, y). The new current point is (x, y).
+                        case PdfOps.l_OP:
 //                        collectTokenFrequency(PdfOps.l_TOKEN);
-                        geometricPath = consume_L(stack, geometricPath);
-                    }
-
-                    // Begin a new subpath by moving the current point to
-                    // coordinates (x, y), omitting any connecting line segment. If
-                    // the previous path construction operator in the current path
-                    // was also m, the new m overrides it; no vestige of the
-                    // previous m operation remains in the path.
-                    else if (tok.equals(PdfOps.m_TOKEN)) {
+                            geometricPath = consume_L(operands, stack, geometricPath);
+                            break;
+
+                        // Begin a new subpath by moving the current point to
+                        // coordinates (x, y), omitting any connecting line segment. If
+                        // the previous path construction operator in the current path
+                        // was also m, the new m overrides it; no vestige of the
+                        // previous m operation remains in the path.
+                        case PdfOps.m_OP:
 //                        collectTokenFrequency(PdfOps.m_TOKEN);
-                        geometricPath = consume_m(stack, geometricPath);
-                    }
-
-                    // Append a cubic Bezier curve to the current path. The curve
-                    // extends from the current point to the point (x3, y3), using
-                    // (x1, y1) and (x2, y2) as the Bezier control points.
-                    // The new current point is (x3, y3).
-                    else if (tok.equals(PdfOps.c_TOKEN)) {
+                            geometricPath = consume_m(operands, stack, geometricPath);
+                            break;
+
+                        // Append a cubic Bezier curve to the current path. The curve
+                        // extends from the current point to the point (x3, y3), using
+                        // (x1, y1) and (x2, y2) as the Bezier control points.
+                        // The new current point is (x3, y3).
+                        case PdfOps.c_OP:
 //                        collectTokenFrequency(PdfOps.c_TOKEN);
-                        geometricPath = consume_c(stack, geometricPath);
-                    }
+                            geometricPath = consume_c(operands, stack, geometricPath);
+                            break;
 
-                    // Stroke the path
-                    else if (tok.equals(PdfOps.S_TOKEN)) {
+                        // Stroke the path
+                        case PdfOps.S_OP:
 //                        collectTokenFrequency(PdfOps.S_TOKEN);
-                        geometricPath = consume_S(graphicState, shapes, geometricPath);
-                    }
-
-                    // Font selection
-                    else if (tok.equals(PdfOps.Tf_TOKEN)) {
-                        consume_Tf(graphicState, stack, resources);
-                    }
-
-                    // Begin a text object, initializing the text matrix, Tm, and
-                    // the text line matrix, Tlm, to the identity matrix. Text
-                    // objects cannot be nested; a second BT cannot appear before
-                    // an ET.
-                    else if (tok.equals(PdfOps.BT_TOKEN)) {
+                            geometricPath = consume_S(graphicState, shapes, geometricPath);
+                            break;
+
+                        // Font selection
+                        case PdfOps.Tf_OP:
+                            consume_Tf(graphicState, stack, resources);
+                            break;
+
+                        // Begin a text object, initializing the text matrix, Tm, and
+                        // the text line matrix, Tlm, to the identity matrix. Text
+                        // objects cannot be nested; a second BT cannot appear before
+                        // an ET.
+                        case PdfOps.BT_OP:
 //                        collectTokenFrequency(PdfOps.BT_TOKEN);
-                        // start parseText, which parses until ET is reached
-                        try {
-                            yBTstart = parseText(parser, shapes, yBTstart);
-                        } catch (Exception e) {
-                            logger.log(Level.FINEST, "Error parsing text block", e);
-                        }
-                    }
-
-                    // Fill the path, using the nonzero winding number rule to
-                    // determine the region to fill (see "Nonzero Winding
-                    // Number Rule" ). Any subpaths that are open are implicitly
-                    // closed before being filled. f or F
-                    else if (tok.equals(PdfOps.F_TOKEN) ||
-                            tok.equals(PdfOps.f_TOKEN)) {
+                            // start parseText, which parses until ET is reached
+                            try {
+                                yBTstart = parseText(parser, shapes, yBTstart);
+                            } catch (Exception e) {
+                                logger.log(Level.FINEST, "Error parsing text block", e);
+                            }
+                            break;
+
+                        // Fill the path, using the nonzero winding number rule to
+                        // determine the region to fill (see "Nonzero Winding
+                        // Number Rule" ). Any subpaths that are open are implicitly
+                        // closed before being filled. f or F
+                        case PdfOps.F_OP:
+                        case PdfOps.f_OP:
 //                        collectTokenFrequency(PdfOps.F_TOKEN);
 //                        collectTokenFrequency(PdfOps.f_TOKEN);
-                        geometricPath = consume_F(graphicState, shapes, geometricPath);
-                    }
-
-                    // Saves Graphics State, should copy the entire  graphics state onto
-                    // the graphicsState object's stack
-                    else if (tok.equals(PdfOps.q_TOKEN)) {
-                        graphicState = consume_q(graphicState);
-                    }
-                    // Restore Graphics State, should restore the entire graphics state
-                    // to its former value by popping it from the stack
-                    else if (tok.equals(PdfOps.Q_TOKEN)) {
-                        graphicState = consume_Q(graphicState, shapes);
-                    }
-
-                    // Append a rectangle to the current path as a complete subpath,
-                    // with lower-left corner (x, y) and dimensions width and height
-                    // in user space. The operation x y width height re is equivalent to
-                    //        x y m
-                    //        (x + width) y l
-                    //       (x + width) (y + height) l
-                    //        x (y + height) l
-                    //        h
-                    else if (tok.equals(PdfOps.re_TOKEN)) {
+                            geometricPath = consume_F(graphicState, shapes, geometricPath);
+                            break;
+
+                        // Saves Graphics State, should copy the entire  graphics state onto
+                        // the graphicsState object's stack
+                        case PdfOps.q_OP:
+                            graphicState = consume_q(graphicState);
+                            break;
+                        // Restore Graphics State, should restore the entire graphics state
+                        // to its former value by popping it from the stack
+                        case PdfOps.Q_OP:
+                            graphicState = consume_Q(graphicState, shapes);
+                            break;
+
+                        // Append a rectangle to the current path as a complete subpath,
+                        // with lower-left corner (x, y) and dimensions width and height
+                        // in user space. The operation x y width height re is equivalent to
+                        //        x y m
+                        //        (x + width) y l
+                        //       (x + width) (y + height) l
+                        //        x (y + height) l
+                        //        h
+                        case PdfOps.re_OP:
 //                        collectTokenFrequency(PdfOps.re_TOKEN);
-                        geometricPath = consume_re(stack, geometricPath);
-                    }
-
-                    // Modify the current transformation matrix (CTM) by concatenating the
-                    // specified matrix
-                    else if (tok.equals(PdfOps.cm_TOKEN)) {
-                        consume_cm(graphicState, stack, inTextBlock, textBlockBase);
-                    }
-
-                    // Close the current sub path by appending a straight line segment
-                    // from the current point to the starting point of the sub path.
-                    // This operator terminates the current sub path; appending
-                    // another segment to the current path will begin a new subpath,
-                    // even if the new segment begins at the endpoint reached by the
-                    // h operation. If the current subpath is already closed,
-                    // h does nothing.
-                    else if (tok.equals(PdfOps.h_TOKEN)) {
+                            geometricPath = consume_re(operands, stack, geometricPath);
+                            break;
+
+                        // Modify the current transformation matrix (CTM) by concatenating the
+                        // specified matrix
+                        case PdfOps.cm_OP:
+                            consume_cm(graphicState, operands, stack, inTextBlock, textBlockBase);
+                            break;
+
+                        // Close the current sub path by appending a straight line segment
+                        // from the current point to the starting point of the sub path.
+                        // This operator terminates the current sub path; appending
+                        // another segment to the current path will begin a new subpath,
+                        // even if the new segment begins at the endpoint reached by the
+                        // h operation. If the current subpath is already closed,
+                        // h does nothing.
+                        case PdfOps.h_OP:
 //                        collectTokenFrequency(PdfOps.h_TOKEN);
-                        consume_h(geometricPath);
-                    }
-
-                    // Begin a marked-content sequence with an associated property
-                    // list, terminated by a balancing EMC operator. tag is a name
-                    // object indicating the role or significance of the sequence;
-                    // properties is either an inline dictionary containing the
-                    // property list or a name object associated with it in the
-                    // Properties sub dictionary of the current resource dictionary
-                    else if (tok.equals(PdfOps.BDC_TOKEN)) {
+                            consume_h(geometricPath);
+                            break;
+
+                        // Begin a marked-content sequence with an associated property
+                        // list, terminated by a balancing EMC operator. tag is a name
+                        // object indicating the role or significance of the sequence;
+                        // properties is either an inline dictionary containing the
+                        // property list or a name object associated with it in the
+                        // Properties sub dictionary of the current resource dictionary
+                        case PdfOps.BDC_OP:
 //                        collectTokenFrequency(PdfOps.BDC_TOKEN);
-                        consume_BDC(stack, shapes,
-                                oCGs, resources);
-                    }
-
-                    // End a marked-content sequence begun by a BMC or BDC operator.
-                    else if (tok.equals(PdfOps.EMC_TOKEN)) {
-                        consume_EMC(shapes, oCGs);
-                    }
-
-                    /**
-                     * External Object (XObject) a graphics object whose contents
-                     * are defined by a self-contained content stream, separate
-                     * from the content stream in which it is used. There are three
-                     * types of external object:
-                     *
-                     *   - An image XObject (Section 4.8.4, "Image Dictionaries")
-                     *     represents a sampled visual image such as a photograph.
-                     *   - A form XObject (Section 4.9, "Form XObjects") is a
-                     *     self-contained description of an arbitrary sequence of
-                     *     graphics objects.
-                     *   - A PostScript XObject (Section 4.7.1, "PostScript XObjects")
-                     *     contains a fragment of code expressed in the PostScript
-                     *     page description language. PostScript XObjects are no
-                     *     longer recommended to be used. (NOT SUPPORTED)
-                     */
-                    // Paint the specified XObject. The operand name must appear as
-                    // a key in the XObject subdictionary of the current resource
-                    // dictionary (see Section 3.7.2, "Resource Dictionaries"); the
-                    // associated value must be a stream whose Type entry, if
-                    // present, is XObject. The effect of Do depends on the value of
-                    // the XObject's Subtype entry, which may be Image , Form, or PS
-                    else if (tok.equals(PdfOps.Do_TOKEN)) {
+                            consume_BDC(stack, shapes,
+                                    oCGs, resources);
+                            break;
+
+                        // End a marked-content sequence begun by a BMC or BDC operator.
+                        case PdfOps.EMC_OP:
+                            consume_EMC(shapes, oCGs);
+                            break;
+
+                        /**
+                         * External Object (XObject) a graphics object whose contents
+                         * are defined by a self-contained content stream, separate
+                         * from the content stream in which it is used. There are three
+                         * types of external object:
+                         *
+                         *   - An image XObject (Section 4.8.4, "Image Dictionaries")
+                         *     represents a sampled visual image such as a photograph.
+                         *   - A form XObject (Section 4.9, "Form XObjects") is a
+                         *     self-contained description of an arbitrary sequence of
+                         *     graphics objects.
+                         *   - A PostScript XObject (Section 4.7.1, "PostScript XObjects")
+                         *     contains a fragment of code expressed in the PostScript
+                         *     page description language. PostScript XObjects are no
+                         *     longer recommended to be used. (NOT SUPPORTED)
+                         */
+                        // Paint the specified XObject. The operand name must appear as
+                        // a key in the XObject subdictionary of the current resource
+                        // dictionary (see Section 3.7.2, "Resource Dictionaries"); the
+                        // associated value must be a stream whose Type entry, if
+                        // present, is XObject. The effect of Do depends on the value of
+                        // the XObject's Subtype entry, which may be Image , Form, or PS
+                        case PdfOps.Do_OP:
 //                        collectTokenFrequency(PdfOps.Do_TOKEN);
-                        graphicState = consume_Do(graphicState, stack, shapes,
-                                resources, true, imageIndex, page);
-                    }
+                            graphicState = consume_Do(graphicState, stack, shapes,
+                                    resources, true, imageIndex, page);
+                            break;
 
-                    // Fill the path, using the even-odd rule to determine the
-                    // region to fill
-                    else if (tok.equals(PdfOps.f_STAR_TOKEN)) {
+                        // Fill the path, using the even-odd rule to determine the
+                        // region to fill
+                        case PdfOps.f_STAR_OP:
 //                        collectTokenFrequency(PdfOps.f_STAR_TOKEN);
-                        geometricPath = consume_f_star(graphicState, shapes, geometricPath);
-                    }
-
-                    // Sets the specified parameters in the graphics state.  The gs operand
-                    // points to a name resource which should be a an ExtGState object.
-                    // The graphics state parameters in the ExtGState must be concatenated
-                    // with the the current graphics state.
-                    else if (tok.equals(PdfOps.gs_TOKEN)) {
-                        consume_gs(graphicState, stack, resources, shapes);
-                    }
-
-                    // End the path object without filling or stroking it. This
-                    // operator is a "path-painting no-op," used primarily for the
-                    // side effect of changing the current clipping path
-                    else if (tok.equals(PdfOps.n_TOKEN)) {
+                            geometricPath = consume_f_star(graphicState, shapes, geometricPath);
+                            break;
+
+                        // Sets the specified parameters in the graphics state.  The gs operand
+                        // points to a name resource which should be a an ExtGState object.
+                        // The graphics state parameters in the ExtGState must be concatenated
+                        // with the the current graphics state.
+                        case PdfOps.gs_OP:
+                            consume_gs(graphicState, stack, resources, shapes);
+                            break;
+
+                        // End the path object without filling or stroking it. This
+                        // operator is a "path-painting no-op," used primarily for the
+                        // side effect of changing the current clipping path
+                        case PdfOps.n_OP:
 //                        collectTokenFrequency(PdfOps.n_TOKEN);
-                        geometricPath = consume_n(geometricPath);
-                    }
-
-                    // Set the line width in the graphics state
-                    else if (tok.equals(PdfOps.w_TOKEN) ||
-                            tok.equals(PdfOps.LW_TOKEN)) {
-                        consume_w(graphicState, stack, shapes, glyph2UserSpaceScale);
-                    }
-
-                    // Modify the current clipping path by intersecting it with the
-                    // current path, using the nonzero winding number rule to
-                    // determine which regions lie inside the clipping path.
-                    else if (tok.equals(PdfOps.W_TOKEN)) {
+                            geometricPath = consume_n(geometricPath);
+                            break;
+
+                        // Set the line width in the graphics state
+                        case PdfOps.w_OP:
+                        case PdfOps.LW_OP:
+                            consume_w(graphicState, stack, shapes, glyph2UserSpaceScale);
+                            break;
+
+                        // Modify the current clipping path by intersecting it with the
+                        // current path, using the nonzero winding number rule to
+                        // determine which regions lie inside the clipping path.
+                        case PdfOps.W_OP:
 //                        collectTokenFrequency(PdfOps.W_TOKEN);
-                        consume_W(graphicState, geometricPath);
-                    }
-
-                    // Fill Color with ColorSpace
-                    else if (tok.equals(PdfOps.sc_TOKEN)) {
-                        consume_sc(graphicState, stack, library, resources, false);
-                    } else if (tok.equals(PdfOps.scn_TOKEN)) {
-                        consume_sc(graphicState, stack, library, resources, true);
-                    }
-
-                    // Close, fill, and then stroke the path, using the nonzero
-                    // winding number rule to determine the region to fill. This
-                    // operator has the same effect as the sequence h B. See also
-                    // "Special Path-Painting Considerations"
-                    else if (tok.equals(PdfOps.b_TOKEN)) {
+                            consume_W(graphicState, geometricPath);
+                            break;
+
+                        // Fill Color with ColorSpace
+                        case PdfOps.sc_OP:
+                            consume_sc(graphicState, stack, library, resources, false);
+                            break;
+                        case PdfOps.scn_OP:
+                            consume_sc(graphicState, stack, library, resources, true);
+                            break;
+
+                        // Close, fill, and then stroke the path, using the nonzero
+                        // winding number rule to determine the region to fill. This
+                        // operator has the same effect as the sequence h B. See also
+                        // "Special Path-Painting Considerations"
+                        case PdfOps.b_OP:
 //                        collectTokenFrequency(PdfOps.b_TOKEN);
-                        geometricPath = consume_b(graphicState, shapes, geometricPath);
-                    }
-
-                    // Same as K, but for non-stroking operations.
-                    else if (tok.equals(PdfOps.k_TOKEN)) { // Fill Color CMYK
-                        consume_k(graphicState, stack, library);
-                    }
-
-                    // Same as g but for none stroking operations
-                    else if (tok.equals(PdfOps.g_TOKEN)) {
-                        consume_g(graphicState, stack, library);
-                    }
-
-                    // Sets the flatness tolerance in the graphics state, NOT SUPPORTED
-                    // flatness is a number in the range 0 to 100, a value of 0 specifies
-                    // the default tolerance
-                    else if (tok.equals(PdfOps.i_TOKEN)) {
-                        consume_i(stack);
-                    }
-
-                    // Miter Limit
-                    else if (tok.equals(PdfOps.M_TOKEN)) {
-                        consume_M(graphicState, stack, shapes);
-                    }
-
-                    // Set the line cap style of the graphic state, related to Line Join
-                    // style
-                    else if (tok.equals(PdfOps.J_TOKEN)) {
-                        consume_J(graphicState, stack, shapes);
-                    }
-
-                    // Same as RG, but for non-stroking operations.
-                    else if (tok.equals(PdfOps.rg_TOKEN)) { // Fill Color RGB
-                        consume_rg(graphicState, stack, library);
-                    }
-
-                    // Sets the line dash pattern in the graphics state. A normal line
-                    // is [] 0.  See Graphics State -> Line dash patter for more information
-                    // in the PDF Reference.  Java 2d uses the same notation so there
-                    // is not much work to be done other then parsing the data.
-                    else if (tok.equals(PdfOps.d_TOKEN)) {
-                        consume_d(graphicState, stack, shapes);
-                    }
-
-                    // Append a cubic Bezier curve to the current path. The curve
-                    // extends from the current point to the point (x3, y3), using
-                    // the current point and (x2, y2) as the Bezier control points.
-                    // The new current point is (x3, y3).
-                    else if (tok.equals(PdfOps.v_TOKEN)) {
+                            geometricPath = consume_b(graphicState, shapes, geometricPath);
+                            break;
+
+                        // Same as K, but for non-stroking operations.
+                        case PdfOps.k_OP: // Fill Color CMYK
+                            consume_k(graphicState, stack, library);
+                            break;
+
+                        // Same as g but for none stroking operations
+                        case PdfOps.g_OP:
+                            consume_g(graphicState, stack, library);
+                            break;
+
+                        // Sets the flatness tolerance in the graphics state, NOT SUPPORTED
+                        // flatness is a number in the range 0 to 100, a value of 0 specifies
+                        // the default tolerance
+                        case PdfOps.i_OP:
+                            consume_i(stack);
+                            break;
+
+                        // Miter Limit
+                        case PdfOps.M_OP:
+                            consume_M(graphicState, stack, shapes);
+                            break;
+
+                        // Set the line cap style of the graphic state, related to Line Join
+                        // style
+                        case PdfOps.J_OP:
+                            consume_J(graphicState, stack, shapes);
+                            break;
+
+                        // Same as RG, but for non-stroking operations.
+                        case PdfOps.rg_OP: // Fill Color RGB
+                            consume_rg(graphicState, stack, library);
+                            break;
+
+                        // Sets the line dash pattern in the graphics state. A normal line
+                        // is [] 0.  See Graphics State -> Line dash patter for more information
+                        // in the PDF Reference.  Java 2d uses the same notation so there
+                        // is not much work to be done other then parsing the data.
+                        case PdfOps.d_OP:
+                            consume_d(graphicState, stack, shapes);
+                            break;
+
+                        // Append a cubic Bezier curve to the current path. The curve
+                        // extends from the current point to the point (x3, y3), using
+                        // the current point and (x2, y2) as the Bezier control points.
+                        // The new current point is (x3, y3).
+                        case PdfOps.v_OP:
 //                        collectTokenFrequency(PdfOps.v_TOKEN);
-                        consume_v(stack, geometricPath);
-                    }
-
-                    // Set the line join style in the graphics state
-                    else if (tok.equals(PdfOps.j_TOKEN)) {
-                        consume_j(graphicState, stack, shapes);
-                    }
-
-                    // Append a cubic Bezier curve to the current path. The curve
-                    // extends from the current point to the point (x3, y3), using
-                    // (x1, y1) and (x3, y3) as the Bezier control points.
-                    // The new current point is (x3, y3).
-                    else if (tok.equals(PdfOps.y_TOKEN)) {
+                            consume_v(operands, stack, geometricPath);
+                            break;
+
+                        // Set the line join style in the graphics state
+                        case PdfOps.j_OP:
+                            consume_j(graphicState, stack, shapes);
+                            break;
+
+                        // Append a cubic Bezier curve to the current path. The curve
+                        // extends from the current point to the point (x3, y3), using
+                        // (x1, y1) and (x3, y3) as the Bezier control points.
+                        // The new current point is (x3, y3).
+                        case PdfOps.y_OP:
 //                        collectTokenFrequency(PdfOps.y_TOKEN);
-                        consume_y(stack, geometricPath);
-                    }
+                            consume_y(operands, stack, geometricPath);
+                            break;
 
-                    // Same as CS, but for nonstroking operations.
-                    else if (tok.equals(PdfOps.cs_TOKEN)) {
-                        consume_cs(graphicState, stack, resources);
-                    }
+                        // Same as CS, but for nonstroking operations.
+                        case PdfOps.cs_OP:
+                            consume_cs(graphicState, stack, resources);
+                            break;
 
-                    // Color rendering intent in the graphics state
-                    else if (tok.equals(PdfOps.ri_TOKEN)) {
+                        // Color rendering intent in the graphics state
+                        case PdfOps.ri_OP:
 //                        collectTokenFrequency(PdfOps.ri_TOKEN);
-                        stack.pop();
-                    }
-
-                    // Set the color to use for stroking operations in a device, CIE-based
-                    // (other than ICCBased), or Indexed color space. The number of operands
-                    // required and their interpretation depends on the current stroking color space:
-                    //   - For DeviceGray, CalGray, and Indexed color spaces, one operand
-                    //     is required (n = 1).
-                    //   - For DeviceRGB, CalRGB, and Lab color spaces, three operands are
-                    //     required (n = 3).
-                    //   - For DeviceCMYK, four operands are required (n = 4).
-                    else if (tok.equals(PdfOps.SC_TOKEN)) { // Stroke Color with ColorSpace
-                        consume_SC(graphicState, stack, library, resources, false);
-                    } else if (tok.equals(PdfOps.SCN_TOKEN)) { // Stroke Color with ColorSpace
-                        consume_SC(graphicState, stack, library, resources, true);
-                    }
-
-                    // Fill and then stroke the path, using the nonzero winding
-                    // number rule to determine the region to fill. This produces
-                    // the same result as constructing two identical path objects,
-                    // painting the first with f and the second with S. Note,
-                    // however, that the filling and stroking portions of the
-                    // operation consult different values of several graphics state
-                    // parameters, such as the current color.
-                    else if (tok.equals(PdfOps.B_TOKEN)) {
+                            stack.pop();
+                            break;
+
+                        // Set the color to use for stroking operations in a device, CIE-based
+                        // (other than ICCBased), or Indexed color space. The number of operands
+                        // required and their interpretation depends on the current stroking color space:
+                        //   - For DeviceGray, CalGray, and Indexed color spaces, one operand
+                        //     is required (n = 1).
+                        //   - For DeviceRGB, CalRGB, and Lab color spaces, three operands are
+                        //     required (n = 3).
+                        //   - For DeviceCMYK, four operands are required (n = 4).
+                        case PdfOps.SC_OP: // Stroke Color with ColorSpace
+                            consume_SC(graphicState, stack, library, resources, false);
+                            break;
+                        case PdfOps.SCN_OP: // Stroke Color with ColorSpace
+                            consume_SC(graphicState, stack, library, resources, true);
+                            break;
+
+                        // Fill and then stroke the path, using the nonzero winding
+                        // number rule to determine the region to fill. This produces
+                        // the same result as constructing two identical path objects,
+                        // painting the first with f and the second with S. Note,
+                        // however, that the filling and stroking portions of the
+                        // operation consult different values of several graphics state
+                        // parameters, such as the current color.
+                        case PdfOps.B_OP:
 //                        collectTokenFrequency(PdfOps.B_TOKEN);
-                        geometricPath = consume_B(graphicState, shapes,
-                                geometricPath);
-                    }
-
-                    // Set the stroking color space to DeviceCMYK (or the DefaultCMYK color
-                    // space; see "Default Color Spaces" on page 227) and set the color to
-                    // use for stroking operations. Each operand must be a number between
-                    // 0.0 (zero concentration) and 1.0 (maximum concentration). The
-                    // behavior of this operator is affected by the overprint mode
-                    // (see Section 4.5.6, "Overprint Control").
-                    else if (tok.equals(PdfOps.K_TOKEN)) { // Stroke Color CMYK
-                        consume_K(graphicState, stack, library);
-                    }
-
-                    /**
-                     * Type3 operators, update the text state with data from these operands
-                     */
-                    else if (tok.equals(PdfOps.d0_TOKEN)) {
+                            geometricPath = consume_B(graphicState, shapes,
+                                    geometricPath);
+                            break;
+
+                        // Set the stroking color space to DeviceCMYK (or the DefaultCMYK color
+                        // space; see "Default Color Spaces" on page 227) and set the color to
+                        // use for stroking operations. Each operand must be a number between
+                        // 0.0 (zero concentration) and 1.0 (maximum concentration). The
+                        // behavior of this operator is affected by the overprint mode
+                        // (see Section 4.5.6, "Overprint Control").
+                        case PdfOps.K_OP: // Stroke Color CMYK
+                            consume_K(graphicState, stack, library);
+                            break;
+
+                        /**
+                         * Type3 operators, update the text state with data from these operands
+                         */
+                        case PdfOps.d0_OP:
 //                        collectTokenFrequency(PdfOps.d0_TOKEN);
-                        graphicState = consume_d0(graphicState, stack);
-                    }
+                            graphicState = consume_d0(graphicState, stack);
+                            break;
 
-                    // Close and stroke the path. This operator has the same effect
-                    // as the sequence h S.
-                    else if (tok.equals(PdfOps.s_TOKEN)) {
+                        // Close and stroke the path. This operator has the same effect
+                        // as the sequence h S.
+                        case PdfOps.s_OP:
 //                        collectTokenFrequency(PdfOps.s_TOKEN);
-                        geometricPath = consume_s(graphicState, shapes, geometricPath);
-                    }
-
-                    // Set the stroking color space to DeviceGray (or the DefaultGray color
-                    // space; see "Default Color Spaces" ) and set the gray level to use for
-                    // stroking operations. gray is a number between 0.0 (black)
-                    // and 1.0 (white).
-                    else if (tok.equals(PdfOps.G_TOKEN)) {
-                        consume_G(graphicState, stack, library);
-                    }
-
-                    // Close, fill, and then stroke the path, using the even-odd
-                    // rule to determine the region to fill. This operator has the
-                    // same effect as the sequence h B*. See also "Special
-                    // Path-Painting Considerations"
-                    else if (tok.equals(PdfOps.b_STAR_TOKEN)) {
+                            geometricPath = consume_s(graphicState, shapes, geometricPath);
+                            break;
+
+                        // Set the stroking color space to DeviceGray (or the DefaultGray color
+                        // space; see "Default Color Spaces" ) and set the gray level to use for
+                        // stroking operations. gray is a number between 0.0 (black)
+                        // and 1.0 (white).
+                        case PdfOps.G_OP:
+                            consume_G(graphicState, stack, library);
+                            break;
+
+                        // Close, fill, and then stroke the path, using the even-odd
+                        // rule to determine the region to fill. This operator has the
+                        // same effect as the sequence h B*. See also "Special
+                        // Path-Painting Considerations"
+                        case PdfOps.b_STAR_OP:
 //                        collectTokenFrequency(PdfOps.b_STAR_TOKEN);
-                        geometricPath = consume_b_star(graphicState,
-                                shapes, geometricPath);
-                    }
-
-                    // Set the stroking color space to DeviceRGB (or the DefaultRGB color
-                    // space; see "Default Color Spaces" on page 227) and set the color to
-                    // use for stroking operations. Each operand must be a number between
-                    // 0.0 (minimum intensity) and 1.0 (maximum intensity).
-                    else if (tok.equals(PdfOps.RG_TOKEN)) { // Stroke Color RGB
-                        consume_RG(graphicState, stack, library);
-                    }
-
-                    // Set the current color space to use for stroking operations. The
-                    // operand name must be a name object. If the color space is one that
-                    // can be specified by a name and no additional parameters (DeviceGray,
-                    // DeviceRGB, DeviceCMYK, and certain cases of Pattern), the name may be
-                    // specified directly. Otherwise, it must be a name defined in the
-                    // ColorSpace sub dictionary of the current resource dictionary; the
-                    // associated value is an array describing the color space.
-                    // <b>Note:</b>
-                    // The names DeviceGray, DeviceRGB, DeviceCMYK, and Pattern always
-                    // identify the corresponding color spaces directly; they never refer to
-                    // resources in the ColorSpace sub dictionary. The CS operator also sets
-                    // the current stroking color to its initial value, which depends on the
-                    // color space:
-                    // <li>In a DeviceGray, DeviceRGB, CalGray, or CalRGB color space, the
-                    //     initial color has all components equal to 0.0.</li>
-                    // <li>In a DeviceCMYK color space, the initial color is
-                    //     [0.0 0.0 0.0 1.0].   </li>
-                    // <li>In a Lab or ICCBased color space, the initial color has all
-                    //     components equal to 0.0 unless that falls outside the intervals
-                    //     specified by the space's Range entry, in which case the nearest
-                    //     valid value is substituted.</li>
-                    // <li>In an Indexed color space, the initial color value is 0. </li>
-                    // <li>In a Separation or DeviceN color space, the initial tint value is
-                    //     1.0 for all colorants. </li>
-                    // <li>In a Pattern color space, the initial color is a pattern object
-                    //     that causes nothing to be painted. </li>
-                    else if (tok.equals(PdfOps.CS_TOKEN)) {
-                        consume_CS(graphicState, stack, resources);
-                    } else if (tok.equals(PdfOps.d1_TOKEN)) {
+                            geometricPath = consume_b_star(graphicState,
+                                    shapes, geometricPath);
+                            break;
+
+                        // Set the stroking color space to DeviceRGB (or the DefaultRGB color
+                        // space; see "Default Color Spaces" on page 227) and set the color to
+                        // use for stroking operations. Each operand must be a number between
+                        // 0.0 (minimum intensity) and 1.0 (maximum intensity).
+                        case PdfOps.RG_OP: // Stroke Color RGB
+                            consume_RG(graphicState, stack, library);
+                            break;
+
+                        // Set the current color space to use for stroking operations. The
+                        // operand name must be a name object. If the color space is one that
+                        // can be specified by a name and no additional parameters (DeviceGray,
+                        // DeviceRGB, DeviceCMYK, and certain cases of Pattern), the name may be
+                        // specified directly. Otherwise, it must be a name defined in the
+                        // ColorSpace sub dictionary of the current resource dictionary; the
+                        // associated value is an array describing the color space.
+                        // <b>Note:</b>
+                        // The names DeviceGray, DeviceRGB, DeviceCMYK, and Pattern always
+                        // identify the corresponding color spaces directly; they never refer to
+                        // resources in the ColorSpace sub dictionary. The CS operator also sets
+                        // the current stroking color to its initial value, which depends on the
+                        // color space:
+                        // <li>In a DeviceGray, DeviceRGB, CalGray, or CalRGB color space, the
+                        //     initial color has all components equal to 0.0.</li>
+                        // <li>In a DeviceCMYK color space, the initial color is
+                        //     [0.0 0.0 0.0 1.0].   </li>
+                        // <li>In a Lab or ICCBased color space, the initial color has all
+                        //     components equal to 0.0 unless that falls outside the intervals
+                        //     specified by the space's Range entry, in which case the nearest
+                        //     valid value is substituted.</li>
+                        // <li>In an Indexed color space, the initial color value is 0. </li>
+                        // <li>In a Separation or DeviceN color space, the initial tint value is
+                        //     1.0 for all colorants. </li>
+                        // <li>In a Pattern color space, the initial color is a pattern object
+                        //     that causes nothing to be painted. </li>
+                        case PdfOps.CS_OP:
+                            consume_CS(graphicState, stack, resources);
+                            break;
+                        case PdfOps.d1_OP:
 //                        collectTokenFrequency(PdfOps.d1_TOKEN);
-                        graphicState = consume_d1(graphicState, stack
-                        );
-                    }
-
-                    // Fill and then stroke the path, using the even-odd rule to
-                    // determine the region to fill. This operator produces the same
-                    // result as B, except that the path is filled as if with f*
-                    // instead of f. See also "Special Path-Painting Considerations"
-                    else if (tok.equals(PdfOps.B_STAR_TOKEN)) {
+                            graphicState = consume_d1(graphicState, stack
+                            );
+                            break;
+
+                        // Fill and then stroke the path, using the even-odd rule to
+                        // determine the region to fill. This operator produces the same
+                        // result as B, except that the path is filled as if with f*
+                        // instead of f. See also "Special Path-Painting Considerations"
+                        case PdfOps.B_STAR_OP:
 //                        collectTokenFrequency(PdfOps.B_STAR_TOKEN);
-                        geometricPath = consume_B_star(graphicState, shapes, geometricPath);
-                    }
-
-                    // Begin a marked-content sequence terminated by a balancing EMC
-                    // operator.tag is a name object indicating the role or
-                    // significance of the sequence.
-                    else if (tok.equals(PdfOps.BMC_TOKEN)) {
-                        consume_BMC(stack, shapes, oCGs, resources);
-                    }
-
-                    // Begin an inline image object
-                    else if (tok.equals(PdfOps.BI_TOKEN)) {
+                            geometricPath = consume_B_star(graphicState, shapes, geometricPath);
+                            break;
+
+                        // Begin a marked-content sequence terminated by a balancing EMC
+                        // operator.tag is a name object indicating the role or
+                        // significance of the sequence.
+                        case PdfOps.BMC_OP:
+                            consume_BMC(stack, shapes, oCGs, resources);
+                            break;
+
+                        // Begin an inline image object
+                        case PdfOps.BI_OP:
 //                        collectTokenFrequency(PdfOps.BI_TOKEN);
-                        // start parsing image object, which leads to ID and EI
-                        // tokends.
-                        //    ID - Begin in the image data for an inline image object
-                        //    EI - End an inline image object
-                        parseInlineImage(parser, shapes);
-                    }
-
-                    // Begin a compatibility section. Unrecognized operators
-                    // (along with their operands) will be ignored without error
-                    // until the balancing EX operator is encountered.
-                    else if (tok.equals(PdfOps.BX_TOKEN)) {
+                            // start parsing image object, which leads to ID and EI
+                            // tokends.
+                            //    ID - Begin in the image data for an inline image object
+                            //    EI - End an inline image object
+                            parseInlineImage(parser, shapes);
+                            break;
+
+                        // Begin a compatibility section. Unrecognized operators
+                        // (along with their operands) will be ignored without error
+                        // until the balancing EX operator is encountered.
+                        case PdfOps.BX_OP:
 //                        collectTokenFrequency(PdfOps.BX_TOKEN);
-                    }
-                    // End a compatibility section begun by a balancing BX operator.
-                    else if (tok.equals(PdfOps.EX_TOKEN)) {
+                            break;
+                        // End a compatibility section begun by a balancing BX operator.
+                        case PdfOps.EX_OP:
 //                        collectTokenFrequency(PdfOps.EX_TOKEN);
-                    }
-
-                    // Modify the current clipping path by intersecting it with the
-                    // current path, using the even-odd rule to determine which
-                    // regions lie inside the clipping path.
-                    else if (tok.equals(PdfOps.W_STAR_TOKEN)) {
-                        consume_W_star(graphicState, geometricPath);
-                    }
-
-                    /**
-                     * Single marked-content point
-                     */
-                    // Designate a marked-content point with an associated property
-                    // list. tag is a name object indicating the role or significance
-                    // of the point; properties is either an in line dictionary
-                    // containing the property list or a name object associated with
-                    // it in the Properties sub dictionary of the current resource
-                    // dictionary.
-                    else if (tok.equals(PdfOps.DP_TOKEN)) {
+                            break;
+
+                        // Modify the current clipping path by intersecting it with the
+                        // current path, using the even-odd rule to determine which
+                        // regions lie inside the clipping path.
+                        case PdfOps.W_STAR_OP:
+                            consume_W_star(graphicState, geometricPath);
+                            break;
+
+                        /**
+                         * Single marked-content point
+                         */
+                        // Designate a marked-content point with an associated property
+                        // list. tag is a name object indicating the role or significance
+                        // of the point; properties is either an in line dictionary
+                        // containing the property list or a name object associated with
+                        // it in the Properties sub dictionary of the current resource
+                        // dictionary.
+                        case PdfOps.DP_OP:
 //                        collectTokenFrequency(PdfOps.DP_TOKEN);
-                        consume_DP(stack);
-                    }
-                    // Designate a marked-content point. tag is a name object
-                    // indicating the role or significance of the point.
-                    else if (tok.equals(PdfOps.MP_TOKEN)) {
+                            consume_DP(stack);
+                            break;
+                        // Designate a marked-content point. tag is a name object
+                        // indicating the role or significance of the point.
+                        case PdfOps.MP_OP:
 //                        collectTokenFrequency(PdfOps.MP_TOKEN);
-                        consume_MP(stack);
-                    }
+                            consume_MP(stack);
+                            break;
 
-                    // shading operator.
-                    else if (tok.equals(PdfOps.sh_TOKEN)) {
+                        // shading operator.
+                        case PdfOps.sh_OP:
 //                        collectTokenFrequency(PdfOps.sh_TOKEN);
-                        consume_sh(graphicState, stack, shapes,
-                                resources);
-                    }
-
-                    /**
-                     * We've seen a couple cases when the text state parameters are written
-                     * outside of text blocks, this should cover these cases.
-                     */
-                    // Character Spacing
-                    else if (tok.equals(PdfOps.Tc_TOKEN)) {
-                        consume_Tc(graphicState, stack);
-                    }
-                    // Word spacing
-                    else if (tok.equals(PdfOps.Tw_TOKEN)) {
-                        consume_Tw(graphicState, stack);
-                    }
-                    // Text leading
-                    else if (tok.equals(PdfOps.TL_TOKEN)) {
-                        consume_TL(graphicState, stack);
-                    }
-                    // Rendering mode
-                    else if (tok.equals(PdfOps.Tr_TOKEN)) {
-                        consume_Tr(graphicState, stack);
-                    }
-                    // Horizontal scaling
-                    else if (tok.equals(PdfOps.Tz_TOKEN)) {
-                        consume_Tz(graphicState, stack);
-                    }
-                    // Text rise
-                    else if (tok.equals(PdfOps.Ts_TOKEN)) {
-                        consume_Ts(graphicState, stack);
+                            consume_sh(graphicState, stack, shapes,
+                                    resources);
+                            break;
+
+                        /**
+                         * We've seen a couple cases when the text state parameters are written
+                         * outside of text blocks, this should cover these cases.
+                         */
+                        // Character Spacing
+                        case PdfOps.Tc_OP:
+                            consume_Tc(graphicState, stack);
+                            break;
+                        // Word spacing
+                        case PdfOps.Tw_OP:
+                            consume_Tw(graphicState, stack);
+                            break;
+                        // Text leading
+                        case PdfOps.TL_OP:
+                            consume_TL(graphicState, stack);
+                            break;
+                        // Rendering mode
+                        case PdfOps.Tr_OP:
+                            consume_Tr(graphicState, stack);
+                            break;
+                        // Horizontal scaling
+                        case PdfOps.Tz_OP:
+                            consume_Tz(graphicState, stack);
+                            break;
+                        // Text rise
+                        case PdfOps.Ts_OP:
+                            consume_Ts(graphicState, stack);
+                            break;
                     }
                 }
             }
@@ -643,6 +689,7 @@ public class OContentParser extends AbstractContentParser {
 
         // Print off anything left on the stack, any "Stack" traces should
         // indicate a parsing problem or a not supported operand
+        operands.flushTo(stack);
         while (!stack.isEmpty()) {
             String tmp = stack.pop().toString();
             if (logger.isLoggable(Level.FINE)) {
@@ -662,13 +709,47 @@ public class OContentParser extends AbstractContentParser {
      * @return vector where each entry is the text extracted from a text block.
      */
     public Shapes parseTextBlocks(byte[][] source) throws UnsupportedEncodingException, InterruptedException {
-
         // great a parser to get tokens for stream
-        Parser parser = new Parser(new ByteDoubleArrayInputStream(source));
-        Shapes shapes = new Shapes();
+        return parseTextBlocks(new Parser(new ByteDoubleArrayInputStream(source)));
+    }
+
+    /**
+     * Specialized method for extracting text from a page's content streams,
+     * each stream is only decoded once the parser reaches it.
+     *
+     * @param streams content streams making up the page content.
+     * @return vector where each entry is the text extracted from a text block.
+     */
+    public Shapes parseTextBlocks(Stream[] streams) throws UnsupportedEncodingException, InterruptedException {
+        java.util.List<InputStream> in = new ArrayList<InputStream>(streams.length);
+        for (Stream stream : streams) {
+            in.add(new DecodedStreamInputStream(stream));
+        }
+        try {
+            return parseTextBlocks(new Parser(new SequenceInputStream(in, ' ')));
+        } finally {
+            closeStreams(in);
+        }
+    }
+
+    private static void closeStreams(java.util.List<InputStream> in) {
+        for (InputStream stream : in) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Error closing content stream.", e);
+            }
+        }
+    }
+
+    private Shapes parseTextBlocks(Parser parser) throws UnsupportedEncodingException, InterruptedException {
+        // only the text is kept, draw commands are never built.
+        Shapes shapes = new Shapes(true);
 
         if (graphicState == null) {
             graphicState = new GraphicsState(shapes);
+        } else {
+            graphicState.setShapes(shapes);
         }
 
 //        long startTime = System.currentTimeMillis();
@@ -684,23 +765,44 @@ public class OContentParser extends AbstractContentParser {
                 // stack for future reference
                 if (tok instanceof String) {
 
-                    if (tok.equals(PdfOps.BT_TOKEN)) {
-                        // start parseText, which parses until ET is reached
-                        yBTstart = parseText(parser, shapes, yBTstart);
-                        // free up some memory along the way. we don't need
-                        // a full stack consume Tf tokens.
-                        stack.clear();
-                    }
-                    // for malformed core docs we need to consume any font
-                    // to ensure we can result toUnicode values.
-                    else if (tok.equals(PdfOps.Tf_TOKEN)) {
-                        consume_Tf(graphicState, stack, resources);
-                        stack.clear();
-                    }
-                    // pick up on xObject content streams.
-                    else if (tok.equals(PdfOps.Do_TOKEN)) {
-                        consume_Do(graphicState, stack, shapes, resources, false, new AtomicInteger(0), null);
-                        stack.clear();
+                    switch (parser.getLastOperator()) {
+                        case PdfOps.BT_OP:
+                            // start parseText, which parses until ET is reached
+                            yBTstart = parseText(parser, shapes, yBTstart);
+                            // free up some memory along the way. we don't need
+                            // a full stack consume Tf tokens.
+                            stack.clear();
+                            break;
+                        // for malformed core docs we need to consume any font
+                        // to ensure we can result toUnicode values.
+                        case PdfOps.Tf_OP:
+                            consume_Tf(graphicState, stack, resources);
+                            stack.clear();
+                            break;
+                        // pick up on xObject content streams.
+                        case PdfOps.Do_OP:
+                            consume_Do(graphicState, stack, shapes, resources, false, new AtomicInteger(0), null);
+                            stack.clear();
+                            break;
+                        // a form's text is positioned by its CTM, see Form.getText().
+                        case PdfOps.q_OP:
+                            if (textBlockTransforms) {
+                                graphicState = consume_q(graphicState);
+                            }
+                            stack.clear();
+                            break;
+                        case PdfOps.Q_OP:
+                            if (textBlockTransforms) {
+                                graphicState = consume_Q(graphicState, shapes);
+                            }
+                            stack.clear();
+                            break;
+                        case PdfOps.cm_OP:
+                            if (textBlockTransforms && stack.size() >= 6) {
+                                consume_cm(graphicState, stack, false, null);
+                            }
+                            stack.clear();
+                            break;
                     }
                 } else {
                     stack.push(tok);
@@ -750,273 +852,289 @@ public class OContentParser extends AbstractContentParser {
         GlyphOutlineClip glyphOutlineClip = new GlyphOutlineClip();
 
         // start parsing of the BT block
-        nextToken = parser.getStreamObject();
-        while (!nextToken.equals(PdfOps.ET_TOKEN)) { // ET - end text object
+        nextToken = parser.getStreamOperand();
+        while (parser.getLastOperator() != PdfOps.ET_OP) { // ET - end text object
             // add names to the stack, save for later parsing, colour state
             // and graphics state (includes font).
 
+            if (nextToken == Parser.NUMBER_TOKEN) {
+                operands.push(parser);
+                nextToken = parser.getStreamOperand();
+                continue;
+            }
+            if (!readsOperands(parser.getLastOperator())) {
+                operands.flushTo(stack);
+            }
+
             if (nextToken instanceof String) {
 
-                // Normal text token, string, hex
-                if (nextToken.equals(PdfOps.Tj_TOKEN)) {
+                switch (parser.getLastOperator()) {
+                    // Normal text token, string, hex
+                    case PdfOps.Tj_OP:
 //                    collectTokenFrequency(PdfOps.Tj_TOKEN);
-                    consume_Tj(graphicState, stack, shapes,
-                            textMetrics, glyphOutlineClip, oCGs);
-                }
+                        consume_Tj(graphicState, stack, shapes,
+                                textMetrics, glyphOutlineClip, oCGs);
+                        break;
 
-                // Character Spacing
-                else if (nextToken.equals(PdfOps.Tc_TOKEN)) {
+                    // Character Spacing
+                    case PdfOps.Tc_OP:
 //                    collectTokenFrequency(PdfOps.Tc_TOKEN);
-                    consume_Tc(graphicState, stack);
-                }
+                        consume_Tc(graphicState, stack);
+                        break;
 
-                // Word spacing
-                else if (nextToken.equals(PdfOps.Tw_TOKEN)) {
+                    // Word spacing
+                    case PdfOps.Tw_OP:
 //                    collectTokenFrequency(PdfOps.Tw_TOKEN);
-                    consume_Tw(graphicState, stack);
-                }
+                        consume_Tw(graphicState, stack);
+                        break;
 
-                // move to the start of he next line, offset from the start of the
-                // current line by (tx,ty)*tx
-                else if (nextToken.equals(PdfOps.Td_TOKEN)) {
+                    // move to the start of he next line, offset from the start of the
+                    // current line by (tx,ty)*tx
+                    case PdfOps.Td_OP:
 //                    collectTokenFrequency(PdfOps.Td_TOKEN);
-                    consume_Td(graphicState, stack, textMetrics, pageText,
-                            previousBTStart, oCGs);
-                }
+                        consume_Td(graphicState, operands, stack, textMetrics, pageText,
+                                previousBTStart, oCGs);
+                        break;
 
-                /**
-                 * Tranformation matrix
-                 * tm =   |f1 f2 0|
-                 *        |f3 f4 0|
-                 *        |f5 f6 0|
-                 */
-                else if (nextToken.equals(PdfOps.Tm_TOKEN)) {
+                    /**
+                     * Tranformation matrix
+                     * tm =   |f1 f2 0|
+                     *        |f3 f4 0|
+                     *        |f5 f6 0|
+                     */
+                    case PdfOps.Tm_OP:
 //                    collectTokenFrequency(PdfOps.Tm_TOKEN);
-                    consume_tm(graphicState, stack, textMetrics, pageText,
-                            previousBTStart, textBlockBase, oCGs);
-                }
+                        consume_tm(graphicState, operands, stack, textMetrics, pageText,
+                                previousBTStart, textBlockBase, oCGs);
+                        break;
 
-                // Font selection
-                else if (nextToken.equals(PdfOps.Tf_TOKEN)) {
-                    consume_Tf(graphicState, stack, resources);
-                }
+                    // Font selection
+                    case PdfOps.Tf_OP:
+                        consume_Tf(graphicState, stack, resources);
+                        break;
 
-                // TJ marks a vector, where.......
-                else if (nextToken.equals(PdfOps.TJ_TOKEN)) {
+                    // TJ marks a vector, where.......
+                    case PdfOps.TJ_OP:
 //                    collectTokenFrequency(PdfOps.TJ_TOKEN);
-                    consume_TJ(graphicState, stack, shapes,
-                            textMetrics, glyphOutlineClip, oCGs);
-                }
+                        consume_TJ(graphicState, stack, shapes,
+                                textMetrics, glyphOutlineClip, oCGs);
+                        break;
 
-                // Move to the start of the next line, offset from the start of the
-                // current line by (tx,ty)
-                else if (nextToken.equals(PdfOps.TD_TOKEN)) {
+                    // Move to the start of the next line, offset from the start of the
+                    // current line by (tx,ty)
+                    case PdfOps.TD_OP:
 //                    collectTokenFrequency(PdfOps.TD_TOKEN);
-                    consume_TD(graphicState, stack, textMetrics, pageText, oCGs);
-                }
+                        consume_TD(graphicState, stack, textMetrics, pageText, oCGs);
+                        break;
 
-                // Text leading
-                else if (nextToken.equals(PdfOps.TL_TOKEN)) {
+                    // Text leading
+                    case PdfOps.TL_OP:
 //                    collectTokenFrequency(PdfOps.TL_TOKEN);
-                    consume_TL(graphicState, stack);
-                }
+                        consume_TL(graphicState, stack);
+                        break;
 
-                // Saves Graphics State, should copy the entire  graphics state onto
-                // the graphicsState object's stack
-                else if (nextToken.equals(PdfOps.q_TOKEN)) {
-                    graphicState = consume_q(graphicState);
-                }
-                // Restore Graphics State, should restore the entire graphics state
-                // to its former value by popping it from the stack
-                else if (nextToken.equals(PdfOps.Q_TOKEN)) {
-                    graphicState = consume_Q(graphicState, shapes);
-                }
+                    // Saves Graphics State, should copy the entire  graphics state onto
+                    // the graphicsState object's stack
+                    case PdfOps.q_OP:
+                        graphicState = consume_q(graphicState);
+                        break;
+                    // Restore Graphics State, should restore the entire graphics state
+                    // to its former value by popping it from the stack
+                    case PdfOps.Q_OP:
+                        graphicState = consume_Q(graphicState, shapes);
+                        break;
 
-                // Modify the current transformation matrix (CTM) by concatenating the
-                // specified matrix
-                else if (nextToken.equals(PdfOps.cm_TOKEN)) {
-                    consume_cm(graphicState, stack, inTextBlock, textBlockBase);
-                }
+                    // Modify the current transformation matrix (CTM) by concatenating the
+                    // specified matrix
+                    case PdfOps.cm_OP:
+                        consume_cm(graphicState, operands, stack, inTextBlock, textBlockBase);
+                        break;
 
-                // Move to the start of the next line
-                else if (nextToken.equals(PdfOps.T_STAR_TOKEN)) {
+                    // Move to the start of the next line
+                    case PdfOps.T_STAR_OP:
 //                    collectTokenFrequency(PdfOps.T_STAR_TOKEN);
-                    consume_T_star(graphicState, textMetrics, pageText, oCGs);
-                } else if (nextToken.equals(PdfOps.BDC_TOKEN)) {
+                        consume_T_star(graphicState, textMetrics, pageText, oCGs);
+                        break;
+                    case PdfOps.BDC_OP:
 //                    collectTokenFrequency(PdfOps.BDC_TOKEN);
-                    consume_BDC(stack, shapes,
-                            oCGs, resources);
-                } else if (nextToken.equals(PdfOps.EMC_TOKEN)) {
+                        consume_BDC(stack, shapes,
+                                oCGs, resources);
+                        break;
+                    case PdfOps.EMC_OP:
 //                    collectTokenFrequency(PdfOps.EMC_TOKEN);
-                    consume_EMC(shapes, oCGs);
-                }
+                        consume_EMC(shapes, oCGs);
+                        break;
 
-                // Sets the specified parameters in the graphics state.  The gs operand
-                // points to a name resource which should be a an ExtGState object.
-                // The graphics state parameters in the ExtGState must be concatenated
-                // with the the current graphics state.
-                else if (nextToken.equals(PdfOps.gs_TOKEN)) {
-                    consume_gs(graphicState, stack, resources, shapes);
-                }
+                    // Sets the specified parameters in the graphics state.  The gs operand
+                    // points to a name resource which should be a an ExtGState object.
+                    // The graphics state parameters in the ExtGState must be concatenated
+                    // with the the current graphics state.
+                    case PdfOps.gs_OP:
+                        consume_gs(graphicState, stack, resources, shapes);
+                        break;
 
-                // Set the line width in the graphics state
-                else if (nextToken.equals(PdfOps.w_TOKEN) ||
-                        nextToken.equals(PdfOps.LW_TOKEN)) {
-                    consume_w(graphicState, stack, shapes, glyph2UserSpaceScale);
-                }
+                    // Set the line width in the graphics state
+                    case PdfOps.w_OP:
+                    case PdfOps.LW_OP:
+                        consume_w(graphicState, stack, shapes, glyph2UserSpaceScale);
+                        break;
 
-                // Fill Color with ColorSpace
-                else if (nextToken.equals(PdfOps.sc_TOKEN)) {
-                    consume_sc(graphicState, stack, library, resources, false);
-                } else if (nextToken.equals(PdfOps.scn_TOKEN)) {
-                    consume_sc(graphicState, stack, library, resources, true);
-                }
+                    // Fill Color with ColorSpace
+                    case PdfOps.sc_OP:
+                        consume_sc(graphicState, stack, library, resources, false);
+                        break;
+                    case PdfOps.scn_OP:
+                        consume_sc(graphicState, stack, library, resources, true);
+                        break;
 
-                // Same as K, but for nonstroking operations.
-                else if (nextToken.equals(PdfOps.k_TOKEN)) { // Fill Color CMYK
-                    consume_k(graphicState, stack, library);
-                }
+                    // Same as K, but for nonstroking operations.
+                    case PdfOps.k_OP: // Fill Color CMYK
+                        consume_k(graphicState, stack, library);
+                        break;
 
-                // Same as g but for none stroking operations
-                else if (nextToken.equals(PdfOps.g_TOKEN)) {
-                    consume_g(graphicState, stack, library);
-                }
+                    // Same as g but for none stroking operations
+                    case PdfOps.g_OP:
+                        consume_g(graphicState, stack, library);
+                        break;
 
-                // Sets the flatness tolerance in the graphics state, NOT SUPPORTED
-                // flatness is a number in the range 0 to 100, a value of 0 specifies
-                // the default tolerance
-                else if (nextToken.equals(PdfOps.i_TOKEN)) {
-                    consume_i(stack);
-                }
+                    // Sets the flatness tolerance in the graphics state, NOT SUPPORTED
+                    // flatness is a number in the range 0 to 100, a value of 0 specifies
+                    // the default tolerance
+                    case PdfOps.i_OP:
+                        consume_i(stack);
+                        break;
 
-                // Miter Limit
-                else if (nextToken.equals(PdfOps.M_TOKEN)) {
-                    consume_M(graphicState, stack, shapes);
-                }
+                    // Miter Limit
+                    case PdfOps.M_OP:
+                        consume_M(graphicState, stack, shapes);
+                        break;
 
-                // Set the line cap style of the graphic state, related to Line Join
-                // style
-                else if (nextToken.equals(PdfOps.J_TOKEN)) {
-                    consume_J(graphicState, stack, shapes);
-                }
+                    // Set the line cap style of the graphic state, related to Line Join
+                    // style
+                    case PdfOps.J_OP:
+                        consume_J(graphicState, stack, shapes);
+                        break;
 
-                // Same as RG, but for nonstroking operations.
-                else if (nextToken.equals(PdfOps.rg_TOKEN)) { // Fill Color RGB
-                    consume_rg(graphicState, stack, library);
-                }
+                    // Same as RG, but for nonstroking operations.
+                    case PdfOps.rg_OP: // Fill Color RGB
+                        consume_rg(graphicState, stack, library);
+                        break;
 
-                // Sets the line dash pattern in the graphics state. A normal line
-                // is [] 0.  See Graphics State -> Line dash patter for more information
-                // in the PDF Reference.  Java 2d uses the same notation so there
-                // is not much work to be done other then parsing the data.
-                else if (nextToken.equals(PdfOps.d_TOKEN)) {
-                    consume_d(graphicState, stack, shapes);
-                }
+                    // Sets the line dash pattern in the graphics state. A normal line
+                    // is [] 0.  See Graphics State -> Line dash patter for more information
+                    // in the PDF Reference.  Java 2d uses the same notation so there
+                    // is not much work to be done other then parsing the data.
+                    case PdfOps.d_OP:
+                        consume_d(graphicState, stack, shapes);
+                        break;
 
-                // Set the line join style in the graphics state
-                else if (nextToken.equals(PdfOps.j_TOKEN)) {
-                    consume_j(graphicState, stack, shapes);
-                }
+                    // Set the line join style in the graphics state
+                    case PdfOps.j_OP:
+                        consume_j(graphicState, stack, shapes);
+                        break;
 
-                // Same as CS, but for non-stroking operations.
-                else if (nextToken.equals(PdfOps.cs_TOKEN)) {
-                    consume_cs(graphicState, stack, resources);
-                }
+                    // Same as CS, but for non-stroking operations.
+                    case PdfOps.cs_OP:
+                        consume_cs(graphicState, stack, resources);
+                        break;
 
-                // Set the color rendering intent in the graphics state
-                else if (nextToken.equals("ri")) {
+                    // Set the color rendering intent in the graphics state
+                    case PdfOps.ri_OP:
 //                    collectTokenFrequency(PdfOps.ri_TOKEN);
-                    consume_ri(stack);
-                }
+                        consume_ri(stack);
+                        break;
 
-                // Set the color to use for stroking operations in a device, CIE-based
-                // (other than ICCBased), or Indexed color space. The number of operands
-                // required and their interpretation depends on the current stroking color space:
-                //   - For DeviceGray, CalGray, and Indexed color spaces, one operand
-                //     is required (n = 1).
-                //   - For DeviceRGB, CalRGB, and Lab color spaces, three operands are
-                //     required (n = 3).
-                //   - For DeviceCMYK, four operands are required (n = 4).
-                else if (nextToken.equals(PdfOps.SC_TOKEN)) { // Stroke Color with ColorSpace
-                    consume_SC(graphicState, stack, library, resources, false);
-                } else if (nextToken.equals(PdfOps.SCN_TOKEN)) { // Stroke Color with ColorSpace
-                    consume_SC(graphicState, stack, library, resources, true);
-                }
+                    // Set the color to use for stroking operations in a device, CIE-based
+                    // (other than ICCBased), or Indexed color space. The number of operands
+                    // required and their interpretation depends on the current stroking color space:
+                    //   - For DeviceGray, CalGray, and Indexed color spaces, one operand
+                    //     is required (n = 1).
+                    //   - For DeviceRGB, CalRGB, and Lab color spaces, three operands are
+                    //     required (n = 3).
+                    //   - For DeviceCMYK, four operands are required (n = 4).
+                    case PdfOps.SC_OP: // Stroke Color with ColorSpace
+                        consume_SC(graphicState, stack, library, resources, false);
+                        break;
+                    case PdfOps.SCN_OP: // Stroke Color with ColorSpace
+                        consume_SC(graphicState, stack, library, resources, true);
+                        break;
 
-                // Set the stroking color space to DeviceCMYK (or the DefaultCMYK color
-                // space; see "Default Color Spaces" on page 227) and set the color to
-                // use for stroking operations. Each operand must be a number between
-                // 0.0 (zero concentration) and 1.0 (maximum concentration). The
-                // behavior of this operator is affected by the overprint mode
-                // (see Section 4.5.6, "Overprint Control").
-                else if (nextToken.equals(PdfOps.K_TOKEN)) { // Stroke Color CMYK
-                    consume_K(graphicState, stack, library);
-                }
+                    // Set the stroking color space to DeviceCMYK (or the DefaultCMYK color
+                    // space; see "Default Color Spaces" on page 227) and set the color to
+                    // use for stroking operations. Each operand must be a number between
+                    // 0.0 (zero concentration) and 1.0 (maximum concentration). The
+                    // behavior of this operator is affected by the overprint mode
+                    // (see Section 4.5.6, "Overprint Control").
+                    case PdfOps.K_OP: // Stroke Color CMYK
+                        consume_K(graphicState, stack, library);
+                        break;
 
-                // Set the stroking color space to DeviceGray (or the DefaultGray color
-                // space; see "Default Color Spaces" ) and set the gray level to use for
-                // stroking operations. gray is a number between 0.0 (black)
-                // and 1.0 (white).
-                else if (nextToken.equals(PdfOps.G_TOKEN)) {
-                    consume_G(graphicState, stack, library);
-                }
+                    // Set the stroking color space to DeviceGray (or the DefaultGray color
+                    // space; see "Default Color Spaces" ) and set the gray level to use for
+                    // stroking operations. gray is a number between 0.0 (black)
+                    // and 1.0 (white).
+                    case PdfOps.G_OP:
+                        consume_G(graphicState, stack, library);
+                        break;
 
-                // Set the stroking color space to DeviceRGB (or the DefaultRGB color
-                // space; see "Default Color Spaces" on page 227) and set the color to
-                // use for stroking operations. Each operand must be a number between
-                // 0.0 (minimum intensity) and 1.0 (maximum intensity).
-                else if (nextToken.equals(PdfOps.RG_TOKEN)) { // Stroke Color RGB
-                    consume_RG(graphicState, stack, library);
-                } else if (nextToken.equals(PdfOps.CS_TOKEN)) {
-                    consume_CS(graphicState, stack, resources);
-                }
+                    // Set the stroking color space to DeviceRGB (or the DefaultRGB color
+                    // space; see "Default Color Spaces" on page 227) and set the color to
+                    // use for stroking operations. Each operand must be a number between
+                    // 0.0 (minimum intensity) and 1.0 (maximum intensity).
+                    case PdfOps.RG_OP: // Stroke Color RGB
+                        consume_RG(graphicState, stack, library);
+                        break;
+                    case PdfOps.CS_OP:
+                        consume_CS(graphicState, stack, resources);
+                        break;
 
-                // Rendering mode
-                else if (nextToken.equals(PdfOps.Tr_TOKEN)) {
+                    // Rendering mode
+                    case PdfOps.Tr_OP:
 //                    collectTokenFrequency(PdfOps.Tr_TOKEN);
-                    consume_Tr(graphicState, stack);
-                }
+                        consume_Tr(graphicState, stack);
+                        break;
 
-                // Horizontal scaling
-                else if (nextToken.equals(PdfOps.Tz_TOKEN)) {
+                    // Horizontal scaling
+                    case PdfOps.Tz_OP:
 //                    collectTokenFrequency(PdfOps.Tz_TOKEN);
-                    consume_Tz(graphicState, stack);
-                }
+                        consume_Tz(graphicState, stack);
+                        break;
 
-                // Text rise
-                else if (nextToken.equals(PdfOps.Ts_TOKEN)) {
+                    // Text rise
+                    case PdfOps.Ts_OP:
 //                    collectTokenFrequency(PdfOps.Ts_TOKEN);
-                    consume_Ts(graphicState, stack);
-                }
+                        consume_Ts(graphicState, stack);
+                        break;
 
-                /**
-                 * Begin a compatibility section. Unrecognized operators (along with
-                 * their operands) will be ignored without error until the balancing
-                 * EX operator is encountered.
-                 */
-                else if (nextToken.equals(PdfOps.BX_TOKEN)) {
+                    /**
+                     * Begin a compatibility section. Unrecognized operators (along with
+                     * their operands) will be ignored without error until the balancing
+                     * EX operator is encountered.
+                     */
+                    case PdfOps.BX_OP:
 //                    collectTokenFrequency(PdfOps.BX_TOKEN);
-                }
+                        break;
 //                 End a compatibility section begun by a balancing BX operator.
-                else if (nextToken.equals(PdfOps.EX_TOKEN)) {
+                    case PdfOps.EX_OP:
 //                    collectTokenFrequency(PdfOps.EX_TOKEN);
-                }
-                // Move to the next line and show a text string.
-                else if (nextToken.equals(PdfOps.SINGLE_QUOTE_TOKEN)) {
+                        break;
+                    // Move to the next line and show a text string.
+                    case PdfOps.SINGLE_QUOTE_OP:
 //                    collectTokenFrequency(PdfOps.SINGLE_QUOTE_TOKEN);
-                    consume_single_quote(graphicState, stack, shapes, textMetrics,
-                            glyphOutlineClip, oCGs);
-                }
-                /**
-                 * Move to the next line and show a text string, using aw as the
-                 * word spacing and ac as the character spacing (setting the
-                 * corresponding parameters in the text state). aw and ac are
-                 * numbers expressed in unscaled text space units.
-                 */
-                else if (nextToken.equals(PdfOps.DOUBLE_QUOTE__TOKEN)) {
+                        consume_single_quote(graphicState, stack, shapes, textMetrics,
+                                glyphOutlineClip, oCGs);
+                        break;
+                    /**
+                     * Move to the next line and show a text string, using aw as the
+                     * word spacing and ac as the character spacing (setting the
+                     * corresponding parameters in the text state). aw and ac are
+                     * numbers expressed in unscaled text space units.
+                     */
+                    case PdfOps.DOUBLE_QUOTE_OP:
 //                    collectTokenFrequency(PdfOps.DOUBLE_QUOTE__TOKEN);
-                    consume_double_quote(graphicState, stack, shapes, textMetrics,
-                            glyphOutlineClip, oCGs);
+                        consume_double_quote(graphicState, stack, shapes, textMetrics,
+                                glyphOutlineClip, oCGs);
+                        break;
                 }
             }
             // push everything else on the stack for consumptions
@@ -1024,8 +1142,9 @@ public class OContentParser extends AbstractContentParser {
                 stack.push(nextToken);
             }
 
-            nextToken = parser.getStreamObject();
+            nextToken = parser.getStreamOperand();
         }
+        operands.flushTo(stack);
         // during a BT -> ET text parse there is a change that we might be
         // in MODE_ADD or MODE_Fill_Add which require that the we push the
         // shapes that make up the clipping path to the shapes stack.  When
@@ -1130,4 +1249,54 @@ public class OContentParser extends AbstractContentParser {
     }
 
 
+
+    /**
+     * Decodes a content stream on first read, so streams further down the
+     * page's content array aren't inflated before the parser gets to them.
+     */
+    private static class DecodedStreamInputStream extends InputStream {
+
+        private Stream stream;
+        private InputStream decoded;
+
+        DecodedStreamInputStream(Stream stream) {
+            this.stream = stream;
+        }
+
+        private InputStream getDecoded() {
+            if (decoded == null && stream != null) {
+                decoded = stream.getDecodedInputStream();
+                // only decode once, even if the stream is empty.
+                stream = null;
+            }
+            return decoded;
+        }
+
+        @Override
+        public int read() throws IOException {
+            InputStream in = getDecoded();
+            return in != null ? in.read() : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            InputStream in = getDecoded();
+            return in != null ? in.read(buffer, offset, length) : -1;
+        }
+
+        @Override
+        public int available() throws IOException {
+            InputStream in = getDecoded();
+            return in != null ? in.available() : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (decoded != null) {
+                decoded.close();
+                decoded = null;
+            }
+            stream = null;
+        }
+    }
 }
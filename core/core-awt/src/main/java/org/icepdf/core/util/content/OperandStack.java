@@ -0,0 +1,107 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.core.util.content;
+
+import org.icepdf.core.util.Parser;
+
+import java.util.Stack;
+
+/**
+ * Primitive stack of the numeric operands read from a content stream.  Path
+ * construction and matrix operators pop their operands directly from the
+ * float array so no Float or Integer instance is created per number.
+ * <br>
+ * Any other operator, or any non numeric operand, first moves the pending
+ * numbers onto the object stack with {@link #flushTo(Stack)}, so the object
+ * stack always sees operands in the same order as the content stream.
+ *
+ * @since 6.3
+ */
+public class OperandStack {
+
+    private float[] values = new float[32];
+    // exact value of integer operands, floats lose precision past 2^24.
+    private int[] integerValues = new int[32];
+    private boolean[] integers = new boolean[32];
+    private int size;
+
+    /**
+     * Pushes the last number read by the parser's getStreamOperand().
+     *
+     * @param parser parser that just returned Parser.NUMBER_TOKEN.
+     */
+    public void push(Parser parser) {
+        if (size == values.length) {
+            grow();
+        }
+        boolean integer = parser.isLastNumberInteger();
+        values[size] = parser.getLastNumber();
+        integerValues[size] = parser.getLastInteger();
+        integers[size] = integer;
+        size++;
+    }
+
+    /**
+     * Pops the top most number, callers must check size() first.
+     *
+     * @return value of the top most number.
+     */
+    public float pop() {
+        return values[--size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Moves all pending numbers onto the object stack, bottom most first,
+     * boxed as Integer or Float as the parser's getNumber() would have.
+     *
+     * @param stack object stack to push the numbers on to.
+     */
+    public void flushTo(Stack<Object> stack) {
+        for (int i = 0; i < size; i++) {
+            if (integers[i]) {
+                stack.push(integerValues[i]);
+            } else {
+                stack.push(values[i]);
+            }
+        }
+        size = 0;
+    }
+
+    private void grow() {
+        int length = values.length * 2;
+        float[] newValues = new float[length];
+        int[] newIntegerValues = new int[length];
+        boolean[] newIntegers = new boolean[length];
+        System.arraycopy(values, 0, newValues, 0, size);
+        System.arraycopy(integerValues, 0, newIntegerValues, 0, size);
+        System.arraycopy(integers, 0, newIntegers, 0, size);
+        values = newValues;
+        integerValues = newIntegerValues;
+        integers = newIntegers;
+    }
+}
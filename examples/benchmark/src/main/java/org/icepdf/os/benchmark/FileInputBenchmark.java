@@ -0,0 +1,180 @@
+package org.icepdf.os.examples.benchmark;
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+import org.icepdf.core.io.MappedFileInputStream;
+import org.icepdf.core.io.RandomAccessFileInputStream;
+import org.icepdf.core.io.SeekableInput;
+import org.icepdf.core.pobjects.Document;
+import org.icepdf.core.pobjects.Reference;
+import org.icepdf.core.pobjects.Stream;
+import org.icepdf.core.util.Library;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The <code>FileInputBenchmark</code> class compares the two file backed
+ * SeekableInput implementations, MappedFileInputStream and
+ * RandomAccessFileInputStream.
+ * <p/>
+ * For each input the document is opened and every object listed in the
+ * cross reference table is loaded, the best time of several runs is printed
+ * to the console.  Documents with a large cross reference table and many
+ * small objects show the biggest difference.  Such a document can be
+ * generated with the -generate option:
+ * <pre>
+ *     FileInputBenchmark -generate big.pdf 100000
+ *     FileInputBenchmark big.pdf 5
+ * </pre>
+ *
+ * @since 6.3
+ */
+public class FileInputBenchmark {
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length == 0) {
+            System.out.println("Usage: FileInputBenchmark <file.pdf> [runs]");
+            System.out.println("       FileInputBenchmark -generate <file.pdf> <objects>");
+            return;
+        }
+        if ("-generate".equals(args[0])) {
+            generate(new File(args[1]), Integer.parseInt(args[2]));
+            return;
+        }
+
+        File file = new File(args[0]);
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        FileInputBenchmark benchmark = new FileInputBenchmark();
+        benchmark.run(file, runs, false);
+        benchmark.run(file, runs, true);
+    }
+
+    /**
+     * Opens the file the given number of times and prints the best open and
+     * load times.
+     *
+     * @param file   pdf file to read.
+     * @param runs   number of runs.
+     * @param mapped true to read the file with a MappedFileInputStream,
+     *               otherwise a RandomAccessFileInputStream is used.
+     * @throws Exception if the file could not be opened.
+     */
+    public void run(File file, int runs, boolean mapped) throws Exception {
+        long bestOpen = Long.MAX_VALUE;
+        long bestLoad = Long.MAX_VALUE;
+        int objects = 0;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            SeekableInput input = mapped ?
+                    MappedFileInputStream.build(file) :
+                    RandomAccessFileInputStream.build(file);
+            Document document = new Document();
+            document.setInputStream(input, file.getPath());
+            bestOpen = Math.min(bestOpen, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            objects = loadObjects(document);
+            bestLoad = Math.min(bestLoad, System.nanoTime() - start);
+
+            document.dispose();
+        }
+        System.out.printf("%-28s open %6d ms, load %d objects %6d ms (best of %d)%n",
+                mapped ? "MappedFileInputStream:" : "RandomAccessFileInputStream:",
+                bestOpen / 1000000, objects, bestLoad / 1000000, runs);
+    }
+
+    /**
+     * Loads every object listed in the document's cross reference table,
+     * stream data is read as well.
+     *
+     * @param document document to load.
+     * @return number of objects that were found.
+     */
+    private int loadObjects(Document document) {
+        Library library = document.getPageTree().getLibrary();
+        int size = document.getStateManager().getTrailer().getNumberOfObjects();
+        int count = 0;
+        for (int i = 1; i < size; i++) {
+            Object object = library.getObject(new Reference(i, 0));
+            if (object instanceof Stream) {
+                ((Stream) object).getDecodedStreamBytes();
+            }
+            if (object != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes a single page document with the given number of extra stream
+     * objects, each of them gets an entry in the cross reference table.
+     *
+     * @param file    file to write.
+     * @param objects number of stream objects to add.
+     * @throws IOException if the file could not be written.
+     */
+    private static void generate(File file, int objects) throws IOException {
+        int size = objects + 5;
+        long[] offsets = new long[size];
+        StringBuilder payload = new StringBuilder();
+        while (payload.length() < 2000) {
+            payload.append("BT /F1 12 Tf 72 712 Td (ICEpdf file input benchmark) Tj ET\n");
+        }
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            long position = write(out, "%PDF-1.4\n", 0);
+            offsets[1] = position;
+            position = write(out, "1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n", position);
+            offsets[2] = position;
+            position = write(out, "2 0 obj\n<< /Type /Pages /Kids [3 0 R] /Count 1 >>\nendobj\n", position);
+            offsets[3] = position;
+            position = write(out, "3 0 obj\n<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] " +
+                    "/Contents 4 0 R >>\nendobj\n", position);
+            offsets[4] = position;
+            position = write(out, "4 0 obj\n<< /Length 0 >>\nstream\n\nendstream\nendobj\n", position);
+            for (int i = 5; i < size; i++) {
+                offsets[i] = position;
+                position = write(out, i + " 0 obj\n<< /Length " + payload.length() + " >>\nstream\n" +
+                        payload + "\nendstream\nendobj\n", position);
+            }
+            long xref = position;
+            StringBuilder table = new StringBuilder();
+            table.append("xref\n0 ").append(size).append("\n0000000000 65535 f \n");
+            for (int i = 1; i < size; i++) {
+                table.append(String.format("%010d 00000 n \n", offsets[i]));
+            }
+            table.append("trailer\n<< /Size ").append(size).append(" /Root 1 0 R >>\nstartxref\n")
+                    .append(xref).append("\n%%EOF\n");
+            write(out, table.toString(), position);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static long write(OutputStream out, String text, long position) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        out.write(bytes);
+        return position + bytes.length;
+    }
+}
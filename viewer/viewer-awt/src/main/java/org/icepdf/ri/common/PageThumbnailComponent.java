@@ -20,12 +20,14 @@ import org.icepdf.core.pobjects.Page;
 import org.icepdf.core.pobjects.PageTree;
 import org.icepdf.core.util.Library;
 import org.icepdf.core.util.PropertyConstants;
+import org.icepdf.ri.common.utility.thumbs.ThumbnailService;
 import org.icepdf.ri.common.views.AbstractPageViewComponent;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.awt.image.BufferedImage;
 import java.util.concurrent.FutureTask;
 import java.util.logging.Logger;
 
@@ -38,6 +40,9 @@ import java.util.logging.Logger;
  * thumbnail can be configure with the system property:
  * <br>
  * org.icepdf.vi.views.buffersize.vertical
+ * <br>
+ * When a ThumbnailService is given the thumbnail is created by the service
+ * rather then the common page capture task, see ThumbnailService.
  */
 @SuppressWarnings("serial")
 public class PageThumbnailComponent extends AbstractPageViewComponent implements MouseListener {
@@ -47,6 +52,11 @@ public class PageThumbnailComponent extends AbstractPageViewComponent implements
 
     private SwingController controller;
 
+    // optional thumbnail service and the last request made to it.
+    private ThumbnailService thumbnailService;
+    private ThumbnailService.Request thumbnailRequest;
+    private ThumbnailService.ThumbnailCallback thumbnailCallback;
+
     public PageThumbnailComponent(SwingController controller,
                                   JScrollPane parentScrollPane, PageTree pageTree,
                                   int pageNumber, float thumbNailZoom) {
@@ -58,14 +68,37 @@ public class PageThumbnailComponent extends AbstractPageViewComponent implements
                                   int pageNumber,
                                   int width, int height,
                                   float thumbNailZoom) {
+        this(controller, null, parentScrollPane, pageTree, pageNumber, width, height, thumbNailZoom);
+    }
+
+    public PageThumbnailComponent(SwingController controller, ThumbnailService thumbnailService,
+                                  JScrollPane parentScrollPane, PageTree pageTree,
+                                  int pageNumber,
+                                  int width, int height,
+                                  float thumbNailZoom) {
         super(controller.getDocumentViewController().getDocumentViewModel(),
                 pageTree, pageNumber, parentScrollPane, width, height);
 
         this.controller = controller;
+        this.thumbnailService = thumbnailService;
+        if (thumbnailService != null) {
+            thumbnailCallback = new ThumbnailService.ThumbnailCallback() {
+                public boolean isThumbnailVisible() {
+                    return PageThumbnailComponent.this.parentScrollPane.getViewport().getViewRect()
+                            .intersects(getBounds());
+                }
+
+                public void thumbnailCreated(BufferedImage image) {
+                    setPageImage(image);
+                }
+            };
+        }
 
         // current state.
         pageZoom = thumbNailZoom;
         pageRotation = 0;
+        // thumbnails are painted in one buffer.
+        useTileCache = false;
 
         addMouseListener(this);
         setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
@@ -86,6 +119,14 @@ public class PageThumbnailComponent extends AbstractPageViewComponent implements
 
         // check if we need create or refresh the back pageBufferPadding.
         if (viewPort.intersects(pageLocation) && pageBufferStore.getImageReference() == null) {
+            if (thumbnailService != null) {
+                // the service takes care of queuing and the disk cache.
+                if (thumbnailRequest == null || thumbnailRequest.isDone()) {
+                    thumbnailRequest = thumbnailService.requestThumbnail(pageIndex, pageBoundaryBox, pageZoom,
+                            pageSize.getSize(), thumbnailCallback);
+                }
+                return;
+            }
             // start future task to paint back pageBufferPadding
             if (pageImageCaptureTask == null || pageImageCaptureTask.isDone() || pageImageCaptureTask.isCancelled()) {
                 pageImageCaptureTask = new FutureTask<Object>(
@@ -20,11 +20,15 @@ import org.icepdf.core.pobjects.graphics.text.LineText;
 import org.icepdf.core.pobjects.graphics.text.PageText;
 import org.icepdf.core.pobjects.graphics.text.WordText;
 import org.icepdf.core.search.DocumentSearchController;
+import org.icepdf.core.search.DocumentTextIndex;
 import org.icepdf.core.search.SearchTerm;
+import org.icepdf.core.util.Defs;
 import org.icepdf.ri.common.SwingController;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,6 +47,11 @@ import java.util.logging.Logger;
  * a parameter.  The second variation is ended for a headless environment where
  * Swing is not needed, the constructor for this instance takes a Document
  * as a parameter.
+ * <br>
+ * Searches of large documents can be answered from a {@link DocumentTextIndex}
+ * built with {@link #buildTextIndex()}, pages without a match are then skipped
+ * without their text being extracted.  The index is built on the first search
+ * when the system property org.icepdf.core.search.index.enabled is true.
  *
  * @since 4.0
  */
@@ -51,12 +60,26 @@ public class DocumentSearchControllerImpl implements DocumentSearchController {
     private static final Logger logger =
             Logger.getLogger(DocumentSearchControllerImpl.class.toString());
 
+    private static boolean indexEnabled;
+
+    static {
+        indexEnabled = Defs.booleanProperty("org.icepdf.core.search.index.enabled", false);
+    }
+
     // search model contains caching and memory optimizations.
     protected DocumentSearchModelImpl searchModel;
     // parent controller used to get at RI controllers and models.
     protected SwingController viewerController;
     // assigned document for headless searching.
     protected Document document;
+    // optional word index of the document and the queries of the search terms,
+    // both are only changed while holding the indexQueries lock.
+    protected volatile DocumentTextIndex textIndex;
+    private final IdentityHashMap<SearchTerm, DocumentTextIndex.Query> indexQueries =
+            new IdentityHashMap<SearchTerm, DocumentTextIndex.Query>();
+    // incremented each time the index is set, an index built in the
+    // background is dropped if the index was set while it was being built.
+    private int indexGeneration;
 
     /**
      * Create a news instance of search controller. A search model is created
@@ -124,6 +147,12 @@ public class DocumentSearchControllerImpl implements DocumentSearchController {
      */
     public int searchHighlightPage(int pageIndex) {
 
+        // answer the search from the index when the page text lines up with it.
+        int indexHitCount = searchIndexedPage(pageIndex, 0, null);
+        if (indexHitCount >= 0) {
+            return indexHitCount;
+        }
+
         // get search terms from model and search for each occurrence.
         Collection<SearchTerm> terms = searchModel.getSearchTerms();
 
@@ -258,6 +287,11 @@ public class DocumentSearchControllerImpl implements DocumentSearchController {
         // search hit list
         ArrayList<LineText> searchHits = new ArrayList<LineText>();
 
+        // answer the search from the index when the page text lines up with it.
+        if (searchIndexedPage(pageIndex, wordPadding, searchHits) >= 0) {
+            return searchHits;
+        }
+
         // get our our page text reference
         PageText pageText = getPageText(pageIndex);
 
@@ -441,6 +475,44 @@ public class DocumentSearchControllerImpl implements DocumentSearchController {
         return searchTerm;
     }
 
+    /**
+     * Builds the word index of the document, subsequent searches are answered
+     * from the index.  If the system property
+     * org.icepdf.core.search.index.cacheDir is set the index is read from or
+     * persisted to that directory.
+     *
+     * @return document index, null if there is no document.
+     * @throws InterruptedException if the thread is interrupted while the
+     *                              pages are being parsed.
+     */
+    public DocumentTextIndex buildTextIndex() throws InterruptedException {
+        Document document = getDocument();
+        if (document == null) {
+            return null;
+        }
+        DocumentTextIndex index = DocumentTextIndex.getInstance(document);
+        setTextIndex(index);
+        return index;
+    }
+
+    /**
+     * Sets the word index searches are answered from.
+     *
+     * @param textIndex index of the current document, null to search the
+     *                  page text directly.
+     */
+    public void setTextIndex(DocumentTextIndex textIndex) {
+        synchronized (indexQueries) {
+            this.textIndex = textIndex;
+            indexQueries.clear();
+            indexGeneration++;
+        }
+    }
+
+    public DocumentTextIndex getTextIndex() {
+        return textIndex;
+    }
+
     /**
      * Removes the specified search term from the search. A new search needs
      * to be executed for this change to take place.
@@ -449,6 +521,9 @@ public class DocumentSearchControllerImpl implements DocumentSearchController {
      */
     public void removeSearchTerm(SearchTerm searchTerm) {
         searchModel.removeSearchTerm(searchTerm);
+        synchronized (indexQueries) {
+            indexQueries.remove(searchTerm);
+        }
     }
 
     /**
@@ -492,6 +567,160 @@ public class DocumentSearchControllerImpl implements DocumentSearchController {
      */
     public void dispose() {
         searchModel.clearSearchResults();
+        setTextIndex(null);
+    }
+
+    /**
+     * Searches a page using the document index, highlighting the words of
+     * each hit.  Pages without a match are answered without their page text.
+     * If the page text doesn't line up with the index, for example because
+     * the visibility of an optional content layer changed, the page has to be
+     * searched directly.
+     *
+     * @param pageIndex   page index to search.
+     * @param wordPadding word padding on either side of a hit.
+     * @param searchHits  list the padded hits are added to, null if only the
+     *                    hit count is needed.
+     * @return number of hits, -1 if the page wasn't searched.
+     */
+    private int searchIndexedPage(int pageIndex, int wordPadding, ArrayList<LineText> searchHits) {
+        DocumentTextIndex index = getIndex();
+        if (index == null || pageIndex < 0 || pageIndex >= index.getPageCount()) {
+            return -1;
+        }
+        List<DocumentTextIndex.Match> matches = new ArrayList<DocumentTextIndex.Match>();
+        for (SearchTerm term : searchModel.getSearchTerms()) {
+            DocumentTextIndex.Query query;
+            synchronized (indexQueries) {
+                query = indexQueries.get(term);
+                if (query == null) {
+                    query = index.createQuery(term);
+                    // don't cache a query of an index that has since been replaced.
+                    if (index == textIndex) {
+                        indexQueries.put(term, query);
+                    }
+                }
+            }
+            matches.addAll(query.search(pageIndex));
+        }
+        if (matches.isEmpty()) {
+            return 0;
+        }
+        PageText pageText = getPageText(pageIndex);
+        ArrayList<LineText> pageLines = pageText != null ? pageText.getPageLines() : null;
+        if (pageLines == null) {
+            return -1;
+        }
+        // line and position in the line of each word in reading order.
+        int wordCount = index.getWordCount(pageIndex);
+        int[] wordLines = new int[wordCount];
+        int[] lineIndexes = new int[wordCount];
+        int word = 0;
+        for (int line = 0, max = pageLines.size(); line < max; line++) {
+            List<WordText> lineWords = pageLines.get(line).getWords();
+            if (word + lineWords.size() > wordCount) {
+                return -1;
+            }
+            for (int i = 0, size = lineWords.size(); i < size; i++, word++) {
+                wordLines[word] = line;
+                lineIndexes[word] = i;
+            }
+        }
+        if (word != wordCount) {
+            return -1;
+        }
+        for (DocumentTextIndex.Match match : matches) {
+            for (int i = match.getWordIndex(), max = i + match.getWordCount(); i < max; i++) {
+                WordText wordText = pageLines.get(wordLines[i]).getWords().get(lineIndexes[i]);
+                if (!wordText.toString().equals(index.getWord(pageIndex, i))) {
+                    return -1;
+                }
+            }
+        }
+        for (DocumentTextIndex.Match match : matches) {
+            int first = match.getWordIndex();
+            int last = first + match.getWordCount() - 1;
+            ArrayList<WordText> searchPhraseHits = new ArrayList<WordText>(match.getWordCount());
+            for (int i = first; i <= last; i++) {
+                WordText wordHit = pageLines.get(wordLines[i]).getWords().get(lineIndexes[i]);
+                wordHit.setHighlighted(true);
+                wordHit.setHasHighlight(true);
+                searchPhraseHits.add(wordHit);
+            }
+            if (searchHits != null) {
+                // pad the hit with the words of the line the hit ends on.
+                List<WordText> lineWords = pageLines.get(wordLines[last]).getWords();
+                int lineWordsSize = lineWords.size();
+                int hitCount = match.getWordCount();
+                int i = lineIndexes[last];
+                LineText lineText = new LineText();
+                List<WordText> hitWords = lineText.getWords();
+                int start = i - hitCount - wordPadding + 1;
+                start = start < 0 ? 0 : start;
+                int end = i - hitCount + 1;
+                end = end < 0 ? 0 : end;
+                for (int p = start; p < end; p++) {
+                    hitWords.add(lineWords.get(p));
+                }
+                hitWords.addAll(searchPhraseHits);
+                start = i + 1;
+                start = start > lineWordsSize ? lineWordsSize : start;
+                end = start + wordPadding;
+                end = end > lineWordsSize ? lineWordsSize : end;
+                for (int p = start; p < end; p++) {
+                    hitWords.add(lineWords.get(p));
+                }
+                searchHits.add(lineText);
+            }
+        }
+        searchModel.addPageSearchHit(pageIndex, pageText);
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Found indexed search hits on page " + pageIndex +
+                    " hit count " + matches.size());
+        }
+        return matches.size();
+    }
+
+    /**
+     * Gets the document index, building it first if indexing is enabled.
+     *
+     * @return document index, null if searches aren't indexed.
+     */
+    private DocumentTextIndex getIndex() {
+        Document document;
+        int generation;
+        synchronized (indexQueries) {
+            if (textIndex != null || !indexEnabled) {
+                return textIndex;
+            }
+            document = getDocument();
+            generation = indexGeneration;
+        }
+        if (document == null) {
+            return null;
+        }
+        // built without the lock so setTextIndex() and dispose() don't wait on it.
+        DocumentTextIndex index;
+        try {
+            index = DocumentTextIndex.getInstance(document);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.fine("Search index build was interrupted.");
+            return null;
+        }
+        synchronized (indexQueries) {
+            if (textIndex == null && generation == indexGeneration) {
+                setTextIndex(index);
+            }
+            return textIndex;
+        }
+    }
+
+    private Document getDocument() {
+        if (viewerController != null) {
+            return viewerController.getDocument();
+        }
+        return document;
     }
 
     /**
@@ -0,0 +1,455 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.ri.common.utility.thumbs;
+
+import org.icepdf.core.pobjects.*;
+import org.icepdf.core.util.Defs;
+import org.icepdf.core.util.GraphicsRenderingHints;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The ThumbnailService creates the page thumbnails of the ThumbnailsPanel on
+ * its own small thread pool so large documents don't tie up the common
+ * ICEpdf thread pool.  A thumbnail is created by the first of:
+ * <ul>
+ * <li>the disk cache, if enabled, thumbnails are stored as PNG files keyed by
+ * a digest of the document's file identifier, location, length and
+ * modification time plus the page index and thumbnail size.  Encrypted
+ * documents are never written to the disk cache.</li>
+ * <li>the page's embedded /Thumb image, scaled to the thumbnail size.</li>
+ * <li>a reduced fidelity paint of the page, without annotations, with nearest
+ * neighbour image scaling and without text that is too small to read.</li>
+ * </ul>
+ * The most recent request is served first, thumbnails are requested when
+ * they're painted so this favours the thumbnails the user is looking at, and
+ * requests for thumbnails that have scrolled out of view are dropped.
+ * <br>
+ * The service is configured with the following system properties:
+ * <ul>
+ * <li>org.icepdf.core.views.thumbnails.threads, number of worker threads,
+ * default 1.</li>
+ * <li>org.icepdf.core.views.thumbnails.embedded, use embedded thumbnails,
+ * default true.</li>
+ * <li>org.icepdf.core.views.thumbnails.diskCache, enables the disk cache,
+ * default false.</li>
+ * <li>org.icepdf.core.views.thumbnails.cacheDir, disk cache directory,
+ * default .icesoft/icepdf-viewer/thumbnails in the user's home directory.</li>
+ * <li>org.icepdf.core.views.thumbnails.cacheSize, disk cache size in MB,
+ * default 64.  The least recently used thumbnails are deleted once the
+ * cache grows past this size.</li>
+ * <li>org.icepdf.core.views.thumbnails.cacheMaxAge, number of days a
+ * thumbnail is kept after it was last used, default 30.</li>
+ * <li>org.icepdf.core.views.thumbnails.minTextSize, text smaller then this
+ * many pixels isn't painted, default 2.</li>
+ * </ul>
+ *
+ * @since 6.3
+ */
+public class ThumbnailService {
+
+    private static final Logger logger =
+            Logger.getLogger(ThumbnailService.class.toString());
+
+    private static int threadCount;
+    private static boolean embeddedThumbnails;
+    private static boolean diskCacheEnabled;
+    private static String diskCachePath;
+    private static long diskCacheMaxSize;
+    private static long diskCacheMaxAge;
+    private static float minimumTextSize;
+
+    static {
+        threadCount = Math.max(1, Defs.intProperty("org.icepdf.core.views.thumbnails.threads", 1));
+        embeddedThumbnails = Defs.booleanProperty("org.icepdf.core.views.thumbnails.embedded", true);
+        diskCacheEnabled = Defs.booleanProperty("org.icepdf.core.views.thumbnails.diskCache", false);
+        diskCachePath = Defs.sysProperty("org.icepdf.core.views.thumbnails.cacheDir",
+                new File(Defs.sysProperty("user.home", "."),
+                        ".icesoft" + File.separator + "icepdf-viewer" + File.separator + "thumbnails").getPath());
+        diskCacheMaxSize = Defs.intProperty("org.icepdf.core.views.thumbnails.cacheSize", 64) * 1024L * 1024L;
+        diskCacheMaxAge = Defs.intProperty("org.icepdf.core.views.thumbnails.cacheMaxAge", 30) *
+                24L * 60L * 60L * 1000L;
+        minimumTextSize = (float) Defs.doubleProperty("org.icepdf.core.views.thumbnails.minTextSize", 2);
+    }
+
+    // bytes written to the disk cache since it was last trimmed, trimmed on
+    // the first write of the session.
+    private static final AtomicLong bytesWritten = new AtomicLong(Long.MAX_VALUE / 2);
+
+    private final Document document;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong requestCounter = new AtomicLong();
+    // digest identifying the document in the disk cache, null if disk caching isn't possible.
+    private final String documentKey;
+    private final RenderingHints renderingHints;
+
+    public ThumbnailService(Document document) {
+        this.document = document;
+        // thumbnails of encrypted documents would leak their content to disk.
+        documentKey = diskCacheEnabled && document.getSecurityManager() == null ?
+                createDocumentKey(document) : null;
+
+        renderingHints = new RenderingHints(
+                RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        renderingHints.put(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+        renderingHints.put(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_SPEED);
+        renderingHints.put(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
+        if (minimumTextSize > 0) {
+            renderingHints.put(GraphicsRenderingHints.KEY_MINIMUM_TEXT_SIZE, minimumTextSize);
+        }
+
+        executor = new ThreadPoolExecutor(threadCount, threadCount, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+        // below the common pool so the page view is painted first.
+        executor.setThreadFactory(new ThreadFactory() {
+            public Thread newThread(Runnable command) {
+                Thread newThread = new Thread(command);
+                newThread.setName("ICEpdf-thread-thumbnails");
+                newThread.setPriority(Thread.NORM_PRIORITY - 1);
+                newThread.setDaemon(true);
+                return newThread;
+            }
+        });
+    }
+
+    /**
+     * Queues the creation of a page thumbnail.  The callback is notified on
+     * the worker thread.
+     *
+     * @param pageIndex page to create a thumbnail of.
+     * @param boundary  page boundary to paint.
+     * @param zoom      zoom of the thumbnail.
+     * @param size      size of the thumbnail at the given zoom.
+     * @param callback  visibility check and receiver of the thumbnail.
+     * @return request handle.
+     */
+    public Request requestThumbnail(int pageIndex, int boundary, float zoom, Dimension size,
+                                    ThumbnailCallback callback) {
+        Request request = new Request(requestCounter.incrementAndGet(), pageIndex, boundary, zoom,
+                new Dimension(size), callback);
+        if (executor.isShutdown()) {
+            request.done = true;
+        } else {
+            executor.execute(request);
+        }
+        return request;
+    }
+
+    /**
+     * Stops the worker threads, queued requests are dropped.
+     */
+    public void dispose() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Creates the thumbnail for a request, the disk cache is checked first.
+     */
+    protected BufferedImage createThumbnail(Request request) throws InterruptedException {
+        File cacheFile = getCacheFile(request);
+        if (cacheFile != null && cacheFile.isFile()) {
+            try {
+                BufferedImage image = ImageIO.read(cacheFile);
+                if (image != null && image.getWidth() == request.size.width &&
+                        image.getHeight() == request.size.height) {
+                    // the last modified time orders the cache for trimming.
+                    cacheFile.setLastModified(System.currentTimeMillis());
+                    return image;
+                }
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Error reading cached thumbnail " + cacheFile, e);
+            }
+        }
+        Page page = document.getPageTree().getPage(request.pageIndex);
+        if (page == null) {
+            return null;
+        }
+        BufferedImage image = null;
+        if (embeddedThumbnails) {
+            image = createEmbeddedThumbnail(page, request.size);
+        }
+        if (image == null) {
+            image = paintThumbnail(page, request);
+        }
+        if (cacheFile != null) {
+            writeCacheFile(cacheFile, image);
+        }
+        return image;
+    }
+
+    /**
+     * Scales the page's embedded thumbnail to the given size.
+     *
+     * @return thumbnail, null if the page has no embedded thumbnail or its
+     * orientation doesn't match the page.
+     */
+    protected BufferedImage createEmbeddedThumbnail(Page page, Dimension size) throws InterruptedException {
+        Thumbnail thumbnail = page.getThumbnail();
+        if (thumbnail == null) {
+            return null;
+        }
+        try {
+            BufferedImage thumbImage = thumbnail.getImage();
+            if (thumbImage == null || thumbImage.getWidth() <= 0 || thumbImage.getHeight() <= 0 ||
+                    (thumbImage.getWidth() > thumbImage.getHeight()) != (size.width > size.height)) {
+                return null;
+            }
+            BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2d = image.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(thumbImage, 0, 0, size.width, size.height, null);
+            g2d.dispose();
+            return image;
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Error reading embedded thumbnail.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Paints the page at the request's zoom with the reduced fidelity rendering hints.
+     */
+    protected BufferedImage paintThumbnail(Page page, Request request) throws InterruptedException {
+        page.init();
+        BufferedImage image = new BufferedImage(request.size.width, request.size.height,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, request.size.width, request.size.height);
+        g2d.setClip(0, 0, request.size.width, request.size.height);
+        page.paint(g2d, GraphicsRenderingHints.SCREEN, renderingHints, request.boundary, 0, request.zoom,
+                false, false);
+        g2d.dispose();
+        return image;
+    }
+
+    private File getCacheFile(Request request) {
+        if (documentKey == null) {
+            return null;
+        }
+        return new File(diskCachePath, documentKey + "-" + request.pageIndex + "-" +
+                request.boundary + "-" + request.size.width + "x" + request.size.height + ".png");
+    }
+
+    private static void writeCacheFile(File cacheFile, BufferedImage image) {
+        // write to a temporary file first so a reader never sees a partial image.
+        File tempFile = new File(cacheFile.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            File directory = cacheFile.getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                return;
+            }
+            if (ImageIO.write(image, "png", tempFile)) {
+                long length = tempFile.length();
+                if (!tempFile.renameTo(cacheFile)) {
+                    tempFile.delete();
+                } else if (bytesWritten.addAndGet(length) > diskCacheMaxSize / 8) {
+                    trimDiskCache(directory);
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Error writing cached thumbnail " + cacheFile, e);
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Deletes the thumbnails that haven't been used for longer then the
+     * maximum age, then the least recently used thumbnails until the cache
+     * fits in its size limit.
+     *
+     * @param directory disk cache directory.
+     */
+    private static synchronized void trimDiskCache(File directory) {
+        bytesWritten.set(0);
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        final long[] lastModified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        long oldest = System.currentTimeMillis() - diskCacheMaxAge;
+        long size = 0;
+        for (int i = 0; i < files.length; i++) {
+            lastModified[i] = files[i].lastModified();
+            order[i] = i;
+            if (!files[i].isFile() || !files[i].getName().endsWith(".png")) {
+                files[i] = null;
+            } else if (lastModified[i] < oldest && files[i].delete()) {
+                files[i] = null;
+            } else {
+                size += files[i].length();
+            }
+        }
+        if (size <= diskCacheMaxSize) {
+            return;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer index1, Integer index2) {
+                return lastModified[index1] < lastModified[index2] ? -1 :
+                        lastModified[index1] > lastModified[index2] ? 1 : 0;
+            }
+        });
+        for (int i = 0; i < order.length && size > diskCacheMaxSize; i++) {
+            File file = files[order[i]];
+            if (file != null) {
+                long length = file.length();
+                if (file.delete()) {
+                    size -= length;
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the digest that identifies the document in the disk cache from
+     * the document's file identifier, location and, if it's a local file, the
+     * file's length and last modified time.
+     *
+     * @return hex digest, null if the document can't be identified.
+     */
+    private static String createDocumentKey(Document document) {
+        StringBuilder identity = new StringBuilder();
+        try {
+            PTrailer trailer = document.getStateManager() != null ?
+                    document.getStateManager().getTrailer() : null;
+            List<?> id = trailer != null ? trailer.getID() : null;
+            if (id != null) {
+                for (Object part : id) {
+                    identity.append(part instanceof StringObject ?
+                            ((StringObject) part).getHexString() : String.valueOf(part)).append('|');
+                }
+            }
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Error reading document identifier.", e);
+        }
+        String location = document.getDocumentLocation();
+        if (location != null) {
+            identity.append(location).append('|');
+            File file = new File(location);
+            if (file.isFile()) {
+                identity.append(file.length()).append('|').append(file.lastModified()).append('|');
+            }
+        }
+        if (identity.length() == 0) {
+            return null;
+        }
+        identity.append(document.getNumberOfPages());
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(identity.toString().getBytes(Charset.forName("UTF-8")));
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            logger.warning("Thumbnail disk cache disabled, SHA-1 is not available.");
+            return null;
+        }
+    }
+
+    /**
+     * Visibility check and receiver of a thumbnail request.
+     */
+    public interface ThumbnailCallback {
+
+        /**
+         * Checks if the thumbnail is still in view, requests for thumbnails
+         * that aren't are dropped.
+         *
+         * @return true if the thumbnail should still be created.
+         */
+        boolean isThumbnailVisible();
+
+        /**
+         * Called on the worker thread with the new thumbnail.
+         *
+         * @param image thumbnail image.
+         */
+        void thumbnailCreated(BufferedImage image);
+    }
+
+    /**
+     * A queued thumbnail request, newer requests are served first.
+     */
+    public class Request implements Runnable, Comparable<Request> {
+
+        private final long sequence;
+        private final int pageIndex;
+        private final int boundary;
+        private final float zoom;
+        private final Dimension size;
+        private final ThumbnailCallback callback;
+        private volatile boolean done;
+
+        Request(long sequence, int pageIndex, int boundary, float zoom, Dimension size,
+                ThumbnailCallback callback) {
+            this.sequence = sequence;
+            this.pageIndex = pageIndex;
+            this.boundary = boundary;
+            this.zoom = zoom;
+            this.size = size;
+            this.callback = callback;
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+
+        public void run() {
+            try {
+                if (callback.isThumbnailVisible() && size.width > 0 && size.height > 0) {
+                    BufferedImage image = createThumbnail(this);
+                    if (image != null) {
+                        callback.thumbnailCreated(image);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.finer("Interrupted thumbnail request: " + pageIndex);
+            } catch (Throwable e) {
+                logger.log(Level.WARNING, "Error creating thumbnail: " + e.getMessage() + " " + pageIndex, e);
+            } finally {
+                done = true;
+            }
+        }
+
+        public int compareTo(Request request) {
+            return sequence > request.sequence ? -1 : sequence < request.sequence ? 1 : 0;
+        }
+    }
+}
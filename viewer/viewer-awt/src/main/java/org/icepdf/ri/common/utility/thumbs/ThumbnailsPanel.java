@@ -51,6 +51,8 @@ public class ThumbnailsPanel extends JPanel {
     protected static final int MAX_PAGE_SIZE_READ_AHEAD = 10;
 
     private SwingController controller;
+    // creates the thumbnails of the current document.
+    private ThumbnailService thumbnailService;
 
     public ThumbnailsPanel(SwingController controller,
                            PropertiesManager propertiesManager) {
@@ -66,8 +68,13 @@ public class ThumbnailsPanel extends JPanel {
     public void setDocument(Document document) {
         this.currentDocument = document;
         documentViewController = controller.getDocumentViewController();
+        if (thumbnailService != null) {
+            thumbnailService.dispose();
+            thumbnailService = null;
+        }
 
         if (document != null) {
+            thumbnailService = new ThumbnailService(document);
             buildUI();
         } else {
             // tear down the old container.
@@ -77,6 +84,10 @@ public class ThumbnailsPanel extends JPanel {
 
     public void dispose() {
         this.removeAll();
+        if (thumbnailService != null) {
+            thumbnailService.dispose();
+            thumbnailService = null;
+        }
     }
 
     private void buildUI() {
@@ -122,12 +133,12 @@ public class ThumbnailsPanel extends JPanel {
             if (i < MAX_PAGE_SIZE_READ_AHEAD) {
                 pageThumbnailComponent =
                         new PageThumbnailComponent(
-                                controller, scrollPane, pageTree, i, thumbNailZoom);
+                                controller, thumbnailService, scrollPane, pageTree, i, 0, 0, thumbNailZoom);
                 avgPageWidth += pageThumbnailComponent.getPreferredSize().width;
                 avgPageHeight += pageThumbnailComponent.getPreferredSize().height;
             } else if (i > MAX_PAGE_SIZE_READ_AHEAD) {
                 pageThumbnailComponent =
-                        new PageThumbnailComponent(controller, scrollPane, pageTree, i,
+                        new PageThumbnailComponent(controller, thumbnailService, scrollPane, pageTree, i,
                                 avgPageWidth, avgPageHeight, thumbNailZoom);
             }
             // calculate average page size
@@ -135,7 +146,7 @@ public class ThumbnailsPanel extends JPanel {
                 avgPageWidth /= (MAX_PAGE_SIZE_READ_AHEAD);
                 avgPageHeight /= (MAX_PAGE_SIZE_READ_AHEAD);
                 pageThumbnailComponent =
-                        new PageThumbnailComponent(controller, scrollPane, pageTree, i,
+                        new PageThumbnailComponent(controller, thumbnailService, scrollPane, pageTree, i,
                                 avgPageWidth, avgPageHeight, thumbNailZoom);
             }
             pageThumbsPanel.add(pageThumbnailComponent);
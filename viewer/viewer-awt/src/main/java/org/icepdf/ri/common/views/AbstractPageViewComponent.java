@@ -28,6 +28,9 @@ import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.concurrent.Callable;
 import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
@@ -38,6 +41,11 @@ import java.util.logging.Logger;
  * provided by a parent JScrollPane component to optimize memory usage.  Page content is painted to a back buffer
  * which is painted by the component when ready.  The back buffer is scaled on subsequent paints to show content and
  * is later replaced with a new buffer that is painted with the current page properties.
+ * <br>
+ * By default the page is instead painted as fixed size tiles that are kept in the shared PageTileCache, tiles
+ * that haven't been painted at the current zoom are covered with a scaled tile from a previous zoom or a small
+ * preview of the whole page until the worker has painted them.  Tiled painting can be disabled with the system
+ * property org.icepdf.core.views.page.tiles.enabled=false.
  */
 public abstract class AbstractPageViewComponent
         extends JLayeredPane
@@ -51,6 +59,10 @@ public abstract class AbstractPageViewComponent
     private static Color pageColor;
     protected static int pageBufferPadding = 250;
     protected static boolean progressivePaint = true;
+    protected static boolean tiledPaint = true;
+
+    // number of tile levels a page remembers as placeholders for tiles that haven't been painted.
+    private static final int MAX_TILE_LEVELS = 8;
 
     static {
         try {
@@ -67,6 +79,8 @@ public abstract class AbstractPageViewComponent
         pageBufferPadding = Defs.intProperty("org.icepdf.core.views.bufferpadding", 250);
         // progressive paint of first page loat.
         progressivePaint = Defs.booleanProperty("org.icepdf.core.views.page.progressivePaint", true);
+        // paint the page as cached tiles rather then a single clipped buffer.
+        tiledPaint = Defs.booleanProperty("org.icepdf.core.views.page.tiles.enabled", true);
     }
 
     // flags for painting annotations and text highlights.
@@ -94,6 +108,14 @@ public abstract class AbstractPageViewComponent
     // Main worker task.
     protected FutureTask<Object> pageImageCaptureTask;
 
+    // tile painting state, the generation changes when the page content needs to be repainted.
+    protected boolean useTileCache = tiledPaint;
+    protected PageTileCache tileCache;
+    protected int tileGeneration;
+    // most recently painted tile levels, first is newest.
+    private final ArrayList<PageTileCache.Level> tileLevels = new ArrayList<PageTileCache.Level>(MAX_TILE_LEVELS);
+    private PageTileCaptureTask tileCaptureTask;
+
     public AbstractPageViewComponent(DocumentViewModel documentViewModel, PageTree pageTree,
                                      final int pageIndex, JScrollPane parentScrollPane, int width, int height) {
         // needed to propagate mouse events.
@@ -115,6 +137,8 @@ public abstract class AbstractPageViewComponent
 
         // setup the store for the pageBufferPadding and current clip
         pageBufferStore = new PageBufferStore();
+        tileCache = PageTileCache.getInstance();
+        tileGeneration = PageTileCache.nextGeneration();
 
         // initialize page size
         pageSize = new Rectangle();
@@ -211,9 +235,11 @@ public abstract class AbstractPageViewComponent
             pageZoom = (Float) newValue;
         } else if (PropertyConstants.DOCUMENT_VIEW_REFRESH_CHANGE.equals(propertyConstant)) {
             // nothing to do but repaint
+            invalidateTiles();
         } else if (PropertyConstants.DOCUMENT_VIEW_DEMO_MODE_CHANGE.equals(propertyConstant)) {
             // re-initialized the page.
             pageBufferStore.setDirty(true);
+            invalidateTiles();
             Page page = getPage();
             page.getLibrary().disposeFontResources();
             page.resetInitializedState();
@@ -222,6 +248,32 @@ public abstract class AbstractPageViewComponent
         pageBufferStore.setDirty(true);
     }
 
+    /**
+     * Marks the page's tiles as out of date so they are repainted on the next paint.  The old tiles are still used
+     * as placeholders until the new tiles have been painted.
+     */
+    protected void invalidateTiles() {
+        tileGeneration = PageTileCache.nextGeneration();
+    }
+
+    /**
+     * Removes the page's tiles from the tile cache, should be called when the page view is disposed.
+     */
+    protected void releaseTiles() {
+        if (pageImageCaptureTask != null && !pageImageCaptureTask.isDone()) {
+            pageImageCaptureTask.cancel(true);
+        }
+        synchronized (tileLevels) {
+            for (PageTileCache.Level level : tileLevels) {
+                if (level.getGeneration() != tileGeneration) {
+                    tileCache.removeGeneration(level.getGeneration());
+                }
+            }
+            tileLevels.clear();
+        }
+        tileCache.removeGeneration(tileGeneration);
+    }
+
     /**
      * Checks if this page intersects the viewport
      *
@@ -258,12 +310,20 @@ public abstract class AbstractPageViewComponent
         GraphicsRenderingHints grh = GraphicsRenderingHints.getDefault();
         g2d.setRenderingHints(grh.getRenderingHints(GraphicsRenderingHints.SCREEN));
         // page location in the the entire view.
-        calculateBufferLocation();
+        if (!useTileCache) {
+            calculateBufferLocation();
+        }
 
         // paint the paper
         g2d.setColor(pageColor);
         g2d.fillRect(0, 0, pageSize.width, pageSize.height);
 
+        if (useTileCache) {
+            paintTiles(g2d);
+            g2d.dispose();
+            return;
+        }
+
         // paint the pageBufferPadding, but get the latest copy encase it was returned extra quick
         BufferedImage pageImage = pageBufferStore.getImageReference();
         if (pageImage != null) {
@@ -279,6 +339,163 @@ public abstract class AbstractPageViewComponent
         g2d.dispose();
     }
 
+    /**
+     * Paints the page tiles that intersect the viewport.  Tiles that haven't been painted at the current level are
+     * covered by scaled tiles of another level, if any are cached, and are queued for the tile worker along with the
+     * tiles in the buffer padding around the viewport.
+     *
+     * @param g2d graphics context of the page component.
+     */
+    protected void paintTiles(Graphics2D g2d) {
+        // grab a reference to the graphics configuration via the AWT thread.
+        graphicsConfiguration = parentScrollPane.getGraphicsConfiguration();
+
+        // update page size as we may have a page that's larger then the average document size.
+        calculatePageSize(pageSize, pageRotation, pageZoom);
+        if (pageSize.width <= 0 || pageSize.height <= 0) {
+            return;
+        }
+
+        // visible part of the page in page coordinates.
+        Rectangle pageLocation = documentViewModel != null ?
+                documentViewModel.getPageBounds(pageIndex) : new Rectangle(pageSize);
+        Rectangle visible = parentScrollPane.getViewport().getViewRect().intersection(pageLocation);
+        if (visible.isEmpty()) {
+            return;
+        }
+        visible.translate(-pageLocation.x, -pageLocation.y);
+        Rectangle page = new Rectangle(0, 0, pageSize.width, pageSize.height);
+        Rectangle padded = new Rectangle(visible.x - pageBufferPadding, visible.y - pageBufferPadding,
+                visible.width + pageBufferPadding * 2, visible.height + pageBufferPadding * 2).intersection(page);
+
+        final PageTileCache.Level level =
+                new PageTileCache.Level(tileGeneration, pageBoundaryBox, pageRotation, pageZoom);
+        ArrayList<PageTileCache.Level> fallbackLevels = getFallbackLevels(level);
+
+        int tileSize = PageTileCache.getTileSize();
+        int firstColumn = visible.x / tileSize;
+        int lastColumn = (visible.x + visible.width - 1) / tileSize;
+        int firstRow = visible.y / tileSize;
+        int lastRow = (visible.y + visible.height - 1) / tileSize;
+        ArrayList<Point> tiles = new ArrayList<Point>();
+        boolean paintPreview = false;
+        Rectangle tileBounds = new Rectangle(tileSize, tileSize);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                tileBounds.setLocation(column * tileSize, row * tileSize);
+                if (!tileCache.drawTile(g2d, level.createKey(column, row),
+                        tileBounds.x, tileBounds.y, tileSize, tileSize)) {
+                    tiles.add(new Point(column, row));
+                    if (!paintTileFallback(g2d, level, fallbackLevels, tileBounds)) {
+                        paintPreview = true;
+                    }
+                }
+            }
+        }
+        // queue the tiles in the padding so scrolling has something to show.
+        for (int row = padded.y / tileSize, maxRow = (padded.y + padded.height - 1) / tileSize;
+             row <= maxRow; row++) {
+            for (int column = padded.x / tileSize, maxColumn = (padded.x + padded.width - 1) / tileSize;
+                 column <= maxColumn; column++) {
+                if ((row < firstRow || row > lastRow || column < firstColumn || column > lastColumn) &&
+                        !tileCache.contains(level.createKey(column, row))) {
+                    tiles.add(new Point(column, row));
+                }
+            }
+        }
+        if (tiles.isEmpty()) {
+            return;
+        }
+        // hand the tiles to the running worker if it's painting the same level, otherwise start a new one.
+        if (tileCaptureTask == null || pageImageCaptureTask == null || pageImageCaptureTask.isDone() ||
+                !tileCaptureTask.getLevel().equals(level) || !tileCaptureTask.setTiles(tiles, paintPreview)) {
+            if (pageImageCaptureTask != null && !pageImageCaptureTask.isDone()) {
+                pageImageCaptureTask.cancel(true);
+            }
+            tileCaptureTask = new PageTileCaptureTask(level, tiles, paintPreview);
+            pageImageCaptureTask = new FutureTask<Object>(tileCaptureTask);
+            Library.execute(pageImageCaptureTask);
+        }
+    }
+
+    /**
+     * Gets the painted levels that can stand in for tiles of the given level, ordered from least to most
+     * preferred.  Levels of the current content generation are preferred, then levels closest to the given zoom.
+     */
+    private ArrayList<PageTileCache.Level> getFallbackLevels(final PageTileCache.Level level) {
+        ArrayList<PageTileCache.Level> levels = new ArrayList<PageTileCache.Level>(MAX_TILE_LEVELS);
+        synchronized (tileLevels) {
+            for (PageTileCache.Level tileLevel : tileLevels) {
+                if (!tileLevel.equals(level) && tileLevel.getBoundary() == level.getBoundary() &&
+                        tileLevel.getRotation() == level.getRotation()) {
+                    levels.add(tileLevel);
+                }
+            }
+        }
+        if (levels.size() > 1) {
+            Collections.sort(levels, new Comparator<PageTileCache.Level>() {
+                public int compare(PageTileCache.Level level1, PageTileCache.Level level2) {
+                    return Double.compare(fallbackRank(level1, level), fallbackRank(level2, level));
+                }
+            });
+        }
+        return levels;
+    }
+
+    private static double fallbackRank(PageTileCache.Level fallback, PageTileCache.Level level) {
+        double rank = -Math.abs(Math.log(fallback.getZoom() / level.getZoom()));
+        if (fallback.getGeneration() != level.getGeneration()) {
+            rank -= 100;
+        }
+        return rank;
+    }
+
+    /**
+     * Paints the scaled tiles of the fallback levels that cover the given tile bounds.
+     *
+     * @return true if any part of the bounds was painted.
+     */
+    private boolean paintTileFallback(Graphics2D g2d, PageTileCache.Level level,
+                                      ArrayList<PageTileCache.Level> fallbackLevels, Rectangle tileBounds) {
+        if (fallbackLevels.isEmpty()) {
+            return false;
+        }
+        boolean painted = false;
+        int tileSize = PageTileCache.getTileSize();
+        Graphics2D g = (Graphics2D) g2d.create();
+        g.clipRect(tileBounds.x, tileBounds.y, tileBounds.width, tileBounds.height);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        for (PageTileCache.Level fallback : fallbackLevels) {
+            // size of a fallback tile in the current level's pixels.
+            double scaledSize = tileSize * (level.getZoom() / (double) fallback.getZoom());
+            int firstColumn = (int) (tileBounds.x / scaledSize);
+            int lastColumn = (int) ((tileBounds.x + tileBounds.width - 1) / scaledSize);
+            int firstRow = (int) (tileBounds.y / scaledSize);
+            int lastRow = (int) ((tileBounds.y + tileBounds.height - 1) / scaledSize);
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    // edges are floored so neighbouring tiles meet without gaps.
+                    int x = (int) (column * scaledSize);
+                    int y = (int) (row * scaledSize);
+                    painted |= tileCache.drawTile(g, fallback.createKey(column, row), x, y,
+                            (int) ((column + 1) * scaledSize) - x, (int) ((row + 1) * scaledSize) - y);
+                }
+            }
+        }
+        g.dispose();
+        return painted;
+    }
+
+    private void addTileLevel(PageTileCache.Level level) {
+        synchronized (tileLevels) {
+            tileLevels.remove(level);
+            tileLevels.add(0, level);
+            while (tileLevels.size() > MAX_TILE_LEVELS) {
+                tileLevels.remove(tileLevels.size() - 1);
+            }
+        }
+    }
+
     /**
      * Calculates where we should be painting the new buffer and kicks off the the worker if the buffer
      * is deemed dirty. The Parent scrollpane viewport is taken into account to setup the clipping.
@@ -337,6 +554,22 @@ public abstract class AbstractPageViewComponent
         }
     }
 
+    /**
+     * Replaces the page buffer with an image of the whole page that was painted elsewhere, such as a cached
+     * thumbnail, and queues a repaint.
+     *
+     * @param pageImage image of the page at the current zoom and rotation.
+     */
+    protected void setPageImage(BufferedImage pageImage) {
+        Rectangle imageLocation = new Rectangle(0, 0, pageImage.getWidth(), pageImage.getHeight());
+        pageBufferStore.setState(pageImage, imageLocation, imageLocation, pageSize, pageZoom, pageRotation, false);
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                repaint();
+            }
+        });
+    }
+
     /**
      * Calculates the affine transform that paints the old buffered image using the current scale and rotation.  This
      * avoid the back buffer flicker.  Once the worker captures the new buffer we swap in the new buffer.
@@ -464,6 +697,167 @@ public abstract class AbstractPageViewComponent
         }
     }
 
+    /**
+     * The tile worker paints the queued tiles of a level one at a time, each tile is added to the tile cache and
+     * repainted as soon as it's done.  The queue is replaced by the component's paint as the viewport moves, so
+     * tiles that have scrolled out of the padding are never painted.  If a visible tile had nothing to stand in
+     * for it a preview of the whole page that fits in a single tile is painted first.
+     */
+    public class PageTileCaptureTask implements Callable<Object> {
+
+        private final PageTileCache.Level level;
+        private ArrayList<Point> tiles;
+        private boolean paintPreview;
+        private boolean isDone;
+
+        public PageTileCaptureTask(PageTileCache.Level level, ArrayList<Point> tiles, boolean paintPreview) {
+            this.level = level;
+            this.tiles = tiles;
+            this.paintPreview = paintPreview;
+        }
+
+        public PageTileCache.Level getLevel() {
+            return level;
+        }
+
+        /**
+         * Replaces the queued tiles.
+         *
+         * @return false if the worker has already finished and the tiles need a new worker.
+         */
+        synchronized boolean setTiles(ArrayList<Point> tiles, boolean paintPreview) {
+            if (isDone) {
+                return false;
+            }
+            this.tiles = tiles;
+            this.paintPreview |= paintPreview;
+            return true;
+        }
+
+        private synchronized Point nextTile() {
+            if (tiles.isEmpty()) {
+                isDone = true;
+                return null;
+            }
+            return tiles.remove(0);
+        }
+
+        private synchronized boolean takePreview() {
+            boolean preview = paintPreview;
+            paintPreview = false;
+            return preview;
+        }
+
+        public Object call() throws Exception {
+            if (!isPageIntersectViewport()) {
+                synchronized (this) {
+                    isDone = true;
+                }
+                pageTeardownCallback();
+                return null;
+            }
+            Page page = pageTree.getPage(pageIndex);
+            // page loading progress
+            PageViewLoadingListener pageLoadingListener =
+                    new DefaultPageViewLoadingListener(AbstractPageViewComponent.this, documentViewController);
+            try {
+                if (documentViewController != null) page.addPageProcessingListener(pageLoadingListener);
+                // page init, interruptible
+                page.init();
+                pageInitializedCallback(page);
+
+                if (takePreview()) {
+                    PageTileCache.Level previewLevel = createPreviewLevel();
+                    if (previewLevel != null && paintTile(page, previewLevel, 0, 0)) {
+                        addTileLevel(previewLevel);
+                        repaintTile(null);
+                    }
+                }
+                addTileLevel(level);
+                Point tile;
+                while ((tile = nextTile()) != null) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedException();
+                    }
+                    if (!paintTile(page, level, tile.x, tile.y)) {
+                        // page was disposed underneath us, the next paint will start over.
+                        break;
+                    }
+                    repaintTile(tile);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.finer("Interrupted page tile capture task: " + e.getMessage() + " " + pageIndex);
+            } catch (Throwable e) {
+                logger.log(Level.WARNING, "Error during page tile capture task: " + e.getMessage() + " " + pageIndex, e);
+            } finally {
+                synchronized (this) {
+                    isDone = true;
+                }
+                page.removePageProcessingListener(pageLoadingListener);
+            }
+            return null;
+        }
+
+        /**
+         * Paints a tile and adds it to the tile cache.
+         *
+         * @return false if the page is no longer initialized and the tile couldn't be painted.
+         */
+        private boolean paintTile(Page page, PageTileCache.Level level, int column, int row)
+                throws InterruptedException {
+            int tileSize = PageTileCache.getTileSize();
+            BufferedImage tileImage = tileCache.createTileImage(graphicsConfiguration);
+            Graphics2D g2d = tileImage.createGraphics();
+            boolean painted = false;
+            try {
+                g2d.setColor(pageColor);
+                g2d.fillRect(0, 0, tileSize, tileSize);
+                g2d.setClip(0, 0, tileSize, tileSize);
+                g2d.translate(-column * tileSize, -row * tileSize);
+                page.paint(g2d, GraphicsRenderingHints.SCREEN, level.getBoundary(), level.getRotation(),
+                        level.getZoom(), paintAnnotations, paintSearchHighlight);
+                painted = page.isInitiated();
+            } finally {
+                g2d.dispose();
+                if (!painted) {
+                    tileCache.releaseTileImage(tileImage);
+                }
+            }
+            if (painted) {
+                tileCache.put(level.createKey(column, row), tileImage);
+            }
+            return painted;
+        }
+
+        /**
+         * Creates the level at which the whole page fits in one tile, null if the page is already about that size.
+         */
+        private PageTileCache.Level createPreviewLevel() {
+            Rectangle size = new Rectangle();
+            calculatePageSize(size, level.getRotation(), level.getZoom());
+            double scale = (PageTileCache.getTileSize() - 1) / (double) Math.max(size.width, size.height);
+            if (scale > 0.5) {
+                return null;
+            }
+            return new PageTileCache.Level(level.getGeneration(), level.getBoundary(), level.getRotation(),
+                    (float) (level.getZoom() * scale));
+        }
+
+        private void repaintTile(final Point tile) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    if (tile != null) {
+                        int tileSize = PageTileCache.getTileSize();
+                        repaint(tile.x * tileSize, tile.y * tileSize, tileSize, tileSize);
+                    } else {
+                        repaint();
+                    }
+                }
+            });
+        }
+    }
+
     /**
      * Synchronized page buffer property store, insures that a page capture occurs using the correct properties.
      */
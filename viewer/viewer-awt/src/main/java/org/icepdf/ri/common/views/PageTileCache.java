@@ -0,0 +1,386 @@
+/*
+ * Copyright 2006-2017 ICEsoft Technologies Canada Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS
+ * IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.icepdf.ri.common.views;
+
+import org.icepdf.core.util.Defs;
+import org.icepdf.core.util.SizedLRUCache;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Least recently used cache of rendered page tiles shared by all the page
+ * views of the viewer.  Pages are painted as fixed size square tiles, a tile
+ * is identified by its level, the zoom, rotation and page boundary it was
+ * painted with plus the content generation of the page view that owns it,
+ * and the tile's column and row.
+ * <br>
+ * The cache is bounded by the bytes used by the tiles' rasters, the budget
+ * can be set with the system property
+ * org.icepdf.core.views.page.tiles.cacheSize in MB, default 64.  Tiles are
+ * org.icepdf.core.views.page.tiles.size pixels square, default 256.  Evicted
+ * tile buffers are kept in a small pool, org.icepdf.core.views.page.tiles.poolSize,
+ * default 16, and are handed back out for the next tile that is painted.
+ * <br>
+ * Tiles are drawn outside of the cache lock.  A tile's buffer is pinned while
+ * it's being drawn, a pinned buffer that is evicted in the meantime is only
+ * returned to the pool once the draw is done.
+ *
+ * @since 6.3
+ */
+public class PageTileCache {
+
+    private static int tileSize;
+    private static long defaultMaxSize;
+    private static int defaultPoolSize;
+
+    private static PageTileCache instance;
+
+    private static final AtomicInteger generationCounter = new AtomicInteger();
+
+    static {
+        tileSize = Math.max(Defs.intProperty("org.icepdf.core.views.page.tiles.size", 256), 32);
+        defaultMaxSize = Defs.intProperty("org.icepdf.core.views.page.tiles.cacheSize", 64) * 1024L * 1024L;
+        defaultPoolSize = Defs.intProperty("org.icepdf.core.views.page.tiles.poolSize", 16);
+    }
+
+    private final SizedLRUCache<Key, BufferedImage> tiles;
+    private final ArrayList<BufferedImage> pool;
+    private final int maxPoolSize;
+
+    // number of draws in progress for each pinned buffer.
+    private final IdentityHashMap<BufferedImage, Integer> pinned =
+            new IdentityHashMap<BufferedImage, Integer>();
+    // pinned buffers no longer in the cache, recycled once unpinned.
+    private final IdentityHashMap<BufferedImage, Boolean> removedPinned =
+            new IdentityHashMap<BufferedImage, Boolean>();
+
+    /**
+     * Creates a new cache with the given byte budget.
+     *
+     * @param maxSize     maximum number of raster bytes held by the cache.
+     * @param maxPoolSize maximum number of evicted tile buffers kept for reuse.
+     */
+    public PageTileCache(long maxSize, int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+        pool = new ArrayList<BufferedImage>(maxPoolSize);
+        tiles = new SizedLRUCache<Key, BufferedImage>(maxSize) {
+            @Override
+            protected long sizeOf(BufferedImage image) {
+                return imageSize(image);
+            }
+
+            @Override
+            protected void entryRemoved(Key key, BufferedImage image, boolean evicted) {
+                release(image);
+            }
+        };
+    }
+
+    /**
+     * Gets the cache shared by the viewer's page views.
+     *
+     * @return shared tile cache.
+     */
+    public static synchronized PageTileCache getInstance() {
+        if (instance == null) {
+            instance = new PageTileCache(defaultMaxSize, defaultPoolSize);
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the width and height of a tile in pixels.
+     *
+     * @return tile size.
+     */
+    public static int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Gets a new content generation.  A page view takes a new generation
+     * whenever its content changes so tiles painted before the change are no
+     * longer returned for the view's current level, they can still be used
+     * as a placeholder until they're evicted.
+     *
+     * @return unique generation number.
+     */
+    public static int nextGeneration() {
+        return generationCounter.incrementAndGet();
+    }
+
+    /**
+     * Draws the tile with the given key, if it's in the cache, to the given
+     * rectangle.
+     *
+     * @return true if the tile was found and drawn, otherwise false.
+     */
+    public boolean drawTile(Graphics2D g, Key key, int x, int y, int width, int height) {
+        BufferedImage image;
+        // the tiles lock keeps the buffer from being evicted before it's pinned.
+        synchronized (tiles) {
+            image = tiles.get(key);
+            if (image == null) {
+                return false;
+            }
+            pin(image);
+        }
+        try {
+            g.drawImage(image, x, y, width, height, null);
+        } finally {
+            unpin(image);
+        }
+        return true;
+    }
+
+    public boolean contains(Key key) {
+        return tiles.containsKey(key);
+    }
+
+    /**
+     * Gets a tile buffer to paint to, a pooled buffer is used if one is
+     * available.  The buffer's content is undefined.
+     *
+     * @param graphicsConfiguration configuration used to create a compatible
+     *                              image, can be null.
+     * @return opaque tile buffer of tileSize pixels square.
+     */
+    public BufferedImage createTileImage(GraphicsConfiguration graphicsConfiguration) {
+        synchronized (this) {
+            if (!pool.isEmpty()) {
+                return pool.remove(pool.size() - 1);
+            }
+        }
+        if (graphicsConfiguration != null) {
+            return graphicsConfiguration.createCompatibleImage(tileSize, tileSize, Transparency.OPAQUE);
+        }
+        return new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Returns a tile buffer that won't be added to the cache to the pool.
+     *
+     * @param image tile buffer.
+     */
+    public void releaseTileImage(BufferedImage image) {
+        release(image);
+    }
+
+    public void put(Key key, BufferedImage image) {
+        if (key == null || image == null) {
+            return;
+        }
+        if (!tiles.put(key, image)) {
+            release(image);
+        }
+    }
+
+    /**
+     * Removes all the tiles of the given content generation.
+     *
+     * @param generation generation of a page view's content.
+     */
+    public void removeGeneration(final int generation) {
+        tiles.removeAll(new SizedLRUCache.KeyFilter<Key>() {
+            public boolean accept(Key key) {
+                return key.level.generation == generation;
+            }
+        });
+    }
+
+    /**
+     * Removes all tiles from the cache and empties the buffer pool.
+     */
+    public void clear() {
+        tiles.clear();
+        synchronized (this) {
+            pool.clear();
+            removedPinned.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return tiles.getHitCount();
+    }
+
+    public long getMissCount() {
+        return tiles.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return tiles.getEvictionCount();
+    }
+
+    /**
+     * Gets the number of raster bytes currently held by the cache.
+     *
+     * @return size in bytes.
+     */
+    public long getSize() {
+        return tiles.getSize();
+    }
+
+    public long getMaxSize() {
+        return tiles.getMaxSize();
+    }
+
+    public int getEntryCount() {
+        return tiles.getEntryCount();
+    }
+
+    private synchronized void pin(BufferedImage image) {
+        Integer count = pinned.get(image);
+        pinned.put(image, count == null ? 1 : count + 1);
+    }
+
+    private synchronized void unpin(BufferedImage image) {
+        Integer count = pinned.get(image);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            pinned.put(image, count - 1);
+            return;
+        }
+        pinned.remove(image);
+        if (removedPinned.remove(image) != null) {
+            recycle(image);
+        }
+    }
+
+    // called with or without the tiles lock, the tiles lock is always taken first.
+    private synchronized void release(BufferedImage image) {
+        if (pinned.containsKey(image)) {
+            removedPinned.put(image, Boolean.TRUE);
+        } else {
+            recycle(image);
+        }
+    }
+
+    private void recycle(BufferedImage image) {
+        if (pool.size() < maxPoolSize &&
+                image.getWidth() == tileSize && image.getHeight() == tileSize) {
+            pool.add(image);
+        }
+    }
+
+    /**
+     * The state a page view's tiles are painted at.  Tiles of the same level
+     * line up on the same grid.
+     */
+    public static class Level {
+        private final int generation;
+        private final int boundary;
+        private final float rotation;
+        private final float zoom;
+
+        public Level(int generation, int boundary, float rotation, float zoom) {
+            this.generation = generation;
+            this.boundary = boundary;
+            this.rotation = rotation;
+            this.zoom = zoom;
+        }
+
+        public int getGeneration() {
+            return generation;
+        }
+
+        public int getBoundary() {
+            return boundary;
+        }
+
+        public float getRotation() {
+            return rotation;
+        }
+
+        public float getZoom() {
+            return zoom;
+        }
+
+        public Key createKey(int column, int row) {
+            return new Key(this, column, row);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Level)) {
+                return false;
+            }
+            Level level = (Level) o;
+            return generation == level.generation && boundary == level.boundary &&
+                    rotation == level.rotation && zoom == level.zoom;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = generation * 31 + boundary;
+            hash = hash * 31 + Float.floatToIntBits(rotation);
+            return hash * 31 + Float.floatToIntBits(zoom);
+        }
+    }
+
+    /**
+     * Identifies a tile of a level.
+     */
+    public static class Key {
+        private final Level level;
+        private final int column, row;
+        private final int hashCode;
+
+        private Key(Level level, int column, int row) {
+            this.level = level;
+            this.column = column;
+            this.row = row;
+            hashCode = (level.hashCode() * 31 + column) * 31 + row;
+        }
+
+        public Level getLevel() {
+            return level;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return column == key.column && row == key.row && level.equals(key.level);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
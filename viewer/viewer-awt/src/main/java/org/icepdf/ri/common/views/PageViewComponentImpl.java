@@ -88,6 +88,8 @@ public class PageViewComponentImpl extends AbstractPageViewComponent implements
         removeMouseListener(currentToolHandler);
         // remove focus listener
         removeFocusListener(this);
+        // free the page's tiles
+        releaseTiles();
         // dispose annotations components
         if (annotationComponents != null) {
             for (int i = 0, max = annotationComponents.size(); i < max; i++) {
@@ -281,6 +283,7 @@ public class PageViewComponentImpl extends AbstractPageViewComponent implements
             // to repaint the page, setting the buffer to dirty will reinitialize the page on the next paint cycle.
             if (searchController.isSearchHighlightRefreshNeeded(pageIndex, null)) {
                 pageBufferStore.setDirty(true);
+                invalidateTiles();
             }
         }
     }